@@ -15,34 +15,31 @@
  */
 package org.jebtk.core;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * A map of fixed size that begins to excise the oldest elements once the map
- * reaches a maximum size.
+ * reaches a maximum size. Age is insertion order, so replacing the value of a
+ * key does not make it younger.
+ *
+ * This map is not thread safe. For a concurrent cache with LRU or TinyLFU
+ * eviction, weights and expiry, use {@link org.jebtk.core.cache.Cache}.
  *
  * @author Antony Holmes
  * @param <T> the generic type
  * @param <X> the generic type
+ * @deprecated Use {@link org.jebtk.core.cache.CacheBuilder} to create a
+ *             {@link org.jebtk.core.cache.Cache}.
  */
-public class AgeMap<T, X> extends HashMap<T, X> {
+@Deprecated
+public class AgeMap<T, X> extends LinkedHashMap<T, X> {
 
   /**
    * The constant serialVersionUID.
    */
   private static final long serialVersionUID = 1L;
 
-  /**
-   * The member age map.
-   */
-  private Map<Integer, T> mAgeMap = new HashMap<Integer, T>();
-
-  /**
-   * Track the oldest id.
-   */
-  private int mOldest = 0;
-
   /**
    * The member max size.
    */
@@ -64,19 +61,18 @@ public class AgeMap<T, X> extends HashMap<T, X> {
    */
   @Override
   public X put(T key, X value) {
-    // First clear the cache of junk
-    if (!containsKey(key)) {
-      if (size() == mMaxSize) {
-        remove(mAgeMap.get(mOldest));
-        mAgeMap.remove(mOldest);
-        ++mOldest;
-      }
-
-      mAgeMap.put(size(), key);
-    }
-
     super.put(key, value);
 
     return value;
   }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+   */
+  @Override
+  protected boolean removeEldestEntry(Map.Entry<T, X> eldest) {
+    return size() > mMaxSize;
+  }
 }
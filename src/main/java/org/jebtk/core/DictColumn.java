@@ -0,0 +1,205 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dictionary encoded table column. Each row stores an int code into a
+ * dictionary of distinct values, which is much smaller than storing a
+ * reference per row when a column has few distinct values (e.g. chromosome or
+ * strand).
+ *
+ * @param <T> the generic type
+ */
+public class DictColumn<T> extends AbstractList<T> {
+
+  /** The codes, one per row. */
+  private int[] mCodes;
+
+  /** The number of rows. */
+  private int mSize = 0;
+
+  /** The distinct values in the order they were first seen. */
+  private final List<T> mDict = new ArrayList<T>();
+
+  /** Maps each distinct value to its code. */
+  private final Map<T, Integer> mIndex = new HashMap<T, Integer>();
+
+  /**
+   * Instantiates a new dictionary column.
+   */
+  public DictColumn() {
+    this(16);
+  }
+
+  /**
+   * Instantiates a new dictionary column.
+   *
+   * @param capacity the initial row capacity
+   */
+  public DictColumn(int capacity) {
+    mCodes = new int[Math.max(1, capacity)];
+  }
+
+  /**
+   * Instantiates a new dictionary column from a list of values.
+   *
+   * @param values the values
+   */
+  public DictColumn(List<T> values) {
+    this(values.size());
+
+    for (T v : values) {
+      add(v);
+    }
+  }
+
+  /**
+   * Append a value to the column.
+   *
+   * @param value the value
+   * @return true
+   */
+  @Override
+  public boolean add(T value) {
+    if (mSize == mCodes.length) {
+      mCodes = Arrays.copyOf(mCodes, Math.max(16, mSize * 2));
+    }
+
+    mCodes[mSize++] = encode(value);
+
+    return true;
+  }
+
+  /**
+   * Returns the code of a value, adding it to the dictionary if necessary.
+   *
+   * @param value the value
+   * @return the int
+   */
+  public int encode(T value) {
+    Integer code = mIndex.get(value);
+
+    if (code == null) {
+      code = mDict.size();
+      mDict.add(value);
+      mIndex.put(value, code);
+    }
+
+    return code;
+  }
+
+  /**
+   * Returns the code of a value or -1 if the value does not appear in the
+   * column.
+   *
+   * @param value the value
+   * @return the int
+   */
+  public int getCode(T value) {
+    Integer code = mIndex.get(value);
+
+    return code != null ? code : -1;
+  }
+
+  @Override
+  public T get(int row) {
+    return mDict.get(getCodeAt(row));
+  }
+
+  @Override
+  public T set(int row, T value) {
+    T ret = get(row);
+
+    mCodes[row] = encode(value);
+
+    return ret;
+  }
+
+  /**
+   * Returns the code of a given row.
+   *
+   * @param row the row
+   * @return the code at
+   */
+  public int getCodeAt(int row) {
+    if (row < 0 || row >= mSize) {
+      throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + mSize);
+    }
+
+    return mCodes[row];
+  }
+
+  /**
+   * Returns the value associated with a code.
+   *
+   * @param code the code
+   * @return the t
+   */
+  public T decode(int code) {
+    return mDict.get(code);
+  }
+
+  /**
+   * Returns the row codes. The array is trimmed to the number of rows.
+   *
+   * @return the codes
+   */
+  public int[] getCodes() {
+    if (mCodes.length != mSize) {
+      mCodes = Arrays.copyOf(mCodes, mSize);
+    }
+
+    return mCodes;
+  }
+
+  /**
+   * Returns the distinct values in the column indexed by code.
+   *
+   * @return the dictionary
+   */
+  public List<T> getDictionary() {
+    return Collections.unmodifiableList(mDict);
+  }
+
+  /**
+   * Returns the number of distinct values in the column.
+   *
+   * @return the int
+   */
+  public int cardinality() {
+    return mDict.size();
+  }
+
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  @Override
+  public void clear() {
+    mSize = 0;
+    mDict.clear();
+    mIndex.clear();
+  }
+}
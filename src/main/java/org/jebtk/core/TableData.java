@@ -148,6 +148,23 @@ public class TableData<T> implements Iterable<List<T>> {
     return columnValues;
   }
 
+  /**
+   * Gets a column as a dictionary encoded column. This is much more compact
+   * than {@link #getColumn(int)} for columns with few distinct values.
+   *
+   * @param column the column
+   * @return the column
+   */
+  public final DictColumn<T> getDictColumn(int column) {
+    DictColumn<T> ret = new DictColumn<T>(data.size());
+
+    for (List<T> row : data) {
+      ret.add(row.get(column));
+    }
+
+    return ret;
+  }
+
   /**
    * Gets the column as double.
    *
@@ -0,0 +1,764 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.cache;
+
+import java.lang.reflect.Array;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jebtk.core.collections.IntHashMap;
+
+/**
+ * A thread safe cache, optionally bounded by number of entries or total
+ * weight, whose entries can expire a fixed time after they are written or
+ * accessed. Create caches with {@link CacheBuilder}.
+ *
+ * Entries are held in a {@link ConcurrentHashMap} so reads never block. The
+ * eviction order is kept in doubly linked lists split into segments by key
+ * hash, each with its own lock, so that adding, reordering and evicting
+ * entries are O(1) and threads working on different segments do not contend.
+ * A read only reorders an entry if it can take the lock of its segment
+ * without waiting; under heavy contention some reads are not recorded, which
+ * makes eviction slightly less precise but keeps reads fast.
+ *
+ * Each segment enforces an equal share of the cache bound, so a cache is
+ * exactly LRU or TinyLFU only within a segment. Expired entries are removed
+ * when they are read, when they reach the head of an eviction list, or by
+ * {@link #cleanUp()}.
+ *
+ * {@link #get(Object, CacheLoader)} loads missing values so that concurrent
+ * requests for the same key wait for a single load rather than each calling
+ * the loader.
+ *
+ * @author Antony Holmes
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class Cache<K, V> {
+
+  /** Small bounded caches use fewer segments than this many entries each. */
+  private static final int MIN_SEGMENT_WEIGHT = 64;
+
+  /** The largest frequency sketch of a segment. */
+  private static final int MAX_SKETCH_SIZE = 1 << 16;
+
+  /** The queues an entry can be in. */
+  private static final int DEAD = -1;
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  /**
+   * A cache entry and a link in the list of its queue.
+   */
+  private static final class Node<K, V> {
+    private final K mKey;
+    private final int mHash;
+    private volatile V mValue;
+    private volatile long mWriteTime;
+    private volatile long mAccessTime;
+
+    // guarded by the segment lock
+    private int mWeight;
+    private int mQueue = WINDOW;
+    private Node<K, V> mPrev;
+    private Node<K, V> mNext;
+
+    public Node(K key, int hash, V value, int weight, long now) {
+      mKey = key;
+      mHash = hash;
+      mValue = value;
+      mWeight = weight;
+      mWriteTime = now;
+      mAccessTime = now;
+    }
+  }
+
+  /**
+   * A load of a key that other threads can wait for. It can also be completed
+   * with a value that is already cached, without running the loader.
+   */
+  private static final class Load<V> extends FutureTask<V> {
+    public Load(Callable<V> callable) {
+      super(callable);
+    }
+
+    public void complete(V value) {
+      set(value);
+    }
+  }
+
+  /**
+   * A doubly linked list of entries with the oldest at the head.
+   */
+  private static final class Queue<K, V> {
+    private Node<K, V> mHead;
+    private Node<K, V> mTail;
+    private long mWeight = 0;
+
+    public void add(Node<K, V> n) {
+      n.mPrev = mTail;
+      n.mNext = null;
+
+      if (mTail == null) {
+        mHead = n;
+      } else {
+        mTail.mNext = n;
+      }
+
+      mTail = n;
+      mWeight += n.mWeight;
+    }
+
+    public void remove(Node<K, V> n) {
+      if (n.mPrev == null) {
+        mHead = n.mNext;
+      } else {
+        n.mPrev.mNext = n.mNext;
+      }
+
+      if (n.mNext == null) {
+        mTail = n.mPrev;
+      } else {
+        n.mNext.mPrev = n.mPrev;
+      }
+
+      n.mPrev = null;
+      n.mNext = null;
+      mWeight -= n.mWeight;
+    }
+
+    public void moveToTail(Node<K, V> n) {
+      if (n != mTail) {
+        remove(n);
+        add(n);
+      }
+    }
+  }
+
+  /**
+   * The eviction state of the entries whose keys hash to the segment. An LRU
+   * segment only uses the window queue. A TinyLFU segment has a window queue
+   * of about 1% of the bound and a main area split into probation and
+   * protected queues.
+   */
+  private final class Segment {
+    private final ReentrantLock mLock = new ReentrantLock();
+    private final Queue<K, V> mWindow = new Queue<K, V>();
+    private final Queue<K, V> mProbation = new Queue<K, V>();
+    private final Queue<K, V> mProtected = new Queue<K, V>();
+    private final FrequencySketch mSketch;
+    private final long mMaxWeight;
+    private final long mWindowMax;
+    private final long mProtectedMax;
+    private long mWeight = 0;
+
+    public Segment(long maxWeight) {
+      mMaxWeight = maxWeight;
+
+      if (mPolicy == EvictionPolicy.TINY_LFU && maxWeight != Long.MAX_VALUE) {
+        mSketch = new FrequencySketch(Math.min(maxWeight, MAX_SKETCH_SIZE));
+        mWindowMax = Math.max(1, maxWeight / 100);
+        mProtectedMax = (maxWeight - mWindowMax) * 4 / 5;
+      } else {
+        mSketch = null;
+        mWindowMax = maxWeight;
+        mProtectedMax = 0;
+      }
+    }
+
+    private Queue<K, V> queue(Node<K, V> n) {
+      switch (n.mQueue) {
+      case PROBATION:
+        return mProbation;
+      case PROTECTED:
+        return mProtected;
+      default:
+        return mWindow;
+      }
+    }
+
+    public void add(Node<K, V> n) {
+      if (mSketch != null) {
+        mSketch.increment(n.mHash);
+      }
+
+      n.mQueue = WINDOW;
+      mWindow.add(n);
+      mWeight += n.mWeight;
+    }
+
+    public void setWeight(Node<K, V> n, int weight) {
+      int delta = weight - n.mWeight;
+
+      queue(n).mWeight += delta;
+      mWeight += delta;
+      n.mWeight = weight;
+    }
+
+    public void onAccess(Node<K, V> n) {
+      if (n.mQueue == DEAD) {
+        return;
+      }
+
+      if (mSketch != null) {
+        mSketch.increment(n.mHash);
+      }
+
+      switch (n.mQueue) {
+      case PROBATION:
+        // a second use promotes an entry to the protected queue
+        mProbation.remove(n);
+        n.mQueue = PROTECTED;
+        mProtected.add(n);
+
+        while (mProtected.mWeight > mProtectedMax && mProtected.mHead != null) {
+          Node<K, V> demote = mProtected.mHead;
+          mProtected.remove(demote);
+          demote.mQueue = PROBATION;
+          mProbation.add(demote);
+        }
+        break;
+      case PROTECTED:
+        mProtected.moveToTail(n);
+        break;
+      default:
+        mWindow.moveToTail(n);
+        break;
+      }
+    }
+
+    public void remove(Node<K, V> n) {
+      queue(n).remove(n);
+      mWeight -= n.mWeight;
+      n.mQueue = DEAD;
+      mMap.remove(n.mKey, n);
+    }
+
+    public void evict(Node<K, V> n) {
+      remove(n);
+
+      mEvictions.increment();
+      mEvictionWeight.add(n.mWeight);
+    }
+
+    /**
+     * Remove expired entries from the heads of the queues and then evict
+     * entries until the segment is within its bound.
+     *
+     * @param now the now
+     */
+    public void maintain(long now) {
+      if (mExpires) {
+        expireHead(mWindow, now);
+        expireHead(mProbation, now);
+        expireHead(mProtected, now);
+      }
+
+      if (mSketch == null) {
+        while (mWeight > mMaxWeight && mWindow.mHead != null) {
+          evict(mWindow.mHead);
+        }
+
+        return;
+      }
+
+      // entries leaving the window become candidates at the probation tail
+      while (mWindow.mWeight > mWindowMax && mWindow.mHead != null) {
+        Node<K, V> n = mWindow.mHead;
+        mWindow.remove(n);
+        n.mQueue = PROBATION;
+        mProbation.add(n);
+      }
+
+      while (mWeight > mMaxWeight) {
+        Node<K, V> victim = mProbation.mHead;
+
+        if (victim == null) {
+          victim = mProtected.mHead != null ? mProtected.mHead : mWindow.mHead;
+
+          evict(victim);
+
+          continue;
+        }
+
+        Node<K, V> candidate = mProbation.mTail;
+
+        // admit the candidate only if it is used more than the victim
+        if (candidate != victim && mSketch.frequency(candidate.mHash) > mSketch.frequency(victim.mHash)) {
+          evict(victim);
+        } else {
+          evict(candidate);
+        }
+      }
+    }
+
+    private void expireHead(Queue<K, V> queue, long now) {
+      while (queue.mHead != null && isExpired(queue.mHead, now)) {
+        evict(queue.mHead);
+      }
+    }
+
+    public void expireAll(long now) {
+      expireAll(mWindow, now);
+      expireAll(mProbation, now);
+      expireAll(mProtected, now);
+    }
+
+    private void expireAll(Queue<K, V> queue, long now) {
+      Node<K, V> n = queue.mHead;
+
+      while (n != null) {
+        Node<K, V> next = n.mNext;
+
+        if (isExpired(n, now)) {
+          evict(n);
+        }
+
+        n = next;
+      }
+    }
+
+    public void clear() {
+      clear(mWindow);
+      clear(mProbation);
+      clear(mProtected);
+    }
+
+    private void clear(Queue<K, V> queue) {
+      while (queue.mHead != null) {
+        remove(queue.mHead);
+      }
+    }
+  }
+
+  /** The entries. */
+  private final ConcurrentHashMap<K, Node<K, V>> mMap;
+
+  /** The loads in progress. */
+  private final ConcurrentHashMap<K, Load<V>> mLoading = new ConcurrentHashMap<K, Load<V>>();
+
+  private final Segment[] mSegments;
+  private final int mSegmentMask;
+
+  private final EvictionPolicy mPolicy;
+  private final Weigher<? super K, ? super V> mWeigher;
+  private final long mExpireAfterWrite;
+  private final long mExpireAfterAccess;
+  private final boolean mExpires;
+  private final Ticker mTicker;
+
+  private final LongAdder mHits = new LongAdder();
+  private final LongAdder mMisses = new LongAdder();
+  private final LongAdder mLoadSuccesses = new LongAdder();
+  private final LongAdder mLoadFailures = new LongAdder();
+  private final LongAdder mLoadTime = new LongAdder();
+  private final LongAdder mEvictions = new LongAdder();
+  private final LongAdder mEvictionWeight = new LongAdder();
+
+  /**
+   * Instantiates a new cache.
+   *
+   * @param builder the builder
+   */
+  @SuppressWarnings("unchecked")
+  Cache(CacheBuilder<K, V> builder) {
+    mPolicy = builder.mPolicy;
+    mWeigher = builder.mWeigher;
+    mExpireAfterWrite = builder.mExpireAfterWrite;
+    mExpireAfterAccess = builder.mExpireAfterAccess;
+    mExpires = mExpireAfterWrite > 0 || mExpireAfterAccess > 0;
+    mTicker = builder.mTicker;
+
+    long maxWeight = builder.mMaxWeight;
+
+    int segments = Integer.highestOneBit(builder.mConcurrencyLevel);
+
+    if (segments < builder.mConcurrencyLevel) {
+      segments <<= 1;
+    }
+
+    while (segments > 1 && maxWeight / segments < MIN_SEGMENT_WEIGHT) {
+      segments >>= 1;
+    }
+
+    mSegments = (Segment[]) Array.newInstance(Segment.class, segments);
+    mSegmentMask = segments - 1;
+
+    for (int i = 0; i < segments; ++i) {
+      if (maxWeight == Long.MAX_VALUE) {
+        mSegments[i] = new Segment(maxWeight);
+      } else {
+        // spread the remainder over the first segments
+        mSegments[i] = new Segment(maxWeight / segments + (i < maxWeight % segments ? 1 : 0));
+      }
+    }
+
+    mMap = new ConcurrentHashMap<K, Node<K, V>>(16, 0.75f, segments);
+  }
+
+  /**
+   * Returns the value of a key, or null if the key is not cached.
+   *
+   * @param key the key
+   * @return the v
+   */
+  public V getIfPresent(Object key) {
+    Node<K, V> n = mMap.get(key);
+
+    if (n == null) {
+      mMisses.increment();
+      return null;
+    }
+
+    long now = now();
+
+    if (isExpired(n, now)) {
+      expire(n, now);
+      mMisses.increment();
+      return null;
+    }
+
+    V ret = n.mValue;
+
+    if (mExpireAfterAccess > 0) {
+      n.mAccessTime = now;
+    }
+
+    Segment s = segment(n.mHash);
+
+    // skip reordering rather than wait for a busy segment
+    if (s.mLock.tryLock()) {
+      try {
+        s.onAccess(n);
+      } finally {
+        s.mLock.unlock();
+      }
+    }
+
+    mHits.increment();
+
+    return ret;
+  }
+
+  /**
+   * Returns the value of a key, loading it if it is not cached. If other
+   * threads request the same key while it is loading, they wait for the
+   * value rather than load it again. Unchecked exceptions thrown by the loader
+   * are rethrown to every waiting thread; checked exceptions are wrapped in a
+   * {@link CacheLoadException}.
+   *
+   * @param key    the key
+   * @param loader the loader
+   * @return the value, or null if the loader returned null.
+   */
+  public V get(final K key, final CacheLoader<? super K, V> loader) {
+    V ret = getIfPresent(key);
+
+    if (ret != null) {
+      return ret;
+    }
+
+    Load<V> task = new Load<V>(new Callable<V>() {
+      @Override
+      public V call() throws Exception {
+        return loader.load(key);
+      }
+    });
+
+    Load<V> loading = mLoading.putIfAbsent(key, task);
+
+    if (loading != null) {
+      return await(loading);
+    }
+
+    // another thread may have loaded the key and removed its load between the
+    // miss above and claiming the key, so check again before loading
+    ret = cached(key);
+
+    if (ret != null) {
+      // threads that found the claimed load wait for it, so complete it
+      task.complete(ret);
+      mLoading.remove(key, task);
+
+      return ret;
+    }
+
+    boolean loaded = false;
+    long start = mTicker.read();
+
+    try {
+      task.run();
+
+      ret = await(task);
+
+      if (ret != null) {
+        put(key, ret);
+        loaded = true;
+      }
+
+      return ret;
+    } finally {
+      mLoadTime.add(mTicker.read() - start);
+
+      if (loaded) {
+        mLoadSuccesses.increment();
+      } else {
+        mLoadFailures.increment();
+      }
+
+      // the value is cached before the load is removed so that later
+      // requests find one or the other
+      mLoading.remove(key, task);
+    }
+  }
+
+  /**
+   * Returns the cached value of a key without recording a hit or a miss, or
+   * null if the key is not cached or has expired.
+   *
+   * @param key the key
+   * @return the v
+   */
+  private V cached(Object key) {
+    Node<K, V> n = mMap.get(key);
+
+    return n != null && !isExpired(n, now()) ? n.mValue : null;
+  }
+
+  /**
+   * Wait for a load to finish.
+   *
+   * @param task the task
+   * @return the v
+   */
+  private V await(FutureTask<V> task) {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+      throw new CacheLoadException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw new CacheLoadException(cause);
+    }
+  }
+
+  /**
+   * Add or replace the value of a key, evicting entries if the cache is now
+   * too big.
+   *
+   * @param key   the key
+   * @param value the value
+   * @return the previous value or null.
+   */
+  public V put(K key, V value) {
+    if (value == null) {
+      throw new NullPointerException("Value must not be null.");
+    }
+
+    int hash = hash(key);
+    int weight = mWeigher != null ? mWeigher.weigh(key, value) : 1;
+
+    if (weight < 0) {
+      throw new IllegalArgumentException("Weight must not be negative.");
+    }
+
+    long now = now();
+
+    Segment s = segment(hash);
+
+    s.mLock.lock();
+
+    try {
+      Node<K, V> n = mMap.get(key);
+
+      V ret = null;
+
+      if (n != null) {
+        ret = isExpired(n, now) ? null : n.mValue;
+
+        n.mValue = value;
+        n.mWriteTime = now;
+        n.mAccessTime = now;
+        s.setWeight(n, weight);
+        s.onAccess(n);
+      } else {
+        n = new Node<K, V>(key, hash, value, weight, now);
+        mMap.put(key, n);
+        s.add(n);
+      }
+
+      s.maintain(now);
+
+      return ret;
+    } finally {
+      s.mLock.unlock();
+    }
+  }
+
+  /**
+   * Remove a key.
+   *
+   * @param key the key
+   */
+  public void invalidate(Object key) {
+    Segment s = segment(hash(key));
+
+    s.mLock.lock();
+
+    try {
+      Node<K, V> n = mMap.get(key);
+
+      if (n != null) {
+        s.remove(n);
+      }
+    } finally {
+      s.mLock.unlock();
+    }
+  }
+
+  /**
+   * Remove all keys.
+   */
+  public void invalidateAll() {
+    for (Segment s : mSegments) {
+      s.mLock.lock();
+
+      try {
+        s.clear();
+      } finally {
+        s.mLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Remove all expired entries.
+   */
+  public void cleanUp() {
+    if (!mExpires) {
+      return;
+    }
+
+    long now = now();
+
+    for (Segment s : mSegments) {
+      s.mLock.lock();
+
+      try {
+        s.expireAll(now);
+      } finally {
+        s.mLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of entries, which may include expired entries that
+   * have not yet been removed.
+   *
+   * @return the long
+   */
+  public long size() {
+    return mMap.size();
+  }
+
+  /**
+   * Returns the total weight of the entries.
+   *
+   * @return the long
+   */
+  public long weightedSize() {
+    long ret = 0;
+
+    for (Segment s : mSegments) {
+      s.mLock.lock();
+
+      try {
+        ret += s.mWeight;
+      } finally {
+        s.mLock.unlock();
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns a snapshot of the statistics of the cache.
+   *
+   * @return the cache stats
+   */
+  public CacheStats stats() {
+    return new CacheStats(mHits.sum(), mMisses.sum(), mLoadSuccesses.sum(), mLoadFailures.sum(), mLoadTime.sum(),
+        mEvictions.sum(), mEvictionWeight.sum());
+  }
+
+  /**
+   * Remove an expired entry.
+   *
+   * @param n   the n
+   * @param now the now
+   */
+  private void expire(Node<K, V> n, long now) {
+    Segment s = segment(n.mHash);
+
+    s.mLock.lock();
+
+    try {
+      // check the entry was not replaced or removed by another thread
+      if (n.mQueue != DEAD && isExpired(n, now)) {
+        s.evict(n);
+      }
+    } finally {
+      s.mLock.unlock();
+    }
+  }
+
+  private boolean isExpired(Node<K, V> n, long now) {
+    return (mExpireAfterWrite > 0 && now - n.mWriteTime >= mExpireAfterWrite)
+        || (mExpireAfterAccess > 0 && now - n.mAccessTime >= mExpireAfterAccess);
+  }
+
+  private long now() {
+    return mExpires ? mTicker.read() : 0;
+  }
+
+  private Segment segment(int hash) {
+    return mSegments[IntHashMap.phiMix(hash) & mSegmentMask];
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures and creates a {@link Cache}. By default a cache is unbounded,
+ * entries do not expire and bounded caches use the
+ * {@link EvictionPolicy#TINY_LFU} policy.
+ *
+ * <pre>
+ * Cache&lt;String, Genome&gt; cache = CacheBuilder.&lt;String, Genome&gt;create()
+ *     .maximumSize(1000)
+ *     .expireAfterAccess(10, TimeUnit.MINUTES)
+ *     .build();
+ * </pre>
+ *
+ * @author Antony Holmes
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class CacheBuilder<K, V> {
+
+  /** The default number of independently locked segments. */
+  public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+  long mMaxWeight = Long.MAX_VALUE;
+  Weigher<? super K, ? super V> mWeigher = null;
+  long mExpireAfterWrite = 0;
+  long mExpireAfterAccess = 0;
+  EvictionPolicy mPolicy = EvictionPolicy.TINY_LFU;
+  int mConcurrencyLevel = DEFAULT_CONCURRENCY_LEVEL;
+  Ticker mTicker = Ticker.SYSTEM;
+
+  /**
+   * Limit the number of entries in the cache.
+   *
+   * @param size the size
+   * @return the cache builder
+   */
+  public CacheBuilder<K, V> maximumSize(long size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Size must not be negative.");
+    }
+
+    mMaxWeight = size;
+    mWeigher = null;
+
+    return this;
+  }
+
+  /**
+   * Limit the total weight of the entries in the cache.
+   *
+   * @param weight  the weight
+   * @param weigher calculates the weight of each entry
+   * @return the cache builder
+   */
+  public CacheBuilder<K, V> maximumWeight(long weight, Weigher<? super K, ? super V> weigher) {
+    if (weight < 0) {
+      throw new IllegalArgumentException("Weight must not be negative.");
+    }
+
+    mMaxWeight = weight;
+    mWeigher = weigher;
+
+    return this;
+  }
+
+  /**
+   * Expire entries a fixed time after they were added or last replaced.
+   *
+   * @param duration the duration
+   * @param unit     the unit
+   * @return the cache builder
+   */
+  public CacheBuilder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+    mExpireAfterWrite = toNanos(duration, unit);
+
+    return this;
+  }
+
+  /**
+   * Expire entries a fixed time after they were last read or written.
+   *
+   * @param duration the duration
+   * @param unit     the unit
+   * @return the cache builder
+   */
+  public CacheBuilder<K, V> expireAfterAccess(long duration, TimeUnit unit) {
+    mExpireAfterAccess = toNanos(duration, unit);
+
+    return this;
+  }
+
+  /**
+   * Set how entries are chosen for eviction from a bounded cache.
+   *
+   * @param policy the policy
+   * @return the cache builder
+   */
+  public CacheBuilder<K, V> policy(EvictionPolicy policy) {
+    mPolicy = policy;
+
+    return this;
+  }
+
+  /**
+   * Set the number of independently locked segments, which is rounded up to a
+   * power of 2. Small bounded caches use fewer segments so that each segment
+   * holds a useful number of entries.
+   *
+   * @param level the level
+   * @return the cache builder
+   */
+  public CacheBuilder<K, V> concurrencyLevel(int level) {
+    if (level < 1) {
+      throw new IllegalArgumentException("Concurrency level must be positive.");
+    }
+
+    mConcurrencyLevel = level;
+
+    return this;
+  }
+
+  /**
+   * Set the time source for expiring entries, for example to control time in
+   * tests.
+   *
+   * @param ticker the ticker
+   * @return the cache builder
+   */
+  public CacheBuilder<K, V> ticker(Ticker ticker) {
+    mTicker = ticker;
+
+    return this;
+  }
+
+  /**
+   * Creates the cache.
+   *
+   * @return the cache
+   */
+  public Cache<K, V> build() {
+    return new Cache<K, V>(this);
+  }
+
+  private static long toNanos(long duration, TimeUnit unit) {
+    if (duration <= 0) {
+      throw new IllegalArgumentException("Duration must be positive.");
+    }
+
+    return unit.toNanos(duration);
+  }
+
+  /**
+   * Creates a new cache builder.
+   *
+   * @param <K> the key type
+   * @param <V> the value type
+   * @return the cache builder
+   */
+  public static <K, V> CacheBuilder<K, V> create() {
+    return new CacheBuilder<K, V>();
+  }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.cache;
+
+/**
+ * Thrown when a {@link CacheLoader} fails with a checked exception, or when a
+ * thread is interrupted while waiting for another thread to load a value.
+ *
+ * @author Antony Holmes
+ */
+public class CacheLoadException extends RuntimeException {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Instantiates a new cache load exception.
+   *
+   * @param cause the cause
+   */
+  public CacheLoadException(Throwable cause) {
+    super(cause);
+  }
+}
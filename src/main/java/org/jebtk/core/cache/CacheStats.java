@@ -0,0 +1,121 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.cache;
+
+/**
+ * An immutable snapshot of the statistics of a {@link Cache}.
+ *
+ * @author Antony Holmes
+ */
+public class CacheStats {
+
+  private final long mHits;
+  private final long mMisses;
+  private final long mLoadSuccesses;
+  private final long mLoadFailures;
+  private final long mLoadTime;
+  private final long mEvictions;
+  private final long mEvictionWeight;
+
+  /**
+   * Instantiates a new cache stats.
+   *
+   * @param hits           the hits
+   * @param misses         the misses
+   * @param loadSuccesses  the number of successful loads
+   * @param loadFailures   the number of loads that failed or returned null
+   * @param loadTime       the total time spent loading in nanoseconds
+   * @param evictions      the number of entries evicted or expired
+   * @param evictionWeight the total weight of evicted entries
+   */
+  public CacheStats(long hits, long misses, long loadSuccesses, long loadFailures, long loadTime, long evictions,
+      long evictionWeight) {
+    mHits = hits;
+    mMisses = misses;
+    mLoadSuccesses = loadSuccesses;
+    mLoadFailures = loadFailures;
+    mLoadTime = loadTime;
+    mEvictions = evictions;
+    mEvictionWeight = evictionWeight;
+  }
+
+  public long getHitCount() {
+    return mHits;
+  }
+
+  public long getMissCount() {
+    return mMisses;
+  }
+
+  public long getRequestCount() {
+    return mHits + mMisses;
+  }
+
+  /**
+   * Returns the fraction of requests that were hits, or 1 if there have been
+   * no requests.
+   *
+   * @return the double
+   */
+  public double getHitRate() {
+    long requests = getRequestCount();
+
+    return requests == 0 ? 1.0 : (double) mHits / requests;
+  }
+
+  public long getLoadSuccessCount() {
+    return mLoadSuccesses;
+  }
+
+  public long getLoadFailureCount() {
+    return mLoadFailures;
+  }
+
+  /**
+   * Returns the total time spent loading values in nanoseconds.
+   *
+   * @return the long
+   */
+  public long getTotalLoadTime() {
+    return mLoadTime;
+  }
+
+  /**
+   * Returns the average time to load a value in nanoseconds.
+   *
+   * @return the double
+   */
+  public double getAverageLoadPenalty() {
+    long loads = mLoadSuccesses + mLoadFailures;
+
+    return loads == 0 ? 0 : (double) mLoadTime / loads;
+  }
+
+  public long getEvictionCount() {
+    return mEvictions;
+  }
+
+  public long getEvictionWeight() {
+    return mEvictionWeight;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats[hits=" + mHits + ", misses=" + mMisses + ", loadSuccesses=" + mLoadSuccesses
+        + ", loadFailures=" + mLoadFailures + ", loadTime=" + mLoadTime + ", evictions=" + mEvictions
+        + ", evictionWeight=" + mEvictionWeight + "]";
+  }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.cache;
+
+/**
+ * How a bounded {@link Cache} chooses which entries to evict.
+ *
+ * @author Antony Holmes
+ */
+public enum EvictionPolicy {
+  /** Evict the least recently used entry. */
+  LRU,
+
+  /**
+   * Window TinyLFU. New entries enter a small LRU window. Entries leaving the
+   * window are only admitted to the main cache if they have been used more
+   * often than the entry they would replace, as estimated by a frequency
+   * sketch. This resists scans and one hit wonders that flush an LRU cache.
+   */
+  TINY_LFU
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.cache;
+
+/**
+ * A count-min sketch estimating how often keys have been used. Each key maps
+ * to four 4 bit counters packed 16 to a long, and its frequency is the
+ * smallest of them. Once a number of uses equal to ten times the capacity
+ * have been recorded, all counters are halved so that the sketch follows
+ * changes in popularity. Not thread safe.
+ *
+ * @author Antony Holmes
+ */
+class FrequencySketch {
+
+  /** Seeds for the four hash functions. */
+  private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+      0xcbf29ce484222325L };
+
+  /** Clears the high bit of each counter before halving. */
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  /** The maximum counter value. */
+  private static final int MAX_COUNT = 15;
+
+  /** The counters. */
+  private final long[] mTable;
+
+  /** The mask to wrap indices into the table. */
+  private final int mMask;
+
+  /** The number of uses after which the counters are halved. */
+  private final int mSampleSize;
+
+  /** The number of uses since the counters were last halved. */
+  private int mSize = 0;
+
+  /**
+   * Instantiates a new frequency sketch.
+   *
+   * @param capacity the maximum number of entries of the cache.
+   */
+  public FrequencySketch(long capacity) {
+    int n = (int) Math.max(1, Math.min(capacity, 1 << 24));
+
+    int length = Integer.highestOneBit(n);
+
+    if (length < n) {
+      length <<= 1;
+    }
+
+    mTable = new long[length];
+    mMask = length - 1;
+    mSampleSize = 10 * n;
+  }
+
+  /**
+   * Returns the estimated number of uses of a key, at most 15.
+   *
+   * @param hash the hash code of the key
+   * @return the int
+   */
+  public int frequency(int hash) {
+    int ret = MAX_COUNT;
+
+    for (int i = 0; i < 4; ++i) {
+      long h = hash(hash, i);
+
+      ret = Math.min(ret, (int) ((mTable[index(h)] >>> offset(h)) & 15L));
+    }
+
+    return ret;
+  }
+
+  /**
+   * Record a use of a key.
+   *
+   * @param hash the hash code of the key
+   */
+  public void increment(int hash) {
+    boolean added = false;
+
+    for (int i = 0; i < 4; ++i) {
+      long h = hash(hash, i);
+      int index = index(h);
+      int offset = offset(h);
+
+      if (((mTable[index] >>> offset) & 15L) < MAX_COUNT) {
+        mTable[index] += 1L << offset;
+        added = true;
+      }
+    }
+
+    if (added && ++mSize == mSampleSize) {
+      reset();
+    }
+  }
+
+  /**
+   * Halve all counters.
+   */
+  private void reset() {
+    for (int i = 0; i < mTable.length; ++i) {
+      mTable[i] = (mTable[i] >>> 1) & RESET_MASK;
+    }
+
+    mSize /= 2;
+  }
+
+  private static long hash(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+
+    return h ^ (h >>> 32);
+  }
+
+  private int index(long h) {
+    return (int) (h >>> 36) & mMask;
+  }
+
+  private static int offset(long h) {
+    // which of the 16 counters in the long
+    return ((int) h & 15) << 2;
+  }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.cache;
+
+/**
+ * A source of time in nanoseconds used to expire cache entries.
+ *
+ * @author Antony Holmes
+ */
+public interface Ticker {
+
+  /** Reads {@link System#nanoTime()}. */
+  public static final Ticker SYSTEM = new Ticker() {
+    @Override
+    public long read() {
+      return System.nanoTime();
+    }
+  };
+
+  /**
+   * Returns the time in nanoseconds relative to an arbitrary origin.
+   *
+   * @return the long
+   */
+  public long read();
+}
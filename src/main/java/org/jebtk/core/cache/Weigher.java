@@ -0,0 +1,37 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.cache;
+
+/**
+ * Calculates the weight of a cache entry for caches bounded by weight rather
+ * than number of entries.
+ *
+ * @author Antony Holmes
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface Weigher<K, V> {
+
+  /**
+   * Returns the weight of an entry. The weight of an entry is calculated once
+   * when it is added to the cache.
+   *
+   * @param key   the key
+   * @param value the value
+   * @return the weight, which must not be negative.
+   */
+  public int weigh(K key, V value);
+}
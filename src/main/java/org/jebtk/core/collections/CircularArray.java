@@ -22,7 +22,8 @@ import java.util.Collections;
 /**
  * Provides a fixed size circular buffer that removes the oldest element once
  * the buffer is filled. The implementation means there is no array resizing or
- * copying.
+ * copying. This class is not thread safe; to pass elements between threads
+ * use a {@link RingBuffer}.
  *
  * @author Antony Holmes
  * @param <T> the generic type
@@ -69,9 +70,14 @@ public class CircularArray<T> extends ArrayList<T> {
   public boolean add(T e) {
     set(mOffset, e);
 
-    mSize = Math.min(mSize + 1, mCapacity);
+    if (mSize < mCapacity) {
+      ++mSize;
+    }
 
-    mOffset = (mOffset + 1) % mSize;
+    // wrap without a division
+    if (++mOffset == mCapacity) {
+      mOffset = 0;
+    }
 
     return true;
   }
@@ -107,7 +113,20 @@ public class CircularArray<T> extends ArrayList<T> {
    */
   @Override
   public T get(int index) {
-    return super.get((index + mOffset) % mSize);
+    if (index < 0 || index >= mSize) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+    }
+
+    // until the buffer is full the oldest element is at 0
+    if (mSize == mCapacity) {
+      index += mOffset;
+
+      if (index >= mCapacity) {
+        index -= mCapacity;
+      }
+    }
+
+    return super.get(index);
   }
 
   /*
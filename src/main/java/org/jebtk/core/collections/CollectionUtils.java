@@ -30,6 +30,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 import org.jebtk.core.Function;
 import org.jebtk.core.Indexed;
@@ -59,6 +63,9 @@ public class CollectionUtils {
   /** The Constant EMPTY_BYTE_ARRAY. */
   public static final byte[] EMPTY_BYTE_ARRAY = {};
 
+  /** Arrays at least this size are sorted in parallel. */
+  public static final int PARALLEL_SORT_SIZE = 1 << 18;
+
   /**
    * The class SortIgnoreCase.
    *
@@ -1794,7 +1801,9 @@ public class CollectionUtils {
   }
 
   /**
-   * Quick sort a list.
+   * Sort a list. This is a stable merge sort of a copy of the list as an array
+   * which is then written back, so it does not depend on the list having fast
+   * random access.
    *
    * @param <T>  the generic type
    * @param list the list
@@ -1804,66 +1813,289 @@ public class CollectionUtils {
       return;
     }
 
-    // Allow for 2^64 length lists (assuming 2 entries per partition)
-    // The custom stack is designed for speed so it is essentially
-    // a program counter keeping track of what has been used in
-    // the array.
-    int[] stack = new int[128];
+    Collections.sort(list);
+  }
 
-    int top = -1;
-    int start;
-    int end;
+  /**
+   * Sort an array in place. Large arrays are sorted in parallel.
+   *
+   * @param values the values
+   */
+  public static void sort(double[] values) {
+    if (values.length >= PARALLEL_SORT_SIZE) {
+      Arrays.parallelSort(values);
+    } else {
+      Arrays.sort(values);
+    }
+  }
 
-    stack[++top] = 0;
-    stack[++top] = list.size() - 1;
+  /**
+   * Sort an array in place. Large arrays are sorted in parallel.
+   *
+   * @param values the values
+   */
+  public static void sort(int[] values) {
+    if (values.length >= PARALLEL_SORT_SIZE) {
+      Arrays.parallelSort(values);
+    } else {
+      Arrays.sort(values);
+    }
+  }
 
-    while (top > -1) {
-      end = stack[top--];
-      start = stack[top--];
+  /**
+   * Sort an array in place. Large arrays are sorted in parallel.
+   *
+   * @param values the values
+   */
+  public static void sort(long[] values) {
+    if (values.length >= PARALLEL_SORT_SIZE) {
+      Arrays.parallelSort(values);
+    } else {
+      Arrays.sort(values);
+    }
+  }
 
-      // Partition
+  /**
+   * Sort an array in place using a radix sort, which takes a fixed number of
+   * linear passes rather than comparisons so it is usually faster than
+   * {@link #sort(int[])} on one thread for large arrays. It needs a scratch
+   * array the size of the input.
+   *
+   * @param values the values
+   */
+  public static void radixSort(int[] values) {
+    RadixSort.sort(values, null);
+  }
 
-      T pivot = list.get(end);
+  /**
+   * Sort an array in place using a radix sort.
+   *
+   * @param values the values
+   * @see #radixSort(int[])
+   */
+  public static void radixSort(long[] values) {
+    RadixSort.sort(values, null, 0, values.length, new long[values.length], null, 0);
+  }
 
-      int storeIndex = start;
+  /**
+   * Sort an array in place using a radix sort. Values are in the order of
+   * {@link Double#compare(double, double)} so NaNs are last.
+   *
+   * @param values the values
+   * @see #radixSort(int[])
+   */
+  public static void radixSort(double[] values) {
+    long[] keys = sortableKeys(values);
 
-      for (int i = start; i < end; ++i) {
-        if (list.get(i).compareTo(pivot) <= 0) {
-          T t = list.get(i);
+    RadixSort.sort(keys, null, 0, keys.length, new long[keys.length], null, 0);
 
-          list.set(i, list.get(storeIndex));
-          list.set(storeIndex, t);
+    for (int i = 0; i < keys.length; ++i) {
+      values[i] = RadixSort.fromSortable(keys[i]);
+    }
+  }
 
-          ++storeIndex;
-        }
-      }
+  /**
+   * Returns the indices that would sort an array, i.e. the index of the
+   * smallest value, then the next smallest and so on. The sort is stable so
+   * equal values keep their original order, and NaNs are last. The array is
+   * not changed. Large arrays are sorted in parallel.
+   *
+   * @param values the values
+   * @return the indices in sorted order.
+   */
+  public static int[] argsort(double[] values) {
+    return argsort(sortableKeys(values), values.length >= PARALLEL_SORT_SIZE);
+  }
 
-      // swap the pivot with the store index
-      // so that the it is correctly placed
-      // between all those values less than
-      // it and all those greater than it
-      pivot = list.get(storeIndex);
-
-      list.set(storeIndex, list.get(end));
-      list.set(end, pivot);
-
-      //
-      // If the pivot is not at the extremes
-      // of the list, we can partition the
-      // upper and lower halves until the
-      // list is eventually sorted.
-      //
-
-      if (storeIndex - 1 > start) {
-        stack[++top] = start;
-        stack[++top] = storeIndex - 1;
-      }
+  /**
+   * Returns the indices that would sort an array, sorting in parallel on a
+   * pool. The array is radix sorted in a chunk per thread and the chunks are
+   * then merged.
+   *
+   * @param values the values
+   * @param pool   the pool
+   * @return the indices in sorted order.
+   * @see #argsort(double[])
+   */
+  public static int[] argsort(double[] values, ForkJoinPool pool) {
+    int[] ret = indices(values.length);
+
+    RadixSort.parallelSort(sortableKeys(values), ret, pool);
+
+    return ret;
+  }
+
+  /**
+   * Returns the indices that would sort an array.
+   *
+   * @param values the values
+   * @return the indices in sorted order.
+   * @see #argsort(double[])
+   */
+  public static int[] argsort(long[] values) {
+    return argsort(Arrays.copyOf(values, values.length), values.length >= PARALLEL_SORT_SIZE);
+  }
+
+  /**
+   * Returns the indices that would sort an array.
+   *
+   * @param values the values
+   * @return the indices in sorted order.
+   * @see #argsort(double[])
+   */
+  public static int[] argsort(int[] values) {
+    int[] ret = indices(values.length);
+
+    if (values.length >= PARALLEL_SORT_SIZE) {
+      long[] keys = new long[values.length];
 
-      if (storeIndex + 1 < end) {
-        stack[++top] = storeIndex + 1;
-        stack[++top] = end;
+      for (int i = 0; i < values.length; ++i) {
+        keys[i] = values[i];
       }
+
+      RadixSort.parallelSort(keys, ret, ForkJoinPool.commonPool());
+    } else {
+      RadixSort.sort(Arrays.copyOf(values, values.length), ret);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Argsort keys, which may be reordered.
+   *
+   * @param keys the keys
+   * @return the indices in sorted order.
+   */
+  private static int[] argsort(long[] keys, boolean parallel) {
+    int[] ret = indices(keys.length);
+
+    if (parallel) {
+      RadixSort.parallelSort(keys, ret, ForkJoinPool.commonPool());
+    } else {
+      RadixSort.sort(keys, ret, 0, keys.length, new long[keys.length], new int[keys.length], 0);
     }
+
+    return ret;
+  }
+
+  /**
+   * Returns the indices 0 to n - 1.
+   *
+   * @param n the n
+   * @return the int[]
+   */
+  private static int[] indices(int n) {
+    int[] ret = new int[n];
+
+    for (int i = 0; i < n; ++i) {
+      ret[i] = i;
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the doubles as longs with the same order.
+   *
+   * @param values the values
+   * @return the long[]
+   */
+  private static long[] sortableKeys(double[] values) {
+    long[] ret = new long[values.length];
+
+    for (int i = 0; i < values.length; ++i) {
+      ret[i] = RadixSort.toSortable(values[i]);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Sort items by a double key. Each key is computed once, rather than each
+   * time two items are compared, and the keys are sorted without boxing. The
+   * sort is stable.
+   *
+   * @param <T>   the generic type
+   * @param items the items
+   * @param key   the function to get the key of an item.
+   * @return a new sorted list.
+   */
+  public static <T> List<T> sortByDouble(List<T> items, ToDoubleFunction<? super T> key) {
+    double[] keys = new double[items.size()];
+
+    int i = 0;
+
+    for (T item : items) {
+      keys[i++] = key.applyAsDouble(item);
+    }
+
+    return reorder(items, argsort(keys));
+  }
+
+  /**
+   * Sort items by a long key.
+   *
+   * @param <T>   the generic type
+   * @param items the items
+   * @param key   the function to get the key of an item.
+   * @return a new sorted list.
+   * @see #sortByDouble(List, ToDoubleFunction)
+   */
+  public static <T> List<T> sortByLong(List<T> items, ToLongFunction<? super T> key) {
+    long[] keys = new long[items.size()];
+
+    int i = 0;
+
+    for (T item : items) {
+      keys[i++] = key.applyAsLong(item);
+    }
+
+    return reorder(items, argsort(keys, keys.length >= PARALLEL_SORT_SIZE));
+  }
+
+  /**
+   * Sort items by an int key.
+   *
+   * @param <T>   the generic type
+   * @param items the items
+   * @param key   the function to get the key of an item.
+   * @return a new sorted list.
+   * @see #sortByDouble(List, ToDoubleFunction)
+   */
+  public static <T> List<T> sortByInt(List<T> items, ToIntFunction<? super T> key) {
+    int[] keys = new int[items.size()];
+
+    int i = 0;
+
+    for (T item : items) {
+      keys[i++] = key.applyAsInt(item);
+    }
+
+    return reorder(items, argsort(keys));
+  }
+
+  /**
+   * Reorder a list, for example by the indices from {@link #argsort(double[])}.
+   * As with {@link #reorder(List, List)}, the result has the size of indices.
+   *
+   * @param <T>     the generic type
+   * @param items   the items
+   * @param indices the indices
+   * @return the list
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> List<T> reorder(List<T> items, int[] indices) {
+    // copy first so that lists without random access are not indexed
+    Object[] a = items.toArray();
+
+    List<T> ret = new ArrayList<T>(indices.length);
+
+    for (int i : indices) {
+      ret.add((T) a[i]);
+    }
+
+    return ret;
   }
 
   /**
@@ -2251,14 +2483,22 @@ public class CollectionUtils {
       return Collections.emptyList();
     }
 
-    Map<X, Set<T>> valuesKeys = mapValuesToKeys(map);
+    List<Entry<T, X>> entries = new ArrayList<Entry<T, X>>(map.entrySet());
 
-    List<T> ret = new ArrayList<T>();
+    // sort once by value then key rather than grouping keys by value
+    Collections.sort(entries, new Comparator<Entry<T, X>>() {
+      @Override
+      public int compare(Entry<T, X> e1, Entry<T, X> e2) {
+        int c = e1.getValue().compareTo(e2.getValue());
 
-    for (X value : sort(valuesKeys.keySet())) {
-      for (T key : sort(valuesKeys.get(value))) {
-        ret.add(key);
+        return c != 0 ? c : e1.getKey().compareTo(e2.getKey());
       }
+    });
+
+    List<T> ret = new ArrayList<T>(entries.size());
+
+    for (Entry<T, X> e : entries) {
+      ret.add(e.getKey());
     }
 
     return ret;
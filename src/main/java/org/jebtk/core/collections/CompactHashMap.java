@@ -0,0 +1,468 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A memory efficient map that keeps entries in insertion order. Keys and
+ * values are stored in parallel arrays and no object is allocated per entry.
+ * Small maps are searched by a linear scan; once a map grows beyond
+ * {@link #SCAN_SIZE} entries, an open addressing table of entry indices is
+ * added to keep lookups constant time. Re-putting an existing key replaces its
+ * value but keeps its position.
+ *
+ * An empty map holds no arrays at all, so maps that are usually small, such as
+ * the members of JSON objects, cost little more than the map object itself.
+ *
+ * @author Antony Holmes
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class CompactHashMap<K, V> extends AbstractMap<K, V> implements IterMap<K, V> {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /** Maps up to this size are searched linearly. */
+  public static final int SCAN_SIZE = 8;
+
+  /** Shared empty array. */
+  private static final Object[] EMPTY = {};
+
+  /** The keys in insertion order. */
+  private Object[] mKeys = EMPTY;
+
+  /** The values, parallel to the keys. */
+  private Object[] mValues = EMPTY;
+
+  /** The number of entries. */
+  private int mSize = 0;
+
+  /**
+   * Entry index + 1 for each slot or 0 if the slot is empty. Null while the
+   * map is small enough to scan.
+   */
+  private int[] mIndex = null;
+
+  /** Incremented on structural changes. */
+  private transient int mModCount = 0;
+
+  /**
+   * Instantiates a new compact hash map.
+   */
+  public CompactHashMap() {
+    // Do nothing
+  }
+
+  /**
+   * Instantiates a new compact hash map.
+   *
+   * @param initialCapacity the initial capacity
+   */
+  public CompactHashMap(int initialCapacity) {
+    if (initialCapacity > 0) {
+      mKeys = new Object[initialCapacity];
+      mValues = new Object[initialCapacity];
+    }
+  }
+
+  /**
+   * Instantiates a new compact hash map containing the entries of another map.
+   *
+   * @param map the map
+   */
+  public CompactHashMap(Map<? extends K, ? extends V> map) {
+    this(map.size());
+
+    putAll(map);
+  }
+
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) != -1;
+  }
+
+  @Override
+  public V get(Object key) {
+    int i = indexOf(key);
+
+    return i != -1 ? valueAt(i) : null;
+  }
+
+  @Override
+  public V put(K key, V value) {
+    int i = indexOf(key);
+
+    if (i != -1) {
+      V old = valueAt(i);
+      mValues[i] = value;
+      return old;
+    }
+
+    if (mSize == mKeys.length) {
+      int capacity = Math.max(4, mSize + (mSize >> 1));
+
+      mKeys = Arrays.copyOf(mKeys, capacity);
+      mValues = Arrays.copyOf(mValues, capacity);
+    }
+
+    mKeys[mSize] = key;
+    mValues[mSize] = value;
+    ++mSize;
+    ++mModCount;
+
+    if (mIndex != null) {
+      if (mSize * 2 > mIndex.length) {
+        reindex();
+      } else {
+        insert(mIndex, mSize - 1);
+      }
+    } else if (mSize > SCAN_SIZE) {
+      reindex();
+    }
+
+    return null;
+  }
+
+  @Override
+  public V remove(Object key) {
+    int i = indexOf(key);
+
+    if (i == -1) {
+      return null;
+    }
+
+    V old = valueAt(i);
+
+    removeAt(i);
+
+    return old;
+  }
+
+  /**
+   * Remove the entry at an index, shifting later entries down to keep the
+   * insertion order.
+   *
+   * @param i the i
+   */
+  private void removeAt(int i) {
+    int n = mSize - i - 1;
+
+    System.arraycopy(mKeys, i + 1, mKeys, i, n);
+    System.arraycopy(mValues, i + 1, mValues, i, n);
+
+    --mSize;
+    mKeys[mSize] = null;
+    mValues[mSize] = null;
+    ++mModCount;
+
+    if (mIndex != null) {
+      if (mSize > SCAN_SIZE) {
+        reindex();
+      } else {
+        mIndex = null;
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(mKeys, 0, mSize, null);
+    Arrays.fill(mValues, 0, mSize, null);
+
+    mSize = 0;
+    mIndex = null;
+    ++mModCount;
+  }
+
+  /**
+   * Returns the key of the i-th entry in insertion order.
+   *
+   * @param i the i
+   * @return the key
+   */
+  @SuppressWarnings("unchecked")
+  public K keyAt(int i) {
+    if (i < 0 || i >= mSize) {
+      throw new IndexOutOfBoundsException(Integer.toString(i));
+    }
+
+    return (K) mKeys[i];
+  }
+
+  /**
+   * Returns the value of the i-th entry in insertion order.
+   *
+   * @param i the i
+   * @return the value
+   */
+  @SuppressWarnings("unchecked")
+  public V valueAt(int i) {
+    if (i < 0 || i >= mSize) {
+      throw new IndexOutOfBoundsException(Integer.toString(i));
+    }
+
+    return (V) mValues[i];
+  }
+
+  /**
+   * Returns the insertion order position of a key.
+   *
+   * @param key the key
+   * @return the index or -1 if the key is not in the map.
+   */
+  public int indexOf(Object key) {
+    if (mIndex == null) {
+      for (int i = 0; i < mSize; ++i) {
+        if (Objects.equals(key, mKeys[i])) {
+          return i;
+        }
+      }
+
+      return -1;
+    }
+
+    int mask = mIndex.length - 1;
+    int s = hash(key) & mask;
+
+    while (mIndex[s] != 0) {
+      int i = mIndex[s] - 1;
+
+      if (Objects.equals(key, mKeys[i])) {
+        return i;
+      }
+
+      s = (s + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns a read only, live view of the keys in insertion order.
+   *
+   * @return the list
+   */
+  public List<K> keyList() {
+    return new AbstractList<K>() {
+      @Override
+      public K get(int index) {
+        return keyAt(index);
+      }
+
+      @Override
+      public int size() {
+        return mSize;
+      }
+    };
+  }
+
+  /**
+   * Reduce the storage to the number of entries.
+   */
+  public void trimToSize() {
+    if (mSize < mKeys.length) {
+      mKeys = mSize > 0 ? Arrays.copyOf(mKeys, mSize) : EMPTY;
+      mValues = mSize > 0 ? Arrays.copyOf(mValues, mSize) : EMPTY;
+    }
+  }
+
+  /**
+   * Rebuild the index table.
+   */
+  private void reindex() {
+    // Keep the load factor at or below one half
+    int[] index = new int[Integer.highestOneBit(Math.max(2, mSize) - 1) << 2];
+
+    for (int i = 0; i < mSize; ++i) {
+      insert(index, i);
+    }
+
+    mIndex = index;
+  }
+
+  /**
+   * Add an entry to an index table.
+   *
+   * @param index the index
+   * @param i     the entry
+   */
+  private void insert(int[] index, int i) {
+    int mask = index.length - 1;
+    int s = hash(mKeys[i]) & mask;
+
+    while (index[s] != 0) {
+      s = (s + 1) & mask;
+    }
+
+    index[s] = i + 1;
+  }
+
+  /**
+   * Spread the hash code of a key.
+   *
+   * @param key the key
+   * @return the int
+   */
+  private static int hash(Object key) {
+    int h = key != null ? key.hashCode() : 0;
+
+    return h ^ (h >>> 16);
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return CompactHashMap.this.iterator();
+      }
+
+      @Override
+      public int size() {
+        return mSize;
+      }
+    };
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public Iterator<Entry<K, V>> iterator() {
+    return new Iterator<Entry<K, V>>() {
+      private int mNext = 0;
+      private int mLast = -1;
+      private int mExpectedModCount = mModCount;
+
+      @Override
+      public boolean hasNext() {
+        return mNext < mSize;
+      }
+
+      @Override
+      public Entry<K, V> next() {
+        if (mModCount != mExpectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        mLast = mNext++;
+
+        return new ArrayEntry(mLast);
+      }
+
+      @Override
+      public void remove() {
+        if (mLast == -1) {
+          throw new IllegalStateException();
+        }
+
+        if (mModCount != mExpectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+
+        removeAt(mLast);
+
+        mNext = mLast;
+        mLast = -1;
+        mExpectedModCount = mModCount;
+      }
+    };
+  }
+
+  @Override
+  public Entry<K, V> first() {
+    return iterator().next();
+  }
+
+  /**
+   * An entry that reads and writes through to the arrays.
+   */
+  private class ArrayEntry implements Entry<K, V> {
+
+    /** The index. */
+    private final int mI;
+
+    /**
+     * Instantiates a new array entry.
+     *
+     * @param i the i
+     */
+    public ArrayEntry(int i) {
+      mI = i;
+    }
+
+    @Override
+    public K getKey() {
+      return keyAt(mI);
+    }
+
+    @Override
+    public V getValue() {
+      return valueAt(mI);
+    }
+
+    @Override
+    public V setValue(V value) {
+      V old = valueAt(mI);
+      mValues[mI] = value;
+      return old;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+
+      Entry<?, ?> e = (Entry<?, ?>) o;
+
+      return Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + getValue();
+    }
+  }
+}
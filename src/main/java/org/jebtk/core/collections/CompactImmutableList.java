@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A list that cannot be changed, stored in an array of exactly its size.
+ * Unlike {@link ImmutableList}, which is an {@code ArrayList} that can be
+ * locked, every method that would change the list throws an
+ * {@link UnsupportedOperationException}. The array is final and never
+ * written after construction, so the list can be shared between threads
+ * without synchronization.
+ *
+ * @author Antony Holmes
+ * @param <T> the element type
+ */
+public class CompactImmutableList<T> extends AbstractList<T> implements RandomAccess, Serializable {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /** The elements. */
+  private final Object[] mValues;
+
+  /**
+   * Instantiates a new list, which owns the array.
+   *
+   * @param values the values
+   */
+  private CompactImmutableList(Object[] values) {
+    mValues = values;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public T get(int index) {
+    if (index < 0 || index >= mValues.length) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mValues.length);
+    }
+
+    return (T) mValues[index];
+  }
+
+  @Override
+  public int size() {
+    return mValues.length;
+  }
+
+  @Override
+  public Object[] toArray() {
+    return Arrays.copyOf(mValues, mValues.length);
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Creates a list containing some values.
+   *
+   * @param <TT>   the generic type
+   * @param values the values
+   * @return the list
+   */
+  @SafeVarargs
+  public static <TT> CompactImmutableList<TT> of(TT... values) {
+    Object[] copy = new Object[values.length];
+
+    // copy element by element rather than passing on the generic array
+    for (int i = 0; i < values.length; ++i) {
+      copy[i] = values[i];
+    }
+
+    return new CompactImmutableList<TT>(copy);
+  }
+
+  /**
+   * Creates a list containing the values of a collection.
+   *
+   * @param <TT>   the generic type
+   * @param values the values
+   * @return the list
+   */
+  public static <TT> CompactImmutableList<TT> copyOf(Collection<? extends TT> values) {
+    // toArray returns a new array which the list can own
+    return new CompactImmutableList<TT>(Arrays.copyOf(values.toArray(), values.size(), Object[].class));
+  }
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map that cannot be changed, stored as one array of alternating keys and
+ * values plus an int hash index, with no entry objects. This typically takes under
+ * half the memory of a {@link java.util.HashMap}, which makes it suitable for
+ * large lookup tables loaded once. Entries keep the order in which keys were
+ * first added to the builder.
+ *
+ * Unlike {@link ImmutableMap}, which is a {@code HashMap} that can be locked,
+ * every method that would change the map throws an
+ * {@link UnsupportedOperationException}. All fields are final and never
+ * written after construction, so the map can be shared between threads
+ * without synchronization. Null keys and values are not permitted.
+ *
+ * @author Antony Holmes
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class CompactImmutableMap<K, V> extends AbstractMap<K, V> implements IterMap<K, V> {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /** The keys and values, key i being at 2i and its value at 2i + 1. */
+  private final Object[] mEntries;
+
+  /** The number of entries. */
+  private final int mSize;
+
+  /** The index of the keys, which is rebuilt rather than serialized. */
+  private final transient HashIndex mIndex;
+
+  /**
+   * Collects the entries of a map. If a key is added more than once, the last
+   * value is kept.
+   *
+   * @param <K> the key type
+   * @param <V> the value type
+   */
+  public static class Builder<K, V> {
+    private final CompactHashMap<K, V> mEntries = new CompactHashMap<K, V>();
+
+    /**
+     * Add an entry.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the builder
+     */
+    public Builder<K, V> put(K key, V value) {
+      if (key == null || value == null) {
+        throw new NullPointerException("Keys and values must not be null.");
+      }
+
+      mEntries.put(key, value);
+
+      return this;
+    }
+
+    /**
+     * Add the entries of a map.
+     *
+     * @param map the map
+     * @return the builder
+     */
+    public Builder<K, V> putAll(Map<? extends K, ? extends V> map) {
+      for (Map.Entry<? extends K, ? extends V> e : map.entrySet()) {
+        put(e.getKey(), e.getValue());
+      }
+
+      return this;
+    }
+
+    /**
+     * Creates the map.
+     *
+     * @return the compact immutable map
+     */
+    public CompactImmutableMap<K, V> build() {
+      Object[] entries = new Object[mEntries.size() * 2];
+
+      int i = 0;
+
+      for (Map.Entry<K, V> e : mEntries.entrySet()) {
+        entries[i++] = e.getKey();
+        entries[i++] = e.getValue();
+      }
+
+      return new CompactImmutableMap<K, V>(entries);
+    }
+  }
+
+  /**
+   * Instantiates a new map, which owns the array.
+   *
+   * @param entries the alternating unique keys and values
+   */
+  private CompactImmutableMap(Object[] entries) {
+    mEntries = entries;
+    mSize = entries.length / 2;
+    mIndex = new HashIndex(entries, 2);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get(Object key) {
+    int i = mIndex.find(key, mEntries);
+
+    return i != -1 ? (V) mEntries[2 * i + 1] : null;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V getOrDefault(Object key, V defaultValue) {
+    int i = mIndex.find(key, mEntries);
+
+    return i != -1 ? (V) mEntries[2 * i + 1] : defaultValue;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return mIndex.find(key, mEntries) != -1;
+  }
+
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return CompactImmutableMap.this.iterator();
+      }
+
+      @Override
+      public int size() {
+        return mSize;
+      }
+    };
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public Iterator<Map.Entry<K, V>> iterator() {
+    return new Iterator<Map.Entry<K, V>>() {
+      private int mI = 0;
+
+      @Override
+      public boolean hasNext() {
+        return mI < mSize;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public Map.Entry<K, V> next() {
+        if (mI >= mSize) {
+          throw new NoSuchElementException();
+        }
+
+        Map.Entry<K, V> ret = new org.jebtk.core.collections.Entry<K, V>((K) mEntries[2 * mI],
+            (V) mEntries[2 * mI + 1]);
+
+        ++mI;
+
+        return ret;
+      }
+    };
+  }
+
+  @Override
+  public Map.Entry<K, V> first() {
+    return iterator().next();
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Creates a builder.
+   *
+   * @param <KK> the generic type
+   * @param <VV> the generic type
+   * @return the builder
+   */
+  public static <KK, VV> Builder<KK, VV> builder() {
+    return new Builder<KK, VV>();
+  }
+
+  /**
+   * Creates a compact copy of a map.
+   *
+   * @param <KK> the generic type
+   * @param <VV> the generic type
+   * @param map  the map
+   * @return the compact immutable map
+   */
+  public static <KK, VV> CompactImmutableMap<KK, VV> copyOf(Map<? extends KK, ? extends VV> map) {
+    return CompactImmutableMap.<KK, VV>builder().putAll(map).build();
+  }
+
+  /**
+   * Serializes the map as a proxy holding only its keys and values. The index holds
+   * slots derived from hash codes, which need not be the same in another JVM,
+   * for example for enums, so it is rebuilt when the map is read back.
+   *
+   * @return the object
+   */
+  private Object writeReplace() {
+    return new SerializationProxy(mEntries);
+  }
+
+  /**
+   * Rejects a stream that does not use the proxy.
+   *
+   * @param in the in
+   * @throws InvalidObjectException the invalid object exception
+   */
+  private void readObject(ObjectInputStream in) throws InvalidObjectException {
+    throw new InvalidObjectException("Serialization proxy required.");
+  }
+
+  /**
+   * The serialized form of the map.
+   */
+  private static class SerializationProxy implements Serializable {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The keys and values. */
+    private final Object[] mEntries;
+
+    /**
+     * Instantiates a new serialization proxy.
+     *
+     * @param entries the entries
+     */
+    public SerializationProxy(Object[] entries) {
+      mEntries = entries;
+    }
+
+    /**
+     * Rebuilds the map and its index.
+     *
+     * @return the object
+     */
+    private Object readResolve() {
+      return new CompactImmutableMap<Object, Object>(mEntries);
+    }
+  }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set that cannot be changed, stored as an array of its elements plus an
+ * int hash index, with no entry objects. Elements keep the order in which
+ * they were first added and have a fixed position, so the set can also be
+ * used as a dictionary assigning each element a dense id with
+ * {@link #indexOf(Object)}. Every method that would change the set throws an
+ * {@link UnsupportedOperationException}. All fields are final and never
+ * written after construction, so the set can be shared between threads
+ * without synchronization. Null elements are not permitted.
+ *
+ * @author Antony Holmes
+ * @param <T> the element type
+ */
+public class CompactImmutableSet<T> extends AbstractSet<T> implements Serializable {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /** The elements. */
+  private final Object[] mValues;
+
+  /** The index of the elements, which is rebuilt rather than serialized. */
+  private final transient HashIndex mIndex;
+
+  /**
+   * Collects the elements of a set. Duplicate elements are ignored.
+   *
+   * @param <T> the element type
+   */
+  public static class Builder<T> {
+    private final CompactHashMap<T, Boolean> mValues = new CompactHashMap<T, Boolean>();
+
+    /**
+     * Add an element.
+     *
+     * @param value the value
+     * @return the builder
+     */
+    public Builder<T> add(T value) {
+      if (value == null) {
+        throw new NullPointerException("Elements must not be null.");
+      }
+
+      mValues.put(value, Boolean.TRUE);
+
+      return this;
+    }
+
+    /**
+     * Add elements.
+     *
+     * @param values the values
+     * @return the builder
+     */
+    public Builder<T> addAll(Collection<? extends T> values) {
+      for (T value : values) {
+        add(value);
+      }
+
+      return this;
+    }
+
+    /**
+     * Creates the set.
+     *
+     * @return the compact immutable set
+     */
+    public CompactImmutableSet<T> build() {
+      return new CompactImmutableSet<T>(mValues.keySet().toArray());
+    }
+  }
+
+  /**
+   * Instantiates a new set, which owns the array of unique elements.
+   *
+   * @param values the values
+   */
+  private CompactImmutableSet(Object[] values) {
+    mValues = values;
+    mIndex = new HashIndex(values);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return mIndex.find(o, mValues) != -1;
+  }
+
+  /**
+   * Returns the position of an element.
+   *
+   * @param o the o
+   * @return the position or -1 if the element is not in the set.
+   */
+  public int indexOf(Object o) {
+    return mIndex.find(o, mValues);
+  }
+
+  /**
+   * Returns the element at a position.
+   *
+   * @param index the index
+   * @return the t
+   */
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    if (index < 0 || index >= mValues.length) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mValues.length);
+    }
+
+    return (T) mValues[index];
+  }
+
+  @Override
+  public int size() {
+    return mValues.length;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      private int mI = 0;
+
+      @Override
+      public boolean hasNext() {
+        return mI < mValues.length;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public T next() {
+        if (mI >= mValues.length) {
+          throw new NoSuchElementException();
+        }
+
+        return (T) mValues[mI++];
+      }
+    };
+  }
+
+  @Override
+  public Object[] toArray() {
+    return Arrays.copyOf(mValues, mValues.length);
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Creates a builder.
+   *
+   * @param <TT> the generic type
+   * @return the builder
+   */
+  public static <TT> Builder<TT> builder() {
+    return new Builder<TT>();
+  }
+
+  /**
+   * Creates a set containing some values.
+   *
+   * @param <TT>   the generic type
+   * @param values the values
+   * @return the set
+   */
+  @SafeVarargs
+  public static <TT> CompactImmutableSet<TT> of(TT... values) {
+    Builder<TT> builder = builder();
+
+    for (TT value : values) {
+      builder.add(value);
+    }
+
+    return builder.build();
+  }
+
+  /**
+   * Creates a set containing the values of a collection.
+   *
+   * @param <TT>   the generic type
+   * @param values the values
+   * @return the set
+   */
+  public static <TT> CompactImmutableSet<TT> copyOf(Collection<? extends TT> values) {
+    return CompactImmutableSet.<TT>builder().addAll(values).build();
+  }
+
+  /**
+   * Serializes the set as a proxy holding only its elements. The index holds
+   * slots derived from hash codes, which need not be the same in another JVM,
+   * for example for enums, so it is rebuilt when the set is read back.
+   *
+   * @return the object
+   */
+  private Object writeReplace() {
+    return new SerializationProxy(mValues);
+  }
+
+  /**
+   * Rejects a stream that does not use the proxy.
+   *
+   * @param in the in
+   * @throws InvalidObjectException the invalid object exception
+   */
+  private void readObject(ObjectInputStream in) throws InvalidObjectException {
+    throw new InvalidObjectException("Serialization proxy required.");
+  }
+
+  /**
+   * The serialized form of the set.
+   */
+  private static class SerializationProxy implements Serializable {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The elements. */
+    private final Object[] mValues;
+
+    /**
+     * Instantiates a new serialization proxy.
+     *
+     * @param values the values
+     */
+    public SerializationProxy(Object[] values) {
+      mValues = values;
+    }
+
+    /**
+     * Rebuilds the set and its index.
+     *
+     * @return the object
+     */
+    private Object readResolve() {
+      return new CompactImmutableSet<Object>(mValues);
+    }
+  }
+}
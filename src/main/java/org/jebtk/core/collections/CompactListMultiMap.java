@@ -0,0 +1,366 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * An immutable, memory efficient map of keys to lists of values, built once
+ * with a {@link Builder}. Rather than a list object per key, the values of
+ * all keys are stored in one flat array ordered by key, in the compressed
+ * sparse row layout used for sparse matrices. Key {@code i} owns the values
+ * from {@code offsets[i]} up to {@code offsets[i + 1]}, and keys are mapped
+ * to their index by an {@link ObjectIntMap}.
+ *
+ * {@link #get(Object)} is constant time and returns a read only view of a
+ * slice of the value array, so no list is copied or allocated beyond the
+ * view itself. Iterating over the map walks the value array in order. Keys
+ * are kept in the order they were first added to the builder, and values of
+ * a key in the order they were added. As with other multi maps, a key that is
+ * not in the map has an empty list of values, but the key is not added.
+ *
+ * @author Antony Holmes
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class CompactListMultiMap<K, V> extends AbstractMap<K, List<V>> implements MultiMap<K, V, List<V>> {
+
+  /** Maps keys to their index. */
+  private final ObjectIntMap<K> mIndex;
+
+  /** The keys in order. */
+  private final Object[] mKeys;
+
+  /** The start of the values of each key, plus the total number of values. */
+  private final int[] mOffsets;
+
+  /** The values of all keys. */
+  private final Object[] mValues;
+
+  /**
+   * Collects the values of each key before creating the map. Values are
+   * stored in two flat arrays, the value and the index of its key, so
+   * building does not create a list per key either. The map takes over the
+   * key index of the builder, so a builder can only build once and rejects
+   * further use.
+   *
+   * @param <K> the key type
+   * @param <V> the value type
+   */
+  public static class Builder<K, V> {
+    private ObjectIntMap<K> mIndex;
+    private List<K> mKeys;
+    private int[] mRows;
+    private Object[] mValues;
+    private int mSize = 0;
+
+    /**
+     * Instantiates a new builder.
+     *
+     * @param keys   the expected number of keys.
+     * @param values the expected number of values.
+     */
+    public Builder(int keys, int values) {
+      mIndex = new ObjectIntMap<K>(Math.max(1, keys));
+      mKeys = new ArrayList<K>(keys);
+      mRows = new int[Math.max(1, values)];
+      mValues = new Object[mRows.length];
+    }
+
+    /**
+     * Add a value to a key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the builder
+     */
+    public Builder<K, V> put(K key, V value) {
+      checkOpen();
+
+      if (mSize == mRows.length) {
+        int n = mRows.length * 2;
+
+        mRows = Arrays.copyOf(mRows, n);
+        mValues = Arrays.copyOf(mValues, n);
+      }
+
+      mRows[mSize] = row(key);
+      mValues[mSize++] = value;
+
+      return this;
+    }
+
+    /**
+     * Add values to a key. A key with no values is still added.
+     *
+     * @param key    the key
+     * @param values the values
+     * @return the builder
+     */
+    public Builder<K, V> putAll(K key, Collection<? extends V> values) {
+      checkOpen();
+
+      row(key);
+
+      for (V value : values) {
+        put(key, value);
+      }
+
+      return this;
+    }
+
+    /**
+     * Check the builder has not already built its map.
+     */
+    private void checkOpen() {
+      if (mIndex == null) {
+        throw new IllegalStateException("The map has already been built.");
+      }
+    }
+
+    /**
+     * Returns the index of a key, adding it if necessary.
+     *
+     * @param key the key
+     * @return the int
+     */
+    private int row(K key) {
+      int ret = mIndex.getOrDefault(key, -1);
+
+      if (ret == -1) {
+        ret = mKeys.size();
+        mIndex.put(key, ret);
+        mKeys.add(key);
+      }
+
+      return ret;
+    }
+
+    /**
+     * Create the map. The values are grouped by key with a counting sort, so
+     * building is linear in the number of values.
+     *
+     * @return the compact list multi map
+     */
+    public CompactListMultiMap<K, V> build() {
+      checkOpen();
+
+      int n = mKeys.size();
+
+      int[] offsets = new int[n + 1];
+
+      for (int i = 0; i < mSize; ++i) {
+        ++offsets[mRows[i] + 1];
+      }
+
+      for (int i = 0; i < n; ++i) {
+        offsets[i + 1] += offsets[i];
+      }
+
+      // the next free position of each key
+      int[] next = Arrays.copyOf(offsets, n);
+
+      Object[] values = new Object[mSize];
+
+      for (int i = 0; i < mSize; ++i) {
+        values[next[mRows[i]]++] = mValues[i];
+      }
+
+      CompactListMultiMap<K, V> ret = new CompactListMultiMap<K, V>(mIndex, mKeys.toArray(), offsets, values);
+
+      // the map now owns the index, so later puts must not change it
+      mIndex = null;
+      mKeys = null;
+      mRows = null;
+      mValues = null;
+
+      return ret;
+    }
+  }
+
+  /**
+   * A read only view of the values of a key.
+   */
+  private class Values extends AbstractList<V> implements RandomAccess {
+    private final int mStart;
+    private final int mSize;
+
+    public Values(int start, int end) {
+      mStart = start;
+      mSize = end - start;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(int index) {
+      if (index < 0 || index >= mSize) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+      }
+
+      return (V) mValues[mStart + index];
+    }
+
+    @Override
+    public int size() {
+      return mSize;
+    }
+  }
+
+  /**
+   * Instantiates a new compact list multi map.
+   *
+   * @param index   the index
+   * @param keys    the keys
+   * @param offsets the offsets
+   * @param values  the values
+   */
+  private CompactListMultiMap(ObjectIntMap<K> index, Object[] keys, int[] offsets, Object[] values) {
+    mIndex = index;
+    mKeys = keys;
+    mOffsets = offsets;
+    mValues = values;
+  }
+
+  /**
+   * Returns the values of a key, or an empty list if the key is not in the
+   * map.
+   *
+   * @param key the key
+   * @return the list
+   */
+  @Override
+  public List<V> get(Object key) {
+    int i = mIndex.getOrDefault(key, -1);
+
+    if (i == -1) {
+      return Collections.emptyList();
+    }
+
+    return new Values(mOffsets[i], mOffsets[i + 1]);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return mIndex.containsKey(key);
+  }
+
+  /**
+   * Returns the number of keys.
+   *
+   * @return the int
+   */
+  @Override
+  public int size() {
+    return mKeys.length;
+  }
+
+  /**
+   * Returns the total number of values of all keys.
+   *
+   * @return the int
+   */
+  public int valueCount() {
+    return mValues.length;
+  }
+
+  @Override
+  public Set<Map.Entry<K, List<V>>> entrySet() {
+    return new AbstractSet<Map.Entry<K, List<V>>>() {
+      @Override
+      public Iterator<Map.Entry<K, List<V>>> iterator() {
+        return new Iterator<Map.Entry<K, List<V>>>() {
+          private int mRow = 0;
+
+          @Override
+          public boolean hasNext() {
+            return mRow < mKeys.length;
+          }
+
+          @SuppressWarnings("unchecked")
+          @Override
+          public Map.Entry<K, List<V>> next() {
+            if (mRow >= mKeys.length) {
+              throw new NoSuchElementException();
+            }
+
+            Map.Entry<K, List<V>> ret = new org.jebtk.core.collections.Entry<K, List<V>>((K) mKeys[mRow],
+                new Values(mOffsets[mRow], mOffsets[mRow + 1]));
+
+            ++mRow;
+
+            return ret;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return mKeys.length;
+      }
+    };
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Creates a builder.
+   *
+   * @param <KK> the generic type
+   * @param <VV> the generic type
+   * @return the builder
+   */
+  public static <KK, VV> Builder<KK, VV> builder() {
+    return new Builder<KK, VV>(DEFAULT_INITIAL_CAPACITY, DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates a compact copy of a multi map.
+   *
+   * @param <KK> the generic type
+   * @param <VV> the generic type
+   * @param map  the map
+   * @return the compact list multi map
+   */
+  public static <KK, VV> CompactListMultiMap<KK, VV> copyOf(Map<KK, ? extends Collection<VV>> map) {
+    int values = 0;
+
+    for (Collection<VV> c : map.values()) {
+      values += c.size();
+    }
+
+    Builder<KK, VV> builder = new Builder<KK, VV>(map.size(), values);
+
+    for (Map.Entry<KK, ? extends Collection<VV>> e : map.entrySet()) {
+      builder.putAll(e.getKey(), e.getValue());
+    }
+
+    return builder.build();
+  }
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts keys from many threads at once. Each key has a {@link LongAdder}
+ * cell in a {@link ConcurrentHashMap}. Once a key exists, incrementing it is a
+ * lock free read of the map followed by an add to the cell, and the adder
+ * spreads contended updates over several counters so threads counting the
+ * same key do not serialize on it.
+ *
+ * Iteration is over a snapshot of the counts so it can run while other
+ * threads are counting. The snapshot is not atomic: counts added during
+ * iteration may or may not be seen.
+ *
+ * For bulk jobs where the counts are only needed at the end, an
+ * {@link Accumulator} avoids all sharing by counting into a map per thread
+ * and merging them when the job is done.
+ *
+ * @param <K> the key type
+ */
+public class ConcurrentCountMap<K> implements Iterable<Map.Entry<K, Long>> {
+
+  /** The counts. */
+  private final ConcurrentHashMap<K, LongAdder> mCounts;
+
+  /**
+   * Counts keys into a {@link CountMap} local to each thread so that threads
+   * do not contend. Call {@link #build()} once all threads have finished to
+   * merge the per thread counts.
+   *
+   * @param <K> the key type
+   */
+  public static class Accumulator<K> {
+
+    /** The map of each thread that has counted something. */
+    private final ConcurrentLinkedQueue<CountMap<K>> mPartials = new ConcurrentLinkedQueue<CountMap<K>>();
+
+    /** The map of the current thread. */
+    private final ThreadLocal<CountMap<K>> mLocal = new ThreadLocal<CountMap<K>>() {
+      @Override
+      protected CountMap<K> initialValue() {
+        CountMap<K> ret = new CountMap<K>();
+
+        mPartials.add(ret);
+
+        return ret;
+      }
+    };
+
+    /**
+     * Increment the count of a key by 1.
+     *
+     * @param key the key
+     */
+    public void inc(K key) {
+      mLocal.get().inc(key);
+    }
+
+    /**
+     * Add to the count of a key.
+     *
+     * @param key the key
+     * @param n   the n
+     */
+    public void add(K key, int n) {
+      mLocal.get().inc(key, n);
+    }
+
+    /**
+     * Merge the counts of all threads. Threads must have stopped counting.
+     *
+     * @return the concurrent count map
+     */
+    public ConcurrentCountMap<K> build() {
+      ConcurrentCountMap<K> ret = new ConcurrentCountMap<K>();
+
+      for (CountMap<K> partial : mPartials) {
+        ret.addAll(partial);
+      }
+
+      return ret;
+    }
+  }
+
+  /**
+   * Instantiates a new concurrent count map.
+   */
+  public ConcurrentCountMap() {
+    this(ObjectIntMap.DEFAULT_SIZE);
+  }
+
+  /**
+   * Instantiates a new concurrent count map.
+   *
+   * @param size the expected number of keys.
+   */
+  public ConcurrentCountMap(int size) {
+    mCounts = new ConcurrentHashMap<K, LongAdder>(size);
+  }
+
+  /**
+   * Increment the count of a key by 1.
+   *
+   * @param key the key
+   */
+  public void inc(K key) {
+    cell(key).increment();
+  }
+
+  /**
+   * Add to the count of a key.
+   *
+   * @param key the key
+   * @param n   the n
+   */
+  public void add(K key, long n) {
+    cell(key).add(n);
+  }
+
+  /**
+   * Add the counts of a map to this one.
+   *
+   * @param map the map
+   */
+  public void addAll(CountMap<K> map) {
+    for (Map.Entry<K, Integer> e : map) {
+      add(e.getKey(), e.getValue());
+    }
+  }
+
+  /**
+   * Returns the count of a key, or 0 if it has not been counted.
+   *
+   * @param key the key
+   * @return the long
+   */
+  public long sum(Object key) {
+    LongAdder cell = mCounts.get(key);
+
+    return cell != null ? cell.sum() : 0;
+  }
+
+  /**
+   * Returns the total of all counts.
+   *
+   * @return the long
+   */
+  public long sum() {
+    long ret = 0;
+
+    for (LongAdder cell : mCounts.values()) {
+      ret += cell.sum();
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the cell of a key, creating it if necessary. The common case of an
+   * existing key takes no locks.
+   *
+   * @param key the key
+   * @return the long adder
+   */
+  private LongAdder cell(K key) {
+    LongAdder ret = mCounts.get(key);
+
+    if (ret == null) {
+      LongAdder cell = new LongAdder();
+
+      ret = mCounts.putIfAbsent(key, cell);
+
+      if (ret == null) {
+        ret = cell;
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns true if a key has been counted.
+   *
+   * @param key the key
+   * @return true, if successful
+   */
+  public boolean containsKey(Object key) {
+    return mCounts.containsKey(key);
+  }
+
+  /**
+   * Returns the number of keys.
+   *
+   * @return the int
+   */
+  public int size() {
+    return mCounts.size();
+  }
+
+  /**
+   * Remove all keys.
+   */
+  public void clear() {
+    mCounts.clear();
+  }
+
+  /**
+   * Returns a copy of the counts.
+   *
+   * @return the map
+   */
+  public Map<K, Long> snapshot() {
+    Map<K, Long> ret = new IterHashMap<K, Long>(mCounts.size());
+
+    for (Map.Entry<K, LongAdder> e : mCounts.entrySet()) {
+      ret.put(e.getKey(), e.getValue().sum());
+    }
+
+    return ret;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public Iterator<Map.Entry<K, Long>> iterator() {
+    List<Map.Entry<K, Long>> ret = new ArrayList<Map.Entry<K, Long>>(mCounts.size());
+
+    for (Map.Entry<K, LongAdder> e : mCounts.entrySet()) {
+      ret.add(new Entry<K, Long>(e.getKey(), e.getValue().sum()));
+    }
+
+    return ret.iterator();
+  }
+
+  /**
+   * Creates the.
+   *
+   * @param <K1> the generic type
+   * @return the concurrent count map
+   */
+  public static <K1> ConcurrentCountMap<K1> create() {
+    return new ConcurrentCountMap<K1>();
+  }
+
+  /**
+   * Creates an accumulator for counting with thread local maps.
+   *
+   * @param <K1> the generic type
+   * @return the accumulator
+   */
+  public static <K1> Accumulator<K1> accumulator() {
+    return new Accumulator<K1>();
+  }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Thread safe hash map that automatically adds a default value if a key does
+ * not exist. Reading an existing key takes no locks. A missing key is added
+ * atomically, so when several threads ask for the same missing key, the
+ * creator is called once and every thread gets the same entry. This allows
+ * parallel code to group values into, for example, concurrent collections
+ * without external locking. The entries themselves must be thread safe if
+ * threads modify them.
+ *
+ * As with all concurrent hash maps, null values are not permitted.
+ *
+ * {@link #containsKey(Object)}, {@link #getOrDefault(Object, Object)} and
+ * {@link #equals(Object)} never add keys. Other code that calls {@code get}
+ * will add missing keys, including {@code entrySet().contains}, a
+ * {@code replaceAll} that races with a removal, and the {@code equals} method
+ * of another map when it is given this map.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ConcurrentDefaultHashMap<K, V> extends ConcurrentHashMap<K, V> implements IterMap<K, V> {
+
+  /**
+   * The constant serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The member default value.
+   */
+  private final EntryCreator<V> mDefaultValue;
+
+  /** Adapts the creator to computeIfAbsent. */
+  private transient Function<K, V> mCreate;
+
+  /**
+   * Instantiates a new concurrent default hash map.
+   *
+   * @param defaultValue the default value
+   */
+  public ConcurrentDefaultHashMap(EntryCreator<V> defaultValue) {
+    this(HashMapCreator.INITIAL_CAPACITY, defaultValue);
+  }
+
+  /**
+   * Instantiates a new concurrent default hash map.
+   *
+   * @param initialCapacity the initial capacity
+   * @param defaultValue    the default value
+   */
+  public ConcurrentDefaultHashMap(int initialCapacity, EntryCreator<V> defaultValue) {
+    super(initialCapacity);
+
+    mDefaultValue = defaultValue;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see java.util.concurrent.ConcurrentHashMap#get(java.lang.Object)
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get(Object key) {
+    return getValue((K) key);
+  }
+
+  /**
+   * Gets the value.
+   *
+   * @param key the key
+   * @return the value
+   */
+  public V getValue(K key) {
+    V ret = super.get(key);
+
+    if (ret != null) {
+      return ret;
+    }
+
+    if (mCreate == null) {
+      mCreate = new Function<K, V>() {
+        @Override
+        public V apply(K key) {
+          return mDefaultValue.newEntry();
+        }
+      };
+    }
+
+    return computeIfAbsent(key, mCreate);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see java.util.concurrent.ConcurrentHashMap#containsKey(java.lang.Object)
+   */
+  @Override
+  public boolean containsKey(Object key) {
+    // ConcurrentHashMap implements this with get, which would add the key
+    return super.get(key) != null;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see java.util.concurrent.ConcurrentHashMap#getOrDefault(java.lang.Object,
+   * java.lang.Object)
+   */
+  @Override
+  public V getOrDefault(Object key, V defaultValue) {
+    V ret = super.get(key);
+
+    return ret != null ? ret : defaultValue;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see java.util.concurrent.ConcurrentHashMap#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object o) {
+    // ConcurrentHashMap looks up every key of the other map with get, which
+    // would add the keys this map is missing
+    if (o == this) {
+      return true;
+    }
+
+    if (!(o instanceof Map)) {
+      return false;
+    }
+
+    Map<?, ?> m = (Map<?, ?>) o;
+
+    for (Entry<K, V> e : entrySet()) {
+      Object v = m.get(e.getKey());
+
+      if (v == null || !v.equals(e.getValue())) {
+        return false;
+      }
+    }
+
+    for (Entry<?, ?> e : m.entrySet()) {
+      Object k = e.getKey();
+      Object mv = e.getValue();
+
+      if (k == null || mv == null) {
+        return false;
+      }
+
+      V v = super.get(k);
+
+      if (v == null || !mv.equals(v)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see java.util.concurrent.ConcurrentHashMap#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public Iterator<Entry<K, V>> iterator() {
+    return entrySet().iterator();
+  }
+
+  @Override
+  public Entry<K, V> first() {
+    return iterator().next();
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Creates a new concurrent default hash map.
+   *
+   * @param <K1>         the generic type
+   * @param <V1>         the generic type
+   * @param defaultValue the default value
+   * @return the map
+   */
+  public static <K1, V1> ConcurrentDefaultHashMap<K1, V1> create(EntryCreator<V1> defaultValue) {
+    return new ConcurrentDefaultHashMap<K1, V1>(defaultValue);
+  }
+
+  /**
+   * Creates a new concurrent default hash map whose missing keys have a fixed
+   * value.
+   *
+   * @param <K1>         the generic type
+   * @param <V1>         the generic type
+   * @param defaultValue the default value
+   * @return the map
+   */
+  public static <K1, V1> ConcurrentDefaultHashMap<K1, V1> create(V1 defaultValue) {
+    return create(new ValueCreator<V1>(defaultValue));
+  }
+}
@@ -4,9 +4,9 @@
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *   http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -15,17 +15,36 @@
  */
 package org.jebtk.core.collections;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
- * A specialized DefaultHashMap for storing the number of times a key is added.
+ * A map for storing the number of times a key is added. Counts are held
+ * unboxed in an {@link ObjectIntMap} so that incrementing a key is a single
+ * probe of the table with no allocation. Keys that have not been added have
+ * the default count, but unlike a {@link DefaultHashMap}, reading a key does
+ * not add it.
  *
  * @param <K> the key type
  */
-public class CountMap<K> extends DefaultHashMap<K, Integer> {
+public class CountMap<K> extends AbstractMap<K, Integer> implements IterMap<K, Integer> {
 
   /** The Constant serialVersionUID. */
   private static final long serialVersionUID = 1L;
+
+  /** The counts. */
+  private final ObjectIntMap<K> mCounts;
+
+  /** The count of keys that have not been added. */
+  private final int mDefaultValue;
+
   private int mMaxC = Integer.MIN_VALUE;
   private K mMaxK = null;
 
@@ -42,7 +61,47 @@ public class CountMap<K> extends DefaultHashMap<K, Integer> {
    * @param defaultValue the default value
    */
   public CountMap(int defaultValue) {
-    super(defaultValue);
+    this(ObjectIntMap.DEFAULT_SIZE, defaultValue);
+  }
+
+  /**
+   * Instantiates a new count map.
+   *
+   * @param size         the expected number of keys.
+   * @param defaultValue the default value
+   */
+  public CountMap(int size, int defaultValue) {
+    mCounts = new ObjectIntMap<K>(size);
+    mDefaultValue = defaultValue;
+  }
+
+  /**
+   * Returns the count of a key without boxing.
+   *
+   * @param key the key
+   * @return the count
+   */
+  public int getCount(Object key) {
+    return mCounts.getOrDefault(key, mDefaultValue);
+  }
+
+  @Override
+  public Integer get(Object key) {
+    return getCount(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return mCounts.containsKey(key);
+  }
+
+  @Override
+  public Integer put(K key, Integer value) {
+    boolean exists = mCounts.containsKey(key);
+
+    int ret = mCounts.put(key, value);
+
+    return exists ? ret : null;
   }
 
   /**
@@ -53,15 +112,19 @@ public class CountMap<K> extends DefaultHashMap<K, Integer> {
    */
   @Override
   public Integer remove(Object key) {
-    /*
-     * Integer ret = super.get(key);
-     * 
-     * dec((K) key);
-     * 
-     * return ret;
-     */
+    return get(key);
+  }
 
-    return super.get(key);
+  @Override
+  public int size() {
+    return mCounts.size();
+  }
+
+  @Override
+  public void clear() {
+    mCounts.clear();
+    mMaxC = Integer.MIN_VALUE;
+    mMaxK = null;
   }
 
   /**
@@ -99,7 +162,7 @@ public class CountMap<K> extends DefaultHashMap<K, Integer> {
    * @param key the key
    */
   public void init(K key) {
-    put(key, 0);
+    mCounts.put(key, 0);
   }
 
   /**
@@ -109,9 +172,7 @@ public class CountMap<K> extends DefaultHashMap<K, Integer> {
    * @param inc the inc
    */
   public void inc(K key, int inc) {
-    int c = get(key) + inc;
-
-    put(key, c);
+    int c = mCounts.addTo(key, inc, mDefaultValue);
 
     if (c > mMaxC) {
       mMaxC = c;
@@ -149,6 +210,174 @@ public class CountMap<K> extends DefaultHashMap<K, Integer> {
     }
   }
 
+  /**
+   * Add the counts of another map to this one, for example to combine counts
+   * made on separate threads. Counts are read and added without boxing.
+   *
+   * @param map the map
+   */
+  public void merge(CountMap<K> map) {
+    ObjectIntMap<K>.Cursor c = map.mCounts.cursor();
+
+    while (c.next()) {
+      inc(c.key(), c.value());
+    }
+  }
+
+  /**
+   * Returns the k keys with the highest counts, highest first. Keys are
+   * selected using a heap of size k so the map is not sorted.
+   *
+   * @param k the k
+   * @return the list
+   */
+  @SuppressWarnings("unchecked")
+  public List<Entry<K, Integer>> topK(int k) {
+    k = Math.min(k, size());
+
+    if (k <= 0) {
+      return Collections.emptyList();
+    }
+
+    // min heap of the best counts seen so far
+    Object[] keys = new Object[k];
+    int[] counts = new int[k];
+    int n = 0;
+
+    ObjectIntMap<K>.Cursor c = mCounts.cursor();
+
+    while (c.next()) {
+      int count = c.value();
+
+      if (n < k) {
+        // sift up
+        int i = n++;
+
+        while (i > 0) {
+          int p = (i - 1) >> 1;
+
+          if (counts[p] <= count) {
+            break;
+          }
+
+          counts[i] = counts[p];
+          keys[i] = keys[p];
+          i = p;
+        }
+
+        counts[i] = count;
+        keys[i] = c.key();
+      } else if (count > counts[0]) {
+        siftDown(keys, counts, n, c.key(), count);
+      }
+    }
+
+    List<Entry<K, Integer>> ret = new ArrayList<Entry<K, Integer>>(n);
+
+    // repeatedly remove the smallest
+    while (n > 0) {
+      ret.add(new org.jebtk.core.collections.Entry<K, Integer>((K) keys[0], counts[0]));
+
+      --n;
+
+      siftDown(keys, counts, n, keys[n], counts[n]);
+    }
+
+    Collections.reverse(ret);
+
+    return ret;
+  }
+
+  /**
+   * Replace the root of a min heap and restore the heap.
+   *
+   * @param keys   the keys
+   * @param counts the counts
+   * @param n      the size of the heap
+   * @param key    the new key
+   * @param count  the new count
+   */
+  private static void siftDown(Object[] keys, int[] counts, int n, Object key, int count) {
+    int i = 0;
+
+    while (true) {
+      int child = 2 * i + 1;
+
+      if (child >= n) {
+        break;
+      }
+
+      if (child + 1 < n && counts[child + 1] < counts[child]) {
+        ++child;
+      }
+
+      if (count <= counts[child]) {
+        break;
+      }
+
+      counts[i] = counts[child];
+      keys[i] = keys[child];
+      i = child;
+    }
+
+    if (n > 0) {
+      counts[i] = count;
+      keys[i] = key;
+    }
+  }
+
+  @Override
+  public Set<Entry<K, Integer>> entrySet() {
+    return new AbstractSet<Entry<K, Integer>>() {
+      @Override
+      public Iterator<Entry<K, Integer>> iterator() {
+        return CountMap.this.iterator();
+      }
+
+      @Override
+      public int size() {
+        return mCounts.size();
+      }
+    };
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public Iterator<Entry<K, Integer>> iterator() {
+    final ObjectIntMap<K>.Cursor c = mCounts.cursor();
+
+    return new Iterator<Entry<K, Integer>>() {
+      private boolean mHasNext = c.next();
+
+      @Override
+      public boolean hasNext() {
+        return mHasNext;
+      }
+
+      @Override
+      public Entry<K, Integer> next() {
+        if (!mHasNext) {
+          throw new NoSuchElementException();
+        }
+
+        Entry<K, Integer> ret = new org.jebtk.core.collections.Entry<K, Integer>(c.key(), c.value());
+
+        mHasNext = c.next();
+
+        return ret;
+      }
+    };
+  }
+
+  @Override
+  public Entry<K, Integer> first() {
+    return iterator().next();
+  }
+
   /**
    * Creates the.
    *
@@ -15,8 +15,12 @@
  */
 package org.jebtk.core.collections;
 
+import java.util.function.Function;
+
 /**
  * Hash map that automatically adds a default value if a key does not exist.
+ * Looking up a key, and adding it if necessary, is a single probe of the
+ * table.
  *
  * @param <K> the key type
  * @param <V> the value type
@@ -33,6 +37,9 @@ public class DefaultHashMap<K, V> extends IterHashMap<K, V> {
    */
   private EntryCreator<V> mDefaultValue;
 
+  /** Adapts the creator to computeIfAbsent. */
+  private transient Function<K, V> mCreate;
+
   /**
    * Instantiates a new auto hash map.
    *
@@ -91,11 +98,16 @@ public class DefaultHashMap<K, V> extends IterHashMap<K, V> {
    * @return the value
    */
   public V getValue(K key) {
-    if (!containsKey(key)) {
-      put(key, mDefaultValue.newEntry());
+    if (mCreate == null) {
+      mCreate = new Function<K, V>() {
+        @Override
+        public V apply(K key) {
+          return mDefaultValue.newEntry();
+        }
+      };
     }
 
-    return super.get(key);
+    return computeIfAbsent(key, mCreate);
   }
 
   //
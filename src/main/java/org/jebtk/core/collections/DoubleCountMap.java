@@ -4,9 +4,9 @@
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *   http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -15,22 +15,41 @@
  */
 package org.jebtk.core.collections;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
- * A specialized DefaultHashMap for storing the number of times a key is added.
+ * A map for storing the sum of the values added for each key. Sums are held
+ * unboxed in an {@link ObjectDoubleMap} so that incrementing a key is a single
+ * probe of the table with no allocation. Keys that have not been added have
+ * the default count, but unlike a {@link DefaultHashMap}, reading a key does
+ * not add it.
  *
  * @param <K> the key type
  */
-public class DoubleCountMap<K> extends DefaultHashMap<K, Double> {
+public class DoubleCountMap<K> extends AbstractMap<K, Double> implements IterMap<K, Double> {
 
   /** The Constant serialVersionUID. */
   private static final long serialVersionUID = 1L;
-  private double mMaxC = Double.MIN_VALUE;
+
+  /** The counts. */
+  private final ObjectDoubleMap<K> mCounts;
+
+  /** The count of keys that have not been added. */
+  private final double mDefaultValue;
+
+  private double mMaxC = Double.NEGATIVE_INFINITY;
   private K mMaxK = null;
 
   /**
-   * Instantiates a new count map to keep track of doubleeger counts.
+   * Instantiates a new count map to keep track of integer counts.
    */
   public DoubleCountMap() {
     this(0);
@@ -42,30 +61,74 @@ public class DoubleCountMap<K> extends DefaultHashMap<K, Double> {
    * @param defaultValue the default value
    */
   public DoubleCountMap(double defaultValue) {
-    super(defaultValue);
+    this(ObjectDoubleMap.DEFAULT_SIZE, defaultValue);
+  }
+
+  /**
+   * Instantiates a new count map.
+   *
+   * @param size         the expected number of keys.
+   * @param defaultValue the default value
+   */
+  public DoubleCountMap(int size, double defaultValue) {
+    mCounts = new ObjectDoubleMap<K>(size);
+    mDefaultValue = defaultValue;
+  }
+
+  /**
+   * Returns the count of a key without boxing.
+   *
+   * @param key the key
+   * @return the count
+   */
+  public double getCount(Object key) {
+    return mCounts.getOrDefault(key, mDefaultValue);
+  }
+
+  @Override
+  public Double get(Object key) {
+    return getCount(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return mCounts.containsKey(key);
+  }
+
+  @Override
+  public Double put(K key, Double value) {
+    boolean exists = mCounts.containsKey(key);
+
+    double ret = mCounts.put(key, value);
+
+    return exists ? ret : null;
   }
 
   /**
    * Removal has no effect.
    *
    * @param key the key
-   * @return the doubleeger
+   * @return the integer
    */
   @Override
   public Double remove(Object key) {
-    /*
-     * doubleeger ret = super.get(key);
-     * 
-     * dec((K) key);
-     * 
-     * return ret;
-     */
+    return get(key);
+  }
 
-    return super.get(key);
+  @Override
+  public int size() {
+    return mCounts.size();
+  }
+
+  @Override
+  public void clear() {
+    mCounts.clear();
+    mMaxC = Double.NEGATIVE_INFINITY;
+    mMaxK = null;
   }
 
   /**
-   * Put all of the values from an iterator doubleo the map.
+   * Put all of the values from an iterator into the map.
    *
    * @param iter the iter
    */
@@ -99,7 +162,7 @@ public class DoubleCountMap<K> extends DefaultHashMap<K, Double> {
    * @param key the key
    */
   public void init(K key) {
-    put(key, 0.0);
+    mCounts.put(key, 0.0);
   }
 
   /**
@@ -109,9 +172,7 @@ public class DoubleCountMap<K> extends DefaultHashMap<K, Double> {
    * @param inc the inc
    */
   public void inc(K key, double inc) {
-    double c = (double) get(key) + inc;
-
-    put(key, c);
+    double c = mCounts.addTo(key, inc, mDefaultValue);
 
     if (c > mMaxC) {
       mMaxC = c;
@@ -131,7 +192,7 @@ public class DoubleCountMap<K> extends DefaultHashMap<K, Double> {
    * Decrement the key by a given amount.
    *
    * @param key the key
-   * @param dec Should be a positive doubleeger indicating how much to reduce the
+   * @param dec Should be a positive integer indicating how much to reduce the
    *            count of the key by
    */
   public void dec(K key, double dec) {
@@ -149,6 +210,174 @@ public class DoubleCountMap<K> extends DefaultHashMap<K, Double> {
     }
   }
 
+  /**
+   * Add the counts of another map to this one, for example to combine counts
+   * made on separate threads. Counts are read and added without boxing.
+   *
+   * @param map the map
+   */
+  public void merge(DoubleCountMap<K> map) {
+    ObjectDoubleMap<K>.Cursor c = map.mCounts.cursor();
+
+    while (c.next()) {
+      inc(c.key(), c.value());
+    }
+  }
+
+  /**
+   * Returns the k keys with the highest counts, highest first. Keys are
+   * selected using a heap of size k so the map is not sorted.
+   *
+   * @param k the k
+   * @return the list
+   */
+  @SuppressWarnings("unchecked")
+  public List<Entry<K, Double>> topK(int k) {
+    k = Math.min(k, size());
+
+    if (k <= 0) {
+      return Collections.emptyList();
+    }
+
+    // min heap of the best counts seen so far
+    Object[] keys = new Object[k];
+    double[] counts = new double[k];
+    int n = 0;
+
+    ObjectDoubleMap<K>.Cursor c = mCounts.cursor();
+
+    while (c.next()) {
+      double count = c.value();
+
+      if (n < k) {
+        // sift up
+        int i = n++;
+
+        while (i > 0) {
+          int p = (i - 1) >> 1;
+
+          if (counts[p] <= count) {
+            break;
+          }
+
+          counts[i] = counts[p];
+          keys[i] = keys[p];
+          i = p;
+        }
+
+        counts[i] = count;
+        keys[i] = c.key();
+      } else if (count > counts[0]) {
+        siftDown(keys, counts, n, c.key(), count);
+      }
+    }
+
+    List<Entry<K, Double>> ret = new ArrayList<Entry<K, Double>>(n);
+
+    // repeatedly remove the smallest
+    while (n > 0) {
+      ret.add(new org.jebtk.core.collections.Entry<K, Double>((K) keys[0], counts[0]));
+
+      --n;
+
+      siftDown(keys, counts, n, keys[n], counts[n]);
+    }
+
+    Collections.reverse(ret);
+
+    return ret;
+  }
+
+  /**
+   * Replace the root of a min heap and restore the heap.
+   *
+   * @param keys   the keys
+   * @param counts the counts
+   * @param n      the size of the heap
+   * @param key    the new key
+   * @param count  the new count
+   */
+  private static void siftDown(Object[] keys, double[] counts, int n, Object key, double count) {
+    int i = 0;
+
+    while (true) {
+      int child = 2 * i + 1;
+
+      if (child >= n) {
+        break;
+      }
+
+      if (child + 1 < n && counts[child + 1] < counts[child]) {
+        ++child;
+      }
+
+      if (count <= counts[child]) {
+        break;
+      }
+
+      counts[i] = counts[child];
+      keys[i] = keys[child];
+      i = child;
+    }
+
+    if (n > 0) {
+      counts[i] = count;
+      keys[i] = key;
+    }
+  }
+
+  @Override
+  public Set<Entry<K, Double>> entrySet() {
+    return new AbstractSet<Entry<K, Double>>() {
+      @Override
+      public Iterator<Entry<K, Double>> iterator() {
+        return DoubleCountMap.this.iterator();
+      }
+
+      @Override
+      public int size() {
+        return mCounts.size();
+      }
+    };
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public Iterator<Entry<K, Double>> iterator() {
+    final ObjectDoubleMap<K>.Cursor c = mCounts.cursor();
+
+    return new Iterator<Entry<K, Double>>() {
+      private boolean mHasNext = c.next();
+
+      @Override
+      public boolean hasNext() {
+        return mHasNext;
+      }
+
+      @Override
+      public Entry<K, Double> next() {
+        if (!mHasNext) {
+          throw new NoSuchElementException();
+        }
+
+        Entry<K, Double> ret = new org.jebtk.core.collections.Entry<K, Double>(c.key(), c.value());
+
+        mHasNext = c.next();
+
+        return ret;
+      }
+    };
+  }
+
+  @Override
+  public Entry<K, Double> first() {
+    return iterator().next();
+  }
+
   /**
    * Creates the.
    *
@@ -1,148 +1,297 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
 package org.jebtk.core.collections;
 
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
 
-public class DoubleList implements List<Double> {
+/**
+ * A growable list of doubles stored in a double array. Use the primitive
+ * methods such as {@link #getDouble(int)} and {@link #addDouble(double)} to
+ * avoid boxing. The list can also be used anywhere a {@code List<Double>} is
+ * expected, in which case values are boxed only as they are accessed.
+ *
+ * @author Antony Holmes
+ */
+public class DoubleList extends AbstractList<Double> implements RandomAccess {
 
-  @Override
-  public int size() {
-    // TODO Auto-generated method stub
-    return 0;
+  /** The default capacity. */
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** Shared empty array. */
+  private static final double[] EMPTY = {};
+
+  /** The values. */
+  private double[] mValues;
+
+  /** The size. */
+  private int mSize = 0;
+
+  /**
+   * Instantiates a new double list.
+   */
+  public DoubleList() {
+    mValues = EMPTY;
   }
 
-  @Override
-  public boolean isEmpty() {
-    // TODO Auto-generated method stub
-    return false;
+  /**
+   * Instantiates a new double list.
+   *
+   * @param capacity the initial capacity.
+   */
+  public DoubleList(int capacity) {
+    mValues = new double[capacity];
   }
 
-  @Override
-  public boolean contains(Object o) {
-    // TODO Auto-generated method stub
-    return false;
+  /**
+   * Instantiates a new double list containing a copy of some values.
+   *
+   * @param values the values
+   */
+  public DoubleList(double[] values) {
+    mValues = Arrays.copyOf(values, values.length);
+    mSize = values.length;
   }
 
-  @Override
-  public Iterator<Double> iterator() {
-    // TODO Auto-generated method stub
-    return null;
+  /**
+   * Returns a value.
+   *
+   * @param index the index
+   * @return the double
+   */
+  public double getDouble(int index) {
+    checkIndex(index);
+
+    return mValues[index];
   }
 
-  @Override
-  public Object[] toArray() {
-    // TODO Auto-generated method stub
-    return null;
+  /**
+   * Set a value.
+   *
+   * @param index the index
+   * @param v     the v
+   * @return the previous value
+   */
+  public double setDouble(int index, double v) {
+    checkIndex(index);
+
+    double ret = mValues[index];
+
+    mValues[index] = v;
+
+    return ret;
   }
 
-  @Override
-  public <T> T[] toArray(T[] a) {
-    // TODO Auto-generated method stub
-    return null;
+  /**
+   * Append a value.
+   *
+   * @param v the v
+   */
+  public void addDouble(double v) {
+    if (mSize == mValues.length) {
+      ensureCapacity(mSize + 1);
+    }
+
+    mValues[mSize++] = v;
+
+    ++modCount;
   }
 
-  @Override
-  public boolean add(Double e) {
-    // TODO Auto-generated method stub
-    return false;
+  /**
+   * Insert a value.
+   *
+   * @param index the index
+   * @param v     the v
+   */
+  public void addDouble(int index, double v) {
+    if (index < 0 || index > mSize) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+    }
+
+    ensureCapacity(mSize + 1);
+
+    System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+
+    mValues[index] = v;
+
+    ++mSize;
+    ++modCount;
   }
 
-  @Override
-  public boolean remove(Object o) {
-    // TODO Auto-generated method stub
-    return false;
+  /**
+   * Remove a value.
+   *
+   * @param index the index
+   * @return the removed value
+   */
+  public double removeDouble(int index) {
+    checkIndex(index);
+
+    double ret = mValues[index];
+
+    System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+
+    --mSize;
+    ++modCount;
+
+    return ret;
   }
 
-  @Override
-  public boolean containsAll(Collection<?> c) {
-    // TODO Auto-generated method stub
-    return false;
+  /**
+   * Append values.
+   *
+   * @param values the values
+   */
+  public void addAll(double[] values) {
+    addAll(values, 0, values.length);
   }
 
-  @Override
-  public boolean addAll(Collection<? extends Double> c) {
-    // TODO Auto-generated method stub
-    return false;
+  /**
+   * Append part of an array.
+   *
+   * @param values the values
+   * @param offset the offset
+   * @param length the length
+   */
+  public void addAll(double[] values, int offset, int length) {
+    ensureCapacity(mSize + length);
+
+    System.arraycopy(values, offset, mValues, mSize, length);
+
+    mSize += length;
+    ++modCount;
   }
 
-  @Override
-  public boolean addAll(int index, Collection<? extends Double> c) {
-    // TODO Auto-generated method stub
-    return false;
+  /**
+   * Returns the index of a value or -1 if it is not in the list.
+   *
+   * @param v the v
+   * @return the int
+   */
+  public int indexOfDouble(double v) {
+    for (int i = 0; i < mSize; ++i) {
+      if (Double.compare(mValues[i], v) == 0) {
+        return i;
+      }
+    }
+
+    return -1;
   }
 
-  @Override
-  public boolean removeAll(Collection<?> c) {
-    // TODO Auto-generated method stub
-    return false;
+  /**
+   * Sort the values in ascending order.
+   */
+  public void sort() {
+    Arrays.sort(mValues, 0, mSize);
+
+    ++modCount;
   }
 
-  @Override
-  public boolean retainAll(Collection<?> c) {
-    // TODO Auto-generated method stub
-    return false;
+  /**
+   * Returns the backing array, trimmed to the size of the list if necessary so
+   * that no copy is made on subsequent calls. Changes to the array are seen by
+   * the list until the list next grows.
+   *
+   * @return the double[]
+   */
+  public double[] toDoubleArray() {
+    trimToSize();
+
+    return mValues;
   }
 
-  @Override
-  public void clear() {
-    // TODO Auto-generated method stub
+  /**
+   * Make sure the list can hold a number of values without growing.
+   *
+   * @param capacity the capacity
+   */
+  public void ensureCapacity(int capacity) {
+    if (capacity > mValues.length) {
+      int n = Math.max(DEFAULT_CAPACITY, mValues.length + (mValues.length >> 1));
+
+      mValues = Arrays.copyOf(mValues, Math.max(n, capacity));
+    }
+  }
 
+  /**
+   * Shrink the backing array to the size of the list.
+   */
+  public void trimToSize() {
+    if (mValues.length != mSize) {
+      mValues = Arrays.copyOf(mValues, mSize);
+    }
+  }
+
+  /**
+   * Check an index is in the list.
+   *
+   * @param index the index
+   */
+  private void checkIndex(int index) {
+    if (index < 0 || index >= mSize) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+    }
   }
 
   @Override
   public Double get(int index) {
-    // TODO Auto-generated method stub
-    return null;
+    return getDouble(index);
   }
 
   @Override
-  public Double set(int index, Double element) {
-    // TODO Auto-generated method stub
-    return null;
+  public Double set(int index, Double v) {
+    return setDouble(index, v);
   }
 
   @Override
-  public void add(int index, Double element) {
-    // TODO Auto-generated method stub
+  public boolean add(Double v) {
+    addDouble(v);
 
+    return true;
   }
 
   @Override
-  public Double remove(int index) {
-    // TODO Auto-generated method stub
-    return null;
+  public void add(int index, Double v) {
+    addDouble(index, v);
   }
 
   @Override
-  public int indexOf(Object o) {
-    // TODO Auto-generated method stub
-    return 0;
+  public Double remove(int index) {
+    return removeDouble(index);
   }
 
   @Override
-  public int lastIndexOf(Object o) {
-    // TODO Auto-generated method stub
-    return 0;
+  public int indexOf(Object o) {
+    return o instanceof Double ? indexOfDouble((Double) o) : -1;
   }
 
   @Override
-  public ListIterator<Double> listIterator() {
-    // TODO Auto-generated method stub
-    return null;
+  public boolean contains(Object o) {
+    return indexOf(o) != -1;
   }
 
   @Override
-  public ListIterator<Double> listIterator(int index) {
-    // TODO Auto-generated method stub
-    return null;
+  public int size() {
+    return mSize;
   }
 
   @Override
-  public List<Double> subList(int fromIndex, int toIndex) {
-    // TODO Auto-generated method stub
-    return null;
+  public void clear() {
+    mSize = 0;
+    ++modCount;
   }
-
 }
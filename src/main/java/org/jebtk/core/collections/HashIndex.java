@@ -0,0 +1,121 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+/**
+ * An open addressing hash table of positions in an array of keys, used by the
+ * compact immutable collections. The table only holds ints, so there are no
+ * entry objects. The low bits of a slot hold one plus the position of a key,
+ * with 0 marking a free slot. The high bits, which the position never needs,
+ * hold the high bits of the hash of the key, so that probing past a slot of a
+ * different key rarely has to load that key to compare it. The table is at
+ * most half full so that lookups are short. Keys can be interleaved with other
+ * data, such as the values of a map, so that a key and its value usually
+ * share a cache line.
+ *
+ * @author Antony Holmes
+ */
+class HashIndex {
+
+  /** The fill factor. */
+  private static final double FILL_FACTOR = 0.5;
+
+  /** The positions of the keys plus one. */
+  private final int[] mTable;
+
+  /** The mask to wrap slots. */
+  private final int mMask;
+
+  /** The spacing of the keys in the array. */
+  private final int mStride;
+
+  /**
+   * Index some keys, which must be unique and not null.
+   *
+   * @param keys the keys
+   */
+  public HashIndex(Object[] keys) {
+    this(keys, 1);
+  }
+
+  /**
+   * Index the keys at every {@code stride} position of an array, which must
+   * be unique and not null.
+   *
+   * @param keys   the keys
+   * @param stride the stride
+   */
+  public HashIndex(Object[] keys, int stride) {
+    int n = keys.length / stride;
+
+    mStride = stride;
+    mTable = new int[IntHashMap.arraySize(n, FILL_FACTOR)];
+    mMask = mTable.length - 1;
+
+    for (int i = 0; i < n; ++i) {
+      int h = hash(keys[i * stride]);
+      int ptr = h & mMask;
+
+      while (mTable[ptr] != 0) {
+        ptr = (ptr + 1) & mMask;
+      }
+
+      mTable[ptr] = (h & ~mMask) | (i + 1);
+    }
+  }
+
+  /**
+   * Returns the number of the key, counting in strides, or -1 if it is not a
+   * key.
+   *
+   * @param key  the key
+   * @param keys the keys that were indexed
+   * @return the int
+   */
+  public int find(Object key, Object[] keys) {
+    if (key == null) {
+      return -1;
+    }
+
+    int h = hash(key);
+    int ptr = h & mMask;
+    int tag = h & ~mMask;
+
+    while (true) {
+      int e = mTable[ptr];
+
+      if (e == 0) {
+        return -1;
+      }
+
+      if ((e & ~mMask) == tag) {
+        int p = (e & mMask) - 1;
+
+        Object k = keys[p * mStride];
+
+        if (k == key || k.equals(key)) {
+          return p;
+        }
+      }
+
+      ptr = (ptr + 1) & mMask;
+    }
+  }
+
+  private static int hash(Object key) {
+    return IntHashMap.phiMix(key.hashCode());
+  }
+}
@@ -18,8 +18,9 @@ package org.jebtk.core.collections;
 import java.util.ArrayList;
 
 /**
- * Immutable list for lists that should not be changed once created. The
- * benefits of a vector without the ability to modify it.
+ * A list whose items cannot be removed, and which ignores additions once
+ * {@link #lock()} has been called. {@link CompactImmutableList} cannot be
+ * changed at all once created.
  *
  * @author Antony Holmes
  * @param <T> the generic type
@@ -20,8 +20,9 @@ import java.util.Iterator;
 import java.util.Map.Entry;
 
 /**
- * Immutable list for lists that should not be changed once created. The
- * benefits of a vector without the ability to modify it.
+ * A map whose entries cannot be removed, and which ignores puts once
+ * {@link #lock()} has been called. {@link CompactImmutableMap} stores its
+ * entries in a single array and is fixed when it is built.
  *
  * @author Antony Holmes
  * @param <T1> the generic type
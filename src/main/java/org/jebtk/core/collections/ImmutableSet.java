@@ -19,8 +19,8 @@ import java.util.Collection;
 import java.util.HashSet;
 
 /**
- * Immutable list for lists that should not be changed once created. The
- * benefits of a vector without the ability to modify it.
+ * A set that values can be added to but not removed from. For a set that
+ * cannot be added to either, see {@link CompactImmutableSet}.
  *
  * @author Antony Holmes
  * @param <T> the generic type
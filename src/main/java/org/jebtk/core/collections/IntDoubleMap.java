@@ -0,0 +1,501 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.util.Arrays;
+
+/**
+ * Maps int keys to double values without boxing. Keys and values are stored in
+ * two parallel arrays using open addressing with linear probing and the phi
+ * mix hash of {@link IntHashMap}. Key 0 marks a free slot so its value is
+ * kept in a separate field. Removal uses backward shift deletion, so there are
+ * no tombstones and lookups stay short after many removals.
+ *
+ * Missing keys have the value 0, which suits counting with
+ * {@link #addTo(int, double)}.
+ *
+ * @author Antony Holmes
+ */
+public class IntDoubleMap {
+
+  /** The default expected number of entries. */
+  public static final int DEFAULT_SIZE = 16;
+
+  /** The default fill factor. */
+  public static final double DEFAULT_FILL_FACTOR = 0.75;
+
+  /** Marks a free slot. */
+  private static final int FREE_KEY = 0;
+
+  /** The keys. */
+  private int[] mKeys;
+
+  /** The values. */
+  private double[] mValues;
+
+  /** Whether the map contains the free key. */
+  private boolean mHasFreeKey = false;
+
+  /** The value of the free key. */
+  private double mFreeValue = 0;
+
+  /** The fill factor. */
+  private final double mFillFactor;
+
+  /** The map is resized when it reaches this size. */
+  private int mThreshold;
+
+  /** The size. */
+  private int mSize = 0;
+
+  /** The mask to wrap positions in the arrays. */
+  private int mMask;
+
+  /**
+   * Iterates over the entries of a map. The map must not be changed, except
+   * through {@link #setValue(int)}, while a cursor is in use.
+   */
+  public class Cursor {
+
+    /** The position, -1 being the free key. */
+    private int mPos = -2;
+
+    /**
+     * Move to the next entry.
+     *
+     * @return false if there are no more entries.
+     */
+    public boolean next() {
+      if (mPos == -2) {
+        mPos = -1;
+
+        if (mHasFreeKey) {
+          return true;
+        }
+      }
+
+      while (++mPos < mKeys.length) {
+        if (mKeys[mPos] != FREE_KEY) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    /**
+     * Returns the key of the current entry.
+     *
+     * @return the int
+     */
+    public int key() {
+      return mPos == -1 ? FREE_KEY : mKeys[mPos];
+    }
+
+    /**
+     * Returns the value of the current entry.
+     *
+     * @return the double
+     */
+    public double value() {
+      return mPos == -1 ? mFreeValue : mValues[mPos];
+    }
+
+    /**
+     * Change the value of the current entry.
+     *
+     * @param value the value
+     */
+    public void setValue(double value) {
+      if (mPos == -1) {
+        mFreeValue = value;
+      } else {
+        mValues[mPos] = value;
+      }
+    }
+  }
+
+  /**
+   * Instantiates a new int double map.
+   */
+  public IntDoubleMap() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * Instantiates a new int double map.
+   *
+   * @param size the expected number of entries.
+   */
+  public IntDoubleMap(int size) {
+    this(size, DEFAULT_FILL_FACTOR);
+  }
+
+  /**
+   * Instantiates a new int double map.
+   *
+   * @param size       the expected number of entries.
+   * @param fillFactor the fill factor in (0, 1).
+   */
+  public IntDoubleMap(int size, double fillFactor) {
+    if (fillFactor <= 0 || fillFactor >= 1) {
+      throw new IllegalArgumentException("FillFactor must be in (0, 1)");
+    }
+
+    if (size <= 0) {
+      throw new IllegalArgumentException("Size must be positive!");
+    }
+
+    mFillFactor = fillFactor;
+
+    allocate(IntHashMap.arraySize(size, fillFactor));
+  }
+
+  /**
+   * Returns the value of a key or 0 if the key is not in the map.
+   *
+   * @param key the key
+   * @return the double
+   */
+  public double get(int key) {
+    return getOrDefault(key, 0);
+  }
+
+  /**
+   * Returns the value of a key or a default value if the key is not in the
+   * map.
+   *
+   * @param key          the key
+   * @param defaultValue the default value
+   * @return the double
+   */
+  public double getOrDefault(int key, double defaultValue) {
+    if (key == FREE_KEY) {
+      return mHasFreeKey ? mFreeValue : defaultValue;
+    }
+
+    int ptr = IntHashMap.phiMix(key) & mMask;
+
+    while (true) {
+      int k = mKeys[ptr];
+
+      if (k == key) {
+        return mValues[ptr];
+      }
+
+      if (k == FREE_KEY) {
+        return defaultValue;
+      }
+
+      ptr = (ptr + 1) & mMask;
+    }
+  }
+
+  /**
+   * Returns true if the map contains a key.
+   *
+   * @param key the key
+   * @return true, if successful
+   */
+  public boolean containsKey(int key) {
+    if (key == FREE_KEY) {
+      return mHasFreeKey;
+    }
+
+    return find(key) != -1;
+  }
+
+  /**
+   * Set the value of a key.
+   *
+   * @param key   the key
+   * @param value the value
+   * @return the previous value or 0 if the key was not in the map.
+   */
+  public double put(int key, double value) {
+    if (key == FREE_KEY) {
+      double ret = mFreeValue;
+
+      if (!mHasFreeKey) {
+        ++mSize;
+        mHasFreeKey = true;
+      }
+
+      mFreeValue = value;
+
+      return ret;
+    }
+
+    int ptr = slot(key);
+
+    double ret = mValues[ptr];
+
+    mValues[ptr] = value;
+
+    if (mKeys[ptr] == FREE_KEY) {
+      mKeys[ptr] = key;
+      grow();
+    }
+
+    return ret;
+  }
+
+  /**
+   * Add to the value of a key, adding the key if it is not in the map.
+   *
+   * @param key  the key
+   * @param incr the amount to add
+   * @return the new value
+   */
+  public double addTo(int key, double incr) {
+    if (key == FREE_KEY) {
+      if (!mHasFreeKey) {
+        ++mSize;
+        mHasFreeKey = true;
+      }
+
+      return mFreeValue += incr;
+    }
+
+    int ptr = slot(key);
+
+    double ret = mValues[ptr] += incr;
+
+    if (mKeys[ptr] == FREE_KEY) {
+      mKeys[ptr] = key;
+      grow();
+    }
+
+    return ret;
+  }
+
+  /**
+   * Remove a key.
+   *
+   * @param key the key
+   * @return the value of the key or 0 if it was not in the map.
+   */
+  public double remove(int key) {
+    if (key == FREE_KEY) {
+      if (!mHasFreeKey) {
+        return 0;
+      }
+
+      double ret = mFreeValue;
+
+      mHasFreeKey = false;
+      mFreeValue = 0;
+      --mSize;
+
+      return ret;
+    }
+
+    int ptr = find(key);
+
+    if (ptr == -1) {
+      return 0;
+    }
+
+    double ret = mValues[ptr];
+
+    shiftKeys(ptr);
+
+    --mSize;
+
+    return ret;
+  }
+
+  /**
+   * Returns the position of a key in the arrays or -1.
+   *
+   * @param key the key, which is not the free key.
+   * @return the int
+   */
+  private int find(int key) {
+    int ptr = IntHashMap.phiMix(key) & mMask;
+
+    while (true) {
+      int k = mKeys[ptr];
+
+      if (k == key) {
+        return ptr;
+      }
+
+      if (k == FREE_KEY) {
+        return -1;
+      }
+
+      ptr = (ptr + 1) & mMask;
+    }
+  }
+
+  /**
+   * Returns the position of a key or the free slot where it should be added.
+   *
+   * @param key the key, which is not the free key.
+   * @return the int
+   */
+  private int slot(int key) {
+    int ptr = IntHashMap.phiMix(key) & mMask;
+
+    while (true) {
+      int k = mKeys[ptr];
+
+      if (k == key || k == FREE_KEY) {
+        return ptr;
+      }
+
+      ptr = (ptr + 1) & mMask;
+    }
+  }
+
+  /**
+   * Count a new key and resize if the map is too full.
+   */
+  private void grow() {
+    if (++mSize >= mThreshold) {
+      rehash(mKeys.length * 2);
+    }
+  }
+
+  /**
+   * Remove the entry at a position by shifting back the following entries of
+   * the same probe sequence.
+   *
+   * @param pos the pos
+   */
+  private void shiftKeys(int pos) {
+    int last;
+    int slot;
+    int k;
+
+    while (true) {
+      pos = ((last = pos) + 1) & mMask;
+
+      while (true) {
+        if ((k = mKeys[pos]) == FREE_KEY) {
+          mKeys[last] = FREE_KEY;
+          mValues[last] = 0;
+          return;
+        }
+
+        // the ideal slot of the key at pos
+        slot = IntHashMap.phiMix(k) & mMask;
+
+        // stop if the key can move back to last without passing its slot
+        if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+          break;
+        }
+
+        pos = (pos + 1) & mMask;
+      }
+
+      mKeys[last] = k;
+      mValues[last] = mValues[pos];
+    }
+  }
+
+  /**
+   * Create empty arrays.
+   *
+   * @param capacity the capacity, a power of 2.
+   */
+  private void allocate(int capacity) {
+    mKeys = new int[capacity];
+    mValues = new double[capacity];
+    mMask = capacity - 1;
+    mThreshold = Math.min(capacity - 1, (int) (capacity * mFillFactor));
+  }
+
+  /**
+   * Move the entries to arrays of a new size.
+   *
+   * @param capacity the capacity
+   */
+  private void rehash(int capacity) {
+    int[] keys = mKeys;
+    double[] values = mValues;
+
+    allocate(capacity);
+
+    for (int i = 0; i < keys.length; ++i) {
+      int k = keys[i];
+
+      if (k != FREE_KEY) {
+        int ptr = slot(k);
+        mKeys[ptr] = k;
+        mValues[ptr] = values[i];
+      }
+    }
+  }
+
+  /**
+   * Returns the number of entries.
+   *
+   * @return the int
+   */
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * Checks if is empty.
+   *
+   * @return true, if is empty
+   */
+  public boolean isEmpty() {
+    return mSize == 0;
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear() {
+    Arrays.fill(mKeys, FREE_KEY);
+    Arrays.fill(mValues, 0);
+    mHasFreeKey = false;
+    mFreeValue = 0;
+    mSize = 0;
+  }
+
+  /**
+   * Returns a cursor over the entries.
+   *
+   * @return the cursor
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   * Returns a copy of the keys.
+   *
+   * @return the int[]
+   */
+  public int[] keys() {
+    int[] ret = new int[mSize];
+
+    int i = 0;
+
+    Cursor c = cursor();
+
+    while (c.next()) {
+      ret[i++] = c.key();
+    }
+
+    return ret;
+  }
+}
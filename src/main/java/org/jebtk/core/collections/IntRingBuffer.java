@@ -0,0 +1,166 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+/**
+ * A single producer, single consumer ring buffer of ints, which avoids
+ * boxing each value. It works in the same way as {@link SpscRingBuffer}.
+ *
+ * @author Antony Holmes
+ */
+public class IntRingBuffer {
+
+  /** The values. */
+  private final int[] mBuffer;
+
+  /** The mask mapping positions to the array. */
+  private final int mMask;
+
+  /** The position of the next value to add, owned by the producer. */
+  private final Sequence mTail = new Sequence();
+
+  /** The position of the next value to remove, owned by the consumer. */
+  private final Sequence mHead = new Sequence();
+
+  /**
+   * Instantiates a new ring buffer.
+   *
+   * @param capacity the minimum capacity, which is rounded up to a power of 2.
+   */
+  public IntRingBuffer(int capacity) {
+    int size = Sequence.ringSize(capacity);
+
+    mBuffer = new int[size];
+    mMask = size - 1;
+  }
+
+  /**
+   * Add a value if there is space.
+   *
+   * @param v the v
+   * @return false if the buffer is full.
+   */
+  public boolean offer(int v) {
+    long tail = mTail.getPlain();
+
+    if (tail - mTail.getCache() >= mBuffer.length) {
+      mTail.setCache(mHead.get());
+
+      if (tail - mTail.getCache() >= mBuffer.length) {
+        return false;
+      }
+    }
+
+    mBuffer[(int) tail & mMask] = v;
+
+    mTail.setRelease(tail + 1);
+
+    return true;
+  }
+
+  /**
+   * Add as many values from part of an array as there is space for.
+   *
+   * @param values the values
+   * @param offset the offset
+   * @param length the length
+   * @return the number of values added.
+   */
+  public int offerAll(int[] values, int offset, int length) {
+    long tail = mTail.getPlain();
+
+    int n = (int) Math.min(length, mBuffer.length - (tail - mHead.get()));
+
+    for (int i = 0; i < n; ++i) {
+      mBuffer[(int) (tail + i) & mMask] = values[offset + i];
+    }
+
+    mTail.setRelease(tail + n);
+
+    return n;
+  }
+
+  /**
+   * Remove the oldest value. Must only be called by the consumer thread.
+   *
+   * @param defaultValue the value to return if the buffer is empty.
+   * @return the int
+   */
+  public int poll(int defaultValue) {
+    long head = mHead.getPlain();
+
+    if (head >= mHead.getCache()) {
+      mHead.setCache(mTail.get());
+
+      if (head >= mHead.getCache()) {
+        return defaultValue;
+      }
+    }
+
+    int ret = mBuffer[(int) head & mMask];
+
+    mHead.setRelease(head + 1);
+
+    return ret;
+  }
+
+  /**
+   * Remove up to {@code max} values, oldest first, into an array. Must only be
+   * called by the consumer thread.
+   *
+   * @param dest   the dest
+   * @param offset the offset
+   * @param max    the max
+   * @return the number of values removed.
+   */
+  public int drainTo(int[] dest, int offset, int max) {
+    long head = mHead.getPlain();
+
+    int n = (int) Math.min(max, mTail.get() - head);
+
+    for (int i = 0; i < n; ++i) {
+      dest[offset + i] = mBuffer[(int) (head + i) & mMask];
+    }
+
+    mHead.setRelease(head + n);
+
+    return n;
+  }
+
+  /**
+   * Returns the number of values.
+   *
+   * @return the int
+   */
+  public int size() {
+    long head = mHead.get();
+
+    return (int) Math.min(mTail.get() - head, mBuffer.length);
+  }
+
+  public boolean isEmpty() {
+    return mHead.get() >= mTail.get();
+  }
+
+  /**
+   * Returns the maximum number of values, which is a power of 2.
+   *
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return mBuffer.length;
+  }
+}
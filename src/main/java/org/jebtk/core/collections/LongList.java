@@ -0,0 +1,297 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A growable list of longs stored in a long array. Use the primitive
+ * methods such as {@link #getLong(int)} and {@link #addLong(long)} to
+ * avoid boxing. The list can also be used anywhere a {@code List<Long>} is
+ * expected, in which case values are boxed only as they are accessed.
+ *
+ * @author Antony Holmes
+ */
+public class LongList extends AbstractList<Long> implements RandomAccess {
+
+  /** The default capacity. */
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** Shared empty array. */
+  private static final long[] EMPTY = {};
+
+  /** The values. */
+  private long[] mValues;
+
+  /** The size. */
+  private int mSize = 0;
+
+  /**
+   * Instantiates a new long list.
+   */
+  public LongList() {
+    mValues = EMPTY;
+  }
+
+  /**
+   * Instantiates a new long list.
+   *
+   * @param capacity the initial capacity.
+   */
+  public LongList(int capacity) {
+    mValues = new long[capacity];
+  }
+
+  /**
+   * Instantiates a new long list containing a copy of some values.
+   *
+   * @param values the values
+   */
+  public LongList(long[] values) {
+    mValues = Arrays.copyOf(values, values.length);
+    mSize = values.length;
+  }
+
+  /**
+   * Returns a value.
+   *
+   * @param index the index
+   * @return the long
+   */
+  public long getLong(int index) {
+    checkIndex(index);
+
+    return mValues[index];
+  }
+
+  /**
+   * Set a value.
+   *
+   * @param index the index
+   * @param v     the v
+   * @return the previous value
+   */
+  public long setLong(int index, long v) {
+    checkIndex(index);
+
+    long ret = mValues[index];
+
+    mValues[index] = v;
+
+    return ret;
+  }
+
+  /**
+   * Append a value.
+   *
+   * @param v the v
+   */
+  public void addLong(long v) {
+    if (mSize == mValues.length) {
+      ensureCapacity(mSize + 1);
+    }
+
+    mValues[mSize++] = v;
+
+    ++modCount;
+  }
+
+  /**
+   * Insert a value.
+   *
+   * @param index the index
+   * @param v     the v
+   */
+  public void addLong(int index, long v) {
+    if (index < 0 || index > mSize) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+    }
+
+    ensureCapacity(mSize + 1);
+
+    System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+
+    mValues[index] = v;
+
+    ++mSize;
+    ++modCount;
+  }
+
+  /**
+   * Remove a value.
+   *
+   * @param index the index
+   * @return the removed value
+   */
+  public long removeLong(int index) {
+    checkIndex(index);
+
+    long ret = mValues[index];
+
+    System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+
+    --mSize;
+    ++modCount;
+
+    return ret;
+  }
+
+  /**
+   * Append values.
+   *
+   * @param values the values
+   */
+  public void addAll(long[] values) {
+    addAll(values, 0, values.length);
+  }
+
+  /**
+   * Append part of an array.
+   *
+   * @param values the values
+   * @param offset the offset
+   * @param length the length
+   */
+  public void addAll(long[] values, int offset, int length) {
+    ensureCapacity(mSize + length);
+
+    System.arraycopy(values, offset, mValues, mSize, length);
+
+    mSize += length;
+    ++modCount;
+  }
+
+  /**
+   * Returns the index of a value or -1 if it is not in the list.
+   *
+   * @param v the v
+   * @return the int
+   */
+  public int indexOfLong(long v) {
+    for (int i = 0; i < mSize; ++i) {
+      if (mValues[i] == v) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Sort the values in ascending order.
+   */
+  public void sort() {
+    Arrays.sort(mValues, 0, mSize);
+
+    ++modCount;
+  }
+
+  /**
+   * Returns the backing array, trimmed to the size of the list if necessary so
+   * that no copy is made on subsequent calls. Changes to the array are seen by
+   * the list until the list next grows.
+   *
+   * @return the long[]
+   */
+  public long[] toLongArray() {
+    trimToSize();
+
+    return mValues;
+  }
+
+  /**
+   * Make sure the list can hold a number of values without growing.
+   *
+   * @param capacity the capacity
+   */
+  public void ensureCapacity(int capacity) {
+    if (capacity > mValues.length) {
+      int n = Math.max(DEFAULT_CAPACITY, mValues.length + (mValues.length >> 1));
+
+      mValues = Arrays.copyOf(mValues, Math.max(n, capacity));
+    }
+  }
+
+  /**
+   * Shrink the backing array to the size of the list.
+   */
+  public void trimToSize() {
+    if (mValues.length != mSize) {
+      mValues = Arrays.copyOf(mValues, mSize);
+    }
+  }
+
+  /**
+   * Check an index is in the list.
+   *
+   * @param index the index
+   */
+  private void checkIndex(int index) {
+    if (index < 0 || index >= mSize) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+    }
+  }
+
+  @Override
+  public Long get(int index) {
+    return getLong(index);
+  }
+
+  @Override
+  public Long set(int index, Long v) {
+    return setLong(index, v);
+  }
+
+  @Override
+  public boolean add(Long v) {
+    addLong(v);
+
+    return true;
+  }
+
+  @Override
+  public void add(int index, Long v) {
+    addLong(index, v);
+  }
+
+  @Override
+  public Long remove(int index) {
+    return removeLong(index);
+  }
+
+  @Override
+  public int indexOf(Object o) {
+    return o instanceof Long ? indexOfLong((Long) o) : -1;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return indexOf(o) != -1;
+  }
+
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  @Override
+  public void clear() {
+    mSize = 0;
+    ++modCount;
+  }
+}
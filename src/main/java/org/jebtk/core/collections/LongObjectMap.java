@@ -0,0 +1,477 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.util.Arrays;
+
+/**
+ * Maps long keys to objects without boxing the keys. Keys and values are stored in
+ * two parallel arrays using open addressing with linear probing and the phi
+ * mix hash of {@link IntHashMap}. Key 0 marks a free slot so its value is
+ * kept in a separate field. Removal uses backward shift deletion, so there are
+ * no tombstones and lookups stay short after many removals.
+ *
+ * Missing keys have the value null.
+ *
+ * @param <V> the value type
+ *
+ * @author Antony Holmes
+ */
+public class LongObjectMap<V> {
+
+  /** The default expected number of entries. */
+  public static final int DEFAULT_SIZE = 16;
+
+  /** The default fill factor. */
+  public static final double DEFAULT_FILL_FACTOR = 0.75;
+
+  /** Marks a free slot. */
+  private static final long FREE_KEY = 0;
+
+  /** The keys. */
+  private long[] mKeys;
+
+  /** The values. */
+  private Object[] mValues;
+
+  /** Whether the map contains the free key. */
+  private boolean mHasFreeKey = false;
+
+  /** The value of the free key. */
+  private V mFreeValue = null;
+
+  /** The fill factor. */
+  private final double mFillFactor;
+
+  /** The map is resized when it reaches this size. */
+  private int mThreshold;
+
+  /** The size. */
+  private int mSize = 0;
+
+  /** The mask to wrap positions in the arrays. */
+  private int mMask;
+
+  /**
+   * Iterates over the entries of a map. The map must not be changed, except
+   * through {@link #setValue(int)}, while a cursor is in use.
+   */
+  public class Cursor {
+
+    /** The position, -1 being the free key. */
+    private int mPos = -2;
+
+    /**
+     * Move to the next entry.
+     *
+     * @return false if there are no more entries.
+     */
+    public boolean next() {
+      if (mPos == -2) {
+        mPos = -1;
+
+        if (mHasFreeKey) {
+          return true;
+        }
+      }
+
+      while (++mPos < mKeys.length) {
+        if (mKeys[mPos] != FREE_KEY) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    /**
+     * Returns the key of the current entry.
+     *
+     * @return the long
+     */
+    public long key() {
+      return mPos == -1 ? FREE_KEY : mKeys[mPos];
+    }
+
+    /**
+     * Returns the value of the current entry.
+     *
+     * @return the v
+     */
+    @SuppressWarnings("unchecked")
+    public V value() {
+      return mPos == -1 ? mFreeValue : (V) mValues[mPos];
+    }
+
+    /**
+     * Change the value of the current entry.
+     *
+     * @param value the value
+     */
+    public void setValue(V value) {
+      if (mPos == -1) {
+        mFreeValue = value;
+      } else {
+        mValues[mPos] = value;
+      }
+    }
+  }
+
+  /**
+   * Instantiates a new long object map.
+   */
+  public LongObjectMap() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * Instantiates a new long object map.
+   *
+   * @param size the expected number of entries.
+   */
+  public LongObjectMap(int size) {
+    this(size, DEFAULT_FILL_FACTOR);
+  }
+
+  /**
+   * Instantiates a new long object map.
+   *
+   * @param size       the expected number of entries.
+   * @param fillFactor the fill factor in (0, 1).
+   */
+  public LongObjectMap(int size, double fillFactor) {
+    if (fillFactor <= 0 || fillFactor >= 1) {
+      throw new IllegalArgumentException("FillFactor must be in (0, 1)");
+    }
+
+    if (size <= 0) {
+      throw new IllegalArgumentException("Size must be positive!");
+    }
+
+    mFillFactor = fillFactor;
+
+    allocate(IntHashMap.arraySize(size, fillFactor));
+  }
+
+  /**
+   * Returns the value of a key or null if the key is not in the map.
+   *
+   * @param key the key
+   * @return the v
+   */
+  public V get(long key) {
+    return getOrDefault(key, null);
+  }
+
+  /**
+   * Returns the value of a key or a default value if the key is not in the
+   * map.
+   *
+   * @param key          the key
+   * @param defaultValue the default value
+   * @return the v
+   */
+  @SuppressWarnings("unchecked")
+  public V getOrDefault(long key, V defaultValue) {
+    if (key == FREE_KEY) {
+      return mHasFreeKey ? mFreeValue : defaultValue;
+    }
+
+    int ptr = IntHashMap.phiMix(key) & mMask;
+
+    while (true) {
+      long k = mKeys[ptr];
+
+      if (k == key) {
+        return (V) mValues[ptr];
+      }
+
+      if (k == FREE_KEY) {
+        return defaultValue;
+      }
+
+      ptr = (ptr + 1) & mMask;
+    }
+  }
+
+  /**
+   * Returns true if the map contains a key.
+   *
+   * @param key the key
+   * @return true, if successful
+   */
+  public boolean containsKey(long key) {
+    if (key == FREE_KEY) {
+      return mHasFreeKey;
+    }
+
+    return find(key) != -1;
+  }
+
+  /**
+   * Set the value of a key.
+   *
+   * @param key   the key
+   * @param value the value
+   * @return the previous value or null if the key was not in the map.
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (key == FREE_KEY) {
+      V ret = mFreeValue;
+
+      if (!mHasFreeKey) {
+        ++mSize;
+        mHasFreeKey = true;
+      }
+
+      mFreeValue = value;
+
+      return ret;
+    }
+
+    int ptr = slot(key);
+
+    V ret = (V) mValues[ptr];
+
+    mValues[ptr] = value;
+
+    if (mKeys[ptr] == FREE_KEY) {
+      mKeys[ptr] = key;
+      grow();
+    }
+
+    return ret;
+  }
+
+  /**
+   * Remove a key.
+   *
+   * @param key the key
+   * @return the value of the key or null if it was not in the map.
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    if (key == FREE_KEY) {
+      if (!mHasFreeKey) {
+        return null;
+      }
+
+      V ret = mFreeValue;
+
+      mHasFreeKey = false;
+      mFreeValue = null;
+      --mSize;
+
+      return ret;
+    }
+
+    int ptr = find(key);
+
+    if (ptr == -1) {
+      return null;
+    }
+
+    V ret = (V) mValues[ptr];
+
+    shiftKeys(ptr);
+
+    --mSize;
+
+    return ret;
+  }
+
+  /**
+   * Returns the position of a key in the arrays or -1.
+   *
+   * @param key the key, which is not the free key.
+   * @return the int
+   */
+  private int find(long key) {
+    int ptr = IntHashMap.phiMix(key) & mMask;
+
+    while (true) {
+      long k = mKeys[ptr];
+
+      if (k == key) {
+        return ptr;
+      }
+
+      if (k == FREE_KEY) {
+        return -1;
+      }
+
+      ptr = (ptr + 1) & mMask;
+    }
+  }
+
+  /**
+   * Returns the position of a key or the free slot where it should be added.
+   *
+   * @param key the key, which is not the free key.
+   * @return the int
+   */
+  private int slot(long key) {
+    int ptr = IntHashMap.phiMix(key) & mMask;
+
+    while (true) {
+      long k = mKeys[ptr];
+
+      if (k == key || k == FREE_KEY) {
+        return ptr;
+      }
+
+      ptr = (ptr + 1) & mMask;
+    }
+  }
+
+  /**
+   * Count a new key and resize if the map is too full.
+   */
+  private void grow() {
+    if (++mSize >= mThreshold) {
+      rehash(mKeys.length * 2);
+    }
+  }
+
+  /**
+   * Remove the entry at a position by shifting back the following entries of
+   * the same probe sequence.
+   *
+   * @param pos the pos
+   */
+  private void shiftKeys(int pos) {
+    int last;
+    int slot;
+    long k;
+
+    while (true) {
+      pos = ((last = pos) + 1) & mMask;
+
+      while (true) {
+        if ((k = mKeys[pos]) == FREE_KEY) {
+          mKeys[last] = FREE_KEY;
+          mValues[last] = null;
+          return;
+        }
+
+        // the ideal slot of the key at pos
+        slot = IntHashMap.phiMix(k) & mMask;
+
+        // stop if the key can move back to last without passing its slot
+        if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+          break;
+        }
+
+        pos = (pos + 1) & mMask;
+      }
+
+      mKeys[last] = k;
+      mValues[last] = mValues[pos];
+    }
+  }
+
+  /**
+   * Create empty arrays.
+   *
+   * @param capacity the capacity, a power of 2.
+   */
+  private void allocate(int capacity) {
+    mKeys = new long[capacity];
+    mValues = new Object[capacity];
+    mMask = capacity - 1;
+    mThreshold = Math.min(capacity - 1, (int) (capacity * mFillFactor));
+  }
+
+  /**
+   * Move the entries to arrays of a new size.
+   *
+   * @param capacity the capacity
+   */
+  private void rehash(int capacity) {
+    long[] keys = mKeys;
+    Object[] values = mValues;
+
+    allocate(capacity);
+
+    for (int i = 0; i < keys.length; ++i) {
+      long k = keys[i];
+
+      if (k != FREE_KEY) {
+        int ptr = slot(k);
+        mKeys[ptr] = k;
+        mValues[ptr] = values[i];
+      }
+    }
+  }
+
+  /**
+   * Returns the number of entries.
+   *
+   * @return the int
+   */
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * Checks if is empty.
+   *
+   * @return true, if is empty
+   */
+  public boolean isEmpty() {
+    return mSize == 0;
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear() {
+    Arrays.fill(mKeys, FREE_KEY);
+    Arrays.fill(mValues, null);
+    mHasFreeKey = false;
+    mFreeValue = null;
+    mSize = 0;
+  }
+
+  /**
+   * Returns a cursor over the entries.
+   *
+   * @return the cursor
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   * Returns a copy of the keys.
+   *
+   * @return the long[]
+   */
+  public long[] keys() {
+    long[] ret = new long[mSize];
+
+    int i = 0;
+
+    Cursor c = cursor();
+
+    while (c.next()) {
+      ret[i++] = c.key();
+    }
+
+    return ret;
+  }
+}
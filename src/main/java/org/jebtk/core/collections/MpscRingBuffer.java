@@ -0,0 +1,196 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A ring buffer for any number of producer threads and one consumer thread.
+ * Producers claim slots by advancing the tail with compare and set, then
+ * publish their element into the claimed slot with a release write. The
+ * consumer knows a claimed slot has been filled when it is no longer null, so
+ * the tail can run ahead of the elements that are visible.
+ *
+ * @author Antony Holmes
+ * @param <T> the element type
+ */
+public class MpscRingBuffer<T> implements RingBuffer<T> {
+
+  private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+  /** The elements. */
+  private final Object[] mBuffer;
+
+  /** The mask mapping positions to the array. */
+  private final int mMask;
+
+  /** The next position to claim, shared by the producers. */
+  private final Sequence mTail = new Sequence();
+
+  /** The position of the next element to remove, owned by the consumer. */
+  private final Sequence mHead = new Sequence();
+
+  /**
+   * Instantiates a new ring buffer.
+   *
+   * @param capacity the minimum capacity, which is rounded up to a power of 2.
+   */
+  public MpscRingBuffer(int capacity) {
+    int size = Sequence.ringSize(capacity);
+
+    mBuffer = new Object[size];
+    mMask = size - 1;
+  }
+
+  @Override
+  public boolean offer(T e) {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+
+    long tail = claim(1);
+
+    if (tail == -1) {
+      return false;
+    }
+
+    ELEMENT.setRelease(mBuffer, (int) tail & mMask, e);
+
+    return true;
+  }
+
+  @Override
+  public int offerAll(List<? extends T> values) {
+    int n = values.size();
+
+    for (int i = 0; i < n; ++i) {
+      if (values.get(i) == null) {
+        throw new NullPointerException();
+      }
+    }
+
+    long tail = -1;
+
+    // claim as many slots as possible in one go
+    while (n > 0 && (tail = claim(n)) == -1) {
+      n = Math.min(n, (int) (mBuffer.length - (mTail.get() - mHead.get())));
+    }
+
+    for (int i = 0; i < n; ++i) {
+      ELEMENT.setRelease(mBuffer, (int) (tail + i) & mMask, values.get(i));
+    }
+
+    return Math.max(n, 0);
+  }
+
+  /**
+   * Claim a number of slots.
+   *
+   * @param n the n
+   * @return the position of the first slot or -1 if there is not enough space.
+   */
+  private long claim(int n) {
+    while (true) {
+      long tail = mTail.get();
+
+      if (tail + n - mHead.get() > mBuffer.length) {
+        return -1;
+      }
+
+      if (mTail.compareAndSet(tail, tail + n)) {
+        return tail;
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T poll() {
+    long head = mHead.getPlain();
+
+    int i = (int) head & mMask;
+
+    Object ret = ELEMENT.getAcquire(mBuffer, i);
+
+    if (ret == null) {
+      if (head == mTail.get()) {
+        return null;
+      }
+
+      // a producer has claimed the slot but not yet filled it
+      do {
+        Thread.onSpinWait();
+
+        ret = ELEMENT.getAcquire(mBuffer, i);
+      } while (ret == null);
+    }
+
+    mBuffer[i] = null;
+
+    mHead.setRelease(head + 1);
+
+    return (T) ret;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public int drainTo(Collection<? super T> c, int max) {
+    long head = mHead.getPlain();
+
+    int n = 0;
+
+    // take the filled slots, stopping at the first gap
+    while (n < max) {
+      int i = (int) (head + n) & mMask;
+
+      Object e = ELEMENT.getAcquire(mBuffer, i);
+
+      if (e == null) {
+        break;
+      }
+
+      c.add((T) e);
+
+      mBuffer[i] = null;
+
+      ++n;
+    }
+
+    mHead.setRelease(head + n);
+
+    return n;
+  }
+
+  @Override
+  public int size() {
+    long head = mHead.get();
+
+    return (int) Math.min(mTail.get() - head, mBuffer.length);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return mHead.get() >= mTail.get();
+  }
+
+  @Override
+  public int getCapacity() {
+    return mBuffer.length;
+  }
+}
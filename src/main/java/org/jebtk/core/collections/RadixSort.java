@@ -0,0 +1,512 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Stable least significant digit radix sorts of primitive keys, optionally
+ * carrying an array of indices so that the sort produces the permutation
+ * that orders the keys (an argsort). Keys are sorted a byte at a time, so a
+ * long key takes at most 8 linear passes; passes where every key has the
+ * same byte are skipped. Doubles are first mapped to longs with the same
+ * order as {@link Double#compare(double, double)}.
+ *
+ * Large arrays can be sorted in parallel by radix sorting a chunk per thread
+ * and then merging the chunks with a parallel merge.
+ *
+ * Use the public methods of {@link CollectionUtils}.
+ *
+ * @author Antony Holmes
+ */
+final class RadixSort {
+
+  /** Below this size, use an insertion sort. */
+  private static final int INSERTION_SORT_SIZE = 64;
+
+  /** Below this size, merge serially. */
+  private static final int MERGE_SIZE = 1 << 13;
+
+  private RadixSort() {
+    // Do nothing
+  }
+
+  /**
+   * Map a double to a long with the same order as
+   * {@link Double#compare(double, double)}, i.e. -0.0 before 0.0 and NaN
+   * last.
+   *
+   * @param v the v
+   * @return the long
+   */
+  static long toSortable(double v) {
+    long bits = Double.doubleToLongBits(v);
+
+    // negative numbers order backwards, so flip all but the sign bit
+    return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+  }
+
+  /**
+   * Reverse {@link #toSortable(double)}.
+   *
+   * @param v the v
+   * @return the double
+   */
+  static double fromSortable(long v) {
+    return Double.longBitsToDouble(v ^ ((v >> 63) & Long.MAX_VALUE));
+  }
+
+  /**
+   * Sort a range of long keys, and the matching range of indices if they are
+   * not null.
+   *
+   * @param keys    the keys
+   * @param indices the indices, or null
+   * @param from    the start, inclusive
+   * @param to      the end, exclusive
+   * @param tmpKeys scratch space at least as long as the range
+   * @param tmpIdx  scratch space for the indices, or null
+   * @param tmpFrom where the range starts in the scratch arrays
+   */
+  static void sort(long[] keys, int[] indices, int from, int to, long[] tmpKeys, int[] tmpIdx, int tmpFrom) {
+    int n = to - from;
+
+    if (n < INSERTION_SORT_SIZE) {
+      insertionSort(keys, indices, from, to);
+      return;
+    }
+
+    // histograms of all 8 bytes in one pass
+    int[][] counts = new int[8][256];
+
+    for (int i = from; i < to; ++i) {
+      long k = keys[i];
+
+      for (int b = 0; b < 8; ++b) {
+        ++counts[b][digit(k, b)];
+      }
+    }
+
+    long[] srcKeys = keys;
+    int[] srcIdx = indices;
+    int srcFrom = from;
+    long[] dstKeys = tmpKeys;
+    int[] dstIdx = tmpIdx;
+    int dstFrom = tmpFrom;
+
+    for (int b = 0; b < 8; ++b) {
+      int[] count = counts[b];
+
+      // every key has the same byte so the pass would not move anything
+      if (count[digit(srcKeys[srcFrom], b)] == n) {
+        continue;
+      }
+
+      int[] offsets = new int[256];
+
+      for (int d = 1; d < 256; ++d) {
+        offsets[d] = offsets[d - 1] + count[d - 1];
+      }
+
+      for (int i = 0; i < n; ++i) {
+        long k = srcKeys[srcFrom + i];
+        int p = dstFrom + offsets[digit(k, b)]++;
+
+        dstKeys[p] = k;
+
+        if (srcIdx != null) {
+          dstIdx[p] = srcIdx[srcFrom + i];
+        }
+      }
+
+      long[] tk = srcKeys;
+      srcKeys = dstKeys;
+      dstKeys = tk;
+
+      int[] ti = srcIdx;
+      srcIdx = dstIdx;
+      dstIdx = ti;
+
+      int tf = srcFrom;
+      srcFrom = dstFrom;
+      dstFrom = tf;
+    }
+
+    // an odd number of passes leaves the result in the scratch space
+    if (srcKeys != keys) {
+      System.arraycopy(srcKeys, srcFrom, keys, from, n);
+
+      if (indices != null) {
+        System.arraycopy(srcIdx, srcFrom, indices, from, n);
+      }
+    }
+  }
+
+  /**
+   * Returns a byte of a key, with the sign bit flipped in the top byte so
+   * that negative keys sort first.
+   *
+   * @param k the k
+   * @param b the byte, 0 being the least significant.
+   * @return the int
+   */
+  private static int digit(long k, int b) {
+    int d = (int) (k >>> (b << 3)) & 0xff;
+
+    return b == 7 ? d ^ 0x80 : d;
+  }
+
+  private static void insertionSort(long[] keys, int[] indices, int from, int to) {
+    for (int i = from + 1; i < to; ++i) {
+      long k = keys[i];
+      int idx = indices != null ? indices[i] : 0;
+
+      int j = i - 1;
+
+      while (j >= from && keys[j] > k) {
+        keys[j + 1] = keys[j];
+
+        if (indices != null) {
+          indices[j + 1] = indices[j];
+        }
+
+        --j;
+      }
+
+      keys[j + 1] = k;
+
+      if (indices != null) {
+        indices[j + 1] = idx;
+      }
+    }
+  }
+
+  /**
+   * Sort int keys, and indices if they are not null.
+   *
+   * @param keys    the keys
+   * @param indices the indices, or null
+   */
+  static void sort(int[] keys, int[] indices) {
+    int n = keys.length;
+
+    if (n < INSERTION_SORT_SIZE) {
+      for (int i = 1; i < n; ++i) {
+        int k = keys[i];
+        int idx = indices != null ? indices[i] : 0;
+
+        int j = i - 1;
+
+        while (j >= 0 && keys[j] > k) {
+          keys[j + 1] = keys[j];
+
+          if (indices != null) {
+            indices[j + 1] = indices[j];
+          }
+
+          --j;
+        }
+
+        keys[j + 1] = k;
+
+        if (indices != null) {
+          indices[j + 1] = idx;
+        }
+      }
+
+      return;
+    }
+
+    int[][] counts = new int[4][256];
+
+    for (int i = 0; i < n; ++i) {
+      int k = keys[i];
+
+      for (int b = 0; b < 4; ++b) {
+        ++counts[b][digit(k, b)];
+      }
+    }
+
+    int[] srcKeys = keys;
+    int[] srcIdx = indices;
+    int[] dstKeys = new int[n];
+    int[] dstIdx = indices != null ? new int[n] : null;
+
+    for (int b = 0; b < 4; ++b) {
+      int[] count = counts[b];
+
+      if (count[digit(srcKeys[0], b)] == n) {
+        continue;
+      }
+
+      int[] offsets = new int[256];
+
+      for (int d = 1; d < 256; ++d) {
+        offsets[d] = offsets[d - 1] + count[d - 1];
+      }
+
+      for (int i = 0; i < n; ++i) {
+        int k = srcKeys[i];
+        int p = offsets[digit(k, b)]++;
+
+        dstKeys[p] = k;
+
+        if (srcIdx != null) {
+          dstIdx[p] = srcIdx[i];
+        }
+      }
+
+      int[] t = srcKeys;
+      srcKeys = dstKeys;
+      dstKeys = t;
+
+      t = srcIdx;
+      srcIdx = dstIdx;
+      dstIdx = t;
+    }
+
+    if (srcKeys != keys) {
+      System.arraycopy(srcKeys, 0, keys, 0, n);
+
+      if (indices != null) {
+        System.arraycopy(srcIdx, 0, indices, 0, n);
+      }
+    }
+  }
+
+  private static int digit(int k, int b) {
+    int d = (k >>> (b << 3)) & 0xff;
+
+    return b == 3 ? d ^ 0x80 : d;
+  }
+
+  /**
+   * Sort long keys, and indices if they are not null, using multiple threads.
+   *
+   * @param keys    the keys
+   * @param indices the indices, or null
+   * @param pool    the pool
+   */
+  static void parallelSort(final long[] keys, final int[] indices, ForkJoinPool pool) {
+    final int n = keys.length;
+
+    final long[] tmpKeys = new long[n];
+    final int[] tmpIdx = indices != null ? new int[n] : null;
+
+    // a power of 2 chunks so that they merge in pairs
+    int chunks = Integer.highestOneBit(Math.max(1, Math.min(pool.getParallelism(), n / MERGE_SIZE)));
+
+    final int[] bounds = new int[chunks + 1];
+
+    for (int i = 0; i <= chunks; ++i) {
+      bounds[i] = (int) ((long) n * i / chunks);
+    }
+
+    RecursiveAction[] tasks = new RecursiveAction[chunks];
+
+    for (int i = 0; i < chunks; ++i) {
+      final int c = i;
+
+      tasks[i] = new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          sort(keys, indices, bounds[c], bounds[c + 1], tmpKeys, tmpIdx, bounds[c]);
+        }
+      };
+    }
+
+    run(pool, tasks);
+
+    long[] srcKeys = keys;
+    int[] srcIdx = indices;
+    long[] dstKeys = tmpKeys;
+    int[] dstIdx = tmpIdx;
+
+    for (int width = 1; width < chunks; width *= 2) {
+      int merges = chunks / (2 * width);
+
+      tasks = new RecursiveAction[merges];
+
+      for (int i = 0; i < merges; ++i) {
+        int lo = bounds[2 * i * width];
+        int mid = bounds[(2 * i + 1) * width];
+        int hi = bounds[(2 * i + 2) * width];
+
+        tasks[i] = new Merge(srcKeys, srcIdx, lo, mid, mid, hi, dstKeys, dstIdx, lo);
+      }
+
+      run(pool, tasks);
+
+      long[] tk = srcKeys;
+      srcKeys = dstKeys;
+      dstKeys = tk;
+
+      int[] ti = srcIdx;
+      srcIdx = dstIdx;
+      dstIdx = ti;
+    }
+
+    if (srcKeys != keys) {
+      System.arraycopy(srcKeys, 0, keys, 0, n);
+
+      if (indices != null) {
+        System.arraycopy(srcIdx, 0, indices, 0, n);
+      }
+    }
+  }
+
+  private static void run(ForkJoinPool pool, final RecursiveAction[] tasks) {
+    pool.invoke(new RecursiveAction() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void compute() {
+        invokeAll(tasks);
+      }
+    });
+  }
+
+  /**
+   * Stable merge of two sorted runs. Large merges are split in two by taking
+   * the middle of the longer run and finding where it falls in the other, so
+   * that both halves can be merged in parallel.
+   */
+  private static class Merge extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final long[] mKeys;
+    private final int[] mIdx;
+    private final int mLo1;
+    private final int mHi1;
+    private final int mLo2;
+    private final int mHi2;
+    private final long[] mOutKeys;
+    private final int[] mOutIdx;
+    private final int mOut;
+
+    public Merge(long[] keys, int[] idx, int lo1, int hi1, int lo2, int hi2, long[] outKeys, int[] outIdx,
+        int out) {
+      mKeys = keys;
+      mIdx = idx;
+      mLo1 = lo1;
+      mHi1 = hi1;
+      mLo2 = lo2;
+      mHi2 = hi2;
+      mOutKeys = outKeys;
+      mOutIdx = outIdx;
+      mOut = out;
+    }
+
+    @Override
+    protected void compute() {
+      int n1 = mHi1 - mLo1;
+      int n2 = mHi2 - mLo2;
+
+      if (n1 + n2 <= MERGE_SIZE) {
+        merge();
+        return;
+      }
+
+      int m1;
+      int m2;
+
+      // keys equal to the split key stay on the side that keeps the merge
+      // stable: those of the first run go left of those of the second
+      if (n1 >= n2) {
+        m1 = (mLo1 + mHi1) >>> 1;
+        m2 = lowerBound(mKeys, mLo2, mHi2, mKeys[m1]);
+      } else {
+        m2 = (mLo2 + mHi2) >>> 1;
+        m1 = upperBound(mKeys, mLo1, mHi1, mKeys[m2]);
+      }
+
+      int out2 = mOut + (m1 - mLo1) + (m2 - mLo2);
+
+      invokeAll(new Merge(mKeys, mIdx, mLo1, m1, mLo2, m2, mOutKeys, mOutIdx, mOut),
+          new Merge(mKeys, mIdx, m1, mHi1, m2, mHi2, mOutKeys, mOutIdx, out2));
+    }
+
+    private void merge() {
+      int i = mLo1;
+      int j = mLo2;
+      int o = mOut;
+
+      while (i < mHi1 && j < mHi2) {
+        // take from the first run on ties so the merge is stable
+        if (mKeys[j] < mKeys[i]) {
+          copy(j++, o++);
+        } else {
+          copy(i++, o++);
+        }
+      }
+
+      while (i < mHi1) {
+        copy(i++, o++);
+      }
+
+      while (j < mHi2) {
+        copy(j++, o++);
+      }
+    }
+
+    private void copy(int from, int to) {
+      mOutKeys[to] = mKeys[from];
+
+      if (mIdx != null) {
+        mOutIdx[to] = mIdx[from];
+      }
+    }
+  }
+
+  /**
+   * Returns the first position in a sorted range whose key is not less than
+   * a key.
+   */
+  private static int lowerBound(long[] keys, int lo, int hi, long key) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+
+      if (keys[mid] < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+
+    return lo;
+  }
+
+  /**
+   * Returns the first position in a sorted range whose key is greater than a
+   * key.
+   */
+  private static int upperBound(long[] keys, int lo, int hi, long key) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+
+      if (keys[mid] <= key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+
+    return lo;
+  }
+}
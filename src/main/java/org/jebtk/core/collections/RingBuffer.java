@@ -0,0 +1,81 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A bounded queue for handing objects from producer threads to a single
+ * consumer thread without locks. Unlike a {@link CircularArray}, a full ring
+ * buffer rejects new elements rather than overwriting the oldest. Null
+ * elements are not permitted.
+ *
+ * @author Antony Holmes
+ * @param <T> the element type
+ */
+public interface RingBuffer<T> {
+
+  /**
+   * Add an element if there is space.
+   *
+   * @param e the e
+   * @return false if the buffer is full.
+   */
+  public boolean offer(T e);
+
+  /**
+   * Add as many elements of a list as there is space for, in order.
+   *
+   * @param values the values
+   * @return the number of elements added.
+   */
+  public int offerAll(List<? extends T> values);
+
+  /**
+   * Remove the oldest element. Must only be called by the consumer thread.
+   *
+   * @return the element or null if the buffer is empty.
+   */
+  public T poll();
+
+  /**
+   * Remove up to {@code max} elements, oldest first, and add them to a
+   * collection. Must only be called by the consumer thread.
+   *
+   * @param c   the collection
+   * @param max the max
+   * @return the number of elements removed.
+   */
+  public int drainTo(Collection<? super T> c, int max);
+
+  /**
+   * Returns the number of elements, which may be out of date as soon as it is
+   * returned if other threads are using the buffer.
+   *
+   * @return the int
+   */
+  public int size();
+
+  public boolean isEmpty();
+
+  /**
+   * Returns the maximum number of elements, which is a power of 2.
+   *
+   * @return the capacity
+   */
+  public int getCapacity();
+}
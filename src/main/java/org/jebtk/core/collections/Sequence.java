@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/** Padding before the value of a sequence. */
+abstract class SequenceLhsPadding {
+  protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+/** The value of a sequence. */
+abstract class SequenceValue extends SequenceLhsPadding {
+  protected volatile long mValue;
+
+  /** The cached opposite position. */
+  protected long mCache;
+}
+
+/** Padding after the value of a sequence. */
+abstract class SequenceRhsPadding extends SequenceValue {
+  protected long p9, p10, p11, p12, p13, p14, p15;
+}
+
+/**
+ * A position in a ring buffer, padded on both sides so that the producer and
+ * consumer positions sit on different cache lines and updating one does not
+ * invalidate the other (false sharing). Fields of a superclass are laid out
+ * before those of a subclass, hence the chain of padding classes.
+ *
+ * Each sequence also holds a cached copy of the opposite position, which only
+ * the owner of the sequence uses, so that a thread only reads the other
+ * thread's cache line when the buffer appears full or empty.
+ *
+ * @author Antony Holmes
+ */
+class Sequence extends SequenceRhsPadding {
+
+  private static final VarHandle VALUE;
+
+  static {
+    try {
+      VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "mValue", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /**
+   * Read the value with full volatile semantics.
+   *
+   * @return the long
+   */
+  public long get() {
+    return mValue;
+  }
+
+  /**
+   * Read the value without ordering, for use by the thread that writes it.
+   *
+   * @return the long
+   */
+  public long getPlain() {
+    return (long) VALUE.get(this);
+  }
+
+  /**
+   * Publish a value. Writes made before the call are visible to a thread that
+   * then reads the value.
+   *
+   * @param value the value
+   */
+  public void setRelease(long value) {
+    VALUE.setRelease(this, value);
+  }
+
+  /**
+   * Atomically set the value if it is the expected value.
+   *
+   * @param expected the expected
+   * @param value    the value
+   * @return true, if successful
+   */
+  public boolean compareAndSet(long expected, long value) {
+    return VALUE.compareAndSet(this, expected, value);
+  }
+
+  /**
+   * Returns the cached position of the other side of the buffer.
+   *
+   * @return the long
+   */
+  public long getCache() {
+    return mCache;
+  }
+
+  public void setCache(long cache) {
+    mCache = cache;
+  }
+
+  /**
+   * Returns the smallest power of 2 that is at least the capacity.
+   *
+   * @param capacity the capacity
+   * @return the int
+   */
+  static int ringSize(int capacity) {
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+    }
+
+    int ret = Integer.highestOneBit(capacity);
+
+    return ret < capacity ? ret << 1 : ret;
+  }
+}
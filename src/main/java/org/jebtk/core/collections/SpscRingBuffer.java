@@ -0,0 +1,165 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.collections;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A ring buffer for one producer thread and one consumer thread. Each side
+ * owns its position and publishes it with a release write, so neither offer
+ * nor poll uses locks or atomic read-modify-write instructions. Positions
+ * increase forever and are mapped into the array with a mask, which is why
+ * the capacity is rounded up to a power of 2.
+ *
+ * @author Antony Holmes
+ * @param <T> the element type
+ */
+public class SpscRingBuffer<T> implements RingBuffer<T> {
+
+  /** The elements. */
+  private final Object[] mBuffer;
+
+  /** The mask mapping positions to the array. */
+  private final int mMask;
+
+  /** The position of the next element to add, owned by the producer. */
+  private final Sequence mTail = new Sequence();
+
+  /** The position of the next element to remove, owned by the consumer. */
+  private final Sequence mHead = new Sequence();
+
+  /**
+   * Instantiates a new ring buffer.
+   *
+   * @param capacity the minimum capacity, which is rounded up to a power of 2.
+   */
+  public SpscRingBuffer(int capacity) {
+    int size = Sequence.ringSize(capacity);
+
+    mBuffer = new Object[size];
+    mMask = size - 1;
+  }
+
+  @Override
+  public boolean offer(T e) {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+
+    long tail = mTail.getPlain();
+
+    if (tail - mTail.getCache() >= mBuffer.length) {
+      // appears full so see how far the consumer has got
+      mTail.setCache(mHead.get());
+
+      if (tail - mTail.getCache() >= mBuffer.length) {
+        return false;
+      }
+    }
+
+    mBuffer[(int) tail & mMask] = e;
+
+    mTail.setRelease(tail + 1);
+
+    return true;
+  }
+
+  @Override
+  public int offerAll(List<? extends T> values) {
+    long tail = mTail.getPlain();
+
+    int n = (int) Math.min(values.size(), mBuffer.length - (tail - mHead.get()));
+
+    for (int i = 0; i < n; ++i) {
+      T e = values.get(i);
+
+      if (e == null) {
+        throw new NullPointerException();
+      }
+
+      mBuffer[(int) (tail + i) & mMask] = e;
+    }
+
+    // publish the batch at once
+    mTail.setRelease(tail + n);
+
+    return n;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T poll() {
+    long head = mHead.getPlain();
+
+    if (head >= mHead.getCache()) {
+      // appears empty so see how far the producer has got
+      mHead.setCache(mTail.get());
+
+      if (head >= mHead.getCache()) {
+        return null;
+      }
+    }
+
+    int i = (int) head & mMask;
+
+    T ret = (T) mBuffer[i];
+
+    mBuffer[i] = null;
+
+    mHead.setRelease(head + 1);
+
+    return ret;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public int drainTo(Collection<? super T> c, int max) {
+    long head = mHead.getPlain();
+
+    int n = (int) Math.min(max, mTail.get() - head);
+
+    for (int i = 0; i < n; ++i) {
+      int p = (int) (head + i) & mMask;
+
+      c.add((T) mBuffer[p]);
+
+      mBuffer[p] = null;
+    }
+
+    mHead.setRelease(head + n);
+
+    return n;
+  }
+
+  @Override
+  public int size() {
+    // read the head first so the size cannot be negative
+    long head = mHead.get();
+
+    return (int) Math.min(mTail.get() - head, mBuffer.length);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return mHead.get() >= mTail.get();
+  }
+
+  @Override
+  public int getCapacity() {
+    return mBuffer.length;
+  }
+}
@@ -26,6 +26,7 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.jebtk.core.collections.CollectionUtils;
+import org.jebtk.core.text.MultiMatcher;
 import org.jebtk.core.text.TextUtils;
 
 /**
@@ -46,6 +47,12 @@ public class KeywordsService implements Iterable<String>, Serializable {
    */
   private Set<String> words = new HashSet<String>();
 
+  /**
+   * Matcher for all words, created on demand and discarded when words are
+   * added.
+   */
+  private transient MultiMatcher mMatcher = null;
+
   /**
    * The constant INSTANCE.
    */
@@ -95,8 +102,23 @@ public class KeywordsService implements Iterable<String>, Serializable {
    *
    * @param word the word
    */
-  public void addWord(String word) {
+  public synchronized void addWord(String word) {
     words.add(word.toLowerCase());
+
+    mMatcher = null;
+  }
+
+  /**
+   * Returns a matcher for all of the words.
+   *
+   * @return the multi matcher
+   */
+  private synchronized MultiMatcher getMatcher() {
+    if (mMatcher == null) {
+      mMatcher = MultiMatcher.compile(words);
+    }
+
+    return mMatcher;
   }
 
   /*
@@ -118,15 +140,8 @@ public class KeywordsService implements Iterable<String>, Serializable {
   public List<String> searchForKeywords(String sentence) {
     Set<String> found = TextUtils.keywords(sentence);
 
-    Set<String> found2 = new HashSet<String>();
-
-    String s = sentence.toLowerCase();
-
-    for (String word : words) {
-      if (s.contains(word)) {
-        found2.add(word);
-      }
-    }
+    // Search for all keywords in one pass
+    Set<String> found2 = new HashSet<String>(getMatcher().findAll(sentence));
 
     return CollectionUtils.union(found, found2);
   }
@@ -41,8 +41,10 @@ import javax.swing.table.TableModel;
 import org.jebtk.core.TableData;
 import org.jebtk.core.collections.ArrayUtils;
 import org.jebtk.core.collections.CollectionUtils;
+import org.jebtk.core.collections.DoubleList;
 import org.jebtk.core.stream.Stream;
 import org.jebtk.core.text.Splitter;
+import org.jebtk.core.text.StringPool;
 import org.jebtk.core.text.TextUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -299,6 +301,25 @@ public class Io {
    */
   public static final TableData<String> loadTable(Path file, char delimiter, boolean columnHeaderMode,
       boolean rowHeaderMode, List<Integer> columns) throws IOException {
+    return loadTable(file, delimiter, columnHeaderMode, rowHeaderMode, columns, false);
+  }
+
+  /**
+   * Loads a table into memory. If {@code dedup} is true, each column is
+   * tokenized through its own {@link StringPool} so that repeated values in
+   * low cardinality columns share a single string instance.
+   *
+   * @param file             the file
+   * @param delimiter        the delimiter
+   * @param columnHeaderMode the column header mode
+   * @param rowHeaderMode    the row header mode
+   * @param columns          the columns
+   * @param dedup            whether to deduplicate column values
+   * @return the table data
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static final TableData<String> loadTable(Path file, char delimiter, boolean columnHeaderMode,
+      boolean rowHeaderMode, List<Integer> columns, boolean dedup) throws IOException {
 
     BufferedReader reader = FileUtils.newBufferedReader(file);
 
@@ -329,6 +350,8 @@ public class Io {
 
       int s = rowHeaderMode ? 1 : 0;
 
+      List<StringPool> pools = new ArrayList<StringPool>();
+
       while ((line = reader.readLine()) != null) {
         if (Io.isEmptyLine(line)) {
           continue;
@@ -336,7 +359,11 @@ public class Io {
 
         // System.err.println("table line " + file);
 
-        tokens = TextUtils.fastSplitRemoveQuotes(line, TextUtils.TAB_DELIMITER_CHAR);
+        if (dedup) {
+          tokens = poolSplit(TextUtils.removeQuotes(line), TextUtils.TAB_DELIMITER_CHAR, pools);
+        } else {
+          tokens = TextUtils.fastSplitRemoveQuotes(line, TextUtils.TAB_DELIMITER_CHAR);
+        }
 
         if (rowHeaderMode) {
           table.rowHeader.add(tokens.get(0));
@@ -366,6 +393,53 @@ public class Io {
 
   }
 
+  /**
+   * Split a line in the same way as
+   * {@link TextUtils#fastSplit(String, char)}, but obtain each token from the
+   * string pool of its column so that no substring is created for values that
+   * have been seen before.
+   *
+   * @param line      the line
+   * @param delimiter the delimiter
+   * @param pools     the column pools, extended as necessary
+   * @return the list
+   */
+  private static List<String> poolSplit(String line, char delimiter, List<StringPool> pools) {
+    int n = line.length();
+
+    List<String> list = new ArrayList<>(pools.size());
+
+    int i = 0;
+    int j = line.indexOf(delimiter);
+
+    while (j >= 0) {
+      list.add(pool(pools, list.size()).intern(line, i, j));
+      i = j + 1;
+      j = line.indexOf(delimiter, i);
+    }
+
+    if (i < n) {
+      list.add(pool(pools, list.size()).intern(line, i, n));
+    }
+
+    return list;
+  }
+
+  /**
+   * Returns the string pool for a column, creating it if necessary.
+   *
+   * @param pools  the pools
+   * @param column the column
+   * @return the string pool
+   */
+  private static StringPool pool(List<StringPool> pools, int column) {
+    while (pools.size() <= column) {
+      pools.add(new StringPool());
+    }
+
+    return pools.get(column);
+  }
+
   /**
    * Load double table.
    *
@@ -674,12 +748,12 @@ public class Io {
 
       String line;
 
-      List<Double> row = new ArrayList<Double>();
+      DoubleList row = new DoubleList();
 
       try {
         while ((line = reader.readLine()) != null) {
           try {
-            row.add(Double.parseDouble(line));
+            row.addDouble(Double.parseDouble(line));
           } catch (NumberFormatException nfe) {
             // do nothing
           }
@@ -16,10 +16,10 @@
 package org.jebtk.core.json;
 
 import java.awt.Color;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
@@ -655,11 +655,23 @@ public abstract class Json implements Iterable<Json>, PrettyJson {
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public static void write(Json json, Path file) throws IOException {
-    BufferedWriter writer = FileUtils.newBufferedWriter(file);
+    write(json, FileUtils.newOutputStream(file));
+  }
+
+  /**
+   * Write json to a stream as UTF-8 through a fixed size buffer, so that no
+   * string of the whole document is created. The stream is closed afterwards.
+   *
+   * @param json the json
+   * @param out  the out
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(Json json, OutputStream out) throws IOException {
+    JsonWriter writer = new JsonWriter(out);
 
     try {
       json.toJson(writer);
-      writer.newLine();
+      writer.write(System.lineSeparator());
     } finally {
       writer.close();
     }
@@ -673,11 +685,11 @@ public abstract class Json implements Iterable<Json>, PrettyJson {
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public static void prettyWrite(Json json, Path file) throws IOException {
-    BufferedWriter writer = FileUtils.newBufferedWriter(file);
+    JsonWriter writer = JsonWriter.create(file);
 
     try {
       json.prettyJson(writer);
-      writer.newLine();
+      writer.write(System.lineSeparator());
     } finally {
       writer.close();
     }
@@ -32,7 +32,36 @@ public class JsonArray extends JsonContainer {
   /**
    * The member elements.
    */
-  private final List<Json> mElements = new ArrayList<>();
+  private List<Json> mElements;
+
+  /**
+   * Instantiates a new json array.
+   */
+  public JsonArray() {
+    this(new ArrayList<Json>());
+  }
+
+  /**
+   * Instantiates a new json array storing its elements in a list. Subclasses
+   * that store their elements another way pass null, and can switch to a list
+   * later with {@link #setElements(List)}.
+   *
+   * @param elements the elements
+   */
+  JsonArray(List<Json> elements) {
+    mElements = elements;
+  }
+
+  /**
+   * Replace the elements.
+   *
+   * @param elements the elements
+   */
+  void setElements(List<Json> elements) {
+    mElements = elements;
+
+    mJson = null;
+  }
 
   /*
    * (non-Javadoc)
@@ -100,6 +129,26 @@ public class JsonArray extends JsonContainer {
     return mElements.size();
   }
 
+  /**
+   * Returns the elements as doubles. Nulls and elements that are not numbers
+   * are NaN.
+   * Numeric arrays created by the parser override this to return their
+   * backing array without copying.
+   *
+   * @return the double[]
+   */
+  public double[] toDoubleArray() {
+    double[] ret = new double[size()];
+
+    for (int i = 0; i < ret.length; ++i) {
+      Json v = get(i);
+
+      ret[i] = v != null ? v.getDouble() : Double.NaN;
+    }
+
+    return ret;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which
+ * {@link org.jebtk.core.json.processor.JsonCodecProcessor} should generate a
+ * {@link JsonCodec} at compile time. For a class {@code Gene} the codec is
+ * {@code GeneJsonCodec} in the same package, available as
+ * {@code GeneJsonCodec.INSTANCE}. Nested classes must be static and their
+ * codec names include the outer class names, e.g. {@code Outer_GeneJsonCodec}.
+ *
+ * The class needs a no argument constructor that is not private. Every non
+ * static, non transient field is bound to a member of the same name, less any
+ * {@code m} prefix so that {@code mName} is bound to {@code name}. The name can
+ * be changed with {@link JsonField}. Fields that are not accessible from the
+ * class's package are read and written through {@code getX()}/{@code isX()}
+ * and {@code setX()} methods.
+ *
+ * Supported field types are the primitives (except char), String, the boxed
+ * numbers and Boolean, enums, int/long/double arrays, other {@link JsonBind}
+ * classes and Lists of any supported reference type.
+ *
+ * @author Antony Holmes
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface JsonBind {
+}
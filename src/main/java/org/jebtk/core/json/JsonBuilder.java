@@ -15,12 +15,10 @@
  */
 package org.jebtk.core.json;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
 
-import org.jebtk.core.io.FileUtils;
 import org.jebtk.core.io.PathUtils;
 
 /**
@@ -30,7 +28,8 @@ import org.jebtk.core.io.PathUtils;
  * {@code endArray()} and {@code startObject()} and {@code endObject()} to
  * indicate where a new JSON element should be inserted. This class is designed
  * for speed and does not offer pretty printing; JSON is written as a single
- * line string.
+ * line string. To write JSON to a stream as it is built, rather than holding
+ * it in memory, use the same methods on a {@link JsonWriter}.
  */
 public class JsonBuilder implements CharSequence {
   /**
@@ -72,8 +71,8 @@ public class JsonBuilder implements CharSequence {
 
   public static final String JSON_EMPTY_ARRAY = "[]";
 
-  /** The Constant BUFFER_SIZE. */
-  private static final int BUFFER_SIZE = 100000;
+  /** The initial size of the buffer; it grows as needed. */
+  private static final int BUFFER_SIZE = 1024;
 
   /** The internal buffer. */
   private StringBuilder mBuffer = null;
@@ -132,7 +131,7 @@ public class JsonBuilder implements CharSequence {
    */
   public JsonBuilder add(String s) {
     _addComma();
-    quote(JsonString.escape(s));
+    JsonString.escapeAndQuote(s, mBuffer);
 
     return this;
   }
@@ -339,7 +338,7 @@ public class JsonBuilder implements CharSequence {
    */
   public JsonBuilder add(String name, String s) {
     addComma(name);
-    quote(JsonString.escape(s));
+    JsonString.escapeAndQuote(s, mBuffer);
 
     return this;
   }
@@ -594,11 +593,11 @@ public class JsonBuilder implements CharSequence {
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public static void write(JsonBuilder json, Path file) throws IOException {
-    BufferedWriter writer = FileUtils.newBufferedWriter(file);
+    JsonWriter writer = JsonWriter.create(file);
 
     try {
-      writer.write(json.toString());
-      writer.newLine();
+      writer.append(json.mBuffer);
+      writer.write(System.lineSeparator());
     } finally {
       writer.close();
     }
@@ -0,0 +1,993 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.StreamUtils;
+
+/**
+ * Reads and writes Json trees in CBOR (RFC 8949), a binary format that is
+ * typically much smaller and faster to process than JSON text. The output is
+ * standard CBOR that other decoders can read:
+ *
+ * <ul>
+ * <li>Objects are maps and arrays are arrays with definite lengths.</li>
+ * <li>Integers use the smallest integer encoding and doubles are written as
+ * single precision floats when this is exact.</li>
+ * <li>{@link JsonIntArray} and {@link JsonDoubleArray} are written as packed
+ * big endian typed arrays (RFC 8746 tags 74 and 82), so they are copied in
+ * bulk rather than element by element.</li>
+ * <li>The document is wrapped in a string reference namespace (tag 256) and
+ * repeated strings, such as the keys of an array of objects, are written as
+ * back references (tag 25) to their first occurrence.</li>
+ * </ul>
+ *
+ * Other node types, for example colors, are written as their string value.
+ *
+ * @author Antony Holmes
+ */
+public class JsonCbor {
+
+  /** Major type for unsigned integers. */
+  private static final int MAJOR_UNSIGNED = 0;
+
+  /** Major type for negative integers. */
+  private static final int MAJOR_NEGATIVE = 1;
+
+  /** Major type for byte strings. */
+  private static final int MAJOR_BYTES = 2;
+
+  /** Major type for text strings. */
+  private static final int MAJOR_TEXT = 3;
+
+  /** Major type for arrays. */
+  private static final int MAJOR_ARRAY = 4;
+
+  /** Major type for maps. */
+  private static final int MAJOR_MAP = 5;
+
+  /** Major type for tags. */
+  private static final int MAJOR_TAG = 6;
+
+  /** Additional info for indefinite lengths. */
+  private static final int INDEFINITE = 31;
+
+  /** The false value. */
+  private static final int FALSE = 0xf4;
+
+  /** The true value. */
+  private static final int TRUE = 0xf5;
+
+  /** The null value. */
+  private static final int NULL = 0xf6;
+
+  /** The undefined value. */
+  private static final int UNDEFINED = 0xf7;
+
+  /** A half precision float. */
+  private static final int FLOAT16 = 0xf9;
+
+  /** A single precision float. */
+  private static final int FLOAT32 = 0xfa;
+
+  /** A double precision float. */
+  private static final int FLOAT64 = 0xfb;
+
+  /** Ends an indefinite length item. */
+  private static final int BREAK = 0xff;
+
+  /** Tag for a reference to an earlier string. */
+  private static final int TAG_STRING_REF = 25;
+
+  /** Tag for a string reference namespace. */
+  private static final int TAG_STRING_REF_NAMESPACE = 256;
+
+  /** Tag for a big endian int32 typed array. */
+  private static final int TAG_INT32_BE = 74;
+
+  /** Tag for a little endian int32 typed array. */
+  private static final int TAG_INT32_LE = 78;
+
+  /** Tag for a big endian float64 typed array. */
+  private static final int TAG_FLOAT64_BE = 82;
+
+  /** Tag for a little endian float64 typed array. */
+  private static final int TAG_FLOAT64_LE = 86;
+
+  /**
+   * Instantiates a new json cbor.
+   */
+  private JsonCbor() {
+    // Do nothing
+  }
+
+  /**
+   * Encode a Json tree as CBOR.
+   *
+   * @param json the json
+   * @return the byte[]
+   */
+  public static byte[] toBytes(Json json) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try {
+      write(json, out);
+    } catch (IOException e) {
+      // ByteArrayOutputStream does not throw
+    }
+
+    return out.toByteArray();
+  }
+
+  /**
+   * Encode a Json tree as CBOR onto a stream. The stream is flushed but not
+   * closed.
+   *
+   * @param json the json
+   * @param out  the out
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(Json json, OutputStream out) throws IOException {
+    Encoder encoder = new Encoder(out);
+
+    encoder.head(MAJOR_TAG, TAG_STRING_REF_NAMESPACE);
+    encoder.write(json);
+    encoder.flush();
+  }
+
+  /**
+   * Encode a Json tree as CBOR to a file.
+   *
+   * @param json the json
+   * @param file the file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(Json json, Path file) throws IOException {
+    OutputStream out = FileUtils.newOutputStream(file);
+
+    try {
+      write(json, out);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Decode CBOR into a Json tree.
+   *
+   * @param data the data
+   * @return the json
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static Json parse(byte[] data) throws IOException {
+    return parse(data, 0, data.length);
+  }
+
+  /**
+   * Decode CBOR into a Json tree.
+   *
+   * @param data   the data
+   * @param offset the offset
+   * @param length the length
+   * @return the json
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static Json parse(byte[] data, int offset, int length) throws IOException {
+    return new Decoder(data, offset, length).read();
+  }
+
+  /**
+   * Decode CBOR from a stream. The stream is read to the end but not closed.
+   *
+   * @param is the is
+   * @return the json
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static Json parse(InputStream is) throws IOException {
+    return parse(is.readAllBytes());
+  }
+
+  /**
+   * Decode a CBOR file.
+   *
+   * @param file the file
+   * @return the json
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static Json parse(Path file) throws IOException {
+    return parse(Files.readAllBytes(file));
+  }
+
+  /**
+   * Test whether a string of a given length should be added to the string
+   * reference table when the table has a given size. Encoder and decoder must
+   * agree on this so that indices match.
+   *
+   * @param length the length of the string in bytes.
+   * @param index  the size of the table.
+   * @return true, if successful
+   */
+  private static boolean isRefCandidate(int length, int index) {
+    if (index < 24) {
+      return length >= 3;
+    } else if (index < 256) {
+      return length >= 4;
+    } else if (index < 65536) {
+      return length >= 5;
+    } else {
+      return length >= 7;
+    }
+  }
+
+  /**
+   * Writes CBOR through a fixed size buffer.
+   */
+  private static class Encoder {
+
+    /** The out. */
+    private final OutputStream mOut;
+
+    /** The buffer. */
+    private final byte[] mBuffer = StreamUtils.createBuffer();
+
+    /** The number of bytes in the buffer. */
+    private int mPos = 0;
+
+    /** Index of each string in the reference table. */
+    private final Map<String, Integer> mStringRefs = new HashMap<String, Integer>();
+
+    /** The size of the reference table, including byte strings. */
+    private int mRefCount = 0;
+
+    /** Scratch space for typed arrays. */
+    private byte[] mTyped = new byte[0];
+
+    /**
+     * Instantiates a new encoder.
+     *
+     * @param out the out
+     */
+    public Encoder(OutputStream out) {
+      mOut = out;
+    }
+
+    /**
+     * Write a Json value.
+     *
+     * @param json the json
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void write(Json json) throws IOException {
+      if (json == null) {
+        byte1(NULL);
+      } else if (json instanceof JsonIntArray) {
+        int[] values = ((JsonIntArray) json).toIntArray();
+
+        head(MAJOR_TAG, TAG_INT32_BE);
+        typedArray(values.length * 4);
+
+        ByteBuffer.wrap(typedBuffer(values.length * 4)).asIntBuffer().put(values);
+        bytes(mTyped, 0, values.length * 4);
+      } else if (json instanceof JsonDoubleArray) {
+        double[] values = ((JsonDoubleArray) json).toDoubleArray();
+
+        head(MAJOR_TAG, TAG_FLOAT64_BE);
+        typedArray(values.length * 8);
+
+        ByteBuffer.wrap(typedBuffer(values.length * 8)).asDoubleBuffer().put(values);
+        bytes(mTyped, 0, values.length * 8);
+      } else if (json instanceof JsonArray) {
+        int n = json.size();
+
+        head(MAJOR_ARRAY, n);
+
+        for (int i = 0; i < n; ++i) {
+          write(json.get(i));
+        }
+      } else if (json.getKeys() != null) {
+        head(MAJOR_MAP, json.size());
+
+        for (String key : json.getKeys()) {
+          text(key);
+          write(json.get(key));
+        }
+      } else if (json instanceof JsonInteger) {
+        integer(json.getInt());
+      } else if (json instanceof JsonLong) {
+        integer(json.getLong());
+      } else if (json instanceof JsonDouble) {
+        double v = json.getDouble();
+
+        if ((float) v == v || Double.isNaN(v)) {
+          byte1(FLOAT32);
+          int4(Float.floatToIntBits((float) v));
+        } else {
+          byte1(FLOAT64);
+          int8(Double.doubleToLongBits(v));
+        }
+      } else if (json instanceof JsonBoolean) {
+        byte1(json.getBool() ? TRUE : FALSE);
+      } else {
+        String s = json.getString();
+
+        if (s != null) {
+          text(s);
+        } else {
+          byte1(NULL);
+        }
+      }
+    }
+
+    /**
+     * Returns scratch space of at least n bytes for typed arrays.
+     *
+     * @param n the n
+     * @return the byte[]
+     */
+    private byte[] typedBuffer(int n) {
+      if (mTyped.length < n) {
+        mTyped = new byte[n];
+      }
+
+      return mTyped;
+    }
+
+    /**
+     * Write the byte string header of a typed array. Byte strings take a
+     * slot in the string reference table even though they are never
+     * referenced.
+     *
+     * @param n the n
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void typedArray(int n) throws IOException {
+      head(MAJOR_BYTES, n);
+
+      if (isRefCandidate(n, mRefCount)) {
+        ++mRefCount;
+      }
+    }
+
+    /**
+     * Write a text string or a reference to an identical earlier string.
+     *
+     * @param s the s
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void text(String s) throws IOException {
+      Integer ref = mStringRefs.get(s);
+
+      if (ref != null) {
+        head(MAJOR_TAG, TAG_STRING_REF);
+        head(MAJOR_UNSIGNED, ref);
+        return;
+      }
+
+      int n = utf8Length(s);
+
+      head(MAJOR_TEXT, n);
+
+      if (n == s.length()) {
+        // ASCII
+        for (int i = 0; i < n; ++i) {
+          if (mPos == mBuffer.length) {
+            flushBuffer();
+          }
+
+          mBuffer[mPos++] = (byte) s.charAt(i);
+        }
+      } else {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        bytes(b, 0, b.length);
+      }
+
+      if (isRefCandidate(n, mRefCount)) {
+        mStringRefs.put(s, mRefCount++);
+      }
+    }
+
+    /**
+     * Write an integer.
+     *
+     * @param v the v
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void integer(long v) throws IOException {
+      if (v >= 0) {
+        head(MAJOR_UNSIGNED, v);
+      } else {
+        head(MAJOR_NEGATIVE, -1 - v);
+      }
+    }
+
+    /**
+     * Write the initial byte of an item and its argument in the shortest
+     * form.
+     *
+     * @param major the major
+     * @param v     the v
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void head(int major, long v) throws IOException {
+      int m = major << 5;
+
+      if (v < 24) {
+        byte1(m | (int) v);
+      } else if (v <= 0xff) {
+        byte1(m | 24);
+        byte1((int) v);
+      } else if (v <= 0xffff) {
+        byte1(m | 25);
+        byte1((int) (v >> 8));
+        byte1((int) v);
+      } else if (v <= 0xffffffffL) {
+        byte1(m | 26);
+        int4((int) v);
+      } else {
+        byte1(m | 27);
+        int8(v);
+      }
+    }
+
+    /**
+     * Write one byte.
+     *
+     * @param b the b
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void byte1(int b) throws IOException {
+      if (mPos == mBuffer.length) {
+        flushBuffer();
+      }
+
+      mBuffer[mPos++] = (byte) b;
+    }
+
+    /**
+     * Write a big endian int.
+     *
+     * @param v the v
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void int4(int v) throws IOException {
+      byte1(v >>> 24);
+      byte1(v >>> 16);
+      byte1(v >>> 8);
+      byte1(v);
+    }
+
+    /**
+     * Write a big endian long.
+     *
+     * @param v the v
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void int8(long v) throws IOException {
+      int4((int) (v >>> 32));
+      int4((int) v);
+    }
+
+    /**
+     * Write bytes.
+     *
+     * @param b      the b
+     * @param offset the offset
+     * @param length the length
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void bytes(byte[] b, int offset, int length) throws IOException {
+      if (length > mBuffer.length - mPos) {
+        flushBuffer();
+
+        if (length > mBuffer.length) {
+          mOut.write(b, offset, length);
+          return;
+        }
+      }
+
+      System.arraycopy(b, offset, mBuffer, mPos, length);
+      mPos += length;
+    }
+
+    /**
+     * Write the buffer to the stream.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void flushBuffer() throws IOException {
+      if (mPos > 0) {
+        mOut.write(mBuffer, 0, mPos);
+        mPos = 0;
+      }
+    }
+
+    /**
+     * Write any buffered bytes and flush the stream.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void flush() throws IOException {
+      flushBuffer();
+      mOut.flush();
+    }
+
+    /**
+     * Returns the number of bytes needed to encode a string as UTF-8.
+     *
+     * @param s the s
+     * @return the int
+     */
+    private static int utf8Length(String s) {
+      int n = s.length();
+      int ret = n;
+
+      for (int i = 0; i < n; ++i) {
+        char c = s.charAt(i);
+
+        if (c >= 0x80) {
+          if (c < 0x800) {
+            ret += 1;
+          } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+            // 4 bytes for 2 chars
+            ret += 2;
+            ++i;
+          } else {
+            ret += 2;
+          }
+        }
+      }
+
+      return ret;
+    }
+  }
+
+  /**
+   * Reads CBOR from a byte array.
+   */
+  private static class Decoder {
+
+    /** The data. */
+    private final byte[] mData;
+
+    /** The position. */
+    private int mPos;
+
+    /** The end. */
+    private final int mEnd;
+
+    /** The string reference table or null outside a namespace. */
+    private List<Object> mStringRefs = null;
+
+    /**
+     * Instantiates a new decoder.
+     *
+     * @param data   the data
+     * @param offset the offset
+     * @param length the length
+     */
+    public Decoder(byte[] data, int offset, int length) {
+      mData = data;
+      mPos = offset;
+      mEnd = offset + length;
+    }
+
+    /**
+     * Read one data item.
+     *
+     * @return the json
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public Json read() throws IOException {
+      int ib = byte1();
+      int major = ib >>> 5;
+      int info = ib & 31;
+
+      switch (major) {
+      case MAJOR_UNSIGNED:
+        return JsonLexer.longToJson(unsigned(argument(info)));
+      case MAJOR_NEGATIVE:
+        return JsonLexer.longToJson(-1 - unsigned(argument(info)));
+      case MAJOR_BYTES:
+        // Byte strings only appear inside typed arrays
+        int n = length(info);
+        skip(n);
+        addRef(n, null);
+        return new JsonString(new String(mData, mPos - n, n, StandardCharsets.ISO_8859_1));
+      case MAJOR_TEXT:
+        return new JsonString(text(info));
+      case MAJOR_ARRAY:
+        JsonArray array = new JsonArray();
+
+        if (info == INDEFINITE) {
+          while (peek() != BREAK) {
+            array.add(read());
+          }
+
+          ++mPos;
+        } else {
+          for (int i = length(info); i > 0; --i) {
+            array.add(read());
+          }
+        }
+
+        return array;
+      case MAJOR_MAP:
+        JsonObject object = new JsonObject();
+
+        if (info == INDEFINITE) {
+          while (peek() != BREAK) {
+            object.add(key(), read());
+          }
+
+          ++mPos;
+        } else {
+          for (int i = length(info); i > 0; --i) {
+            object.add(key(), read());
+          }
+        }
+
+        return object;
+      case MAJOR_TAG:
+        return tag(argument(info));
+      default:
+        // floats and simple values
+        return simple(ib, info);
+      }
+    }
+
+    /**
+     * Read a tagged item.
+     *
+     * @param tag the tag
+     * @return the json
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private Json tag(long tag) throws IOException {
+      if (tag == TAG_STRING_REF_NAMESPACE) {
+        List<Object> outer = mStringRefs;
+
+        mStringRefs = new ArrayList<Object>();
+
+        try {
+          return read();
+        } finally {
+          mStringRefs = outer;
+        }
+      } else if (tag == TAG_STRING_REF) {
+        Object s = stringRef();
+
+        if (s instanceof String) {
+          return new JsonString((String) s);
+        }
+
+        throw error("Unsupported reference to a byte string");
+      } else if (tag == TAG_INT32_BE || tag == TAG_INT32_LE) {
+        int n = typedArray();
+
+        int[] values = new int[n / 4];
+
+        ByteBuffer.wrap(mData, mPos - n, n).order(tag == TAG_INT32_BE ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN)
+            .asIntBuffer().get(values);
+
+        return new JsonIntArray(values);
+      } else if (tag == TAG_FLOAT64_BE || tag == TAG_FLOAT64_LE) {
+        int n = typedArray();
+
+        double[] values = new double[n / 8];
+
+        ByteBuffer.wrap(mData, mPos - n, n)
+            .order(tag == TAG_FLOAT64_BE ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN).asDoubleBuffer()
+            .get(values);
+
+        return new JsonDoubleArray(values);
+      } else {
+        // Unknown tags are ignored
+        return read();
+      }
+    }
+
+    /**
+     * Read the byte string of a typed array.
+     *
+     * @return the length of the byte string, which ends at the current
+     *         position.
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int typedArray() throws IOException {
+      int ib = byte1();
+
+      if (ib >>> 5 != MAJOR_BYTES) {
+        throw error("Expected a byte string for a typed array");
+      }
+
+      int n = length(ib & 31);
+
+      skip(n);
+      addRef(n, null);
+
+      return n;
+    }
+
+    /**
+     * Read a map key.
+     *
+     * @return the string
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private String key() throws IOException {
+      int start = mPos;
+      int ib = byte1();
+      int major = ib >>> 5;
+      int info = ib & 31;
+
+      if (major == MAJOR_TEXT) {
+        return text(info);
+      }
+
+      if (major == MAJOR_TAG && argument(info) == TAG_STRING_REF) {
+        Object s = stringRef();
+
+        if (s instanceof String) {
+          return (String) s;
+        }
+      }
+
+      // Other keys are converted to strings
+      mPos = start;
+
+      Json k = read();
+
+      return k != null ? k.getString() : JsonBuilder.JSON_NULL;
+    }
+
+    /**
+     * Read a text string whose initial byte has been read.
+     *
+     * @param info the info
+     * @return the string
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private String text(int info) throws IOException {
+      if (info == INDEFINITE) {
+        throw error("Indefinite length strings are not supported");
+      }
+
+      int n = length(info);
+
+      skip(n);
+
+      String s = new String(mData, mPos - n, n, StandardCharsets.UTF_8);
+
+      addRef(n, s);
+
+      return s;
+    }
+
+    /**
+     * Read the index of a string reference and look it up.
+     *
+     * @return the object
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private Object stringRef() throws IOException {
+      int ib = byte1();
+
+      if (ib >>> 5 != MAJOR_UNSIGNED || mStringRefs == null) {
+        throw error("Invalid string reference");
+      }
+
+      long i = argument(ib & 31);
+
+      if (i < 0 || i >= mStringRefs.size()) {
+        throw error("Invalid string reference");
+      }
+
+      return mStringRefs.get((int) i);
+    }
+
+    /**
+     * Add a string to the reference table if it qualifies.
+     *
+     * @param length the length in bytes
+     * @param s      the string or null for byte strings.
+     */
+    private void addRef(int length, Object s) {
+      if (mStringRefs != null && isRefCandidate(length, mStringRefs.size())) {
+        mStringRefs.add(s);
+      }
+    }
+
+    /**
+     * Read a float or simple value.
+     *
+     * @param ib   the initial byte
+     * @param info the info
+     * @return the json
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private Json simple(int ib, int info) throws IOException {
+      switch (ib) {
+      case FALSE:
+        return new JsonBoolean(false);
+      case TRUE:
+        return new JsonBoolean(true);
+      case NULL:
+      case UNDEFINED:
+        return null;
+      case FLOAT16:
+        return new JsonDouble(halfToDouble((int) argument(25)));
+      case FLOAT32:
+        return new JsonDouble(Float.intBitsToFloat((int) argument(26)));
+      case FLOAT64:
+        return new JsonDouble(Double.longBitsToDouble(argument(27)));
+      default:
+        // Unassigned simple values
+        if (info == 24) {
+          byte1();
+        }
+
+        return null;
+      }
+    }
+
+    /**
+     * Read the argument of an item.
+     *
+     * @param info the additional information of the initial byte.
+     * @return the long
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private long argument(int info) throws IOException {
+      if (info < 24) {
+        return info;
+      }
+
+      switch (info) {
+      case 24:
+        return byte1();
+      case 25:
+        return (byte1() << 8) | byte1();
+      case 26:
+        return ((long) byte1() << 24) | (byte1() << 16) | (byte1() << 8) | byte1();
+      case 27:
+        return (argument(26) << 32) | argument(26);
+      default:
+        throw error("Invalid additional information " + info);
+      }
+    }
+
+    /**
+     * Read a length argument.
+     *
+     * @param info the info
+     * @return the int
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int length(int info) throws IOException {
+      long n = argument(info);
+
+      if (n < 0 || n > mEnd - mPos) {
+        throw error("Invalid length " + n);
+      }
+
+      return (int) n;
+    }
+
+    /**
+     * Check that an unsigned argument fits in a long.
+     *
+     * @param v the v
+     * @return the long
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private long unsigned(long v) throws IOException {
+      if (v < 0) {
+        throw error("Integer too large");
+      }
+
+      return v;
+    }
+
+    /**
+     * Read one byte.
+     *
+     * @return the int
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int byte1() throws IOException {
+      if (mPos >= mEnd) {
+        throw error("Unexpected end of CBOR");
+      }
+
+      return mData[mPos++] & 0xff;
+    }
+
+    /**
+     * Returns the next byte without consuming it.
+     *
+     * @return the int
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int peek() throws IOException {
+      if (mPos >= mEnd) {
+        throw error("Unexpected end of CBOR");
+      }
+
+      return mData[mPos] & 0xff;
+    }
+
+    /**
+     * Skip bytes.
+     *
+     * @param n the n
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void skip(int n) throws IOException {
+      if (n > mEnd - mPos) {
+        throw error("Unexpected end of CBOR");
+      }
+
+      mPos += n;
+    }
+
+    /**
+     * Create an exception for invalid data at the current position.
+     *
+     * @param message the message
+     * @return the IO exception
+     */
+    private IOException error(String message) {
+      return new IOException(message + " at byte " + mPos + ".");
+    }
+  }
+
+  /**
+   * Convert a half precision float to a double.
+   *
+   * @param h the h
+   * @return the double
+   */
+  private static double halfToDouble(int h) {
+    int exp = (h >> 10) & 0x1f;
+    int mant = h & 0x3ff;
+
+    double v;
+
+    if (exp == 0) {
+      v = mant * Math.pow(2, -24);
+    } else if (exp != 31) {
+      v = (mant + 1024) * Math.pow(2, exp - 25);
+    } else {
+      v = mant == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+    }
+
+    return (h & 0x8000) != 0 ? -v : v;
+  }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes objects of a given type directly as JSON text, without
+ * building a {@link Json} tree. Codecs for {@link JsonBind} classes are
+ * generated at compile time; codecs for common types are in
+ * {@link JsonCodecs}.
+ *
+ * @author Antony Holmes
+ *
+ * @param <T> the generic type
+ */
+public interface JsonCodec<T> {
+
+  /**
+   * Read the next value from a reader. JSON null is read as null (or the
+   * default value for primitives).
+   *
+   * @param reader the reader
+   * @return the value
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public T read(JsonReader reader) throws IOException;
+
+  /**
+   * Write a value as JSON. A null value is written as JSON null.
+   *
+   * @param value the value
+   * @param out   where to write the JSON, for example a {@link JsonWriter}.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void write(T value, Appendable out) throws IOException;
+}
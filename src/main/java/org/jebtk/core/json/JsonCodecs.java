@@ -0,0 +1,684 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.core.text.TextUtils;
+
+/**
+ * Codecs for common types and the helpers used by generated {@link JsonCodec}
+ * classes.
+ *
+ * @author Antony Holmes
+ */
+public class JsonCodecs {
+
+  /** Reads and writes strings. Numbers and booleans are read as text. */
+  public static final JsonCodec<String> STRING = new JsonCodec<String>() {
+    @Override
+    public String read(JsonReader reader) throws IOException {
+      JsonToken t = reader.nextToken();
+
+      if (t == null) {
+        throw new IOException("Unexpected end of JSON");
+      }
+
+      switch (t) {
+      case NULL:
+        return null;
+      case STRING:
+      case INTEGER:
+      case DOUBLE:
+      case TRUE:
+      case FALSE:
+        return reader.getString();
+      default:
+        throw mismatch("a string", t);
+      }
+    }
+
+    @Override
+    public void write(String value, Appendable out) throws IOException {
+      if (value == null) {
+        out.append(JsonBuilder.JSON_NULL);
+      } else {
+        JsonString.escapeAndQuote(value, out);
+      }
+    }
+  };
+
+  /** Reads and writes Integers. */
+  public static final JsonCodec<Integer> INTEGER = new JsonCodec<Integer>() {
+    @Override
+    public Integer read(JsonReader reader) throws IOException {
+      JsonToken t = reader.nextToken();
+
+      if (t == JsonToken.NULL) {
+        return null;
+      }
+
+      checkNumber(t);
+
+      return reader.getInt();
+    }
+
+    @Override
+    public void write(Integer value, Appendable out) throws IOException {
+      if (value == null) {
+        out.append(JsonBuilder.JSON_NULL);
+      } else {
+        JsonCodecs.write(value.intValue(), out);
+      }
+    }
+  };
+
+  /** Reads and writes Longs. */
+  public static final JsonCodec<Long> LONG = new JsonCodec<Long>() {
+    @Override
+    public Long read(JsonReader reader) throws IOException {
+      JsonToken t = reader.nextToken();
+
+      if (t == JsonToken.NULL) {
+        return null;
+      }
+
+      checkNumber(t);
+
+      return reader.getLong();
+    }
+
+    @Override
+    public void write(Long value, Appendable out) throws IOException {
+      if (value == null) {
+        out.append(JsonBuilder.JSON_NULL);
+      } else {
+        JsonCodecs.write(value.longValue(), out);
+      }
+    }
+  };
+
+  /** Reads and writes Doubles. */
+  public static final JsonCodec<Double> DOUBLE = new JsonCodec<Double>() {
+    @Override
+    public Double read(JsonReader reader) throws IOException {
+      JsonToken t = reader.nextToken();
+
+      if (t == JsonToken.NULL) {
+        return null;
+      }
+
+      checkNumber(t);
+
+      return reader.getDouble();
+    }
+
+    @Override
+    public void write(Double value, Appendable out) throws IOException {
+      if (value == null) {
+        out.append(JsonBuilder.JSON_NULL);
+      } else {
+        JsonCodecs.write(value.doubleValue(), out);
+      }
+    }
+  };
+
+  /** Reads and writes Floats. */
+  public static final JsonCodec<Float> FLOAT = new JsonCodec<Float>() {
+    @Override
+    public Float read(JsonReader reader) throws IOException {
+      JsonToken t = reader.nextToken();
+
+      if (t == JsonToken.NULL) {
+        return null;
+      }
+
+      checkNumber(t);
+
+      return (float) reader.getDouble();
+    }
+
+    @Override
+    public void write(Float value, Appendable out) throws IOException {
+      if (value == null) {
+        out.append(JsonBuilder.JSON_NULL);
+      } else {
+        JsonCodecs.write(value.floatValue(), out);
+      }
+    }
+  };
+
+  /** Reads and writes Booleans. */
+  public static final JsonCodec<Boolean> BOOLEAN = new JsonCodec<Boolean>() {
+    @Override
+    public Boolean read(JsonReader reader) throws IOException {
+      JsonToken t = reader.nextToken();
+
+      if (t == JsonToken.NULL) {
+        return null;
+      }
+
+      checkBool(t);
+
+      return t == JsonToken.TRUE;
+    }
+
+    @Override
+    public void write(Boolean value, Appendable out) throws IOException {
+      if (value == null) {
+        out.append(JsonBuilder.JSON_NULL);
+      } else {
+        JsonCodecs.write(value.booleanValue(), out);
+      }
+    }
+  };
+
+  /** Reads and writes int arrays. */
+  public static final JsonCodec<int[]> INT_ARRAY = new JsonCodec<int[]>() {
+    @Override
+    public int[] read(JsonReader reader) throws IOException {
+      JsonToken t = reader.nextToken();
+
+      if (t == JsonToken.NULL) {
+        return null;
+      }
+
+      expect(JsonToken.START_ARRAY, t);
+
+      int[] ret = new int[16];
+      int n = 0;
+
+      while ((t = reader.nextToken()) != JsonToken.END_ARRAY) {
+        checkNumber(t);
+
+        if (n == ret.length) {
+          ret = Arrays.copyOf(ret, n * 2);
+        }
+
+        ret[n++] = reader.getInt();
+      }
+
+      return Arrays.copyOf(ret, n);
+    }
+
+    @Override
+    public void write(int[] values, Appendable out) throws IOException {
+      if (values == null) {
+        out.append(JsonBuilder.JSON_NULL);
+        return;
+      }
+
+      out.append(JsonBuilder.JSON_ARRAY_START);
+
+      for (int i = 0; i < values.length; ++i) {
+        if (i > 0) {
+          out.append(JsonBuilder.JSON_ARRAY_DELIMITER);
+        }
+
+        JsonCodecs.write(values[i], out);
+      }
+
+      out.append(JsonBuilder.JSON_ARRAY_END);
+    }
+  };
+
+  /** Reads and writes long arrays. */
+  public static final JsonCodec<long[]> LONG_ARRAY = new JsonCodec<long[]>() {
+    @Override
+    public long[] read(JsonReader reader) throws IOException {
+      JsonToken t = reader.nextToken();
+
+      if (t == JsonToken.NULL) {
+        return null;
+      }
+
+      expect(JsonToken.START_ARRAY, t);
+
+      long[] ret = new long[16];
+      int n = 0;
+
+      while ((t = reader.nextToken()) != JsonToken.END_ARRAY) {
+        checkNumber(t);
+
+        if (n == ret.length) {
+          ret = Arrays.copyOf(ret, n * 2);
+        }
+
+        ret[n++] = reader.getLong();
+      }
+
+      return Arrays.copyOf(ret, n);
+    }
+
+    @Override
+    public void write(long[] values, Appendable out) throws IOException {
+      if (values == null) {
+        out.append(JsonBuilder.JSON_NULL);
+        return;
+      }
+
+      out.append(JsonBuilder.JSON_ARRAY_START);
+
+      for (int i = 0; i < values.length; ++i) {
+        if (i > 0) {
+          out.append(JsonBuilder.JSON_ARRAY_DELIMITER);
+        }
+
+        JsonCodecs.write(values[i], out);
+      }
+
+      out.append(JsonBuilder.JSON_ARRAY_END);
+    }
+  };
+
+  /** Reads and writes double arrays. */
+  public static final JsonCodec<double[]> DOUBLE_ARRAY = new JsonCodec<double[]>() {
+    @Override
+    public double[] read(JsonReader reader) throws IOException {
+      JsonToken t = reader.nextToken();
+
+      if (t == JsonToken.NULL) {
+        return null;
+      }
+
+      expect(JsonToken.START_ARRAY, t);
+
+      double[] ret = new double[16];
+      int n = 0;
+
+      while ((t = reader.nextToken()) != JsonToken.END_ARRAY) {
+        if (n == ret.length) {
+          ret = Arrays.copyOf(ret, n * 2);
+        }
+
+        if (t == JsonToken.NULL) {
+          ret[n++] = Double.NaN;
+        } else {
+          checkNumber(t);
+
+          ret[n++] = reader.getDouble();
+        }
+      }
+
+      return Arrays.copyOf(ret, n);
+    }
+
+    @Override
+    public void write(double[] values, Appendable out) throws IOException {
+      if (values == null) {
+        out.append(JsonBuilder.JSON_NULL);
+        return;
+      }
+
+      out.append(JsonBuilder.JSON_ARRAY_START);
+
+      for (int i = 0; i < values.length; ++i) {
+        if (i > 0) {
+          out.append(JsonBuilder.JSON_ARRAY_DELIMITER);
+        }
+
+        JsonCodecs.write(values[i], out);
+      }
+
+      out.append(JsonBuilder.JSON_ARRAY_END);
+    }
+  };
+
+  /**
+   * Instantiates a new json codecs.
+   */
+  private JsonCodecs() {
+    // Do nothing
+  }
+
+  /**
+   * Returns a codec for lists whose elements are read and written with
+   * another codec. Lists are read as ArrayLists.
+   *
+   * @param <T>   the generic type
+   * @param codec the element codec
+   * @return the json codec
+   */
+  public static <T> JsonCodec<List<T>> listCodec(final JsonCodec<T> codec) {
+    return new JsonCodec<List<T>>() {
+      @Override
+      public List<T> read(JsonReader reader) throws IOException {
+        JsonToken t = reader.nextToken();
+
+        if (t == JsonToken.NULL) {
+          return null;
+        }
+
+        expect(JsonToken.START_ARRAY, t);
+
+        List<T> ret = new ArrayList<T>();
+
+        while (reader.hasNext()) {
+          ret.add(codec.read(reader));
+        }
+
+        reader.endArray();
+
+        return ret;
+      }
+
+      @Override
+      public void write(List<T> values, Appendable out) throws IOException {
+        if (values == null) {
+          out.append(JsonBuilder.JSON_NULL);
+          return;
+        }
+
+        out.append(JsonBuilder.JSON_ARRAY_START);
+
+        boolean first = true;
+
+        for (T v : values) {
+          if (!first) {
+            out.append(JsonBuilder.JSON_ARRAY_DELIMITER);
+          }
+
+          codec.write(v, out);
+
+          first = false;
+        }
+
+        out.append(JsonBuilder.JSON_ARRAY_END);
+      }
+    };
+  }
+
+  /**
+   * Returns a codec that writes enum constants by name. Pass the enum's
+   * {@code values()} so that the names can be looked up without reflection.
+   *
+   * @param <E>    the element type
+   * @param values the values
+   * @return the json codec
+   */
+  public static <E extends Enum<E>> JsonCodec<E> enumCodec(E[] values) {
+    final Map<String, E> map = new HashMap<String, E>();
+
+    for (E e : values) {
+      map.put(e.name(), e);
+    }
+
+    return new JsonCodec<E>() {
+      @Override
+      public E read(JsonReader reader) throws IOException {
+        String name = STRING.read(reader);
+
+        if (name == null) {
+          return null;
+        }
+
+        E ret = map.get(name);
+
+        if (ret == null) {
+          throw new IOException("Unknown enum constant " + name + ".");
+        }
+
+        return ret;
+      }
+
+      @Override
+      public void write(E value, Appendable out) throws IOException {
+        STRING.write(value != null ? value.name() : null, out);
+      }
+    };
+  }
+
+  /**
+   * Read an int. JSON null is read as 0.
+   *
+   * @param reader the reader
+   * @return the int
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static int readInt(JsonReader reader) throws IOException {
+    JsonToken t = reader.nextToken();
+
+    if (t == JsonToken.NULL) {
+      return 0;
+    }
+
+    checkNumber(t);
+
+    return reader.getInt();
+  }
+
+  /**
+   * Read a long. JSON null is read as 0.
+   *
+   * @param reader the reader
+   * @return the long
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static long readLong(JsonReader reader) throws IOException {
+    JsonToken t = reader.nextToken();
+
+    if (t == JsonToken.NULL) {
+      return 0;
+    }
+
+    checkNumber(t);
+
+    return reader.getLong();
+  }
+
+  /**
+   * Read a double. JSON null is read as NaN.
+   *
+   * @param reader the reader
+   * @return the double
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static double readDouble(JsonReader reader) throws IOException {
+    JsonToken t = reader.nextToken();
+
+    if (t == JsonToken.NULL) {
+      return Double.NaN;
+    }
+
+    checkNumber(t);
+
+    return reader.getDouble();
+  }
+
+  /**
+   * Read a boolean. JSON null is read as false.
+   *
+   * @param reader the reader
+   * @return true, if successful
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static boolean readBool(JsonReader reader) throws IOException {
+    JsonToken t = reader.nextToken();
+
+    if (t == JsonToken.NULL) {
+      return false;
+    }
+
+    checkBool(t);
+
+    return t == JsonToken.TRUE;
+  }
+
+  /**
+   * Write an int.
+   *
+   * @param v   the v
+   * @param out the out
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(int v, Appendable out) throws IOException {
+    out.append(Integer.toString(v));
+  }
+
+  /**
+   * Write a long.
+   *
+   * @param v   the v
+   * @param out the out
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(long v, Appendable out) throws IOException {
+    out.append(Long.toString(v));
+  }
+
+  /**
+   * Write a double. NaN and infinite values have no JSON representation so are
+   * written as null.
+   *
+   * @param v   the v
+   * @param out the out
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(double v, Appendable out) throws IOException {
+    if (Double.isNaN(v) || Double.isInfinite(v)) {
+      out.append(JsonBuilder.JSON_NULL);
+    } else {
+      out.append(Double.toString(v));
+    }
+  }
+
+  /**
+   * Write a float. NaN and infinite values are written as null.
+   *
+   * @param v   the v
+   * @param out the out
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(float v, Appendable out) throws IOException {
+    if (Float.isNaN(v) || Float.isInfinite(v)) {
+      out.append(JsonBuilder.JSON_NULL);
+    } else {
+      out.append(Float.toString(v));
+    }
+  }
+
+  /**
+   * Write a boolean.
+   *
+   * @param v   the v
+   * @param out the out
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(boolean v, Appendable out) throws IOException {
+    out.append(v ? TextUtils.TRUE : TextUtils.FALSE);
+  }
+
+  /**
+   * Throw an exception if a token is not the expected one.
+   *
+   * @param expected the expected
+   * @param t        the t
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void expect(JsonToken expected, JsonToken t) throws IOException {
+    if (t != expected) {
+      throw new IOException("Expected " + expected + " but found " + t + ".");
+    }
+  }
+
+  /**
+   * Check a token is a number.
+   *
+   * @param t the t
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void checkNumber(JsonToken t) throws IOException {
+    if (t != JsonToken.INTEGER && t != JsonToken.DOUBLE) {
+      throw mismatch("a number", t);
+    }
+  }
+
+  /**
+   * Check a token is a boolean.
+   *
+   * @param t the t
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void checkBool(JsonToken t) throws IOException {
+    if (t != JsonToken.TRUE && t != JsonToken.FALSE) {
+      throw mismatch("a boolean", t);
+    }
+  }
+
+  /**
+   * Create a type mismatch exception.
+   *
+   * @param expected the expected
+   * @param t        the t
+   * @return the IO exception
+   */
+  private static IOException mismatch(String expected, JsonToken t) {
+    return new IOException("Expected " + expected + " but found " + t + ".");
+  }
+
+  /**
+   * Write a value to a JSON string.
+   *
+   * @param <T>   the generic type
+   * @param value the value
+   * @param codec the codec
+   * @return the string
+   */
+  public static <T> String toJson(T value, JsonCodec<T> codec) {
+    StringBuilder buffer = new StringBuilder();
+
+    try {
+      codec.write(value, buffer);
+    } catch (IOException e) {
+      // A StringBuilder does not throw
+      e.printStackTrace();
+    }
+
+    return buffer.toString();
+  }
+
+  /**
+   * Read a value from a JSON string.
+   *
+   * @param <T>   the generic type
+   * @param json  the json
+   * @param codec the codec
+   * @return the t
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static <T> T parse(String json, JsonCodec<T> codec) throws IOException {
+    return parse(json.getBytes(StandardCharsets.UTF_8), codec);
+  }
+
+  /**
+   * Read a value from UTF-8 encoded JSON.
+   *
+   * @param <T>   the generic type
+   * @param data  the data
+   * @param codec the codec
+   * @return the t
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static <T> T parse(byte[] data, JsonCodec<T> codec) throws IOException {
+    return codec.read(new JsonReader(data, 0, data.length));
+  }
+}
@@ -0,0 +1,305 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jebtk.core.text.TextUtils;
+
+/**
+ * A JSON array of numbers stored in a double array rather than as individual
+ * Json objects. {@link JsonParser} creates these for arrays whose elements are
+ * all numbers, at least one of which is not an int. Elements are wrapped in a
+ * Json number only when accessed with {@link #get(int)}. Adding a value that
+ * is not a number stores the elements as Json from then on.
+ *
+ * @author Antony Holmes
+ */
+public class JsonDoubleArray extends JsonArray {
+
+  /** The values. */
+  private double[] mValues;
+
+  /** The number of values. */
+  private int mSize;
+
+  /**
+   * Instantiates a new empty json double array.
+   */
+  public JsonDoubleArray() {
+    this(new double[16], 0);
+  }
+
+  /**
+   * Instantiates a new json double array that uses an array directly.
+   *
+   * @param values the values
+   */
+  public JsonDoubleArray(double[] values) {
+    this(values, values.length);
+  }
+
+  /**
+   * Instantiates a new json double array that uses the first n entries of an
+   * array directly.
+   *
+   * @param values the values
+   * @param n      the n
+   */
+  public JsonDoubleArray(double[] values, int n) {
+    super(null);
+
+    mValues = values;
+    mSize = n;
+  }
+
+  /**
+   * Add a value. Adding a value that is not a number moves the elements into the
+   * list of the {@link JsonArray}, after which the array behaves as a normal
+   * one.
+   */
+  @Override
+  public Json add(Json value) {
+    if (mValues != null && (value instanceof JsonDouble || value instanceof JsonInteger || value instanceof JsonLong)) {
+      return add(value.getDouble());
+    }
+
+    toGeneric();
+
+    return super.add(value);
+  }
+
+  @Override
+  public Json add(double value) {
+    if (mValues == null) {
+      return super.add(value);
+    }
+
+    if (mSize == mValues.length) {
+      mValues = Arrays.copyOf(mValues, Math.max(16, mSize * 2));
+    }
+
+    mValues[mSize++] = value;
+
+    mJson = null;
+
+    return this;
+  }
+
+  @Override
+  public Json add(int value) {
+    return add((double) value);
+  }
+
+  @Override
+  public Json get(int index) {
+    if (mValues == null) {
+      return super.get(index);
+    }
+
+    if (index < 0 || index > mSize - 1) {
+      return null;
+    }
+
+    return JsonLexer.doubleToJson(mValues[index]);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    if (mValues == null) {
+      return super.getDouble(index);
+    }
+
+    if (index < 0 || index > mSize - 1) {
+      return Double.NaN;
+    }
+
+    return mValues[index];
+  }
+
+  @Override
+  public int size() {
+    if (mValues == null) {
+      return super.size();
+    }
+
+    return mSize;
+  }
+
+  /**
+   * Returns the backing array. The array is trimmed to the number of elements
+   * first if needed, so after the first call (or always for arrays created by
+   * the parser) no copy is made. Changes to the array are visible in the Json.
+   *
+   * @return the double[]
+   */
+  @Override
+  public double[] toDoubleArray() {
+    if (mValues == null) {
+      return super.toDoubleArray();
+    }
+
+    if (mValues.length != mSize) {
+      mValues = Arrays.copyOf(mValues, mSize);
+    }
+
+    return mValues;
+  }
+
+  @Override
+  public void toJson(Appendable buffer) throws IOException {
+    if (mValues == null) {
+      super.toJson(buffer);
+
+      return;
+    }
+
+    if (mJson != null) {
+      buffer.append(mJson);
+
+      return;
+    }
+
+    buffer.append(JsonBuilder.JSON_ARRAY_START);
+
+    for (int i = 0; i < mSize; ++i) {
+      if (i > 0) {
+        buffer.append(JsonBuilder.JSON_ARRAY_DELIMITER);
+      }
+
+      append(mValues[i], buffer);
+    }
+
+    buffer.append(JsonBuilder.JSON_ARRAY_END);
+  }
+
+  @Override
+  public void prettyJson(Appendable buffer, int level) throws IOException {
+    if (mValues == null) {
+      super.prettyJson(buffer, level);
+
+      return;
+    }
+
+    String indentation = indentation(level);
+    String indentation2 = indentation(level + 1);
+
+    buffer.append(JsonBuilder.JSON_ARRAY_START);
+    buffer.append(TextUtils.NEW_LINE);
+
+    for (int i = 0; i < mSize; ++i) {
+      buffer.append(indentation2);
+
+      append(mValues[i], buffer);
+
+      if (i < mSize - 1) {
+        buffer.append(JsonBuilder.JSON_ARRAY_DELIMITER);
+      }
+
+      buffer.append(TextUtils.NEW_LINE);
+    }
+
+    buffer.append(indentation);
+    buffer.append(JsonBuilder.JSON_ARRAY_END);
+  }
+
+  /**
+   * Unlike other containers, the string is not cached since the backing array
+   * can be modified directly.
+   */
+  @Override
+  public String toString() {
+    if (mValues == null) {
+      return super.toString();
+    }
+
+    StringBuilder buffer = new StringBuilder();
+
+    try {
+      toJson(buffer);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+
+    return buffer.toString();
+  }
+
+  @Override
+  public Iterator<Json> iterator() {
+    if (mValues == null) {
+      return super.iterator();
+    }
+
+    return new Iterator<Json>() {
+      private int mI = 0;
+
+      @Override
+      public boolean hasNext() {
+        return mI < mSize;
+      }
+
+      @Override
+      public Json next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        return get(mI++);
+      }
+    };
+  }
+
+  /**
+   * Write a number in the same form as the equivalent Json object, so that
+   * integral values are written without a decimal point.
+   *
+   * @param v      the v
+   * @param buffer the buffer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  static void append(double v, Appendable buffer) throws IOException {
+    if (v == Math.rint(v) && v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+      buffer.append(Integer.toString((int) v));
+    } else {
+      buffer.append(Double.toString(v));
+    }
+  }
+
+  /**
+   * Move the values into a list of Json elements, if not already done.
+   */
+  private void toGeneric() {
+    if (mValues == null) {
+      return;
+    }
+
+    List<Json> elements = new ArrayList<Json>(mSize + 1);
+
+    for (int i = 0; i < mSize; ++i) {
+      elements.add(JsonLexer.doubleToJson(mValues[i]));
+    }
+
+    mValues = null;
+    mSize = 0;
+
+    setElements(elements);
+  }
+}
@@ -0,0 +1,768 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.jebtk.core.ColorUtils;
+
+/**
+ * Splits UTF-8 encoded JSON into tokens working directly on bytes. Strings and
+ * numbers are located by scanning the byte buffer in tight loops and strings
+ * are decoded straight from the buffer, so no per character processing or
+ * intermediate buffers are needed in the common case. Data is either read in
+ * blocks from a stream or taken from an existing byte array.
+ *
+ * @author Antony Holmes
+ */
+class JsonLexer {
+
+  /** A bare token that is a string. */
+  public static final int BARE_STRING = 0;
+
+  /** The true literal. */
+  public static final int BARE_TRUE = 1;
+
+  /** The false literal. */
+  public static final int BARE_FALSE = 2;
+
+  /** The null literal. */
+  public static final int BARE_NULL = 3;
+
+  /** An integer that fits in a long. */
+  public static final int BARE_LONG = 4;
+
+  /** A floating point number. */
+  public static final int BARE_DOUBLE = 5;
+
+  /** Exact powers of ten for the fast double path. */
+  private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13,
+      1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+  /** The stream, or null if parsing a fixed array. */
+  private InputStream mIn = null;
+
+  /** The buffer owned by the lexer for reading streams. */
+  private byte[] mStreamBuffer;
+
+  /** The current buffer. */
+  private byte[] mBuffer;
+
+  /** The position of the next unread byte. */
+  private int mPos = 0;
+
+  /** One past the last valid byte in the buffer. */
+  private int mLimit = 0;
+
+  /** Start of the token being read, which must be kept when refilling. */
+  private int mMark = -1;
+
+  /** The number of bytes discarded from the front of the buffer. */
+  private long mOffset = 0;
+
+  /** Used for strings containing escapes. */
+  private final StringBuilder mChars = new StringBuilder();
+
+  /** Start of the last bare token. */
+  private int mTokenStart;
+
+  /** End of the last bare token. */
+  private int mTokenEnd;
+
+  /** The last number read. */
+  private long mLong;
+
+  /** The last number read. */
+  private double mDouble;
+
+  /**
+   * Instantiates a new json lexer.
+   *
+   * @param bufferSize the initial size of the stream buffer.
+   */
+  public JsonLexer(int bufferSize) {
+    mStreamBuffer = new byte[Math.max(16, bufferSize)];
+    mBuffer = mStreamBuffer;
+  }
+
+  /**
+   * Read tokens from a stream.
+   *
+   * @param in the in
+   */
+  public void reset(InputStream in) {
+    mIn = in;
+    mBuffer = mStreamBuffer;
+    mPos = 0;
+    mLimit = 0;
+    mMark = -1;
+    mOffset = 0;
+  }
+
+  /**
+   * Read tokens from a byte array. The array is not copied.
+   *
+   * @param data   the data
+   * @param offset the offset
+   * @param length the length
+   */
+  public void reset(byte[] data, int offset, int length) {
+    mIn = null;
+    mBuffer = data;
+    mPos = offset;
+    mLimit = offset + length;
+    mMark = -1;
+    mOffset = 0;
+  }
+
+  /**
+   * Read more data into the buffer, keeping any bytes from the mark onwards.
+   *
+   * @return true if more data was read.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private boolean fill() throws IOException {
+    if (mIn == null) {
+      return false;
+    }
+
+    int keep = mMark >= 0 ? mMark : mPos;
+
+    if (keep > 0) {
+      System.arraycopy(mBuffer, keep, mBuffer, 0, mLimit - keep);
+
+      mPos -= keep;
+      mLimit -= keep;
+      mOffset += keep;
+
+      if (mMark >= 0) {
+        mMark -= keep;
+      }
+    }
+
+    if (mLimit == mBuffer.length) {
+      // A single token is larger than the buffer
+      byte[] b = new byte[mBuffer.length * 2];
+      System.arraycopy(mBuffer, 0, b, 0, mLimit);
+      mBuffer = b;
+      mStreamBuffer = b;
+    }
+
+    int n = mIn.read(mBuffer, mLimit, mBuffer.length - mLimit);
+
+    if (n <= 0) {
+      return false;
+    }
+
+    mLimit += n;
+
+    return true;
+  }
+
+  /**
+   * Returns the next non whitespace byte without consuming it, or -1 if the
+   * end of the data has been reached.
+   *
+   * @return the int
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public int peek() throws IOException {
+    while (true) {
+      byte[] buffer = mBuffer;
+      int limit = mLimit;
+      int i = mPos;
+
+      while (i < limit) {
+        byte b = buffer[i];
+
+        if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+          ++i;
+        } else {
+          mPos = i;
+          return b & 0xff;
+        }
+      }
+
+      mPos = i;
+
+      if (!fill()) {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * Consume the byte returned by {@link #peek()}.
+   */
+  public void skip() {
+    ++mPos;
+  }
+
+  /**
+   * Returns the position of the next byte in the data.
+   *
+   * @return the position
+   */
+  public long getPosition() {
+    return mOffset + mPos;
+  }
+
+  /**
+   * Read the next byte, which must exist.
+   *
+   * @return the int
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private int read() throws IOException {
+    if (mPos == mLimit && !fill()) {
+      throw error("Unexpected end of JSON");
+    }
+
+    return mBuffer[mPos++] & 0xff;
+  }
+
+  /**
+   * Read a string. The next byte must be the opening quotation mark.
+   *
+   * @return the string
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public String readString() throws IOException {
+    // skip the quote
+    ++mPos;
+
+    mMark = mPos;
+
+    boolean escaped = false;
+
+    while (true) {
+      // Bulk scan for the end of the string or an escape
+      byte[] buffer = mBuffer;
+      int limit = mLimit;
+      int i = mPos;
+      byte b = 0;
+
+      while (i < limit && (b = buffer[i]) != '"' && b != '\\') {
+        ++i;
+      }
+
+      mPos = i;
+
+      if (i == limit) {
+        if (!fill()) {
+          throw error("Unterminated string");
+        }
+
+        continue;
+      }
+
+      if (b == '"') {
+        String ret;
+
+        if (escaped) {
+          appendSegment();
+          ret = mChars.toString();
+        } else {
+          ret = new String(mBuffer, mMark, mPos - mMark, StandardCharsets.UTF_8);
+        }
+
+        ++mPos;
+        mMark = -1;
+
+        return ret;
+      }
+
+      // An escape
+      if (!escaped) {
+        mChars.setLength(0);
+        escaped = true;
+      }
+
+      appendSegment();
+
+      ++mPos;
+
+      mChars.append(readEscape());
+
+      mMark = mPos;
+    }
+  }
+
+  /**
+   * Skip over a string without decoding it. The next byte must be the opening
+   * quotation mark.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void skipString() throws IOException {
+    ++mPos;
+
+    while (true) {
+      byte[] buffer = mBuffer;
+      int limit = mLimit;
+      int i = mPos;
+      byte b = 0;
+
+      while (i < limit && (b = buffer[i]) != '"' && b != '\\') {
+        ++i;
+      }
+
+      mPos = i;
+
+      if (i == limit) {
+        if (!fill()) {
+          throw error("Unterminated string");
+        }
+
+        continue;
+      }
+
+      ++mPos;
+
+      if (b == '"') {
+        return;
+      }
+
+      // Skip the escaped character. The hex digits of a unicode escape
+      // cannot be quotes so they are skipped as normal characters.
+      read();
+    }
+  }
+
+  /**
+   * Skip over an unquoted token.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void skipBare() throws IOException {
+    while (true) {
+      byte[] buffer = mBuffer;
+      int limit = mLimit;
+      int i = mPos;
+
+      while (i < limit && !isDelimiter(buffer[i])) {
+        ++i;
+      }
+
+      mPos = i;
+
+      if (i < limit || !fill()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Decode the bytes between the mark and the current position and append
+   * them to the char buffer. Segments always end at an ASCII character so a
+   * multi-byte sequence is never split.
+   */
+  private void appendSegment() {
+    int l = mPos - mMark;
+
+    if (l > 0) {
+      mChars.append(new String(mBuffer, mMark, l, StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Decode the character following a backslash.
+   *
+   * @return the char
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private char readEscape() throws IOException {
+    int c = read();
+
+    switch (c) {
+    case 'b':
+      return '\b';
+    case 'f':
+      return '\f';
+    case 'n':
+      return '\n';
+    case 'r':
+      return '\r';
+    case 't':
+      return '\t';
+    case 'u':
+      int v = 0;
+
+      for (int i = 0; i < 4; ++i) {
+        int h = Character.digit(read(), 16);
+
+        if (h == -1) {
+          throw error("Invalid unicode escape");
+        }
+
+        v = (v << 4) | h;
+      }
+
+      return (char) v;
+    default:
+      // Any other character, including \ " and /, is itself. This is more
+      // lenient than the JSON spec.
+      return (char) c;
+    }
+  }
+
+  /**
+   * Read an unquoted token (a number, literal or bare word) up to the next
+   * structural character or whitespace.
+   *
+   * @return the token type, e.g. {@link #BARE_LONG}.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public int readBare() throws IOException {
+    mMark = mPos;
+
+    while (true) {
+      byte[] buffer = mBuffer;
+      int limit = mLimit;
+      int i = mPos;
+
+      while (i < limit && !isDelimiter(buffer[i])) {
+        ++i;
+      }
+
+      mPos = i;
+
+      if (i < limit || !fill()) {
+        break;
+      }
+    }
+
+    mTokenStart = mMark;
+    mTokenEnd = mPos;
+    mMark = -1;
+
+    return classify();
+  }
+
+  /**
+   * Work out what kind of value the current bare token is.
+   *
+   * @return the int
+   */
+  private int classify() {
+    int l = mTokenEnd - mTokenStart;
+
+    if (l == 0) {
+      return BARE_STRING;
+    }
+
+    byte b = mBuffer[mTokenStart];
+
+    if (b == '-' || (b >= '0' && b <= '9')) {
+      int type = parseNumber(mBuffer, mTokenStart, mTokenEnd);
+
+      if (type != BARE_STRING) {
+        return type;
+      }
+    } else if (matches("true")) {
+      return BARE_TRUE;
+    } else if (matches("false")) {
+      return BARE_FALSE;
+    } else if (matches("null")) {
+      return BARE_NULL;
+    }
+
+    return BARE_STRING;
+  }
+
+  /**
+   * Test whether the current bare token equals an ASCII word.
+   *
+   * @param word the word
+   * @return true, if successful
+   */
+  private boolean matches(String word) {
+    if (mTokenEnd - mTokenStart != word.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < word.length(); ++i) {
+      if (mBuffer[mTokenStart + i] != word.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Parse a number directly from bytes. Integers are accumulated into a long
+   * and decimals with up to 15 significant digits and small exponents are
+   * computed exactly with a single multiplication or division. Anything else
+   * falls back to {@link Double#parseDouble(String)}.
+   *
+   * @param buffer the buffer
+   * @param start  the start
+   * @param end    the end
+   * @return {@link #BARE_LONG}, {@link #BARE_DOUBLE} or {@link #BARE_STRING} if
+   *         the bytes are not a valid number.
+   */
+  private int parseNumber(byte[] buffer, int start, int end) {
+    int i = start;
+
+    boolean neg = buffer[i] == '-';
+
+    if (neg) {
+      ++i;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int exp10 = 0;
+    boolean integral = true;
+    boolean slow = false;
+
+    int intStart = i;
+
+    while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+      if (digits < 18) {
+        mantissa = mantissa * 10 + (buffer[i] - '0');
+
+        if (mantissa > 0) {
+          ++digits;
+        }
+      } else {
+        slow = true;
+      }
+
+      ++i;
+    }
+
+    if (i == intStart) {
+      return BARE_STRING;
+    }
+
+    if (i < end && buffer[i] == '.') {
+      integral = false;
+      ++i;
+
+      int fracStart = i;
+
+      while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+        if (digits < 18) {
+          mantissa = mantissa * 10 + (buffer[i] - '0');
+          --exp10;
+
+          if (mantissa > 0) {
+            ++digits;
+          }
+        } else {
+          slow = true;
+        }
+
+        ++i;
+      }
+
+      if (i == fracStart) {
+        return BARE_STRING;
+      }
+    }
+
+    if (i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+      integral = false;
+      ++i;
+
+      boolean expNeg = false;
+
+      if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+        expNeg = buffer[i] == '-';
+        ++i;
+      }
+
+      int expStart = i;
+      int e = 0;
+
+      while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+        if (e < 10000) {
+          e = e * 10 + (buffer[i] - '0');
+        }
+
+        ++i;
+      }
+
+      if (i == expStart) {
+        return BARE_STRING;
+      }
+
+      exp10 += expNeg ? -e : e;
+    }
+
+    if (i != end) {
+      return BARE_STRING;
+    }
+
+    if (integral && !slow) {
+      mLong = neg ? -mantissa : mantissa;
+      return BARE_LONG;
+    }
+
+    if (integral) {
+      // More than 18 digits, may still fit in a long
+      String s = new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+
+      try {
+        mLong = Long.parseLong(s);
+        return BARE_LONG;
+      } catch (NumberFormatException ex) {
+        mDouble = Double.parseDouble(s);
+        return BARE_DOUBLE;
+      }
+    }
+
+    if (!slow && digits <= 15 && exp10 >= -22 && exp10 <= 22) {
+      double d = mantissa;
+
+      d = exp10 < 0 ? d / POW10[-exp10] : d * POW10[exp10];
+
+      mDouble = neg ? -d : d;
+    } else {
+      mDouble = Double.parseDouble(new String(buffer, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+
+    return BARE_DOUBLE;
+  }
+
+  /**
+   * Returns the value of the last {@link #BARE_LONG} token.
+   *
+   * @return the long
+   */
+  public long getLong() {
+    return mLong;
+  }
+
+  /**
+   * Returns the value of the last {@link #BARE_DOUBLE} token.
+   *
+   * @return the double
+   */
+  public double getDouble() {
+    return mDouble;
+  }
+
+  /**
+   * Returns the text of the last bare token.
+   *
+   * @return the bare string
+   */
+  public String getBareString() {
+    return new String(mBuffer, mTokenStart, mTokenEnd - mTokenStart, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Convert the last bare token into a Json value in the same way as the
+   * character based {@link JsonParser}: integral numbers become
+   * {@link JsonInteger} (or {@link JsonLong} if they are too large), other
+   * numbers {@link JsonDouble}, and unquoted words are either colors or
+   * strings.
+   *
+   * @param type the token type returned by {@link #readBare()}
+   * @return the json or null for the null literal.
+   */
+  public Json toJson(int type) {
+    switch (type) {
+    case BARE_TRUE:
+      return new JsonBoolean(true);
+    case BARE_FALSE:
+      return new JsonBoolean(false);
+    case BARE_NULL:
+      return null;
+    case BARE_LONG:
+      return longToJson(mLong);
+    case BARE_DOUBLE:
+      return doubleToJson(mDouble);
+    default:
+      String s = getBareString();
+
+      if (ColorUtils.isHtmlColor(s)) {
+        return new JsonColor(ColorUtils.decodeHtmlColor(s));
+      } else {
+        return new JsonString(s);
+      }
+    }
+  }
+
+  /**
+   * Wrap a long in the smallest Json number type.
+   *
+   * @param v the v
+   * @return the json
+   */
+  public static Json longToJson(long v) {
+    if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+      return new JsonInteger((int) v);
+    } else {
+      return new JsonLong(v);
+    }
+  }
+
+  /**
+   * Wrap a double in a Json number. For compatibility with the character
+   * parser, integral values such as 2.0 are stored as ints.
+   *
+   * @param v the v
+   * @return the json
+   */
+  public static Json doubleToJson(double v) {
+    if (v == Math.rint(v) && v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+      return new JsonInteger((int) v);
+    } else {
+      return new JsonDouble(v);
+    }
+  }
+
+  /**
+   * Create an exception for a syntax error at the current position.
+   *
+   * @param message the message
+   * @return the IO exception
+   */
+  public IOException error(String message) {
+    return new IOException(message + " at byte " + getPosition() + ".");
+  }
+
+  /**
+   * Test whether a byte ends a bare token.
+   *
+   * @param b the b
+   * @return true, if is delimiter
+   */
+  private static boolean isDelimiter(byte b) {
+    switch (b) {
+    case ',':
+    case ':':
+    case ']':
+    case '}':
+    case '[':
+    case '{':
+    case '"':
+    case ' ':
+    case '\n':
+    case '\r':
+    case '\t':
+      return true;
+    default:
+      return false;
+    }
+  }
+}
@@ -17,12 +17,8 @@ package org.jebtk.core.json;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
 
-import org.jebtk.core.collections.IterHashMap;
-import org.jebtk.core.collections.IterMap;
-import org.jebtk.core.collections.UniqueArrayList;
+import org.jebtk.core.collections.CompactHashMap;
 import org.jebtk.core.text.TextUtils;
 
 /**
@@ -35,14 +31,9 @@ public class JsonObject extends JsonContainer {
   // Keep the members sorted alphabetically
 
   /**
-   * The member member names.
+   * The members in the order they were added.
    */
-  private List<String> mMemberNames = new UniqueArrayList<String>();
-
-  /**
-   * The member member map.
-   */
-  private IterMap<String, Json> mMemberMap = new IterHashMap<String, Json>();
+  private final CompactHashMap<String, Json> mMembers = new CompactHashMap<String, Json>();
 
   /**
    * Instantiates a new json object.
@@ -67,7 +58,7 @@ public class JsonObject extends JsonContainer {
    */
   @Override
   public Json get(int i) {
-    return get(mMemberNames.get(i));
+    return mMembers.valueAt(i);
   }
 
   /*
@@ -77,7 +68,7 @@ public class JsonObject extends JsonContainer {
    */
   @Override
   public Json get(String name) {
-    return mMemberMap.get(name);
+    return mMembers.get(name);
   }
 
   /*
@@ -102,9 +93,7 @@ public class JsonObject extends JsonContainer {
    */
   @Override
   public Json add(String name, Json value) {
-    mMemberNames.add(name);
-
-    mMemberMap.put(name, value);
+    mMembers.put(name, value);
 
     mJson = null;
 
@@ -131,7 +120,7 @@ public class JsonObject extends JsonContainer {
    */
   @Override
   public boolean containsKey(String key) {
-    return mMemberMap.containsKey(key);
+    return mMembers.containsKey(key);
   }
 
   /*
@@ -141,7 +130,7 @@ public class JsonObject extends JsonContainer {
    */
   @Override
   public Collection<String> getKeys() {
-    return Collections.unmodifiableList(mMemberNames);
+    return mMembers.keyList();
   }
 
   /*
@@ -151,7 +140,7 @@ public class JsonObject extends JsonContainer {
    */
   @Override
   public int size() {
-    return mMemberMap.size();
+    return mMembers.size();
   }
 
   /*
@@ -163,14 +152,14 @@ public class JsonObject extends JsonContainer {
   public void toJson(Appendable buffer) throws IOException {
     buffer.append(JsonBuilder.JSON_OBJECT_START);
 
-    int c = 0;
-
-    Json v = null;
+    int n = mMembers.size();
 
-    for (String name : mMemberNames) {
-      v = mMemberMap.get(name);
+    for (int c = 0; c < n; ++c) {
+      String name = mMembers.keyAt(c);
+      Json v = mMembers.valueAt(c);
 
-      buffer.append(TextUtils.quote(JsonString.escape(name))).append(JsonBuilder.JSON_VALUE_DELIMITER);
+      JsonString.escapeAndQuote(name, buffer);
+      buffer.append(JsonBuilder.JSON_VALUE_DELIMITER);
 
       if (v == null) {
         buffer.append(JsonBuilder.JSON_NULL);
@@ -178,11 +167,9 @@ public class JsonObject extends JsonContainer {
         v.toJson(buffer);
       }
 
-      if (c < mMemberNames.size() - 1) {
+      if (c < n - 1) {
         buffer.append(JsonBuilder.JSON_ARRAY_DELIMITER);
       }
-
-      c += 1;
     }
 
     buffer.append(JsonBuilder.JSON_OBJECT_END);
@@ -208,16 +195,14 @@ public class JsonObject extends JsonContainer {
     buffer.append(JsonBuilder.JSON_OBJECT_START);
     buffer.append(TextUtils.NEW_LINE);
 
-    int c = 0;
+    int n = mMembers.size();
 
-    Json v = null;
-
-    for (String name : mMemberNames) {
-      v = mMemberMap.get(name);
+    for (int c = 0; c < n; ++c) {
+      String name = mMembers.keyAt(c);
+      Json v = mMembers.valueAt(c);
 
       buffer.append(indentation2);
-      JsonBuilder.quote(JsonString.escape(name), buffer);
-      // buffer.append(JsonBuilder.quote(JsonString.escape(name)));
+      JsonString.escapeAndQuote(name, buffer);
       buffer.append(JsonBuilder.JSON_VALUE_DELIMITER);
       // buffer.append(TextUtils.SPACE_DELIMITER);
 
@@ -227,13 +212,11 @@ public class JsonObject extends JsonContainer {
         v.prettyJson(buffer, level + 1);
       }
 
-      if (c < mMemberNames.size() - 1) {
+      if (c < n - 1) {
         buffer.append(TextUtils.FORMATTED_COMMA_DELIMITER);
       }
 
       buffer.append(TextUtils.NEW_LINE);
-
-      c += 1;
     }
 
     buffer.append(indentation);
@@ -267,6 +250,6 @@ public class JsonObject extends JsonContainer {
 
   @Override
   public String toString() {
-    return mMemberNames.toString();
+    return mMembers.keyList().toString();
   }
 }
\ No newline at end of file
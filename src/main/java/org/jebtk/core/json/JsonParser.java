@@ -23,6 +23,7 @@ import java.net.URLConnection;
 import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 
 import org.jebtk.core.ColorUtils;
@@ -81,6 +82,12 @@ public class JsonParser {
 
   private byte[] mByteBuffer = StreamUtils.createBuffer();
 
+  /** The byte lexer used for streams. */
+  private JsonLexer mLexer = null;
+
+  /** Scratch space for reading numeric arrays. */
+  private double[] mNumbers = new double[64];
+
   /**
    * Keep track of previously read character.
    */
@@ -168,22 +175,278 @@ public class JsonParser {
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public Json parse(InputStream in) throws IOException {
-    reset();
+    JsonLexer lexer = getLexer();
+
+    try {
+      lexer.reset(in);
+
+      return parse(lexer);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Parse UTF-8 encoded JSON from a byte array.
+   *
+   * @param data   the data
+   * @param offset the offset
+   * @param length the length
+   * @return the json
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public Json parse(byte[] data, int offset, int length) throws IOException {
+    JsonLexer lexer = getLexer();
+
+    lexer.reset(data, offset, length);
+
+    return parse(lexer);
+  }
+
+  /**
+   * Returns the byte lexer, creating it on first use so that parsers used
+   * only for strings do not allocate it.
+   *
+   * @return the lexer
+   */
+  private JsonLexer getLexer() {
+    if (mLexer == null) {
+      mLexer = new JsonLexer(mByteBuffer.length);
+    }
+
+    return mLexer;
+  }
+
+  /**
+   * Build a JSON tree from UTF-8 bytes. Strings are decoded directly from the
+   * byte buffer and numbers are parsed without creating intermediate strings.
+   * Quoted values are typed in the same way as by the character parser, so
+   * {@code "2"} is an int. Parsing stops once the first complete value has
+   * been read.
+   *
+   * @param lexer the lexer
+   * @return the json
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private Json parse(JsonLexer lexer) throws IOException {
+    mElementStack.clear();
+
+    Json root = null;
+    Json container = null;
+    String name = null;
+
+    // Whether the next string in an object is a member name
+    boolean expectName = false;
 
     int c;
 
-    try {
-      // Read blocks of data for speed
-      while ((c = in.read(mByteBuffer)) != -1) {
-        for (int i = 0; i < c; ++i) {
-          parse((char) mByteBuffer[i]);
+    while ((c = lexer.peek()) != -1) {
+      switch (c) {
+      case JsonBuilder.JSON_OBJECT_START:
+      case JsonBuilder.JSON_ARRAY_START:
+        lexer.skip();
+
+        Json o = c == JsonBuilder.JSON_OBJECT_START ? new JsonObject() : readArray(lexer);
+
+        if (container == null) {
+          root = o;
+        } else {
+          addJsonValue(container, name, o);
+        }
+
+        name = null;
+
+        if (o instanceof JsonIntArray || o instanceof JsonDoubleArray) {
+          // Numeric arrays are read completely by readArray()
+          if (container == null) {
+            return root;
+          }
+
+          break;
+        }
+
+        mElementStack.push(o);
+        container = o;
+        expectName = c == JsonBuilder.JSON_OBJECT_START;
+
+        break;
+      case JsonBuilder.JSON_OBJECT_END:
+      case JsonBuilder.JSON_ARRAY_END:
+        lexer.skip();
+
+        if (!mElementStack.isEmpty()) {
+          mElementStack.pop();
         }
+
+        if (mElementStack.isEmpty()) {
+          return root;
+        }
+
+        container = mElementStack.peek();
+        name = null;
+        expectName = false;
+
+        break;
+      case JsonBuilder.JSON_ARRAY_DELIMITER:
+        lexer.skip();
+
+        expectName = container instanceof JsonObject;
+
+        break;
+      case JsonBuilder.JSON_VALUE_DELIMITER:
+        lexer.skip();
+
+        expectName = false;
+
+        break;
+      case JsonBuilder.JSON_QUOTATION:
+        String s = lexer.readString();
+
+        if (expectName) {
+          name = s;
+          expectName = false;
+        } else if (container == null) {
+          return stringToJson(s);
+        } else {
+          addJsonValue(container, name, stringToJson(s));
+          name = null;
+        }
+
+        break;
+      default:
+        Json v = lexer.toJson(lexer.readBare());
+
+        if (expectName) {
+          // lenient: allow unquoted names
+          name = v != null ? v.getString() : TextUtils.NULL;
+          expectName = false;
+        } else if (container == null) {
+          return v;
+        } else {
+          addJsonValue(container, name, v);
+          name = null;
+        }
+
+        break;
       }
-    } finally {
-      in.close();
     }
 
-    return getJson();
+    return root;
+  }
+
+  /**
+   * Read the start of an array. If every element is a number, the whole array
+   * is read into a {@link JsonIntArray} or {@link JsonDoubleArray} so that no
+   * Json object is created per element. Otherwise a {@link JsonArray} holding
+   * the leading numbers is returned and parsing continues from the first
+   * element that is not a number.
+   *
+   * @param lexer the lexer, positioned after the opening bracket.
+   * @return the json array
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private JsonArray readArray(JsonLexer lexer) throws IOException {
+    int n = 0;
+    boolean ints = true;
+
+    // A token that was read but is not a number
+    int pending = -1;
+
+    int c = lexer.peek();
+
+    while (c == '-' || (c >= '0' && c <= '9')) {
+      int type = lexer.readBare();
+
+      double v;
+
+      if (type == JsonLexer.BARE_LONG) {
+        long l = lexer.getLong();
+
+        v = l;
+
+        if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+          ints = false;
+
+          if ((long) v != l) {
+            // too large to store exactly as a double
+            pending = type;
+            break;
+          }
+        }
+      } else if (type == JsonLexer.BARE_DOUBLE) {
+        v = lexer.getDouble();
+        ints = false;
+      } else {
+        pending = type;
+        break;
+      }
+
+      if (n == mNumbers.length) {
+        mNumbers = Arrays.copyOf(mNumbers, n * 2);
+      }
+
+      mNumbers[n++] = v;
+
+      c = lexer.peek();
+
+      if (c == JsonBuilder.JSON_ARRAY_DELIMITER) {
+        lexer.skip();
+        c = lexer.peek();
+      } else if (c == JsonBuilder.JSON_ARRAY_END) {
+        lexer.skip();
+
+        if (ints) {
+          int[] values = new int[n];
+
+          for (int i = 0; i < n; ++i) {
+            values[i] = (int) mNumbers[i];
+          }
+
+          return new JsonIntArray(values);
+        } else {
+          return new JsonDoubleArray(Arrays.copyOf(mNumbers, n));
+        }
+      } else {
+        break;
+      }
+    }
+
+    // Not a numeric array so fall back to individual values
+
+    JsonArray ret = new JsonArray();
+
+    for (int i = 0; i < n; ++i) {
+      double v = mNumbers[i];
+
+      if (ints) {
+        ret.add(new JsonInteger((int) v));
+      } else if (v == Math.rint(v) && Math.abs(v) < Long.MAX_VALUE) {
+        ret.add(JsonLexer.longToJson((long) v));
+      } else {
+        ret.add(new JsonDouble(v));
+      }
+    }
+
+    if (pending != -1) {
+      ret.add(lexer.toJson(pending));
+    }
+
+    return ret;
+  }
+
+  /**
+   * Add a value to an object or array.
+   *
+   * @param container the container
+   * @param name      the name if the container is an object.
+   * @param value     the value
+   */
+  private static void addJsonValue(Json container, String name, Json value) {
+    if (name != null) {
+      container.add(name, value);
+    } else {
+      container.add(value);
+    }
   }
 
   /**
@@ -475,19 +738,16 @@ public class JsonParser {
   }
 
   /**
-   * Add the appropriate JSON value to the current structure.
+   * Convert the text of a value to the appropriate JSON type. Quoted values
+   * are classified in the same way as bare ones, so {@code "2"} is an int and
+   * {@code "#ff0000"} a color, on both the character and the byte paths.
+   *
+   * @param s the s
+   * @return the json, or null for the text null.
    */
-  private void addJsonValue() {
-    if (mCurrentName == null && mBuffer.length() == 0) {
-      return;
-    }
-
-    // System.err.println("add " + mCurrentName + " " + mBuffer);
-
+  static Json stringToJson(String s) {
     Json value = null;
 
-    String s = mBuffer.toString();
-
     if (s.length() == 0) {
       // If the buffer is zero length, it means we have an zero
       // length string
@@ -512,6 +772,21 @@ public class JsonParser {
       value = new JsonString(s);
     }
 
+    return value;
+  }
+
+  /**
+   * Add the appropriate JSON value to the current structure.
+   */
+  private void addJsonValue() {
+    if (mCurrentName == null && mBuffer.length() == 0) {
+      return;
+    }
+
+    // System.err.println("add " + mCurrentName + " " + mBuffer);
+
+    Json value = stringToJson(mBuffer.toString());
+
     if (mCurrentName != null) {
       // we are adding a field to an object
       mElementStack.peek().add(mCurrentName.toString(), value);
@@ -0,0 +1,1039 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A compiled JSONPath style query. The supported subset is
+ *
+ * <ul>
+ * <li>{@code $} the root (optional)</li>
+ * <li>{@code .name} or {@code ['name']} an object member</li>
+ * <li>{@code [n]} an array element; negative indices count from the end when
+ * querying trees</li>
+ * <li>{@code .*} or {@code [*]} every member or element</li>
+ * <li>{@code [?(@.a.b > 2 && @.c == 'x')]} every member or element for which
+ * the filter is true. Filters compare a relative path with a number, string,
+ * true, false or null using ==, !=, &lt;, &lt;=, &gt; or &gt;=, or test that a
+ * relative path exists. Comparisons can be combined with {@code &&} and
+ * {@code ||}.</li>
+ * </ul>
+ *
+ * For example {@code $.genes[*].exons[0].start} or
+ * {@code $.genes[?(@.chr == 'chr3')].symbol}.
+ *
+ * A path can be evaluated against a {@link Json} tree or against a
+ * {@link JsonReader}, in which case members and elements that cannot match
+ * are skipped by the reader without being decoded, and only matched values
+ * are built as Json. Filters need their candidate to be built in order to be
+ * tested, so memory use is bounded by the largest candidate rather than by the
+ * size of the input. If the reader holds several concatenated documents, for
+ * example NDJSON, the path is applied to each in turn.
+ *
+ * Paths are immutable and can be shared between threads.
+ *
+ * @author Antony Holmes
+ */
+public class JsonPath {
+
+  /** Comparison operators. */
+  private static final int EXISTS = 0;
+  private static final int EQ = 1;
+  private static final int NE = 2;
+  private static final int LT = 3;
+  private static final int LE = 4;
+  private static final int GT = 5;
+  private static final int GE = 6;
+
+  /** Marker for the null literal. */
+  private static final Object NULL = new Object();
+
+  /**
+   * A step in a path that selects some children of an object or array.
+   */
+  private abstract static class Step {
+
+    /**
+     * Whether the step can match object members.
+     *
+     * @return true, if successful
+     */
+    public boolean members() {
+      return true;
+    }
+
+    /**
+     * Whether the step can match array elements.
+     *
+     * @return true, if successful
+     */
+    public boolean elements() {
+      return true;
+    }
+
+    /**
+     * Whether a member name matches.
+     *
+     * @param name the name
+     * @return true, if successful
+     */
+    public boolean matches(String name) {
+      return true;
+    }
+
+    /**
+     * Whether an array index matches.
+     *
+     * @param index the index
+     * @return true, if successful
+     */
+    public boolean matches(int index) {
+      return true;
+    }
+
+    /**
+     * Whether a selected child passes the step. Only filters look at the
+     * child itself.
+     *
+     * @param json the json
+     * @return true, if successful
+     */
+    public boolean test(Json json) {
+      return true;
+    }
+  }
+
+  /**
+   * Selects a named member.
+   */
+  private static class NameStep extends Step {
+
+    /** The name. */
+    private final String mName;
+
+    /**
+     * Instantiates a new name step.
+     *
+     * @param name the name
+     */
+    public NameStep(String name) {
+      mName = name;
+    }
+
+    @Override
+    public boolean elements() {
+      return false;
+    }
+
+    @Override
+    public boolean matches(String name) {
+      return mName.equals(name);
+    }
+  }
+
+  /**
+   * Selects an array element.
+   */
+  private static class IndexStep extends Step {
+
+    /** The index. */
+    private final int mIndex;
+
+    /**
+     * Instantiates a new index step.
+     *
+     * @param index the index
+     */
+    public IndexStep(int index) {
+      mIndex = index;
+    }
+
+    @Override
+    public boolean members() {
+      return false;
+    }
+
+    @Override
+    public boolean matches(int index) {
+      return index == mIndex;
+    }
+  }
+
+  /**
+   * Selects every child.
+   */
+  private static class WildcardStep extends Step {
+  }
+
+  /**
+   * Selects every child that passes a filter.
+   */
+  private static class FilterStep extends Step {
+
+    /** The filter. */
+    private final Filter mFilter;
+
+    /**
+     * Instantiates a new filter step.
+     *
+     * @param filter the filter
+     */
+    public FilterStep(Filter filter) {
+      mFilter = filter;
+    }
+
+    @Override
+    public boolean test(Json json) {
+      return mFilter.test(json);
+    }
+  }
+
+  /**
+   * A filter expression.
+   */
+  private interface Filter {
+
+    /**
+     * Test.
+     *
+     * @param json the json
+     * @return true, if successful
+     */
+    boolean test(Json json);
+  }
+
+  /**
+   * Compares the value of a relative path with a literal.
+   */
+  private static class Comparison implements Filter {
+
+    /** The path. */
+    private final JsonPath mPath;
+
+    /** The op. */
+    private final int mOp;
+
+    /** The value, a String, Double, Boolean or NULL. */
+    private final Object mValue;
+
+    /**
+     * Instantiates a new comparison.
+     *
+     * @param path  the path
+     * @param op    the op
+     * @param value the value
+     */
+    public Comparison(JsonPath path, int op, Object value) {
+      mPath = path;
+      mOp = op;
+      mValue = value;
+    }
+
+    @Override
+    public boolean test(Json json) {
+      Json v = mPath.first(json);
+
+      if (mOp == EXISTS) {
+        return v != null;
+      }
+
+      if (mValue == NULL) {
+        return mOp == EQ ? v == null : (mOp == NE ? v != null : false);
+      }
+
+      int c;
+
+      if (mValue instanceof Double) {
+        if (!isNumber(v)) {
+          return mOp == NE;
+        }
+
+        c = Double.compare(v.getDouble(), (Double) mValue);
+      } else if (mValue instanceof Boolean) {
+        if (!(v instanceof JsonBoolean)) {
+          return mOp == NE;
+        }
+
+        c = Boolean.compare(v.getBool(), (Boolean) mValue);
+      } else {
+        if (!(v instanceof JsonString)) {
+          return mOp == NE;
+        }
+
+        c = v.getString().compareTo((String) mValue);
+      }
+
+      switch (mOp) {
+      case EQ:
+        return c == 0;
+      case NE:
+        return c != 0;
+      case LT:
+        return c < 0;
+      case LE:
+        return c <= 0;
+      case GT:
+        return c > 0;
+      default:
+        return c >= 0;
+      }
+    }
+  }
+
+  /**
+   * Combines filters with a logical and or a logical or.
+   */
+  private static class Combination implements Filter {
+
+    /** The filters. */
+    private final List<Filter> mFilters;
+
+    /** Whether all or any filters must pass. */
+    private final boolean mAnd;
+
+    /**
+     * Instantiates a new combination.
+     *
+     * @param filters the filters
+     * @param and     the and
+     */
+    public Combination(List<Filter> filters, boolean and) {
+      mFilters = filters;
+      mAnd = and;
+    }
+
+    @Override
+    public boolean test(Json json) {
+      for (Filter f : mFilters) {
+        if (f.test(json) != mAnd) {
+          return !mAnd;
+        }
+      }
+
+      return mAnd;
+    }
+  }
+
+  /** The path text. */
+  private final String mPath;
+
+  /** The steps. */
+  private final Step[] mSteps;
+
+  /** Whether the path can be used with a reader. */
+  private final boolean mStreamable;
+
+  /**
+   * Instantiates a new json path.
+   *
+   * @param path  the path
+   * @param steps the steps
+   */
+  private JsonPath(String path, List<Step> steps) {
+    mPath = path;
+    mSteps = steps.toArray(new Step[steps.size()]);
+
+    boolean streamable = true;
+
+    for (Step step : mSteps) {
+      if (step instanceof IndexStep && ((IndexStep) step).mIndex < 0) {
+        streamable = false;
+      }
+    }
+
+    mStreamable = streamable;
+  }
+
+  /**
+   * Returns every value in a tree selected by the path. Nulls are not
+   * included.
+   *
+   * @param json the json
+   * @return the list
+   */
+  public List<Json> select(Json json) {
+    List<Json> ret = new ArrayList<Json>();
+
+    select(json, 0, ret, false);
+
+    return ret;
+  }
+
+  /**
+   * Returns the first value in a tree selected by the path or null if there is
+   * none.
+   *
+   * @param json the json
+   * @return the json
+   */
+  public Json first(Json json) {
+    List<Json> ret = new ArrayList<Json>(1);
+
+    select(json, 0, ret, true);
+
+    return ret.size() > 0 ? ret.get(0) : null;
+  }
+
+  /**
+   * Returns the first value in a tree selected by the path as a string or
+   * null if there is none.
+   *
+   * @param json the json
+   * @return the string
+   */
+  public String getString(Json json) {
+    Json ret = first(json);
+
+    return ret != null ? ret.getString() : null;
+  }
+
+  /**
+   * Select values from a tree.
+   *
+   * @param json  the json
+   * @param k     the index of the next step
+   * @param ret   the list to add values to
+   * @param first stop after the first value
+   * @return true if searching should stop
+   */
+  private boolean select(Json json, int k, List<Json> ret, boolean first) {
+    if (json == null) {
+      return false;
+    }
+
+    if (k == mSteps.length) {
+      ret.add(json);
+
+      return first;
+    }
+
+    Step step = mSteps[k];
+
+    if (json.getKeys() != null) {
+      if (!step.members()) {
+        return false;
+      }
+
+      if (step instanceof NameStep) {
+        String name = ((NameStep) step).mName;
+
+        return json.containsKey(name) && select(json.get(name), k + 1, ret, first);
+      }
+
+      // Copy the keys in case a JsonTape decodes them lazily
+      for (String name : new ArrayList<String>(json.getKeys())) {
+        Json child = json.get(name);
+
+        if (child != null && step.test(child) && select(child, k + 1, ret, first)) {
+          return true;
+        }
+      }
+    } else if (json instanceof JsonArray) {
+      if (!step.elements()) {
+        return false;
+      }
+
+      int n = json.size();
+
+      if (step instanceof IndexStep) {
+        int i = ((IndexStep) step).mIndex;
+
+        if (i < 0) {
+          i += n;
+        }
+
+        return i >= 0 && i < n && select(json.get(i), k + 1, ret, first);
+      }
+
+      for (int i = 0; i < n; ++i) {
+        Json child = json.get(i);
+
+        if (child != null && step.test(child) && select(child, k + 1, ret, first)) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Lazily select values from a reader. Members and elements that cannot match
+   * are skipped without being decoded. IO errors during iteration are thrown
+   * as {@link UncheckedIOException}.
+   *
+   * @param reader the reader
+   * @return the iterable
+   * @throws IllegalArgumentException if the path has a negative index, which
+   *                                  needs the length of the array.
+   */
+  public Iterable<Json> select(final JsonReader reader) {
+    if (!mStreamable) {
+      throw new IllegalArgumentException(
+          "The path " + mPath + " has a negative index, so it can only be used with a tree, not a reader.");
+    }
+
+    return new Iterable<Json>() {
+      @Override
+      public Iterator<Json> iterator() {
+        return new StreamIterator(reader);
+      }
+    };
+  }
+
+  /**
+   * Walks the tokens of a reader, descending only into members and elements
+   * that can match the path.
+   */
+  private class StreamIterator implements Iterator<Json> {
+
+    /** The reader. */
+    private final JsonReader mReader;
+
+    /** Whether each open container is an object. */
+    private final boolean[] mObject = new boolean[mSteps.length];
+
+    /** The next element index of each open array. */
+    private final int[] mIndex = new int[mSteps.length];
+
+    /**
+     * The number of open containers. The children of container i are tested
+     * against step i.
+     */
+    private int mDepth = 0;
+
+    /** Matched values waiting to be returned. */
+    private final Deque<Json> mQueue = new ArrayDeque<Json>();
+
+    /** Whether the end of the reader has been reached. */
+    private boolean mEnd = false;
+
+    /**
+     * Instantiates a new stream iterator.
+     *
+     * @param reader the reader
+     */
+    public StreamIterator(JsonReader reader) {
+      mReader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        while (mQueue.isEmpty() && !mEnd) {
+          advance();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      return !mQueue.isEmpty();
+    }
+
+    @Override
+    public Json next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      return mQueue.poll();
+    }
+
+    /**
+     * Read the next token and act on it.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void advance() throws IOException {
+      JsonToken t = mReader.nextToken();
+
+      if (mDepth == 0) {
+        // the start of a document
+        if (t == null) {
+          mEnd = true;
+        } else {
+          value(t, 0);
+        }
+
+        return;
+      }
+
+      if (t == JsonToken.END_OBJECT || t == JsonToken.END_ARRAY) {
+        --mDepth;
+        return;
+      }
+
+      if (t == null) {
+        throw new IOException("Unexpected end of JSON.");
+      }
+
+      int l = mDepth - 1;
+
+      Step step = mSteps[l];
+
+      boolean match;
+
+      if (mObject[l]) {
+        match = step.matches(mReader.getName());
+        t = mReader.nextToken();
+      } else {
+        match = step.matches(mIndex[l]++);
+      }
+
+      if (!match) {
+        mReader.skipChildren();
+      } else if (step instanceof FilterStep) {
+        // the candidate must be built to be tested
+        Json json = mReader.readJson();
+
+        if (json != null && step.test(json)) {
+          List<Json> ret = new ArrayList<Json>();
+
+          select(json, l + 1, ret, false);
+
+          mQueue.addAll(ret);
+        }
+      } else {
+        value(t, l + 1);
+      }
+    }
+
+    /**
+     * Handle a value that matched the first k steps.
+     *
+     * @param t the t
+     * @param k the k
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void value(JsonToken t, int k) throws IOException {
+      if (k == mSteps.length) {
+        Json json = mReader.readJson();
+
+        if (json != null) {
+          mQueue.add(json);
+        }
+
+        return;
+      }
+
+      Step step = mSteps[k];
+
+      if ((t == JsonToken.START_OBJECT && step.members()) || (t == JsonToken.START_ARRAY && step.elements())) {
+        mObject[mDepth] = t == JsonToken.START_OBJECT;
+        mIndex[mDepth] = 0;
+        ++mDepth;
+      } else {
+        mReader.skipChildren();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return mPath;
+  }
+
+  /**
+   * Compile a path.
+   *
+   * @param path the path
+   * @return the json path
+   * @throws IllegalArgumentException if the path is not valid.
+   */
+  public static JsonPath compile(String path) {
+    PathParser parser = new PathParser(path);
+
+    JsonPath ret = parser.path(true);
+
+    if (!parser.end()) {
+      throw parser.error("Unexpected character");
+    }
+
+    return ret;
+  }
+
+  /**
+   * Compile a path and return every value in a tree that it selects.
+   *
+   * @param json the json
+   * @param path the path
+   * @return the list
+   */
+  public static List<Json> select(Json json, String path) {
+    return compile(path).select(json);
+  }
+
+  /**
+   * Returns true if a Json is a number.
+   *
+   * @param json the json
+   * @return true, if is number
+   */
+  private static boolean isNumber(Json json) {
+    return json instanceof JsonInteger || json instanceof JsonLong || json instanceof JsonDouble;
+  }
+
+  /**
+   * Parses path text.
+   */
+  private static class PathParser {
+
+    /** The text. */
+    private final String mText;
+
+    /** The position. */
+    private int mPos = 0;
+
+    /**
+     * Instantiates a new path parser.
+     *
+     * @param text the text
+     */
+    public PathParser(String text) {
+      mText = text;
+    }
+
+    /**
+     * Parse a path. Absolute paths start with an optional $; relative paths,
+     * used in filters, start with @.
+     *
+     * @param absolute the absolute
+     * @return the json path
+     */
+    public JsonPath path(boolean absolute) {
+      int start = mPos;
+
+      skipSpaces();
+
+      List<Step> steps = new ArrayList<Step>();
+
+      if (absolute) {
+        if (peek() == '$') {
+          ++mPos;
+        } else if (Character.isJavaIdentifierStart(peek())) {
+          // allow a.b as well as $.a.b
+          steps.add(new NameStep(name()));
+        }
+      } else {
+        expect('@');
+      }
+
+      while (true) {
+        char c = peek();
+
+        if (c == '.') {
+          ++mPos;
+
+          if (peek() == '.') {
+            throw error("Recursive descent is not supported");
+          }
+
+          if (peek() == '*') {
+            ++mPos;
+            steps.add(new WildcardStep());
+          } else {
+            steps.add(new NameStep(name()));
+          }
+        } else if (c == '[') {
+          ++mPos;
+          skipSpaces();
+
+          c = peek();
+
+          if (c == '*') {
+            ++mPos;
+            steps.add(new WildcardStep());
+          } else if (c == '\'' || c == '"') {
+            steps.add(new NameStep(quoted()));
+          } else if (c == '?') {
+            if (!absolute) {
+              throw error("Filters cannot be nested");
+            }
+
+            ++mPos;
+            skipSpaces();
+            expect('(');
+            steps.add(new FilterStep(or()));
+            skipSpaces();
+            expect(')');
+          } else {
+            steps.add(new IndexStep(integer()));
+          }
+
+          skipSpaces();
+          expect(']');
+        } else {
+          break;
+        }
+      }
+
+      return new JsonPath(mText.substring(start, mPos).trim(), steps);
+    }
+
+    /**
+     * Parse filters joined by or.
+     *
+     * @return the filter
+     */
+    private Filter or() {
+      List<Filter> filters = new ArrayList<Filter>();
+
+      filters.add(and());
+
+      while (match("||")) {
+        filters.add(and());
+      }
+
+      return filters.size() == 1 ? filters.get(0) : new Combination(filters, false);
+    }
+
+    /**
+     * Parse filters joined by and.
+     *
+     * @return the filter
+     */
+    private Filter and() {
+      List<Filter> filters = new ArrayList<Filter>();
+
+      filters.add(comparison());
+
+      while (match("&&")) {
+        filters.add(comparison());
+      }
+
+      return filters.size() == 1 ? filters.get(0) : new Combination(filters, true);
+    }
+
+    /**
+     * Parse a comparison.
+     *
+     * @return the filter
+     */
+    private Filter comparison() {
+      skipSpaces();
+
+      JsonPath path = path(false);
+
+      int op;
+
+      if (match("==")) {
+        op = EQ;
+      } else if (match("!=")) {
+        op = NE;
+      } else if (match("<=")) {
+        op = LE;
+      } else if (match(">=")) {
+        op = GE;
+      } else if (match("<")) {
+        op = LT;
+      } else if (match(">")) {
+        op = GT;
+      } else {
+        return new Comparison(path, EXISTS, null);
+      }
+
+      return new Comparison(path, op, literal());
+    }
+
+    /**
+     * Parse a literal.
+     *
+     * @return the object
+     */
+    private Object literal() {
+      skipSpaces();
+
+      char c = peek();
+
+      if (c == '\'' || c == '"') {
+        return quoted();
+      }
+
+      if (match("true")) {
+        return true;
+      }
+
+      if (match("false")) {
+        return false;
+      }
+
+      if (match("null")) {
+        return NULL;
+      }
+
+      int start = mPos;
+
+      while (mPos < mText.length() && "+-.0123456789eE".indexOf(mText.charAt(mPos)) != -1) {
+        ++mPos;
+      }
+
+      try {
+        return Double.parseDouble(mText.substring(start, mPos));
+      } catch (NumberFormatException e) {
+        mPos = start;
+        throw error("Expected a literal");
+      }
+    }
+
+    /**
+     * Parse an unquoted member name.
+     *
+     * @return the string
+     */
+    private String name() {
+      int start = mPos;
+
+      while (mPos < mText.length() && ".[]()=!<>&|* ".indexOf(mText.charAt(mPos)) == -1) {
+        ++mPos;
+      }
+
+      if (mPos == start) {
+        throw error("Expected a name");
+      }
+
+      return mText.substring(start, mPos);
+    }
+
+    /**
+     * Parse a quoted string.
+     *
+     * @return the string
+     */
+    private String quoted() {
+      char q = mText.charAt(mPos++);
+
+      StringBuilder buffer = new StringBuilder();
+
+      while (mPos < mText.length()) {
+        char c = mText.charAt(mPos++);
+
+        if (c == q) {
+          return buffer.toString();
+        }
+
+        if (c == '\\' && mPos < mText.length()) {
+          c = mText.charAt(mPos++);
+        }
+
+        buffer.append(c);
+      }
+
+      throw error("Unterminated string");
+    }
+
+    /**
+     * Parse an integer.
+     *
+     * @return the int
+     */
+    private int integer() {
+      int start = mPos;
+
+      if (peek() == '-') {
+        ++mPos;
+      }
+
+      while (Character.isDigit(peek())) {
+        ++mPos;
+      }
+
+      try {
+        return Integer.parseInt(mText.substring(start, mPos));
+      } catch (NumberFormatException e) {
+        mPos = start;
+        throw error("Expected an index, *, name or filter");
+      }
+    }
+
+    /**
+     * Consume text if it is next, ignoring leading spaces.
+     *
+     * @param s the s
+     * @return true, if successful
+     */
+    private boolean match(String s) {
+      skipSpaces();
+
+      if (mText.startsWith(s, mPos)) {
+        mPos += s.length();
+        return true;
+      }
+
+      return false;
+    }
+
+    /**
+     * Consume an expected character.
+     *
+     * @param c the c
+     */
+    private void expect(char c) {
+      if (peek() != c) {
+        throw error("Expected " + c);
+      }
+
+      ++mPos;
+    }
+
+    /**
+     * Skip spaces.
+     */
+    private void skipSpaces() {
+      while (peek() == ' ') {
+        ++mPos;
+      }
+    }
+
+    /**
+     * Returns the next character or 0 at the end.
+     *
+     * @return the char
+     */
+    private char peek() {
+      return mPos < mText.length() ? mText.charAt(mPos) : 0;
+    }
+
+    /**
+     * Returns true if the whole path has been parsed.
+     *
+     * @return true, if successful
+     */
+    public boolean end() {
+      skipSpaces();
+
+      return mPos == mText.length();
+    }
+
+    /**
+     * Create an error for the current position.
+     *
+     * @param message the message
+     * @return the illegal argument exception
+     */
+    public IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(
+          message + " at position " + mPos + " in " + mText);
+    }
+  }
+}
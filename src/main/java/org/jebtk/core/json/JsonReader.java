@@ -0,0 +1,660 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.jebtk.core.http.URLPath;
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.StreamUtils;
+import org.jebtk.core.text.TextUtils;
+
+/**
+ * A pull parser for UTF-8 encoded JSON. Rather than building a tree, the
+ * caller asks for one token at a time with {@link #nextToken()} and can skip
+ * uninteresting values with {@link #skipChildren()}. Memory use is constant
+ * regardless of the size of the document, apart from any subtrees the caller
+ * chooses to materialize with {@link #nextJson()}.
+ *
+ * <pre>
+ * try (JsonReader reader = JsonReader.open(file)) {
+ *   for (Json element : reader.elements()) {
+ *     ...
+ *   }
+ * }
+ * </pre>
+ *
+ * @author Antony Holmes
+ */
+public class JsonReader implements Closeable {
+
+  /** The stream. */
+  private final InputStream mIn;
+
+  /** The lexer. */
+  private final JsonLexer mLexer;
+
+  /** Whether each open container is an object (true) or an array. */
+  private boolean[] mInObject = new boolean[32];
+
+  /** The number of open containers. */
+  private int mDepth = 0;
+
+  /** Whether the next string is a member name. */
+  private boolean mExpectName = false;
+
+  /** The current token. */
+  private JsonToken mToken = null;
+
+  /** The current member name. */
+  private String mName = null;
+
+  /** The current string value. */
+  private String mString = null;
+
+  /** The current integer value. */
+  private long mLong;
+
+  /** The current double value. */
+  private double mDouble;
+
+  /**
+   * Instantiates a new json reader.
+   *
+   * @param in the in
+   */
+  public JsonReader(InputStream in) {
+    mIn = in;
+    mLexer = new JsonLexer(StreamUtils.createBuffer().length);
+    mLexer.reset(in);
+  }
+
+  /**
+   * Instantiates a new json reader over UTF-8 bytes in memory.
+   *
+   * @param data   the data
+   * @param offset the offset
+   * @param length the length
+   */
+  public JsonReader(byte[] data, int offset, int length) {
+    mIn = null;
+    mLexer = new JsonLexer(16);
+    mLexer.reset(data, offset, length);
+  }
+
+  /**
+   * Returns the next token or null if the end of the data has been reached.
+   * Commas and colons are consumed silently.
+   *
+   * @return the json token
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonToken nextToken() throws IOException {
+    while (true) {
+      int c = mLexer.peek();
+
+      switch (c) {
+      case -1:
+        mToken = null;
+        return null;
+      case JsonBuilder.JSON_OBJECT_START:
+        mLexer.skip();
+        push(true);
+        return mToken = JsonToken.START_OBJECT;
+      case JsonBuilder.JSON_ARRAY_START:
+        mLexer.skip();
+        push(false);
+        return mToken = JsonToken.START_ARRAY;
+      case JsonBuilder.JSON_OBJECT_END:
+        mLexer.skip();
+        pop();
+        return mToken = JsonToken.END_OBJECT;
+      case JsonBuilder.JSON_ARRAY_END:
+        mLexer.skip();
+        pop();
+        return mToken = JsonToken.END_ARRAY;
+      case JsonBuilder.JSON_ARRAY_DELIMITER:
+        mLexer.skip();
+        mExpectName = inObject();
+        break;
+      case JsonBuilder.JSON_VALUE_DELIMITER:
+        mLexer.skip();
+        mExpectName = false;
+        break;
+      case JsonBuilder.JSON_QUOTATION:
+        mString = mLexer.readString();
+
+        if (mExpectName) {
+          mName = mString;
+          mExpectName = false;
+          return mToken = JsonToken.FIELD_NAME;
+        }
+
+        return mToken = JsonToken.STRING;
+      default:
+        int type = mLexer.readBare();
+
+        if (mExpectName) {
+          // lenient: allow unquoted names
+          mName = mLexer.getBareString();
+          mExpectName = false;
+          return mToken = JsonToken.FIELD_NAME;
+        }
+
+        switch (type) {
+        case JsonLexer.BARE_TRUE:
+          return mToken = JsonToken.TRUE;
+        case JsonLexer.BARE_FALSE:
+          return mToken = JsonToken.FALSE;
+        case JsonLexer.BARE_NULL:
+          return mToken = JsonToken.NULL;
+        case JsonLexer.BARE_LONG:
+          mLong = mLexer.getLong();
+          return mToken = JsonToken.INTEGER;
+        case JsonLexer.BARE_DOUBLE:
+          mDouble = mLexer.getDouble();
+          return mToken = JsonToken.DOUBLE;
+        default:
+          mString = mLexer.getBareString();
+          return mToken = JsonToken.STRING;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the current token.
+   *
+   * @return the token
+   */
+  public JsonToken getToken() {
+    return mToken;
+  }
+
+  /**
+   * Returns the name of the most recent object member.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return mName;
+  }
+
+  /**
+   * Returns the current value as a string.
+   *
+   * @return the string
+   */
+  public String getString() {
+    if (mToken == null) {
+      return null;
+    }
+
+    switch (mToken) {
+    case STRING:
+      return mString;
+    case FIELD_NAME:
+      return mName;
+    case INTEGER:
+      return Long.toString(mLong);
+    case DOUBLE:
+      return Double.toString(mDouble);
+    case TRUE:
+      return TextUtils.TRUE;
+    case FALSE:
+      return TextUtils.FALSE;
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * Returns the current value as a double or NaN if it is not a number.
+   *
+   * @return the double
+   */
+  public double getDouble() {
+    if (mToken == JsonToken.DOUBLE) {
+      return mDouble;
+    } else if (mToken == JsonToken.INTEGER) {
+      return mLong;
+    } else {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * Returns the current value as a long.
+   *
+   * @return the long
+   */
+  public long getLong() {
+    if (mToken == JsonToken.INTEGER) {
+      return mLong;
+    } else if (mToken == JsonToken.DOUBLE) {
+      return (long) mDouble;
+    } else {
+      return Long.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Returns the current value as an int.
+   *
+   * @return the int
+   */
+  public int getInt() {
+    if (mToken == JsonToken.INTEGER || mToken == JsonToken.DOUBLE) {
+      return (int) getLong();
+    } else {
+      return Integer.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Returns the current value as a boolean.
+   *
+   * @return the bool
+   */
+  public boolean getBool() {
+    return mToken == JsonToken.TRUE;
+  }
+
+  /**
+   * If the current token starts an object or array, skip to its matching end
+   * without decoding or allocating its contents. Otherwise do nothing.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void skipChildren() throws IOException {
+    if (mToken != JsonToken.START_OBJECT && mToken != JsonToken.START_ARRAY) {
+      return;
+    }
+
+    int depth = 1;
+
+    while (depth > 0) {
+      int c = mLexer.peek();
+
+      switch (c) {
+      case -1:
+        throw mLexer.error("Unexpected end of JSON");
+      case JsonBuilder.JSON_OBJECT_START:
+      case JsonBuilder.JSON_ARRAY_START:
+        mLexer.skip();
+        ++depth;
+        break;
+      case JsonBuilder.JSON_OBJECT_END:
+      case JsonBuilder.JSON_ARRAY_END:
+        mLexer.skip();
+        --depth;
+
+        if (depth == 0) {
+          mToken = c == JsonBuilder.JSON_OBJECT_END ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+        }
+
+        break;
+      case JsonBuilder.JSON_QUOTATION:
+        mLexer.skipString();
+        break;
+      case JsonBuilder.JSON_ARRAY_DELIMITER:
+      case JsonBuilder.JSON_VALUE_DELIMITER:
+        mLexer.skip();
+        break;
+      default:
+        mLexer.skipBare();
+        break;
+      }
+    }
+
+    pop();
+  }
+
+  /**
+   * Skip the next value, including all of its children if it is an object or
+   * array. If the next token is a member name, the name and its value are
+   * skipped.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void skipValue() throws IOException {
+    if (nextToken() == JsonToken.FIELD_NAME) {
+      nextToken();
+    }
+
+    skipChildren();
+  }
+
+  /**
+   * Returns true if the current object or array has more elements.
+   *
+   * @return true, if successful
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public boolean hasNext() throws IOException {
+    int c = mLexer.peek();
+
+    while (c == JsonBuilder.JSON_ARRAY_DELIMITER) {
+      mLexer.skip();
+      mExpectName = inObject();
+      c = mLexer.peek();
+    }
+
+    return c != -1 && c != JsonBuilder.JSON_ARRAY_END && c != JsonBuilder.JSON_OBJECT_END;
+  }
+
+  /**
+   * Consume the start of an array.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void beginArray() throws IOException {
+    expect(JsonToken.START_ARRAY);
+  }
+
+  /**
+   * Consume the end of an array.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void endArray() throws IOException {
+    expect(JsonToken.END_ARRAY);
+  }
+
+  /**
+   * Consume the start of an object.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void beginObject() throws IOException {
+    expect(JsonToken.START_OBJECT);
+  }
+
+  /**
+   * Consume the end of an object.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void endObject() throws IOException {
+    expect(JsonToken.END_OBJECT);
+  }
+
+  /**
+   * Read the next token and check it is of the expected type.
+   *
+   * @param token the token
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void expect(JsonToken token) throws IOException {
+    JsonToken t = nextToken();
+
+    if (t != token) {
+      throw mLexer.error("Expected " + token + " but found " + t);
+    }
+  }
+
+  /**
+   * Read the next value and return it as a Json tree. If the next token is a
+   * member name, the member's value is returned. Returns null at the end of
+   * the data or for the null literal.
+   *
+   * @return the json
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public Json nextJson() throws IOException {
+    JsonToken t = nextToken();
+
+    if (t == JsonToken.FIELD_NAME) {
+      t = nextToken();
+    }
+
+    if (t == null) {
+      return null;
+    }
+
+    return readJson();
+  }
+
+  /**
+   * Returns the value starting at the current token as a Json tree. If the
+   * current token starts an object or array, the whole subtree is read.
+   *
+   * @return the json
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public Json readJson() throws IOException {
+    if (mToken == null) {
+      throw new IllegalStateException("Call nextToken() before reading a value.");
+    }
+
+    if (mToken != JsonToken.START_OBJECT && mToken != JsonToken.START_ARRAY) {
+      return scalar();
+    }
+
+    Json root = mToken == JsonToken.START_OBJECT ? new JsonObject() : new JsonArray();
+
+    Deque<Json> stack = new ArrayDeque<Json>();
+    stack.push(root);
+
+    String name = null;
+
+    while (!stack.isEmpty()) {
+      JsonToken t = nextToken();
+
+      if (t == null) {
+        throw mLexer.error("Unexpected end of JSON");
+      }
+
+      switch (t) {
+      case FIELD_NAME:
+        name = mName;
+        break;
+      case START_OBJECT:
+      case START_ARRAY:
+        Json o = t == JsonToken.START_OBJECT ? new JsonObject() : new JsonArray();
+        add(stack.peek(), name, o);
+        name = null;
+        stack.push(o);
+        break;
+      case END_OBJECT:
+      case END_ARRAY:
+        stack.pop();
+        break;
+      default:
+        add(stack.peek(), name, scalar());
+        name = null;
+        break;
+      }
+    }
+
+    return root;
+  }
+
+  /**
+   * Convert the current scalar token to Json. Strings are typed in the same
+   * way as by {@link JsonParser}, so {@code "12"} is an int and
+   * {@code "true"} a boolean, and the trees of both are the same.
+   *
+   * @return the json
+   */
+  private Json scalar() {
+    switch (mToken) {
+    case STRING:
+      return JsonParser.stringToJson(mString);
+    case INTEGER:
+      return JsonLexer.longToJson(mLong);
+    case DOUBLE:
+      return JsonLexer.doubleToJson(mDouble);
+    case TRUE:
+      return new JsonBoolean(true);
+    case FALSE:
+      return new JsonBoolean(false);
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * Add a value to an object or array.
+   *
+   * @param container the container
+   * @param name      the name
+   * @param value     the value
+   */
+  private static void add(Json container, String name, Json value) {
+    if (name != null) {
+      container.add(name, value);
+    } else {
+      container.add(value);
+    }
+  }
+
+  /**
+   * Iterate over the elements of the next array, materializing one element at
+   * a time. The array start is consumed when this method is called and the
+   * array end when iteration finishes.
+   *
+   * @return the iterable
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public Iterable<Json> elements() throws IOException {
+    beginArray();
+
+    return new Iterable<Json>() {
+      @Override
+      public Iterator<Json> iterator() {
+        return new Iterator<Json>() {
+          private boolean mDone = false;
+
+          @Override
+          public boolean hasNext() {
+            if (mDone) {
+              return false;
+            }
+
+            try {
+              if (JsonReader.this.hasNext()) {
+                return true;
+              }
+
+              endArray();
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+
+            mDone = true;
+
+            return false;
+          }
+
+          @Override
+          public Json next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+
+            try {
+              return nextJson();
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Returns the nesting depth of the current position.
+   *
+   * @return the depth
+   */
+  public int getDepth() {
+    return mDepth;
+  }
+
+  /**
+   * Record that a container has been opened.
+   *
+   * @param object whether the container is an object.
+   */
+  private void push(boolean object) {
+    if (mDepth == mInObject.length) {
+      mInObject = Arrays.copyOf(mInObject, mDepth * 2);
+    }
+
+    mInObject[mDepth++] = object;
+    mExpectName = object;
+  }
+
+  /**
+   * Record that a container has been closed.
+   */
+  private void pop() {
+    if (mDepth > 0) {
+      --mDepth;
+    }
+
+    mExpectName = false;
+  }
+
+  /**
+   * Returns true if the innermost open container is an object.
+   *
+   * @return true, if successful
+   */
+  private boolean inObject() {
+    return mDepth > 0 && mInObject[mDepth - 1];
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (mIn != null) {
+      mIn.close();
+    }
+  }
+
+  /**
+   * Open a reader on a file.
+   *
+   * @param file the file
+   * @return the json reader
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static JsonReader open(Path file) throws IOException {
+    return new JsonReader(FileUtils.newInputStream(file));
+  }
+
+  /**
+   * Open a reader on the response from a URL.
+   *
+   * @param url the url
+   * @return the json reader
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static JsonReader open(URLPath url) throws IOException {
+    return new JsonReader(url.openConnection().getInputStream());
+  }
+}
@@ -17,55 +17,35 @@ package org.jebtk.core.json;
 
 import java.io.IOException;
 
-import org.jebtk.core.text.TextUtils;
-
 /**
  * The Class JsonString.
  *
  * @author Antony Holmes
  */
 public class JsonString extends JsonRaw {
-  // private static final Pattern REGEX_DOUBLE_SLASH =
-  // Pattern.compile("\\\\");
-
-  /** The Constant DOUBLE_SLASH_REP. */
-  private static final String DOUBLE_SLASH_REP = "\\\\";
-
-  // private static final Pattern REGEX_QUOTE =
-  // Pattern.compile("\"");
-
-  /** The Constant QUOTE_REP. */
-  private static final String QUOTE_REP = "\\\"";
-
-  // private static final Pattern REGEX_FORWARD =
-  // Pattern.compile("/");
-
-  /** The Constant FORWARD_REP. */
-  private static final String FORWARD_REP = "\\/";
-
-  // private static final Pattern REGEX_BACKSPACE =
-  // Pattern.compile("[\b]");
+  /** Hex digits for unicode escapes. */
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
 
-  /** The Constant BACKSPACE_REP. */
-  private static final String BACKSPACE_REP = "\\\\b";
-
-  // private static final Pattern REGEX_TAB =
-  // Pattern.compile("\\t");
-
-  /** The Constant TAB_REP. */
-  private static final String TAB_REP = "\\t";
-
-  // private static final Pattern REGEX_NEWLINE =
-  // Pattern.compile("\\n");
-
-  /** The Constant NEWLINE_REP. */
-  private static final String NEWLINE_REP = "\\n";
-
-  // private static final Pattern REGEX_RETURN =
-  // Pattern.compile("\\r");
-
-  /** The Constant RETURN_REP. */
-  private static final String RETURN_REP = "\\r";
+  /**
+   * The escape sequence for each ASCII character or null if the character can
+   * be written as is.
+   */
+  private static final String[] ESCAPES = new String[128];
+
+  static {
+    for (int i = 0; i < 0x20; ++i) {
+      ESCAPES[i] = "\\u00" + HEX[i >> 4] + HEX[i & 0xf];
+    }
+
+    ESCAPES['\\'] = "\\\\";
+    ESCAPES['"'] = "\\\"";
+    ESCAPES['/'] = "\\/";
+    ESCAPES['\b'] = "\\b";
+    ESCAPES['\f'] = "\\f";
+    ESCAPES['\t'] = "\\t";
+    ESCAPES['\n'] = "\\n";
+    ESCAPES['\r'] = "\\r";
+  }
 
   /**
    * Instantiates a new json string.
@@ -83,7 +63,7 @@ public class JsonString extends JsonRaw {
    */
   @Override
   public void toJson(Appendable buffer) throws IOException {
-    buffer.append(TextUtils.quote(escape(mValue)));
+    escapeAndQuote(mValue, buffer);
   }
 
   /**
@@ -93,25 +73,125 @@ public class JsonString extends JsonRaw {
    * @return the string
    */
   public static String escape(String value) {
-    /*
-     * value = REGEX_DOUBLE_SLASH.matcher(value).replaceAll(DOUBLE_SLASH_REP); value
-     * = REGEX_QUOTE.matcher(value).replaceAll(QUOTE_REP); value =
-     * REGEX_FORWARD.matcher(value).replaceAll(FORWARD_REP); value =
-     * REGEX_BACKSPACE.matcher(value).replaceAll(BACKSPACE_REP); value =
-     * REGEX_TAB.matcher(value).replaceAll(TAB_REP); value =
-     * REGEX_NEWLINE.matcher(value).replaceAll(NEWLINE_REP); value =
-     * REGEX_RETURN.matcher(value).replaceAll(RETURN_REP);
-     * 
-     * return value;
-     */
-
-    return value.replace("\\", DOUBLE_SLASH_REP).replace("\"", QUOTE_REP).replace("/", FORWARD_REP)
-        .replace("\b", BACKSPACE_REP).replace("\t", TAB_REP).replace("\n", NEWLINE_REP).replace("\r", RETURN_REP);
-
-    /*
-     * return value .replaceAll("\\\\", "\\\\\\\\") .replaceAll("\"", "\\\\\"")
-     * .replaceAll("/", "\\\\/") .replaceAll("[\b]", "\\\\b") .replaceAll("\\n",
-     * "\\\\n") .replaceAll("\\r", "\\\\r") .replaceAll("\\t", "\\\\t");
-     */
+    int i = firstEscape(value);
+
+    // Most strings need no escaping so avoid creating a copy
+    if (i == -1) {
+      return value;
+    }
+
+    StringBuilder buffer = new StringBuilder(value.length() + 16);
+
+    try {
+      escape(value, i, buffer);
+    } catch (IOException e) {
+      // StringBuilder does not throw
+    }
+
+    return buffer.toString();
+  }
+
+  /**
+   * Write a JSON escaped string to a buffer in a single pass. Runs of
+   * characters that do not need escaping are appended in bulk.
+   *
+   * @param value  the value
+   * @param buffer the buffer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void escape(String value, Appendable buffer) throws IOException {
+    int i = firstEscape(value);
+
+    if (i == -1) {
+      buffer.append(value);
+    } else {
+      escape(value, i, buffer);
+    }
+  }
+
+  /**
+   * Write a JSON escaped string surrounded by quotation marks to a buffer.
+   *
+   * @param value  the value
+   * @param buffer the buffer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void escapeAndQuote(String value, Appendable buffer) throws IOException {
+    buffer.append(JsonBuilder.JSON_QUOTATION);
+    escape(value, buffer);
+    buffer.append(JsonBuilder.JSON_QUOTATION);
+  }
+
+  /**
+   * Write a JSON escaped string surrounded by quotation marks to a string
+   * buffer.
+   *
+   * @param value  the value
+   * @param buffer the buffer
+   */
+  public static void escapeAndQuote(String value, StringBuilder buffer) {
+    try {
+      escapeAndQuote(value, (Appendable) buffer);
+    } catch (IOException e) {
+      // StringBuilder does not throw
+    }
+  }
+
+  /**
+   * Escape a string starting from the first character that needs escaping.
+   *
+   * @param value  the value
+   * @param first  the index of the first character to escape.
+   * @param buffer the buffer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void escape(String value, int first, Appendable buffer) throws IOException {
+    int n = value.length();
+
+    // Start of the current run of unescaped characters
+    int s = 0;
+
+    for (int i = first; i < n; ++i) {
+      char c = value.charAt(i);
+
+      if (c < 128) {
+        String rep = ESCAPES[c];
+
+        if (rep != null) {
+          if (i > s) {
+            buffer.append(value, s, i);
+          }
+
+          buffer.append(rep);
+
+          s = i + 1;
+        }
+      }
+    }
+
+    if (s < n) {
+      buffer.append(value, s, n);
+    }
+  }
+
+  /**
+   * Returns the index of the first character in a string that must be
+   * escaped, or -1 if there are none.
+   *
+   * @param value the value
+   * @return the int
+   */
+  private static int firstEscape(String value) {
+    int n = value.length();
+
+    for (int i = 0; i < n; ++i) {
+      char c = value.charAt(i);
+
+      if (c < 128 && ESCAPES[c] != null) {
+        return i;
+      }
+    }
+
+    return -1;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,881 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.jebtk.core.text.TextUtils;
+
+/**
+ * A lazily decoded JSON document. Parsing makes one pass over the UTF-8 bytes
+ * to build a structural index (the tape), a flat int array recording the type,
+ * byte range and extent of every token. No strings, numbers or containers are
+ * created at this point. The root returned by {@link #getRoot()} and every
+ * object or array reached from it are read only {@link Json} views onto the
+ * tape; keys and values are decoded only when they are accessed. Lookups on
+ * large objects use a small hash table that is built the first time a member
+ * is requested by name.
+ *
+ * This is useful for large documents of which only a small part is read. If
+ * the whole document will be visited, {@link JsonParser} is usually faster.
+ * The document holds on to the bytes it was parsed from.
+ *
+ * @author Antony Holmes
+ */
+public class JsonTape {
+
+  /** Number of ints per node on the tape. */
+  private static final int NODE_SIZE = 4;
+
+  /** Slot holding the node type and, for containers, the child count. */
+  private static final int TYPE = 0;
+
+  /** Slot holding the offset of the first byte of the token. */
+  private static final int START = 1;
+
+  /** Slot holding the offset one past the last byte of the token. */
+  private static final int END = 2;
+
+  /** Slot holding the index of the node following this node's subtree. */
+  private static final int NEXT = 3;
+
+  /** The number of bits used by the type in the type slot. */
+  private static final int TYPE_BITS = 4;
+
+  /** The type mask. */
+  private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+  /** An object. */
+  private static final int OBJECT = 1;
+
+  /** An array. */
+  private static final int ARRAY = 2;
+
+  /** A quoted string. */
+  private static final int STRING = 3;
+
+  /** An unquoted token: a number, literal or bare word. */
+  private static final int BARE = 4;
+
+  /**
+   * Objects with more members than this use a hash table for lookups rather
+   * than a linear scan of the keys.
+   */
+  private static final int HASH_THRESHOLD = 8;
+
+  /** The UTF-8 data. */
+  private final byte[] mData;
+
+  /** The tape. */
+  private int[] mTape;
+
+  /** The number of nodes on the tape. */
+  private int mSize = 0;
+
+  /** Used to decode individual tokens. */
+  private final JsonLexer mLexer = new JsonLexer(16);
+
+  /** The root. */
+  private final Json mRoot;
+
+  /**
+   * Instantiates a new json tape.
+   *
+   * @param data   the data
+   * @param offset the offset
+   * @param length the length
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private JsonTape(byte[] data, int offset, int length) throws IOException {
+    mData = data;
+
+    // A rough guess based on one token per eight bytes
+    mTape = new int[Math.max(16, length / 8) * NODE_SIZE];
+
+    index(offset, length);
+
+    mRoot = mSize > 0 ? view(0) : null;
+  }
+
+  /**
+   * Build the tape.
+   *
+   * @param offset the offset
+   * @param length the length
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void index(int offset, int length) throws IOException {
+    JsonLexer lexer = mLexer;
+
+    lexer.reset(mData, offset, length);
+
+    int[] stack = new int[32];
+    int depth = 0;
+
+    while (true) {
+      int c = lexer.peek();
+
+      if (c == -1) {
+        if (depth > 0) {
+          throw lexer.error("Unexpected end of JSON");
+        }
+
+        break;
+      }
+
+      int start = (int) lexer.getPosition();
+
+      switch (c) {
+      case JsonBuilder.JSON_OBJECT_START:
+      case JsonBuilder.JSON_ARRAY_START:
+        lexer.skip();
+
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, depth * 2);
+        }
+
+        stack[depth] = addNode(c == JsonBuilder.JSON_OBJECT_START ? OBJECT : ARRAY, start, start, stack, depth);
+        ++depth;
+
+        continue;
+      case JsonBuilder.JSON_OBJECT_END:
+      case JsonBuilder.JSON_ARRAY_END:
+        if (depth == 0) {
+          throw lexer.error("Unexpected " + (char) c);
+        }
+
+        int node = stack[--depth] * NODE_SIZE;
+
+        int type = mTape[node + TYPE] & TYPE_MASK;
+
+        if ((type == OBJECT) != (c == JsonBuilder.JSON_OBJECT_END)) {
+          throw lexer.error("Mismatched " + (char) c);
+        }
+
+        if (type == OBJECT && (mTape[node + TYPE] >>> TYPE_BITS) % 2 != 0) {
+          throw lexer.error("Missing value");
+        }
+
+        lexer.skip();
+
+        mTape[node + END] = start + 1;
+        mTape[node + NEXT] = mSize;
+
+        break;
+      case JsonBuilder.JSON_ARRAY_DELIMITER:
+      case JsonBuilder.JSON_VALUE_DELIMITER:
+        lexer.skip();
+
+        continue;
+      case JsonBuilder.JSON_QUOTATION:
+        lexer.skipString();
+        addNode(STRING, start, (int) lexer.getPosition(), stack, depth);
+
+        break;
+      default:
+        lexer.skipBare();
+
+        int end = (int) lexer.getPosition();
+
+        if (end == start) {
+          throw lexer.error("Unexpected " + (char) c);
+        }
+
+        addNode(BARE, start, end, stack, depth);
+
+        break;
+      }
+
+      if (depth == 0) {
+        // the root value is complete
+        break;
+      }
+    }
+  }
+
+  /**
+   * Append a node to the tape and count it as a child of the innermost open
+   * container.
+   *
+   * @param type  the type
+   * @param start the start
+   * @param end   the end
+   * @param stack the stack
+   * @param depth the depth
+   * @return the index of the node
+   */
+  private int addNode(int type, int start, int end, int[] stack, int depth) {
+    if ((mSize + 1) * NODE_SIZE > mTape.length) {
+      mTape = Arrays.copyOf(mTape, mTape.length * 2);
+    }
+
+    int node = mSize * NODE_SIZE;
+
+    mTape[node + TYPE] = type;
+    mTape[node + START] = start;
+    mTape[node + END] = end;
+    mTape[node + NEXT] = mSize + 1;
+
+    if (depth > 0) {
+      mTape[stack[depth - 1] * NODE_SIZE + TYPE] += 1 << TYPE_BITS;
+    }
+
+    return mSize++;
+  }
+
+  /**
+   * Returns the root of the document or null if the document is empty or is
+   * the null literal.
+   *
+   * @return the root
+   */
+  public Json getRoot() {
+    return mRoot;
+  }
+
+  /**
+   * Returns the number of tokens in the document.
+   *
+   * @return the int
+   */
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * Returns the type of a node.
+   *
+   * @param node the node
+   * @return the int
+   */
+  private int type(int node) {
+    return mTape[node * NODE_SIZE + TYPE] & TYPE_MASK;
+  }
+
+  /**
+   * Returns the number of direct children of a container node.
+   *
+   * @param node the node
+   * @return the int
+   */
+  private int children(int node) {
+    return mTape[node * NODE_SIZE + TYPE] >>> TYPE_BITS;
+  }
+
+  /**
+   * Returns the node following the subtree of a node.
+   *
+   * @param node the node
+   * @return the int
+   */
+  private int next(int node) {
+    return mTape[node * NODE_SIZE + NEXT];
+  }
+
+  /**
+   * Returns a view of a container node or decodes a scalar node.
+   *
+   * @param node the node
+   * @return the json
+   */
+  private Json view(int node) {
+    switch (type(node)) {
+    case OBJECT:
+      return new TapeObject(node);
+    case ARRAY:
+      return new TapeArray(node);
+    default:
+      return decode(node);
+    }
+  }
+
+  /**
+   * Decode a scalar node in the same way as {@link JsonParser}: bare values
+   * are numbers, booleans, null, colors or strings, and quoted values are
+   * typed from their text, so {@code "12"} is an int.
+   *
+   * @param node the node
+   * @return the json
+   */
+  private synchronized Json decode(int node) {
+    int n = node * NODE_SIZE;
+
+    mLexer.reset(mData, mTape[n + START], mTape[n + END] - mTape[n + START]);
+
+    try {
+      if (type(node) == STRING) {
+        return JsonParser.stringToJson(mLexer.readString());
+      } else {
+        return mLexer.toJson(mLexer.readBare());
+      }
+    } catch (IOException e) {
+      // The token was validated when the tape was built
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Decode a key node.
+   *
+   * @param node the node
+   * @return the string
+   */
+  private synchronized String decodeKey(int node) {
+    int n = node * NODE_SIZE;
+
+    int start = mTape[n + START];
+    int end = mTape[n + END];
+
+    if (type(node) != STRING) {
+      // lenient: unquoted names
+      return new String(mData, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    mLexer.reset(mData, start, end - start);
+
+    try {
+      return mLexer.readString();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Test whether a key node equals a name without decoding the key, unless
+   * the key contains escapes.
+   *
+   * @param node  the node
+   * @param name  the name
+   * @param bytes the UTF-8 encoding of the name
+   * @return true, if successful
+   */
+  private boolean keyEquals(int node, String name, byte[] bytes) {
+    int n = node * NODE_SIZE;
+
+    int start = mTape[n + START];
+    int end = mTape[n + END];
+
+    if (type(node) == STRING) {
+      // exclude the quotes
+      ++start;
+      --end;
+    }
+
+    if (end - start == bytes.length) {
+      boolean match = true;
+
+      for (int i = 0; i < bytes.length; ++i) {
+        if (mData[start + i] != bytes[i]) {
+          match = false;
+          break;
+        }
+      }
+
+      if (match) {
+        return true;
+      }
+    }
+
+    for (int i = start; i < end; ++i) {
+      if (mData[i] == '\\') {
+        return decodeKey(node).equals(name);
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Write the source text of a node.
+   *
+   * @param node   the node
+   * @param buffer the buffer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void source(int node, Appendable buffer) throws IOException {
+    int n = node * NODE_SIZE;
+
+    buffer.append(new String(mData, mTape[n + START], mTape[n + END] - mTape[n + START], StandardCharsets.UTF_8));
+  }
+
+  /**
+   * A view of an object on the tape.
+   */
+  private class TapeObject extends Json {
+
+    /** The node. */
+    private final int mNode;
+
+    /** The number of members. */
+    private final int mSize;
+
+    /** The key node of each member, created on first access. */
+    private int[] mMembers = null;
+
+    /** The decoded keys, created when needed. */
+    private String[] mKeys = null;
+
+    /** Member index + 1 by key hash, created for large objects. */
+    private int[] mHash = null;
+
+    /** The decoded values. */
+    private Json[] mValues = null;
+
+    /**
+     * Instantiates a new tape object.
+     *
+     * @param node the node
+     */
+    public TapeObject(int node) {
+      mNode = node;
+      mSize = children(node) / 2;
+    }
+
+    /**
+     * Returns the key node of each member.
+     *
+     * @return the int[]
+     */
+    private int[] members() {
+      if (mMembers == null) {
+        int[] members = new int[mSize];
+
+        int node = mNode + 1;
+
+        for (int i = 0; i < mSize; ++i) {
+          members[i] = node;
+
+          // skip the key and the value
+          node = next(node + 1);
+        }
+
+        mMembers = members;
+      }
+
+      return mMembers;
+    }
+
+    /**
+     * Returns the decoded keys.
+     *
+     * @return the string[]
+     */
+    private String[] keys() {
+      if (mKeys == null) {
+        int[] members = members();
+
+        String[] keys = new String[mSize];
+
+        for (int i = 0; i < mSize; ++i) {
+          keys[i] = decodeKey(members[i]);
+        }
+
+        mKeys = keys;
+      }
+
+      return mKeys;
+    }
+
+    /**
+     * Find the index of a member.
+     *
+     * @param name the name
+     * @return the index or -1 if the name is not a member.
+     */
+    private int indexOf(String name) {
+      if (mSize > HASH_THRESHOLD) {
+        int[] hash = hash();
+        String[] keys = keys();
+
+        int mask = hash.length - 1;
+        int i = spread(name.hashCode()) & mask;
+
+        while (hash[i] != 0) {
+          int m = hash[i] - 1;
+
+          if (keys[m].equals(name)) {
+            return m;
+          }
+
+          i = (i + 1) & mask;
+        }
+
+        return -1;
+      }
+
+      int[] members = members();
+
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+
+      // search backwards so that, as in a JsonObject, the last duplicate wins
+      for (int i = mSize - 1; i >= 0; --i) {
+        if (keyEquals(members[i], name, bytes)) {
+          return i;
+        }
+      }
+
+      return -1;
+    }
+
+    /**
+     * Returns the hash table, building it if necessary. Where keys are
+     * duplicated the last occurrence wins.
+     *
+     * @return the int[]
+     */
+    private int[] hash() {
+      if (mHash == null) {
+        String[] keys = keys();
+
+        int[] hash = new int[Integer.highestOneBit(mSize) * 4];
+        int mask = hash.length - 1;
+
+        for (int m = 0; m < mSize; ++m) {
+          int i = spread(keys[m].hashCode()) & mask;
+
+          while (hash[i] != 0 && !keys[hash[i] - 1].equals(keys[m])) {
+            i = (i + 1) & mask;
+          }
+
+          hash[i] = m + 1;
+        }
+
+        mHash = hash;
+      }
+
+      return mHash;
+    }
+
+    /**
+     * Returns the value of the member with a given index.
+     *
+     * @param m the m
+     * @return the json
+     */
+    private Json value(int m) {
+      if (mValues == null) {
+        mValues = new Json[mSize];
+      }
+
+      if (mValues[m] == null) {
+        mValues[m] = view(members()[m] + 1);
+      }
+
+      return mValues[m];
+    }
+
+    @Override
+    public Json get(String name) {
+      int m = indexOf(name);
+
+      return m != -1 ? value(m) : null;
+    }
+
+    @Override
+    public Json get(String name, boolean defaultValue) {
+      Json ret = get(name);
+
+      return ret != null ? ret : new JsonBoolean(defaultValue);
+    }
+
+    @Override
+    public Json get(int index) {
+      if (index < 0 || index >= mSize) {
+        return null;
+      }
+
+      return value(index);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+      return indexOf(key) != -1;
+    }
+
+    @Override
+    public Collection<String> getKeys() {
+      return Collections.unmodifiableList(Arrays.asList(keys()));
+    }
+
+    @Override
+    public int size() {
+      return mSize;
+    }
+
+    @Override
+    public Json add(String name, Json value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Json add(Json value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void toJson(Appendable buffer) throws IOException {
+      source(mNode, buffer);
+    }
+
+    @Override
+    public void prettyJson(Appendable buffer, int level) throws IOException {
+      String indentation = indentation(level);
+      String indentation2 = indentation(level + 1);
+
+      String[] keys = keys();
+
+      buffer.append(JsonBuilder.JSON_OBJECT_START);
+      buffer.append(TextUtils.NEW_LINE);
+
+      for (int i = 0; i < mSize; ++i) {
+        Json v = value(i);
+
+        buffer.append(indentation2);
+        JsonString.escapeAndQuote(keys[i], buffer);
+        buffer.append(JsonBuilder.JSON_VALUE_DELIMITER);
+
+        if (v == null) {
+          buffer.append(JsonBuilder.JSON_NULL);
+        } else {
+          v.prettyJson(buffer, level + 1);
+        }
+
+        if (i < mSize - 1) {
+          buffer.append(TextUtils.FORMATTED_COMMA_DELIMITER);
+        }
+
+        buffer.append(TextUtils.NEW_LINE);
+      }
+
+      buffer.append(indentation);
+      buffer.append(JsonBuilder.JSON_OBJECT_END);
+    }
+  }
+
+  /**
+   * A view of an array on the tape. The view extends {@link JsonArray} so that
+   * {@link Json#getArray(String)} works as it does on parsed trees.
+   */
+  private class TapeArray extends JsonArray {
+
+    /** The node. */
+    private final int mNode;
+
+    /** The number of elements. */
+    private final int mSize;
+
+    /** The node of each element, created on the first indexed access. */
+    private int[] mElements = null;
+
+    /** The decoded values. */
+    private Json[] mValues = null;
+
+    /**
+     * Instantiates a new tape array.
+     *
+     * @param node the node
+     */
+    public TapeArray(int node) {
+      // the elements stay on the tape so the list of JsonArray is not needed
+      super(null);
+
+      mNode = node;
+      mSize = children(node);
+    }
+
+    /**
+     * Returns the node of each element.
+     *
+     * @return the int[]
+     */
+    private int[] elements() {
+      if (mElements == null) {
+        int[] elements = new int[mSize];
+
+        int node = mNode + 1;
+
+        for (int i = 0; i < mSize; ++i) {
+          elements[i] = node;
+          node = next(node);
+        }
+
+        mElements = elements;
+      }
+
+      return mElements;
+    }
+
+    @Override
+    public Json get(int index) {
+      if (index < 0 || index >= mSize) {
+        return null;
+      }
+
+      if (mValues == null) {
+        mValues = new Json[mSize];
+      }
+
+      if (mValues[index] == null) {
+        mValues[index] = view(elements()[index]);
+      }
+
+      return mValues[index];
+    }
+
+    @Override
+    public int size() {
+      return mSize;
+    }
+
+    @Override
+    public Json add(Json value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void toJson(Appendable buffer) throws IOException {
+      source(mNode, buffer);
+    }
+
+    @Override
+    public void prettyJson(Appendable buffer, int level) throws IOException {
+      String indentation = indentation(level);
+      String indentation2 = indentation(level + 1);
+
+      buffer.append(JsonBuilder.JSON_ARRAY_START);
+      buffer.append(TextUtils.NEW_LINE);
+
+      for (int i = 0; i < mSize; ++i) {
+        Json v = get(i);
+
+        buffer.append(indentation2);
+
+        if (v == null) {
+          buffer.append(TextUtils.NULL);
+        } else {
+          v.prettyJson(buffer, level + 1);
+        }
+
+        if (i < mSize - 1) {
+          buffer.append(JsonBuilder.JSON_ARRAY_DELIMITER);
+        }
+
+        buffer.append(TextUtils.NEW_LINE);
+      }
+
+      buffer.append(indentation);
+      buffer.append(JsonBuilder.JSON_ARRAY_END);
+    }
+
+    /**
+     * Iterates over the elements by following the tape, so that iterating
+     * does not need the element index.
+     */
+    @Override
+    public Iterator<Json> iterator() {
+      return new Iterator<Json>() {
+        private int mIndex = 0;
+        private int mNext = mNode + 1;
+
+        @Override
+        public boolean hasNext() {
+          return mIndex < mSize;
+        }
+
+        @Override
+        public Json next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+
+          Json ret = mValues != null && mValues[mIndex] != null ? mValues[mIndex] : view(mNext);
+
+          mNext = JsonTape.this.next(mNext);
+          ++mIndex;
+
+          return ret;
+        }
+      };
+    }
+  }
+
+  /**
+   * Spread the bits of a hash code.
+   *
+   * @param h the h
+   * @return the int
+   */
+  private static int spread(int h) {
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Parse UTF-8 encoded JSON.
+   *
+   * @param data the data
+   * @return the json tape
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static JsonTape parse(byte[] data) throws IOException {
+    return parse(data, 0, data.length);
+  }
+
+  /**
+   * Parse UTF-8 encoded JSON. The array is not copied and must not be
+   * modified while the document is in use.
+   *
+   * @param data   the data
+   * @param offset the offset
+   * @param length the length
+   * @return the json tape
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static JsonTape parse(byte[] data, int offset, int length) throws IOException {
+    return new JsonTape(data, offset, length);
+  }
+
+  /**
+   * Parse a UTF-8 encoded JSON file.
+   *
+   * @param file the file
+   * @return the json tape
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static JsonTape parse(Path file) throws IOException {
+    return parse(Files.readAllBytes(file));
+  }
+
+  /**
+   * Parse UTF-8 encoded JSON from a stream. The stream is read to the end but
+   * not closed.
+   *
+   * @param is the is
+   * @return the json tape
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static JsonTape parse(InputStream is) throws IOException {
+    return parse(is.readAllBytes());
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+/**
+ * The tokens returned by {@link JsonReader}.
+ */
+public enum JsonToken {
+
+  /** The start of an object. */
+  START_OBJECT,
+
+  /** The end of an object. */
+  END_OBJECT,
+
+  /** The start of an array. */
+  START_ARRAY,
+
+  /** The end of an array. */
+  END_ARRAY,
+
+  /** The name of an object member. */
+  FIELD_NAME,
+
+  /** A string value. */
+  STRING,
+
+  /** An integer value. */
+  INTEGER,
+
+  /** A floating point value. */
+  DOUBLE,
+
+  /** The true literal. */
+  TRUE,
+
+  /** The false literal. */
+  FALSE,
+
+  /** The null literal. */
+  NULL
+}
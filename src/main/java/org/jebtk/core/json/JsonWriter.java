@@ -0,0 +1,622 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Path;
+
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.StreamUtils;
+
+/**
+ * Writes JSON text to a stream through a fixed size buffer that is flushed
+ * whenever it fills, so that the memory needed to serialize a document does
+ * not depend on its size. When writing to an {@link OutputStream}, characters
+ * are encoded as UTF-8 directly into the byte buffer without creating
+ * intermediate strings or using a charset encoder. Since this is a
+ * {@link Writer}, any {@link Json} can be streamed with
+ * {@link Json#toJson(Appendable)}.
+ *
+ * JSON can also be built directly on the stream with the same methods as
+ * {@link JsonBuilder}, for example {@code startObject().add("v", 2)}.
+ *
+ * @author Antony Holmes
+ */
+public class JsonWriter extends Writer {
+
+  /** The stream if encoding bytes. */
+  private final OutputStream mOut;
+
+  /** The writer if writing characters. */
+  private final Writer mWriter;
+
+  /** The byte buffer. */
+  private final byte[] mBytes;
+
+  /** The char buffer. */
+  private final char[] mChars;
+
+  /** The number of bytes or chars in the buffer. */
+  private int mPos = 0;
+
+  /** A high surrogate waiting for its low surrogate. */
+  private char mHighSurrogate = 0;
+
+  /** Whether a comma is needed before the next value or name. */
+  private boolean mComma = false;
+
+  /**
+   * Instantiates a new json writer that encodes UTF-8 onto a stream.
+   *
+   * @param out the out
+   */
+  public JsonWriter(OutputStream out) {
+    mOut = out;
+    mWriter = null;
+    mBytes = StreamUtils.createBuffer();
+    mChars = null;
+  }
+
+  /**
+   * Instantiates a new json writer that writes characters to another writer.
+   *
+   * @param writer the writer
+   */
+  public JsonWriter(Writer writer) {
+    mOut = null;
+    mWriter = writer;
+    mBytes = null;
+    mChars = new char[StreamUtils.createBuffer().length];
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    if (mChars != null) {
+      if (mPos == mChars.length) {
+        flushBuffer();
+      }
+
+      mChars[mPos++] = (char) c;
+    } else {
+      encode((char) c);
+    }
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    int end = off + len;
+
+    if (mChars != null) {
+      while (off < end) {
+        if (mPos == mChars.length) {
+          flushBuffer();
+        }
+
+        int n = Math.min(end - off, mChars.length - mPos);
+
+        System.arraycopy(cbuf, off, mChars, mPos, n);
+
+        mPos += n;
+        off += n;
+      }
+    } else {
+      for (int i = off; i < end; ++i) {
+        encode(cbuf[i]);
+      }
+    }
+  }
+
+  @Override
+  public void write(String s, int off, int len) throws IOException {
+    int end = off + len;
+
+    if (mChars != null) {
+      while (off < end) {
+        if (mPos == mChars.length) {
+          flushBuffer();
+        }
+
+        int n = Math.min(end - off, mChars.length - mPos);
+
+        s.getChars(off, off + n, mChars, mPos);
+
+        mPos += n;
+        off += n;
+      }
+    } else {
+      for (int i = off; i < end; ++i) {
+        encode(s.charAt(i));
+      }
+    }
+  }
+
+  @Override
+  public void write(String s) throws IOException {
+    write(s, 0, s.length());
+  }
+
+  @Override
+  public Writer append(CharSequence csq) throws IOException {
+    if (csq == null) {
+      csq = JsonBuilder.JSON_NULL;
+    }
+
+    return append(csq, 0, csq.length());
+  }
+
+  @Override
+  public Writer append(CharSequence csq, int start, int end) throws IOException {
+    if (csq == null) {
+      csq = JsonBuilder.JSON_NULL;
+    }
+
+    if (csq instanceof String) {
+      write((String) csq, start, end - start);
+    } else {
+      for (int i = start; i < end; ++i) {
+        write(csq.charAt(i));
+      }
+    }
+
+    return this;
+  }
+
+  @Override
+  public Writer append(char c) throws IOException {
+    write(c);
+
+    return this;
+  }
+
+  /**
+   * Start a JSON array.
+   *
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter startArray() throws IOException {
+    addComma();
+    write(JsonBuilder.JSON_ARRAY_START);
+
+    mComma = false;
+
+    return this;
+  }
+
+  /**
+   * Start a JSON array as a field of an object.
+   *
+   * @param name the name
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter startArray(String name) throws IOException {
+    name(name);
+    write(JsonBuilder.JSON_ARRAY_START);
+
+    mComma = false;
+
+    return this;
+  }
+
+  /**
+   * End a JSON array.
+   *
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter endArray() throws IOException {
+    write(JsonBuilder.JSON_ARRAY_END);
+
+    mComma = true;
+
+    return this;
+  }
+
+  /**
+   * Start a JSON object.
+   *
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter startObject() throws IOException {
+    addComma();
+    write(JsonBuilder.JSON_OBJECT_START);
+
+    mComma = false;
+
+    return this;
+  }
+
+  /**
+   * Start a JSON object as a field of an object.
+   *
+   * @param name the name
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter startObject(String name) throws IOException {
+    name(name);
+    write(JsonBuilder.JSON_OBJECT_START);
+
+    mComma = false;
+
+    return this;
+  }
+
+  /**
+   * End a JSON object.
+   *
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter endObject() throws IOException {
+    write(JsonBuilder.JSON_OBJECT_END);
+
+    mComma = true;
+
+    return this;
+  }
+
+  /**
+   * Add a string to an array.
+   *
+   * @param s the s
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(String s) throws IOException {
+    addComma();
+    JsonString.escapeAndQuote(s, this);
+
+    return this;
+  }
+
+  /**
+   * Add an int to an array.
+   *
+   * @param v the v
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(int v) throws IOException {
+    return value(Integer.toString(v));
+  }
+
+  /**
+   * Add a long to an array.
+   *
+   * @param v the v
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(long v) throws IOException {
+    return value(Long.toString(v));
+  }
+
+  /**
+   * Add a double to an array.
+   *
+   * @param v the v
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(double v) throws IOException {
+    return value(Double.toString(v));
+  }
+
+  /**
+   * Add a boolean to an array.
+   *
+   * @param v the v
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(boolean v) throws IOException {
+    return value(Boolean.toString(v));
+  }
+
+  /**
+   * Add a Json value, such as a parsed object, to an array.
+   *
+   * @param json the json
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(Json json) throws IOException {
+    if (json == null) {
+      return addNull();
+    }
+
+    addComma();
+    json.toJson(this);
+
+    mComma = true;
+
+    return this;
+  }
+
+  /**
+   * Add null to an array.
+   *
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter addNull() throws IOException {
+    return value(JsonBuilder.JSON_NULL);
+  }
+
+  /**
+   * Add a string field to an object.
+   *
+   * @param name the name
+   * @param s    the s
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(String name, String s) throws IOException {
+    name(name);
+    JsonString.escapeAndQuote(s, this);
+
+    return this;
+  }
+
+  /**
+   * Add an int field to an object.
+   *
+   * @param name the name
+   * @param v    the v
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(String name, int v) throws IOException {
+    name(name);
+    write(Integer.toString(v));
+
+    return this;
+  }
+
+  /**
+   * Add a long field to an object.
+   *
+   * @param name the name
+   * @param v    the v
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(String name, long v) throws IOException {
+    name(name);
+    write(Long.toString(v));
+
+    return this;
+  }
+
+  /**
+   * Add a double field to an object.
+   *
+   * @param name the name
+   * @param v    the v
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(String name, double v) throws IOException {
+    name(name);
+    write(Double.toString(v));
+
+    return this;
+  }
+
+  /**
+   * Add a boolean field to an object.
+   *
+   * @param name the name
+   * @param v    the v
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(String name, boolean v) throws IOException {
+    name(name);
+    write(Boolean.toString(v));
+
+    return this;
+  }
+
+  /**
+   * Add a Json field to an object.
+   *
+   * @param name the name
+   * @param json the json
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter add(String name, Json json) throws IOException {
+    name(name);
+
+    if (json == null) {
+      write(JsonBuilder.JSON_NULL);
+    } else {
+      json.toJson(this);
+    }
+
+    return this;
+  }
+
+  /**
+   * Add a null field to an object.
+   *
+   * @param name the name
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public JsonWriter addNull(String name) throws IOException {
+    name(name);
+    write(JsonBuilder.JSON_NULL);
+
+    return this;
+  }
+
+  /**
+   * Write a bare value to an array.
+   *
+   * @param s the s
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private JsonWriter value(String s) throws IOException {
+    addComma();
+    write(s);
+
+    return this;
+  }
+
+  /**
+   * Write the name of a field. The value that follows completes the field, so
+   * a comma is needed before the next one.
+   *
+   * @param name the name
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void name(String name) throws IOException {
+    addComma();
+    JsonString.escapeAndQuote(name, this);
+    write(JsonBuilder.JSON_VALUE_DELIMITER);
+  }
+
+  /**
+   * Write a comma if the previous value needs one.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void addComma() throws IOException {
+    if (mComma) {
+      write(JsonBuilder.JSON_ARRAY_DELIMITER);
+    }
+
+    mComma = true;
+  }
+
+  /**
+   * Encode a character as UTF-8 into the byte buffer.
+   *
+   * @param c the c
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void encode(char c) throws IOException {
+    // Room for the longest sequence
+    if (mPos > mBytes.length - 4) {
+      flushBuffer();
+    }
+
+    byte[] b = mBytes;
+
+    if (mHighSurrogate != 0) {
+      char high = mHighSurrogate;
+      mHighSurrogate = 0;
+
+      if (Character.isLowSurrogate(c)) {
+        int cp = Character.toCodePoint(high, c);
+
+        b[mPos++] = (byte) (0xf0 | (cp >> 18));
+        b[mPos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+        b[mPos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+        b[mPos++] = (byte) (0x80 | (cp & 0x3f));
+
+        return;
+      }
+
+      // unpaired surrogate
+      b[mPos++] = '?';
+
+      encode(c);
+
+      return;
+    }
+
+    if (c < 0x80) {
+      b[mPos++] = (byte) c;
+    } else if (c < 0x800) {
+      b[mPos++] = (byte) (0xc0 | (c >> 6));
+      b[mPos++] = (byte) (0x80 | (c & 0x3f));
+    } else if (Character.isHighSurrogate(c)) {
+      mHighSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      b[mPos++] = '?';
+    } else {
+      b[mPos++] = (byte) (0xe0 | (c >> 12));
+      b[mPos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+      b[mPos++] = (byte) (0x80 | (c & 0x3f));
+    }
+  }
+
+  /**
+   * Write the buffer to the underlying stream or writer.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void flushBuffer() throws IOException {
+    if (mPos > 0) {
+      if (mOut != null) {
+        mOut.write(mBytes, 0, mPos);
+      } else {
+        mWriter.write(mChars, 0, mPos);
+      }
+
+      mPos = 0;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+
+    if (mOut != null) {
+      mOut.flush();
+    } else {
+      mWriter.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (mHighSurrogate != 0) {
+      mHighSurrogate = 0;
+      encode('?');
+    }
+
+    try {
+      flushBuffer();
+    } finally {
+      if (mOut != null) {
+        mOut.close();
+      } else {
+        mWriter.close();
+      }
+    }
+  }
+
+  /**
+   * Create a writer for a file.
+   *
+   * @param file the file
+   * @return the json writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static JsonWriter create(Path file) throws IOException {
+    return new JsonWriter(FileUtils.newOutputStream(file));
+  }
+}
@@ -0,0 +1,386 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.stream.IteratorStream;
+import org.jebtk.core.stream.Stream;
+
+/**
+ * Reads newline delimited JSON (NDJSON or JSON lines), where each line holds
+ * one JSON value. The input is read in large chunks that are cut at the last
+ * newline, and chunks are parsed in parallel on a fork join pool. Each worker
+ * thread reuses its own {@link JsonParser}. Only a bounded number of chunks
+ * are in flight at once, so memory use does not depend on the size of the
+ * input. Blank lines and lines containing only null are skipped.
+ *
+ * Values can be read in input order with {@link #stream()} or, slightly
+ * faster, passed to a callback in whatever order they are parsed with
+ * {@link #forEachUnordered(JsonFunction)}.
+ *
+ * @author Antony Holmes
+ */
+public class NdJsonReader implements Iterable<Json>, Closeable {
+
+  /** The default chunk size in bytes. */
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  /** Empty carry over. */
+  private static final byte[] EMPTY = {};
+
+  /**
+   * Called for each value when reading unordered.
+   */
+  public interface JsonFunction {
+
+    /**
+     * Called for each value. May be called from several threads at once.
+     *
+     * @param json the json
+     */
+    void apply(Json json);
+  }
+
+  /** The stream. */
+  private final InputStream mIn;
+
+  /** The pool. */
+  private final ForkJoinPool mPool;
+
+  /** The chunk size. */
+  private final int mChunkSize;
+
+  /** The maximum number of chunks being parsed at once. */
+  private final int mMaxInFlight;
+
+  /** A parser for each thread. */
+  private final ThreadLocal<JsonParser> mParsers = new ThreadLocal<JsonParser>() {
+    @Override
+    protected JsonParser initialValue() {
+      return new JsonParser();
+    }
+  };
+
+  /** Bytes after the last newline of the previous chunk. */
+  private byte[] mCarry = EMPTY;
+
+  /** The offset in the input of the next chunk. */
+  private long mOffset = 0;
+
+  /** Whether the stream has been read to the end. */
+  private boolean mEof = false;
+
+  /**
+   * A line aligned block of the input.
+   */
+  private static class Chunk {
+
+    /** The data. */
+    public final byte[] mData;
+
+    /** The length. */
+    public final int mLength;
+
+    /** The offset of the chunk in the input. */
+    public final long mOffset;
+
+    /**
+     * Instantiates a new chunk.
+     *
+     * @param data   the data
+     * @param length the length
+     * @param offset the offset
+     */
+    public Chunk(byte[] data, int length, long offset) {
+      mData = data;
+      mLength = length;
+      mOffset = offset;
+    }
+  }
+
+  /**
+   * Instantiates a new NDJSON reader using the common pool.
+   *
+   * @param in the in
+   */
+  public NdJsonReader(InputStream in) {
+    this(in, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Instantiates a new NDJSON reader.
+   *
+   * @param in        the in
+   * @param pool      the pool to parse on.
+   * @param chunkSize the number of bytes to give each task.
+   */
+  public NdJsonReader(InputStream in, ForkJoinPool pool, int chunkSize) {
+    mIn = in;
+    mPool = pool;
+    mChunkSize = Math.max(16, chunkSize);
+    mMaxInFlight = 2 * pool.getParallelism();
+  }
+
+  /**
+   * Read the next chunk of whole lines.
+   *
+   * @return the chunk or null at the end of the input.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private Chunk nextChunk() throws IOException {
+    if (mEof && mCarry.length == 0) {
+      return null;
+    }
+
+    byte[] data = Arrays.copyOf(mCarry, mCarry.length + mChunkSize);
+    int length = mCarry.length;
+
+    // Start searching for a newline in the newly read bytes
+    int scan = length;
+    int end = -1;
+
+    while (true) {
+      while (!mEof && length < data.length) {
+        int n = mIn.read(data, length, data.length - length);
+
+        if (n == -1) {
+          mEof = true;
+        } else {
+          length += n;
+        }
+      }
+
+      for (int i = length - 1; i >= scan; --i) {
+        if (data[i] == '\n') {
+          end = i + 1;
+          break;
+        }
+      }
+
+      if (end != -1 || mEof) {
+        break;
+      }
+
+      // A line longer than the chunk, so keep reading
+      scan = length;
+      data = Arrays.copyOf(data, data.length * 2);
+    }
+
+    if (end == -1) {
+      // The last line has no newline
+      end = length;
+    }
+
+    mCarry = Arrays.copyOfRange(data, end, length);
+
+    Chunk chunk = new Chunk(data, end, mOffset);
+
+    mOffset += end;
+
+    return chunk;
+  }
+
+  /**
+   * Parse the lines of a chunk.
+   *
+   * @param chunk the chunk
+   * @param f     the function to call for each value
+   */
+  private void parse(Chunk chunk, JsonFunction f) {
+    JsonParser parser = mParsers.get();
+
+    byte[] data = chunk.mData;
+
+    int start = 0;
+
+    for (int i = 0; i <= chunk.mLength; ++i) {
+      if (i == chunk.mLength || data[i] == '\n') {
+        if (i > start) {
+          Json json;
+
+          try {
+            json = parser.parse(data, start, i - start);
+          } catch (IOException e) {
+            throw new UncheckedIOException(
+                new IOException("Invalid JSON in line starting at byte " + (chunk.mOffset + start) + ".", e));
+          }
+
+          if (json != null) {
+            f.apply(json);
+          }
+        }
+
+        start = i + 1;
+      }
+    }
+  }
+
+  /**
+   * Create a task that parses a chunk into a list.
+   *
+   * @param chunk the chunk
+   * @return the fork join task
+   */
+  private ForkJoinTask<List<Json>> listTask(final Chunk chunk) {
+    return new RecursiveTask<List<Json>>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected List<Json> compute() {
+        final List<Json> ret = new ArrayList<Json>();
+
+        parse(chunk, new JsonFunction() {
+          @Override
+          public void apply(Json json) {
+            ret.add(json);
+          }
+        });
+
+        return ret;
+      }
+    };
+  }
+
+  /**
+   * Returns the values in input order. Chunks are parsed ahead of the
+   * consumer in parallel. IO and parse errors are thrown as
+   * {@link UncheckedIOException}.
+   *
+   * @return the stream
+   */
+  public Stream<Json> stream() {
+    return new IteratorStream<Json>(iterator());
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public Iterator<Json> iterator() {
+    return new Iterator<Json>() {
+      private final Deque<ForkJoinTask<List<Json>>> mPending = new ArrayDeque<ForkJoinTask<List<Json>>>();
+
+      private Iterator<Json> mCurrent = null;
+
+      @Override
+      public boolean hasNext() {
+        while (mCurrent == null || !mCurrent.hasNext()) {
+          try {
+            Chunk chunk;
+
+            while (mPending.size() < mMaxInFlight && (chunk = nextChunk()) != null) {
+              mPending.add(mPool.submit(listTask(chunk)));
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+
+          if (mPending.isEmpty()) {
+            return false;
+          }
+
+          mCurrent = mPending.poll().join().iterator();
+        }
+
+        return true;
+      }
+
+      @Override
+      public Json next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        return mCurrent.next();
+      }
+    };
+  }
+
+  /**
+   * Parse the whole input, calling a function for each value as soon as it is
+   * parsed. Values are not delivered in input order and the function is called
+   * from several threads at once, so it must be thread safe. Returns once every
+   * value has been processed.
+   *
+   * @param f the f
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void forEachUnordered(final JsonFunction f) throws IOException {
+    Deque<ForkJoinTask<Void>> pending = new ArrayDeque<ForkJoinTask<Void>>();
+
+    Chunk chunk;
+
+    try {
+      while ((chunk = nextChunk()) != null) {
+        if (pending.size() == mMaxInFlight) {
+          pending.poll().join();
+        }
+
+        final Chunk c = chunk;
+
+        pending.add(mPool.submit(new RecursiveAction() {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected void compute() {
+            parse(c, f);
+          }
+        }));
+      }
+
+      while (!pending.isEmpty()) {
+        pending.poll().join();
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    mIn.close();
+  }
+
+  /**
+   * Open a reader on an NDJSON file.
+   *
+   * @param file the file
+   * @return the nd json reader
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static NdJsonReader open(Path file) throws IOException {
+    return new NdJsonReader(FileUtils.newInputStream(file));
+  }
+}
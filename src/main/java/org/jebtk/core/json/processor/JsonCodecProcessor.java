@@ -0,0 +1,707 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.json.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import org.jebtk.core.json.JsonBind;
+import org.jebtk.core.json.JsonField;
+import org.jebtk.core.json.JsonString;
+
+/**
+ * Generates a {@link org.jebtk.core.json.JsonCodec} for each class annotated
+ * with {@link JsonBind}. The generated codecs stream values directly to and
+ * from JSON text using {@link org.jebtk.core.json.JsonReader} and an
+ * {@link Appendable} such as {@link org.jebtk.core.json.JsonWriter}, so no
+ * {@link org.jebtk.core.json.Json} tree is built and no reflection is used.
+ * Member names are matched by switching on their hash code, with the hashes
+ * of the known names computed here at compile time, and member names are
+ * written from precomputed literals.
+ *
+ * The processor is registered as a service in this jar so it runs
+ * automatically when the jar is on the compile class path.
+ *
+ * @author Antony Holmes
+ */
+@SupportedAnnotationTypes("org.jebtk.core.json.JsonBind")
+public class JsonCodecProcessor extends AbstractProcessor {
+
+  /** The suffix of generated class names. */
+  public static final String SUFFIX = "JsonCodec";
+
+  /**
+   * A bound field.
+   */
+  private static class Binding {
+
+    /** The member name. */
+    public String mName;
+
+    /** The field type. */
+    public TypeMirror mType;
+
+    /** Expression to get the value from the object {@code value}. */
+    public String mGet;
+
+    /** Statement prefix to set the value on the object {@code ret}. */
+    public String mSet;
+
+    /** Suffix of the set statement. */
+    public String mSetEnd;
+
+    /** Expression of the codec for reference types. */
+    public String mCodec;
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element e : roundEnv.getElementsAnnotatedWith(JsonBind.class)) {
+      if (e.getKind() != ElementKind.CLASS) {
+        error(e, "@JsonBind can only be used on classes.");
+        continue;
+      }
+
+      try {
+        generate((TypeElement) e);
+      } catch (IOException ex) {
+        error(e, "Could not write JSON codec: " + ex.getMessage());
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Generate the codec for a class.
+   *
+   * @param type the type
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void generate(TypeElement type) throws IOException {
+    if (!check(type)) {
+      return;
+    }
+
+    String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    String name = codecSimpleName(type);
+    String typeName = type.getQualifiedName().toString();
+    String qualifiedName = pkg.length() > 0 ? pkg + "." + name : name;
+
+    List<Binding> bindings = bind(type, pkg);
+
+    if (bindings == null) {
+      return;
+    }
+
+    // Codecs that must be constructed are created once
+    List<String> fields = new ArrayList<String>();
+
+    for (Binding b : bindings) {
+      if (b.mCodec != null && b.mCodec.indexOf('(') != -1) {
+        String field = "CODEC_" + fields.size();
+
+        fields.add("  private static final JsonCodec<" + b.mType + "> " + field + " = " + b.mCodec + ";");
+
+        b.mCodec = field;
+      }
+    }
+
+    StringBuilder s = new StringBuilder();
+
+    if (pkg.length() > 0) {
+      s.append("package ").append(pkg).append(";\n\n");
+    }
+
+    s.append("import java.io.IOException;\n\n");
+    s.append("import org.jebtk.core.json.JsonCodec;\n");
+    s.append("import org.jebtk.core.json.JsonCodecs;\n");
+    s.append("import org.jebtk.core.json.JsonReader;\n");
+    s.append("import org.jebtk.core.json.JsonToken;\n\n");
+
+    s.append("/**\n");
+    s.append(" * Streaming JSON codec for {@link ").append(typeName).append("}.\n");
+    s.append(" */\n");
+
+    if (processingEnv.getElementUtils().getTypeElement("javax.annotation.processing.Generated") != null) {
+      s.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+    }
+
+    if (type.getModifiers().contains(Modifier.PUBLIC)) {
+      s.append("public ");
+    }
+
+    s.append("final class ").append(name).append(" implements JsonCodec<").append(typeName).append("> {\n\n");
+
+    s.append("  public static final ").append(name).append(" INSTANCE = new ").append(name).append("();\n\n");
+
+    for (String field : fields) {
+      s.append(field).append("\n");
+    }
+
+    if (fields.size() > 0) {
+      s.append("\n");
+    }
+
+    s.append("  private ").append(name).append("() {\n");
+    s.append("  }\n\n");
+
+    writeRead(typeName, bindings, s);
+    writeWrite(typeName, bindings, s);
+
+    s.append("}\n");
+
+    Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+
+    try {
+      writer.write(s.toString());
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Write the read method.
+   *
+   * @param typeName the type name
+   * @param bindings the bindings
+   * @param s        the s
+   */
+  private static void writeRead(String typeName, List<Binding> bindings, StringBuilder s) {
+    // Group the members by hash code in case two names collide
+    Map<Integer, List<Binding>> hashes = new TreeMap<Integer, List<Binding>>();
+
+    for (Binding b : bindings) {
+      int hash = b.mName.hashCode();
+
+      if (!hashes.containsKey(hash)) {
+        hashes.put(hash, new ArrayList<Binding>());
+      }
+
+      hashes.get(hash).add(b);
+    }
+
+    s.append("  @Override\n");
+    s.append("  public ").append(typeName).append(" read(JsonReader reader) throws IOException {\n");
+    s.append("    JsonToken t = reader.nextToken();\n\n");
+    s.append("    if (t == JsonToken.NULL) {\n");
+    s.append("      return null;\n");
+    s.append("    }\n\n");
+    s.append("    JsonCodecs.expect(JsonToken.START_OBJECT, t);\n\n");
+    s.append("    ").append(typeName).append(" ret = new ").append(typeName).append("();\n\n");
+    s.append("    while ((t = reader.nextToken()) == JsonToken.FIELD_NAME) {\n");
+
+    if (hashes.size() > 0) {
+      s.append("      String name = reader.getName();\n\n");
+      s.append("      switch (name.hashCode()) {\n");
+
+      for (Map.Entry<Integer, List<Binding>> e : hashes.entrySet()) {
+        s.append("      case ").append(e.getKey()).append(":\n");
+
+        for (Binding b : e.getValue()) {
+          s.append("        if (name.equals(").append(javaString(b.mName)).append(")) {\n");
+          s.append("          ").append(b.mSet).append(readExpr(b)).append(b.mSetEnd).append(";\n");
+          s.append("          continue;\n");
+          s.append("        }\n");
+        }
+
+        s.append("        break;\n");
+      }
+
+      s.append("      default:\n");
+      s.append("        break;\n");
+      s.append("      }\n\n");
+    }
+
+    s.append("      reader.skipValue();\n");
+    s.append("    }\n\n");
+    s.append("    JsonCodecs.expect(JsonToken.END_OBJECT, t);\n\n");
+    s.append("    return ret;\n");
+    s.append("  }\n\n");
+  }
+
+  /**
+   * Write the write method.
+   *
+   * @param typeName the type name
+   * @param bindings the bindings
+   * @param s        the s
+   */
+  private static void writeWrite(String typeName, List<Binding> bindings, StringBuilder s) {
+    s.append("  @Override\n");
+    s.append("  public void write(").append(typeName).append(" value, Appendable out) throws IOException {\n");
+    s.append("    if (value == null) {\n");
+    s.append("      out.append(\"null\");\n");
+    s.append("      return;\n");
+    s.append("    }\n\n");
+
+    for (int i = 0; i < bindings.size(); ++i) {
+      Binding b = bindings.get(i);
+
+      StringBuilder key = new StringBuilder();
+      key.append(i == 0 ? '{' : ',');
+      JsonString.escapeAndQuote(b.mName, key);
+      key.append(':');
+
+      s.append("    out.append(").append(javaString(key.toString())).append(");\n");
+
+      if (b.mCodec != null) {
+        s.append("    ").append(b.mCodec).append(".write(").append(b.mGet).append(", out);\n");
+      } else {
+        s.append("    JsonCodecs.write(").append(b.mGet).append(", out);\n");
+      }
+    }
+
+    if (bindings.size() == 0) {
+      s.append("    out.append('{');\n");
+    }
+
+    s.append("    out.append('}');\n");
+    s.append("  }\n");
+  }
+
+  /**
+   * Returns the expression that reads a field's value.
+   *
+   * @param b the b
+   * @return the string
+   */
+  private static String readExpr(Binding b) {
+    if (b.mCodec != null) {
+      return b.mCodec + ".read(reader)";
+    }
+
+    switch (b.mType.getKind()) {
+    case INT:
+      return "JsonCodecs.readInt(reader)";
+    case SHORT:
+      return "(short) JsonCodecs.readInt(reader)";
+    case BYTE:
+      return "(byte) JsonCodecs.readInt(reader)";
+    case LONG:
+      return "JsonCodecs.readLong(reader)";
+    case FLOAT:
+      return "(float) JsonCodecs.readDouble(reader)";
+    case DOUBLE:
+      return "JsonCodecs.readDouble(reader)";
+    default:
+      return "JsonCodecs.readBool(reader)";
+    }
+  }
+
+  /**
+   * Check a class can have a codec generated.
+   *
+   * @param type the type
+   * @return true, if successful
+   */
+  private boolean check(TypeElement type) {
+    if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+      error(type, "@JsonBind classes cannot be abstract.");
+      return false;
+    }
+
+    if (type.getTypeParameters().size() > 0) {
+      error(type, "@JsonBind classes cannot be generic.");
+      return false;
+    }
+
+    for (Element e = type; e.getKind() == ElementKind.CLASS; e = e.getEnclosingElement()) {
+      if (e.getModifiers().contains(Modifier.PRIVATE)) {
+        error(type, "@JsonBind classes cannot be private.");
+        return false;
+      }
+
+      if (e.getEnclosingElement().getKind() == ElementKind.CLASS && !e.getModifiers().contains(Modifier.STATIC)) {
+        error(type, "Nested @JsonBind classes must be static.");
+        return false;
+      }
+    }
+
+    for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE)) {
+        return true;
+      }
+    }
+
+    error(type, "@JsonBind classes need a non private no argument constructor.");
+
+    return false;
+  }
+
+  /**
+   * Bind the fields of a class and its super classes.
+   *
+   * @param type the type
+   * @param pkg  the package of the generated codec
+   * @return the bindings or null if there was an error.
+   */
+  private List<Binding> bind(TypeElement type, String pkg) {
+    // Super classes first so members are in declaration order
+    List<TypeElement> classes = new ArrayList<TypeElement>();
+
+    for (TypeElement t = type; t != null; t = superclass(t)) {
+      classes.add(0, t);
+    }
+
+    List<ExecutableElement> methods = ElementFilter
+        .methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+
+    List<Binding> ret = new ArrayList<Binding>();
+
+    Set<String> used = new HashSet<String>();
+
+    boolean ok = true;
+
+    for (TypeElement t : classes) {
+      for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+        Set<Modifier> modifiers = field.getModifiers();
+
+        if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+          continue;
+        }
+
+        String fieldName = field.getSimpleName().toString();
+
+        Binding b = new Binding();
+        b.mName = memberName(field);
+        b.mType = field.asType();
+
+        if (!used.add(b.mName)) {
+          error(field, "Duplicate JSON member " + b.mName + ".");
+          ok = false;
+          continue;
+        }
+
+        if (!b.mType.getKind().isPrimitive() || b.mType.getKind() == TypeKind.CHAR) {
+          b.mCodec = codec(b.mType);
+
+          if (b.mCodec == null) {
+            error(field, "Type " + b.mType + " is not supported by @JsonBind.");
+            ok = false;
+            continue;
+          }
+        }
+
+        boolean accessible = isAccessible(field, pkg);
+
+        String property = capitalize(propertyName(field));
+
+        if (accessible) {
+          b.mGet = "value." + fieldName;
+        } else {
+          ExecutableElement getter = find(methods, pkg, "get" + property, 0);
+
+          if (getter == null && b.mType.getKind() == TypeKind.BOOLEAN) {
+            getter = find(methods, pkg, "is" + property, 0);
+          }
+
+          if (getter == null) {
+            error(field, "Field " + fieldName + " is not accessible and has no get" + property + "() method.");
+            ok = false;
+            continue;
+          }
+
+          b.mGet = "value." + getter.getSimpleName() + "()";
+        }
+
+        if (accessible && !modifiers.contains(Modifier.FINAL)) {
+          b.mSet = "ret." + fieldName + " = ";
+          b.mSetEnd = "";
+        } else {
+          ExecutableElement setter = find(methods, pkg, "set" + property, 1);
+
+          if (setter == null) {
+            error(field, "Field " + fieldName + " cannot be set and has no set" + property + "() method.");
+            ok = false;
+            continue;
+          }
+
+          b.mSet = "ret." + setter.getSimpleName() + "(";
+          b.mSetEnd = ")";
+        }
+
+        ret.add(b);
+      }
+    }
+
+    return ok ? ret : null;
+  }
+
+  /**
+   * Returns the codec expression for a reference type or null if the type is
+   * not supported.
+   *
+   * @param type the type
+   * @return the string
+   */
+  private String codec(TypeMirror type) {
+    if (type.getKind() == TypeKind.ARRAY) {
+      switch (((ArrayType) type).getComponentType().getKind()) {
+      case INT:
+        return "JsonCodecs.INT_ARRAY";
+      case LONG:
+        return "JsonCodecs.LONG_ARRAY";
+      case DOUBLE:
+        return "JsonCodecs.DOUBLE_ARRAY";
+      default:
+        return null;
+      }
+    }
+
+    if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+
+    TypeElement e = (TypeElement) ((DeclaredType) type).asElement();
+
+    String name = e.getQualifiedName().toString();
+
+    switch (name) {
+    case "java.lang.String":
+      return "JsonCodecs.STRING";
+    case "java.lang.Integer":
+      return "JsonCodecs.INTEGER";
+    case "java.lang.Long":
+      return "JsonCodecs.LONG";
+    case "java.lang.Double":
+      return "JsonCodecs.DOUBLE";
+    case "java.lang.Float":
+      return "JsonCodecs.FLOAT";
+    case "java.lang.Boolean":
+      return "JsonCodecs.BOOLEAN";
+    case "java.util.List":
+      List<? extends TypeMirror> args = ((DeclaredType) type).getTypeArguments();
+
+      if (args.size() != 1) {
+        return null;
+      }
+
+      String codec = codec(args.get(0));
+
+      return codec != null ? "JsonCodecs.listCodec(" + codec + ")" : null;
+    default:
+      break;
+    }
+
+    if (e.getKind() == ElementKind.ENUM) {
+      return "JsonCodecs.enumCodec(" + name + ".values())";
+    }
+
+    if (e.getAnnotation(JsonBind.class) != null) {
+      String pkg = processingEnv.getElementUtils().getPackageOf(e).getQualifiedName().toString();
+
+      return (pkg.length() > 0 ? pkg + "." : "") + codecSimpleName(e) + ".INSTANCE";
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the member name of a field, which is either given by
+   * {@link JsonField} or is the field name with any {@code m} prefix removed,
+   * so that {@code mName} becomes {@code name}.
+   *
+   * @param field the field
+   * @return the string
+   */
+  private static String memberName(VariableElement field) {
+    JsonField a = field.getAnnotation(JsonField.class);
+
+    if (a != null) {
+      return a.value();
+    }
+
+    return propertyName(field);
+  }
+
+  /**
+   * Returns the bean property name of a field, which is the field name with
+   * any {@code m} prefix removed. Accessors are looked up by this name even
+   * when the member is renamed with {@link JsonField}.
+   *
+   * @param field the field
+   * @return the string
+   */
+  private static String propertyName(VariableElement field) {
+    String name = field.getSimpleName().toString();
+
+    if (name.length() > 1 && name.charAt(0) == 'm' && Character.isUpperCase(name.charAt(1))) {
+      return Character.toLowerCase(name.charAt(1)) + name.substring(2);
+    }
+
+    return name;
+  }
+
+  /**
+   * Find an accessible method by name and number of parameters.
+   *
+   * @param methods the methods
+   * @param pkg     the pkg
+   * @param name    the name
+   * @param params  the params
+   * @return the executable element
+   */
+  private static ExecutableElement find(List<ExecutableElement> methods, String pkg, String name, int params) {
+    for (ExecutableElement m : methods) {
+      if (m.getSimpleName().contentEquals(name) && m.getParameters().size() == params
+          && !m.getModifiers().contains(Modifier.STATIC) && isAccessible(m, pkg)) {
+        return m;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns true if a member can be used from a package.
+   *
+   * @param e   the e
+   * @param pkg the pkg
+   * @return true, if is accessible
+   */
+  private static boolean isAccessible(Element e, String pkg) {
+    Set<Modifier> modifiers = e.getModifiers();
+
+    if (modifiers.contains(Modifier.PUBLIC)) {
+      return true;
+    }
+
+    if (modifiers.contains(Modifier.PRIVATE)) {
+      return false;
+    }
+
+    Element p = e;
+
+    while (p.getKind() != ElementKind.PACKAGE) {
+      p = p.getEnclosingElement();
+    }
+
+    return p.toString().equals(pkg);
+  }
+
+  /**
+   * Returns the super class of a type or null if it is Object.
+   *
+   * @param type the type
+   * @return the type element
+   */
+  private static TypeElement superclass(TypeElement type) {
+    TypeMirror s = type.getSuperclass();
+
+    if (s.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+
+    TypeElement e = (TypeElement) ((DeclaredType) s).asElement();
+
+    return e.getQualifiedName().contentEquals("java.lang.Object") ? null : e;
+  }
+
+  /**
+   * Returns the simple name of the codec for a class. Nested classes include
+   * the names of their outer classes separated by underscores.
+   *
+   * @param type the type
+   * @return the string
+   */
+  public static String codecSimpleName(TypeElement type) {
+    StringBuilder buffer = new StringBuilder(type.getSimpleName());
+
+    for (Element e = type.getEnclosingElement(); e.getKind() != ElementKind.PACKAGE; e = e
+        .getEnclosingElement()) {
+      buffer.insert(0, '_').insert(0, e.getSimpleName());
+    }
+
+    return buffer.append(SUFFIX).toString();
+  }
+
+  /**
+   * Capitalize the first letter of a name.
+   *
+   * @param name the name
+   * @return the string
+   */
+  private static String capitalize(String name) {
+    if (name.length() == 0) {
+      return name;
+    }
+
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  /**
+   * Returns a string as a Java string literal.
+   *
+   * @param s the s
+   * @return the string
+   */
+  private static String javaString(String s) {
+    StringBuilder buffer = new StringBuilder("\"");
+
+    for (int i = 0; i < s.length(); ++i) {
+      char c = s.charAt(i);
+
+      if (c == '"' || c == '\\') {
+        buffer.append('\\').append(c);
+      } else if (c < 0x20 || c > 0x7e) {
+        buffer.append(String.format("\\u%04x", (int) c));
+      } else {
+        buffer.append(c);
+      }
+    }
+
+    return buffer.append('"').toString();
+  }
+
+  /**
+   * Report an error.
+   *
+   * @param e       the e
+   * @param message the message
+   */
+  private void error(Element e, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+  }
+}
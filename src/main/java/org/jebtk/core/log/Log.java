@@ -16,6 +16,8 @@
 package org.jebtk.core.log;
 
 import java.text.DateFormat;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 
 /**
  * The class Log.
@@ -29,9 +31,18 @@ public class Log extends LogEventListeners implements LogEventListener {
 
   /**
    * The constant DATE_FORMAT.
+   *
+   * @deprecated DateFormat is not thread safe, use {@link #DATE_FORMATTER}.
    */
+  @Deprecated
   public static final DateFormat DATE_FORMAT = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM);
 
+  /**
+   * The thread safe formatter used to timestamp log events.
+   */
+  public static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT,
+      FormatStyle.MEDIUM);
+
   /**
    * The member name.
    */
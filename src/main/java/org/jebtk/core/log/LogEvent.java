@@ -18,6 +18,7 @@ package org.jebtk.core.log;
 import java.util.Date;
 
 import org.jebtk.core.event.Event;
+import org.jebtk.core.text.DateUtils;
 
 /**
  * The class LogEvent.
@@ -57,7 +58,7 @@ public class LogEvent extends Event {
     this.type = type;
 
     this.date = new Date();
-    this.formattedDate = Log.DATE_FORMAT.format(date.getTime());
+    this.formattedDate = DateUtils.format(date, Log.DATE_FORMATTER);
   }
 
   /**
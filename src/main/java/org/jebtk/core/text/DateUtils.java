@@ -18,14 +18,25 @@ package org.jebtk.core.text;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The Class DateUtils.
+ *
+ * The {@link DateFormat} methods return new, non thread safe instances on
+ * each call. The {@code java.time} methods use immutable, cached
+ * {@link DateTimeFormatter}s and are safe to call from multiple threads.
  */
 public class DateUtils {
 
@@ -35,6 +46,92 @@ public class DateUtils {
   /** The Constant YYYY_FORMAT. */
   public static final String YYYY_FORMAT = "yyyy";
 
+  /** The Constant YYYYMMDD_FORMAT. */
+  public static final String YYYYMMDD_FORMAT = "yyyy-MM-dd";
+
+  /** Formatter for {@link #MMDDYYYY_FORMAT}. */
+  public static final DateTimeFormatter MMDDYYYY_FORMATTER = DateTimeFormatter.ofPattern(MMDDYYYY_FORMAT);
+
+  /** Formatter for {@link #YYYYMMDD_FORMAT}. */
+  public static final DateTimeFormatter YYYYMMDD_FORMATTER = DateTimeFormatter.ofPattern(YYYYMMDD_FORMAT);
+
+  /** Number of entries in each parse memo. */
+  private static final int MEMO_SIZE = 256;
+
+  /** Formatters keyed by pattern. */
+  private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<String, DateTimeFormatter>();
+
+  /** Parse memos keyed by pattern. */
+  private static final Map<String, ParseMemo> MEMOS = new ConcurrentHashMap<String, ParseMemo>();
+
+  /**
+   * Remembers the most recently parsed dates for a formatter. Entries are
+   * immutable so the table can be read and written without locking; a racing
+   * thread at worst misses and parses the date again.
+   */
+  private static final class ParseMemo {
+
+    /**
+     * A memo entry.
+     */
+    private static final class MemoEntry {
+
+      /** The text. */
+      private final String mText;
+
+      /** The date. */
+      private final LocalDate mDate;
+
+      /**
+       * Instantiates a new memo entry.
+       *
+       * @param text the text
+       * @param date the date
+       */
+      public MemoEntry(String text, LocalDate date) {
+        mText = text;
+        mDate = date;
+      }
+    }
+
+    /** The formatter. */
+    private final DateTimeFormatter mFormatter;
+
+    /** The entries. */
+    private final MemoEntry[] mEntries = new MemoEntry[MEMO_SIZE];
+
+    /**
+     * Instantiates a new parse memo.
+     *
+     * @param formatter the formatter
+     */
+    public ParseMemo(DateTimeFormatter formatter) {
+      mFormatter = formatter;
+    }
+
+    /**
+     * Parses a date.
+     *
+     * @param text the text
+     * @return the local date
+     */
+    public LocalDate parse(String text) {
+      int i = text.hashCode() & (MEMO_SIZE - 1);
+
+      MemoEntry e = mEntries[i];
+
+      if (e != null && e.mText.equals(text)) {
+        return e.mDate;
+      }
+
+      LocalDate date = LocalDate.parse(text, mFormatter);
+
+      mEntries[i] = new MemoEntry(text, date);
+
+      return date;
+    }
+  }
+
   /**
    * Instantiates a new date utils.
    */
@@ -67,7 +164,7 @@ public class DateUtils {
    * @return the list
    */
   public static List<String> format(Collection<Date> dates) {
-    return format(dates, createMMDDYYYYFormat());
+    return format(dates, MMDDYYYY_FORMAT);
   }
 
   /**
@@ -88,6 +185,177 @@ public class DateUtils {
 
   }
 
+  /**
+   * Format a collection of dates using a cached {@code java.time} formatter.
+   *
+   * @param dates   the dates
+   * @param pattern the pattern
+   * @return the list
+   */
+  public static List<String> format(Collection<Date> dates, String pattern) {
+    DateTimeFormatter formatter = getFormatter(pattern);
+
+    List<String> ret = new ArrayList<>(dates.size());
+
+    for (Date date : dates) {
+      ret.add(format(date, formatter));
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns an immutable, thread safe formatter for a pattern. Formatters are
+   * created once per pattern and then reused.
+   *
+   * @param pattern the pattern
+   * @return the formatter
+   */
+  public static DateTimeFormatter getFormatter(String pattern) {
+    DateTimeFormatter formatter = FORMATTERS.get(pattern);
+
+    if (formatter == null) {
+      formatter = DateTimeFormatter.ofPattern(pattern);
+      FORMATTERS.putIfAbsent(pattern, formatter);
+    }
+
+    return formatter;
+  }
+
+  /**
+   * Format a date using the system time zone.
+   *
+   * @param date      the date
+   * @param formatter the formatter
+   * @return the string
+   */
+  public static String format(Date date, DateTimeFormatter formatter) {
+    return formatter.format(date.toInstant().atZone(ZoneId.systemDefault()));
+  }
+
+  /**
+   * Format a date or time.
+   *
+   * @param date    the date
+   * @param pattern the pattern
+   * @return the string
+   */
+  public static String format(TemporalAccessor date, String pattern) {
+    return getFormatter(pattern).format(date);
+  }
+
+  /**
+   * Parse a date. Recently parsed strings are remembered for each pattern so
+   * that the repeated dates common in log and metadata files are only parsed
+   * once.
+   *
+   * @param text    the text
+   * @param pattern the pattern
+   * @return the local date
+   */
+  public static LocalDate parseDate(String text, String pattern) {
+    ParseMemo memo = MEMOS.get(pattern);
+
+    if (memo == null) {
+      memo = new ParseMemo(getFormatter(pattern));
+      ParseMemo current = MEMOS.putIfAbsent(pattern, memo);
+
+      if (current != null) {
+        memo = current;
+      }
+    }
+
+    return memo.parse(text);
+  }
+
+  /**
+   * Parse a date in the ISO yyyy-MM-dd format.
+   *
+   * @param text the text
+   * @return the local date
+   */
+  public static LocalDate parseDate(String text) {
+    return parseDate(text, YYYYMMDD_FORMAT);
+  }
+
+  /**
+   * Returns a timestamp in ISO-8601 format (yyyy-MM-ddTHH:mm:ss.SSSZ, UTC).
+   *
+   * @param ms milliseconds since the epoch
+   * @return the string
+   */
+  public static String formatIsoTimestamp(long ms) {
+    StringBuilder buffer = new StringBuilder(24);
+
+    appendIsoTimestamp(ms, buffer);
+
+    return buffer.toString();
+  }
+
+  /**
+   * Append a timestamp in ISO-8601 format (yyyy-MM-ddTHH:mm:ss.SSSZ, UTC) to
+   * a buffer. The date fields are calculated directly from the epoch time so
+   * no intermediate objects are created.
+   *
+   * @param ms     milliseconds since the epoch
+   * @param buffer the buffer
+   */
+  public static void appendIsoTimestamp(long ms, StringBuilder buffer) {
+    long days = Math.floorDiv(ms, 86400000L);
+    int msOfDay = (int) (ms - days * 86400000L);
+
+    // Convert days since the epoch to a civil date (H. Hinnant's algorithm)
+    long z = days + 719468;
+    long era = Math.floorDiv(z, 146097);
+    int doe = (int) (z - era * 146097);
+    int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    int mp = (5 * doy + 2) / 153;
+    int day = doy - (153 * mp + 2) / 5 + 1;
+    int month = mp < 10 ? mp + 3 : mp - 9;
+    long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+    if (year < 0 || year > 9999) {
+      buffer.append(Instant.ofEpochMilli(ms).toString());
+      return;
+    }
+
+    appendDigits((int) year, 4, buffer);
+    buffer.append('-');
+    appendDigits(month, 2, buffer);
+    buffer.append('-');
+    appendDigits(day, 2, buffer);
+    buffer.append('T');
+    appendDigits(msOfDay / 3600000, 2, buffer);
+    buffer.append(':');
+    appendDigits((msOfDay / 60000) % 60, 2, buffer);
+    buffer.append(':');
+    appendDigits((msOfDay / 1000) % 60, 2, buffer);
+    buffer.append('.');
+    appendDigits(msOfDay % 1000, 3, buffer);
+    buffer.append('Z');
+  }
+
+  /**
+   * Append a zero padded positive number to a buffer.
+   *
+   * @param v      the v
+   * @param digits the number of digits
+   * @param buffer the buffer
+   */
+  private static void appendDigits(int v, int digits, StringBuilder buffer) {
+    int div = 1;
+
+    for (int i = 1; i < digits; ++i) {
+      div *= 10;
+    }
+
+    while (div > 0) {
+      buffer.append((char) ('0' + (v / div) % 10));
+      div /= 10;
+    }
+  }
+
   /**
    * Gets the rev formatted date.
    *
@@ -105,7 +373,7 @@ public class DateUtils {
    * @return the american formatted date
    */
   public static final String getAmericanFormattedDate(Date date) {
-    return createAmericanDateFormat().format(date);
+    return format(date, MMDDYYYY_FORMATTER);
   }
 
   /**
@@ -125,6 +393,6 @@ public class DateUtils {
    * @return the string
    */
   public static String year() {
-    return new SimpleDateFormat(YYYY_FORMAT).format(Calendar.getInstance().getTime());
+    return Integer.toString(Year.now().getValue());
   }
 }
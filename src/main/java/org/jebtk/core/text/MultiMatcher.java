@@ -0,0 +1,397 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.text;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Finds many literal strings in a text in a single pass using the
+ * Aho-Corasick algorithm. The cost of a search is proportional to the length
+ * of the text plus the number of matches, rather than the number of needles
+ * times the length of the text. Matchers are immutable once compiled and can
+ * be shared between threads.
+ *
+ * @author Antony Holmes
+ */
+public class MultiMatcher {
+
+  /** The needles, indexed by id. */
+  private final String[] mNeedles;
+
+  /** Offset of the first edge of each state in the edge arrays. */
+  private final int[] mEdgeStart;
+
+  /** The edge characters of each state, sorted. */
+  private final char[] mEdgeChars;
+
+  /** The target state of each edge. */
+  private final int[] mEdgeTargets;
+
+  /** The failure link of each state. */
+  private final int[] mFail;
+
+  /** The needle ending at each state or -1. */
+  private final int[] mOut;
+
+  /** The nearest state on the failure chain that has an output or 0. */
+  private final int[] mDictLink;
+
+  /** Whether matching is case sensitive. */
+  private final boolean mCaseSensitive;
+
+  /** Whether matches must be whole words. */
+  private final boolean mWholeWord;
+
+  /** Whether the empty string is a needle, which matches every text. */
+  private final boolean mMatchEmpty;
+
+  /**
+   * Callback for each match found in a text.
+   */
+  public interface MatchFunction {
+
+    /**
+     * Called for each match.
+     *
+     * @param needle the index of the needle.
+     * @param start  the start of the match in the text (inclusive).
+     * @param end    the end of the match in the text (exclusive).
+     * @return true to continue searching, false to stop.
+     */
+    boolean match(int needle, int start, int end);
+  }
+
+  /**
+   * Instantiates a new multi matcher.
+   *
+   * @param needles       the needles
+   * @param caseSensitive the case sensitive
+   * @param wholeWord     the whole word
+   */
+  private MultiMatcher(Collection<String> needles, boolean caseSensitive, boolean wholeWord) {
+    mCaseSensitive = caseSensitive;
+    mWholeWord = wholeWord;
+
+    // Remove duplicates after case folding
+    Set<String> unique = new LinkedHashSet<String>();
+
+    boolean matchEmpty = false;
+
+    for (String needle : needles) {
+      if (needle == null) {
+        continue;
+      }
+
+      if (needle.length() == 0) {
+        matchEmpty = true;
+      } else {
+        unique.add(fold(needle));
+      }
+    }
+
+    mMatchEmpty = matchEmpty;
+    mNeedles = unique.toArray(new String[unique.size()]);
+
+    // Build the trie
+
+    List<TreeMap<Character, Integer>> trie = new ArrayList<TreeMap<Character, Integer>>();
+    trie.add(new TreeMap<Character, Integer>());
+
+    List<Integer> out = new ArrayList<Integer>();
+    out.add(-1);
+
+    for (int i = 0; i < mNeedles.length; ++i) {
+      String needle = mNeedles[i];
+
+      int s = 0;
+
+      for (int j = 0; j < needle.length(); ++j) {
+        char c = needle.charAt(j);
+
+        Integer t = trie.get(s).get(c);
+
+        if (t == null) {
+          t = trie.size();
+          trie.get(s).put(c, t);
+          trie.add(new TreeMap<Character, Integer>());
+          out.add(-1);
+        }
+
+        s = t;
+      }
+
+      out.set(s, i);
+    }
+
+    int n = trie.size();
+
+    // Flatten the trie into arrays
+
+    mEdgeStart = new int[n + 1];
+    mEdgeChars = new char[n - 1];
+    mEdgeTargets = new int[n - 1];
+    mOut = new int[n];
+
+    int e = 0;
+
+    for (int s = 0; s < n; ++s) {
+      mEdgeStart[s] = e;
+      mOut[s] = out.get(s);
+
+      for (Map.Entry<Character, Integer> edge : trie.get(s).entrySet()) {
+        mEdgeChars[e] = edge.getKey();
+        mEdgeTargets[e] = edge.getValue();
+        ++e;
+      }
+    }
+
+    mEdgeStart[n] = e;
+
+    // Breadth first search to create the failure and dictionary links
+
+    mFail = new int[n];
+    mDictLink = new int[n];
+
+    Deque<Integer> queue = new ArrayDeque<Integer>();
+
+    for (int i = mEdgeStart[0]; i < mEdgeStart[1]; ++i) {
+      queue.add(mEdgeTargets[i]);
+    }
+
+    while (!queue.isEmpty()) {
+      int s = queue.poll();
+
+      for (int i = mEdgeStart[s]; i < mEdgeStart[s + 1]; ++i) {
+        char c = mEdgeChars[i];
+        int t = mEdgeTargets[i];
+
+        int f = mFail[s];
+        int g;
+
+        while ((g = next(f, c)) == -1 && f != 0) {
+          f = mFail[f];
+        }
+
+        mFail[t] = g != -1 ? g : 0;
+        mDictLink[t] = mOut[mFail[t]] != -1 ? mFail[t] : mDictLink[mFail[t]];
+
+        queue.add(t);
+      }
+    }
+  }
+
+  /**
+   * Returns the state reached from s on c or -1 if there is no edge.
+   *
+   * @param s the s
+   * @param c the c
+   * @return the int
+   */
+  private int next(int s, char c) {
+    int i = Arrays.binarySearch(mEdgeChars, mEdgeStart[s], mEdgeStart[s + 1], c);
+
+    return i >= 0 ? mEdgeTargets[i] : -1;
+  }
+
+  /**
+   * Fold a string to the case used for matching.
+   *
+   * @param s the s
+   * @return the string
+   */
+  private String fold(String s) {
+    if (mCaseSensitive) {
+      return s;
+    }
+
+    char[] chars = s.toCharArray();
+
+    for (int i = 0; i < chars.length; ++i) {
+      chars[i] = Character.toLowerCase(chars[i]);
+    }
+
+    return new String(chars);
+  }
+
+  /**
+   * Search a text calling a function for each match in order of the end
+   * position of the match.
+   *
+   * @param text the text
+   * @param f    the f
+   */
+  public void search(CharSequence text, MatchFunction f) {
+    if (mMatchEmpty && !f.match(-1, 0, 0)) {
+      return;
+    }
+
+    int s = 0;
+
+    for (int i = 0; i < text.length(); ++i) {
+      char c = text.charAt(i);
+
+      if (!mCaseSensitive) {
+        c = Character.toLowerCase(c);
+      }
+
+      int t;
+
+      while ((t = next(s, c)) == -1 && s != 0) {
+        s = mFail[s];
+      }
+
+      s = t != -1 ? t : 0;
+
+      int o = mOut[s] != -1 ? s : mDictLink[s];
+
+      while (o != 0) {
+        int needle = mOut[o];
+        int end = i + 1;
+        int start = end - mNeedles[needle].length();
+
+        if (!mWholeWord || isWord(text, start, end)) {
+          if (!f.match(needle, start, end)) {
+            return;
+          }
+        }
+
+        o = mDictLink[o];
+      }
+    }
+  }
+
+  /**
+   * Returns true if any needle occurs in the text.
+   *
+   * @param text the text
+   * @return true, if successful
+   */
+  public boolean find(CharSequence text) {
+    final boolean[] found = { false };
+
+    search(text, new MatchFunction() {
+      @Override
+      public boolean match(int needle, int start, int end) {
+        found[0] = true;
+        return false;
+      }
+    });
+
+    return found[0];
+  }
+
+  /**
+   * Returns the distinct needles found in a text, in the order they are first
+   * found. If the matcher is case insensitive, the needles are returned in
+   * lower case.
+   *
+   * @param text the text
+   * @return the list
+   */
+  public List<String> findAll(CharSequence text) {
+    final Set<String> found = new LinkedHashSet<String>();
+
+    search(text, new MatchFunction() {
+      @Override
+      public boolean match(int needle, int start, int end) {
+        found.add(needle != -1 ? mNeedles[needle] : TextUtils.EMPTY_STRING);
+        return true;
+      }
+    });
+
+    if (found.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    return new ArrayList<String>(found);
+  }
+
+  /**
+   * Returns the needle with a given index as passed to
+   * {@link MatchFunction#match(int, int, int)}.
+   *
+   * @param needle the needle
+   * @return the needle
+   */
+  public String getNeedle(int needle) {
+    return mNeedles[needle];
+  }
+
+  /**
+   * Returns the number of distinct needles.
+   *
+   * @return the int
+   */
+  public int size() {
+    return mNeedles.length + (mMatchEmpty ? 1 : 0);
+  }
+
+  /**
+   * Test whether a match is bounded by non word characters.
+   *
+   * @param text  the text
+   * @param start the start
+   * @param end   the end
+   * @return true, if is word
+   */
+  private static boolean isWord(CharSequence text, int start, int end) {
+    return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+        && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+  }
+
+  /**
+   * Compile a case insensitive matcher.
+   *
+   * @param needles the needles
+   * @return the multi matcher
+   */
+  public static MultiMatcher compile(String... needles) {
+    return compile(Arrays.asList(needles));
+  }
+
+  /**
+   * Compile a case insensitive matcher.
+   *
+   * @param needles the needles
+   * @return the multi matcher
+   */
+  public static MultiMatcher compile(Collection<String> needles) {
+    return compile(needles, false, false);
+  }
+
+  /**
+   * Compile a matcher.
+   *
+   * @param needles       the needles
+   * @param caseSensitive whether matching is case sensitive.
+   * @param wholeWord     whether matches must be bounded by non letter or
+   *                      digit characters.
+   * @return the multi matcher
+   */
+  public static MultiMatcher compile(Collection<String> needles, boolean caseSensitive, boolean wholeWord) {
+    return new MultiMatcher(needles, caseSensitive, wholeWord);
+  }
+}
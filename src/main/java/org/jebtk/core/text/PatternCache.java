@@ -0,0 +1,260 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.text;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * A bounded, thread safe LRU cache of compiled regular expressions keyed by
+ * regex and flags. The cache is split into independently locked segments so
+ * that threads compiling different patterns do not contend on a single lock.
+ *
+ * @author Antony Holmes
+ */
+public class PatternCache {
+
+  /** The default maximum number of cached patterns. */
+  public static final int DEFAULT_SIZE = 1024;
+
+  /** The number of segments (must be a power of two). */
+  private static final int SEGMENTS = 16;
+
+  /** The constant INSTANCE. */
+  private static final PatternCache INSTANCE = new PatternCache();
+
+  /**
+   * Gets the shared pattern cache.
+   *
+   * @return the pattern cache
+   */
+  public static final PatternCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * The cache key.
+   */
+  private static final class Key {
+
+    /** The regex. */
+    private final String mRegex;
+
+    /** The flags. */
+    private final int mFlags;
+
+    /** The hash. */
+    private final int mHash;
+
+    /**
+     * Instantiates a new key.
+     *
+     * @param regex the regex
+     * @param flags the flags
+     */
+    public Key(String regex, int flags) {
+      mRegex = regex;
+      mFlags = flags;
+      mHash = regex.hashCode() * 31 + flags;
+    }
+
+    @Override
+    public int hashCode() {
+      return mHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      Key k = (Key) o;
+
+      return mFlags == k.mFlags && mRegex.equals(k.mRegex);
+    }
+  }
+
+  /**
+   * One access ordered segment of the cache.
+   */
+  private static final class Segment extends LinkedHashMap<Key, Pattern> {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The max size. */
+    private final int mMaxSize;
+
+    /**
+     * Instantiates a new segment.
+     *
+     * @param maxSize the max size
+     */
+    public Segment(int maxSize) {
+      super(16, 0.75f, true);
+
+      mMaxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Pattern> eldest) {
+      return size() > mMaxSize;
+    }
+  }
+
+  /** The segments. */
+  private final Segment[] mSegments = new Segment[SEGMENTS];
+
+  /** The hits. */
+  private final AtomicLong mHits = new AtomicLong();
+
+  /** The misses. */
+  private final AtomicLong mMisses = new AtomicLong();
+
+  /**
+   * Instantiates a new pattern cache with the default size.
+   */
+  public PatternCache() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * Instantiates a new pattern cache.
+   *
+   * @param maxSize the maximum number of patterns to cache.
+   */
+  public PatternCache(int maxSize) {
+    int segmentSize = Math.max(1, maxSize / SEGMENTS);
+
+    for (int i = 0; i < SEGMENTS; ++i) {
+      mSegments[i] = new Segment(segmentSize);
+    }
+  }
+
+  /**
+   * Returns the compiled version of a regex.
+   *
+   * @param regex the regex
+   * @return the pattern
+   */
+  public Pattern get(String regex) {
+    return get(regex, 0);
+  }
+
+  /**
+   * Returns the compiled version of a regex, compiling it if it is not in the
+   * cache.
+   *
+   * @param regex the regex
+   * @param flags the {@link Pattern} flags
+   * @return the pattern
+   */
+  public Pattern get(String regex, int flags) {
+    Key key = new Key(regex, flags);
+
+    Segment segment = segment(key);
+
+    synchronized (segment) {
+      Pattern p = segment.get(key);
+
+      if (p != null) {
+        mHits.incrementAndGet();
+        return p;
+      }
+    }
+
+    mMisses.incrementAndGet();
+
+    // Compile outside the lock. If two threads race on the same regex, both
+    // compile it and the last one wins, which is harmless.
+    Pattern p = Pattern.compile(regex, flags);
+
+    synchronized (segment) {
+      segment.put(key, p);
+    }
+
+    return p;
+  }
+
+  /**
+   * Returns the segment for a key.
+   *
+   * @param key the key
+   * @return the segment
+   */
+  private Segment segment(Key key) {
+    int h = key.hashCode();
+
+    return mSegments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+  }
+
+  /**
+   * Returns the number of lookups that found a compiled pattern.
+   *
+   * @return the hits
+   */
+  public long getHits() {
+    return mHits.get();
+  }
+
+  /**
+   * Returns the number of lookups that had to compile a pattern.
+   *
+   * @return the misses
+   */
+  public long getMisses() {
+    return mMisses.get();
+  }
+
+  /**
+   * Returns the number of cached patterns.
+   *
+   * @return the int
+   */
+  public int size() {
+    int ret = 0;
+
+    for (Segment segment : mSegments) {
+      synchronized (segment) {
+        ret += segment.size();
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Remove all patterns and reset the statistics.
+   */
+  public void clear() {
+    for (Segment segment : mSegments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+
+    mHits.set(0);
+    mMisses.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "patterns: " + size() + " hits: " + getHits() + " misses: " + getMisses();
+  }
+}
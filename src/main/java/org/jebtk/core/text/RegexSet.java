@@ -0,0 +1,206 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.text;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A set of regular expressions that can be tested against a string together.
+ * Where possible the regexes are compiled into a single alternation so that
+ * each string is scanned by one automaton instead of once per regex. Regexes
+ * that cannot be safely combined, because they use back references whose
+ * group numbers would change, are kept as separate patterns.
+ *
+ * @author Antony Holmes
+ */
+public class RegexSet {
+
+  /** The combined pattern or null if no regexes could be combined. */
+  private final Pattern mCombined;
+
+  /** Patterns that could not be combined. */
+  private final List<Pattern> mSeparate;
+
+  /**
+   * Instantiates a new regex set.
+   *
+   * @param regexes the regexes
+   * @param flags   the flags
+   */
+  private RegexSet(Collection<String> regexes, int flags) {
+    StringBuilder buffer = new StringBuilder();
+
+    List<Pattern> separate = new ArrayList<Pattern>();
+
+    for (String regex : regexes) {
+      // Compile each regex on its own first so that invalid regexes fail
+      // with a useful message rather than somewhere in the combined pattern.
+      Pattern p = PatternCache.getInstance().get(regex, flags);
+
+      if ((flags & Pattern.COMMENTS) == 0 && canCombine(regex)) {
+        if (buffer.length() > 0) {
+          buffer.append('|');
+        }
+
+        buffer.append("(?:").append(regex).append(')');
+      } else {
+        separate.add(p);
+      }
+    }
+
+    mCombined = buffer.length() > 0 ? Pattern.compile(buffer.toString(), flags) : null;
+
+    if (separate.size() > 0) {
+      mSeparate = separate;
+    } else {
+      mSeparate = Collections.emptyList();
+    }
+  }
+
+  /**
+   * Returns true if any regex can be found in the text.
+   *
+   * @param text the text
+   * @return true, if successful
+   */
+  public boolean find(CharSequence text) {
+    if (mCombined != null && mCombined.matcher(text).find()) {
+      return true;
+    }
+
+    for (Pattern p : mSeparate) {
+      if (p.matcher(text).find()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns true if any regex matches the whole of the text.
+   *
+   * @param text the text
+   * @return true, if successful
+   */
+  public boolean matches(CharSequence text) {
+    if (mCombined != null && mCombined.matcher(text).matches()) {
+      return true;
+    }
+
+    for (Pattern p : mSeparate) {
+      if (p.matcher(text).matches()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns the indices of the strings in a list in which any regex can be
+   * found.
+   *
+   * @param list the list
+   * @return the list
+   */
+  public List<Integer> find(List<String> list) {
+    List<Integer> indices = new ArrayList<Integer>();
+
+    for (int i = 0; i < list.size(); ++i) {
+      if (find(list.get(i))) {
+        indices.add(i);
+      }
+    }
+
+    return indices;
+  }
+
+  /**
+   * Returns true if all regexes in the set were combined into one automaton.
+   *
+   * @return true, if is combined
+   */
+  public boolean isCombined() {
+    return mSeparate.isEmpty();
+  }
+
+  /**
+   * Test whether a regex can be placed in an alternation without changing its
+   * meaning. Numbered and named back references are excluded since wrapping
+   * other regexes in the same pattern shifts group numbers. Named groups are
+   * excluded since two regexes may define the same name, which is an error in
+   * a single pattern. Regexes that may contain comments are also excluded
+   * since a comment could swallow the closing bracket of the group.
+   *
+   * @param regex the regex
+   * @return true, if successful
+   */
+  private static boolean canCombine(String regex) {
+    if (regex.indexOf('#') != -1) {
+      return false;
+    }
+
+    int n = regex.length() - 1;
+
+    for (int i = 0; i < n; ++i) {
+      if (regex.charAt(i) == '\\') {
+        char c = regex.charAt(i + 1);
+
+        if ((c >= '1' && c <= '9') || c == 'k') {
+          return false;
+        }
+
+        // skip the escaped character
+        ++i;
+      } else if (regex.startsWith("(?<", i) && i + 3 <= n) {
+        char c = regex.charAt(i + 3);
+
+        // (?<= and (?<! are lookbehinds, anything else is a named group
+        if (c != '=' && c != '!') {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Compile a set of regexes.
+   *
+   * @param regexes the regexes
+   * @return the regex set
+   */
+  public static RegexSet compile(Collection<String> regexes) {
+    return compile(regexes, 0);
+  }
+
+  /**
+   * Compile a set of regexes.
+   *
+   * @param regexes the regexes
+   * @param flags   the {@link Pattern} flags
+   * @return the regex set
+   */
+  public static RegexSet compile(Collection<String> regexes, int flags) {
+    return new RegexSet(regexes, flags);
+  }
+}
@@ -72,16 +72,24 @@ public class RegexUtils {
     List<Pattern> ret = new ArrayList<>(regexes.size());
 
     for (String regex : regexes) {
-      if (caseSensitive) {
-        ret.add(Pattern.compile(regex));
-      } else {
-        ret.add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
-      }
+      ret.add(compile(regex, !caseSensitive));
     }
 
     return ret;
   }
 
+  /**
+   * Compile a list of regexes into a set that can be tested in one pass,
+   * combining them into a single alternation where possible.
+   *
+   * @param regexes       the regexes
+   * @param caseSensitive the case sensitive
+   * @return the regex set
+   */
+  public static RegexSet compileSet(List<String> regexes, boolean caseSensitive) {
+    return RegexSet.compile(regexes, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
+  }
+
   /**
    * Compile.
    *
@@ -93,18 +101,28 @@ public class RegexUtils {
   }
 
   /**
-   * Convert a string regex into a compiled pattern.
+   * Convert a string regex into a compiled pattern. Compiled patterns are
+   * cached in the shared {@link PatternCache} so that repeatedly used regexes
+   * are only compiled once.
    *
    * @param regex           the regex
    * @param caseInsensitive the case insensitive
    * @return the pattern
    */
   public static Pattern compile(String regex, boolean caseInsensitive) {
-    if (caseInsensitive) {
-      return Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-    } else {
-      return Pattern.compile(regex);
-    }
+    return compile(regex, caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+  }
+
+  /**
+   * Convert a string regex into a compiled pattern using the shared
+   * {@link PatternCache}.
+   *
+   * @param regex the regex
+   * @param flags the {@link Pattern} flags
+   * @return the pattern
+   */
+  public static Pattern compile(String regex, int flags) {
+    return PatternCache.getInstance().get(regex, flags);
   }
 
   /**
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.core.text;
+
+/**
+ * A bounded pool for deduplicating strings, typically one per table column.
+ * Lookups hash a character range of the source so that no substring is
+ * created unless the value has not been seen before. The pool is a fixed size
+ * two-way set associative table so memory use is bounded and older entries
+ * are simply replaced when a set is full.
+ *
+ * The pool may be shared between threads without locking. Slots are read and
+ * written without synchronization, which is safe since strings are immutable;
+ * the worst case is that a racing thread misses and creates a duplicate.
+ *
+ * @author Antony Holmes
+ */
+public class StringPool {
+
+  /** The default number of slots. */
+  public static final int DEFAULT_SIZE = 4096;
+
+  /** Strings longer than this are not pooled. */
+  public static final int DEFAULT_MAX_LENGTH = 64;
+
+  /** The slots. */
+  private final String[] mSlots;
+
+  /** The mask used to map a hash to a set. */
+  private final int mMask;
+
+  /** The max length. */
+  private final int mMaxLength;
+
+  /**
+   * Instantiates a new string pool with the default size.
+   */
+  public StringPool() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * Instantiates a new string pool.
+   *
+   * @param size the number of slots (rounded up to a power of two).
+   */
+  public StringPool(int size) {
+    this(size, DEFAULT_MAX_LENGTH);
+  }
+
+  /**
+   * Instantiates a new string pool.
+   *
+   * @param size      the number of slots (rounded up to a power of two).
+   * @param maxLength strings longer than this bypass the pool.
+   */
+  public StringPool(int size, int maxLength) {
+    if (size < 2) {
+      throw new IllegalArgumentException("Size must be at least 2.");
+    }
+
+    int n = Integer.highestOneBit(size - 1) << 1;
+
+    mSlots = new String[n];
+
+    // Sets are pairs of adjacent slots so mask off the lowest bit.
+    mMask = (n - 1) & ~1;
+    mMaxLength = maxLength;
+  }
+
+  /**
+   * Return a pooled copy of a string.
+   *
+   * @param s the s
+   * @return the string
+   */
+  public String intern(String s) {
+    if (s == null) {
+      return null;
+    }
+
+    return intern(s, 0, s.length());
+  }
+
+  /**
+   * Return a pooled string equal to the characters {@code start} (inclusive)
+   * to {@code end} (exclusive) of {@code s}. The substring is only created if
+   * the value is not already in the pool.
+   *
+   * @param s     the s
+   * @param start the start
+   * @param end   the end
+   * @return the string
+   */
+  public String intern(CharSequence s, int start, int end) {
+    int l = end - start;
+
+    if (l == 0) {
+      return TextUtils.EMPTY_STRING;
+    }
+
+    if (l > mMaxLength) {
+      return s.subSequence(start, end).toString();
+    }
+
+    // Same hash as String.hashCode() so we can reuse the cached hash of
+    // pooled strings when comparing.
+    int h = 0;
+
+    for (int i = start; i < end; ++i) {
+      h = 31 * h + s.charAt(i);
+    }
+
+    int p = (h ^ (h >>> 16)) & mMask;
+
+    String s1 = mSlots[p];
+
+    if (matches(s1, h, s, start, l)) {
+      return s1;
+    }
+
+    String s2 = mSlots[p + 1];
+
+    if (matches(s2, h, s, start, l)) {
+      // Promote so that the most recently used entry is checked first
+      mSlots[p] = s2;
+      mSlots[p + 1] = s1;
+      return s2;
+    }
+
+    String ret = s.subSequence(start, end).toString();
+
+    // Evict the least recently used entry in the set
+    mSlots[p + 1] = s1;
+    mSlots[p] = ret;
+
+    return ret;
+  }
+
+  /**
+   * Remove all strings from the pool.
+   */
+  public void clear() {
+    for (int i = 0; i < mSlots.length; ++i) {
+      mSlots[i] = null;
+    }
+  }
+
+  /**
+   * Returns the number of slots in the pool.
+   *
+   * @return the int
+   */
+  public int capacity() {
+    return mSlots.length;
+  }
+
+  /**
+   * Test whether a pooled string is equal to a range of characters.
+   *
+   * @param pooled the pooled
+   * @param h      the hash of the range
+   * @param s      the s
+   * @param start  the start
+   * @param l      the length of the range
+   * @return true, if successful
+   */
+  private static boolean matches(String pooled, int h, CharSequence s, int start, int l) {
+    if (pooled == null || pooled.length() != l || pooled.hashCode() != h) {
+      return false;
+    }
+
+    for (int i = 0; i < l; ++i) {
+      if (pooled.charAt(i) != s.charAt(start + i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
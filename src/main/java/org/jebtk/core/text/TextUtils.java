@@ -1523,45 +1523,15 @@ public class TextUtils {
    * @return the int
    */
   public static int findFirst(List<String> list, String... s) {
-    String[] ls = toLowerCase(s);
-
-    for (int i = 0; i < list.size(); ++i) {
-      for (String l : ls) {
-        if (list.get(i).toLowerCase().contains(l)) {
-          return i;
-        }
-      }
-    }
-
-    return -1;
+    return findFirst(list, MultiMatcher.compile(s));
   }
 
   public static int findFirst(String[] list, String... s) {
-    String[] ls = toLowerCase(s);
-
-    for (int i = 0; i < list.length; ++i) {
-      for (String l : ls) {
-        if (list[i].toLowerCase().contains(l)) {
-          return i;
-        }
-      }
-    }
-
-    return -1;
+    return findFirst(Arrays.asList(list), MultiMatcher.compile(s));
   }
 
   public static int findFirst(String[] list, Collection<String> s) {
-    List<String> ls = toLowerCase(s);
-
-    for (int i = 0; i < list.length; ++i) {
-      for (String l : ls) {
-        if (list[i].toLowerCase().contains(l)) {
-          return i;
-        }
-      }
-    }
-
-    return -1;
+    return findFirst(Arrays.asList(list), MultiMatcher.compile(s));
   }
 
   /**
@@ -1572,13 +1542,22 @@ public class TextUtils {
    * @return the int
    */
   public static int findFirst(List<String> list, Collection<String> s) {
-    List<String> ls = toLowerCase(s);
+    return findFirst(list, MultiMatcher.compile(s));
+  }
 
+  /**
+   * Returns the first index of a string containing any of the needles of a
+   * matcher or -1 if none are found. All needles are searched for in a single
+   * pass over each string.
+   *
+   * @param list    the list
+   * @param matcher the matcher
+   * @return the int
+   */
+  public static int findFirst(List<String> list, MultiMatcher matcher) {
     for (int i = 0; i < list.size(); ++i) {
-      for (String l : ls) {
-        if (list.get(i).toLowerCase().contains(l)) {
-          return i;
-        }
+      if (matcher.find(list.get(i))) {
+        return i;
       }
     }
 
@@ -1608,6 +1587,30 @@ public class TextUtils {
     return indices;
   }
 
+  /**
+   * Returns the indices of items in a list that contain any of the needles of
+   * a matcher.
+   *
+   * @param list    the list
+   * @param matcher the matcher
+   * @return the list
+   */
+  public static List<Integer> find(List<String> list, MultiMatcher matcher) {
+    if (CollectionUtils.isNullOrEmpty(list)) {
+      return Collections.emptyList();
+    }
+
+    List<Integer> indices = new ArrayList<>();
+
+    for (int i = 0; i < list.size(); ++i) {
+      if (matcher.find(list.get(i))) {
+        indices.add(i);
+      }
+    }
+
+    return indices;
+  }
+
   /**
    * Returns the indices of strings in a list of strings that match a regex.
    *
@@ -1616,7 +1619,7 @@ public class TextUtils {
    * @return the list
    */
   public static List<Integer> findByRegex(List<String> list, String regex) {
-    return find(list, Pattern.compile(regex));
+    return find(list, RegexUtils.compile(regex, false));
   }
 
   /**
@@ -1674,7 +1677,7 @@ public class TextUtils {
    * @return true, if successful
    */
   public static boolean match(String text, String regex) {
-    return match(text, Pattern.compile(regex));
+    return match(text, RegexUtils.compile(regex, false));
   }
 
   /**
@@ -2108,11 +2111,7 @@ public class TextUtils {
     List<Pattern> ret = new ArrayList<>(regexes.size());
 
     for (String regex : regexes) {
-      if (caseInsensitive) {
-        ret.add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
-      } else {
-        ret.add(Pattern.compile(regex));
-      }
+      ret.add(RegexUtils.compile(regex, caseInsensitive));
     }
 
     return ret;
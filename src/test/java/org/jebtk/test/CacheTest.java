@@ -0,0 +1,227 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jebtk.core.AgeMap;
+import org.jebtk.core.cache.Cache;
+import org.jebtk.core.cache.CacheBuilder;
+import org.jebtk.core.cache.CacheLoader;
+import org.jebtk.core.cache.CacheStats;
+import org.jebtk.core.cache.EvictionPolicy;
+import org.jebtk.core.cache.Ticker;
+import org.jebtk.core.cache.Weigher;
+import org.junit.Test;
+
+public class CacheTest {
+
+  /**
+   * A ticker moved by hand.
+   */
+  private static class ManualTicker implements Ticker {
+    private long mTime = 0;
+
+    @Override
+    public long read() {
+      return mTime;
+    }
+
+    public void advance(long duration, TimeUnit unit) {
+      mTime += unit.toNanos(duration);
+    }
+  }
+
+  @Test
+  public void lruTest() {
+    Cache<Integer, String> cache = CacheBuilder.<Integer, String>create().maximumSize(3)
+        .policy(EvictionPolicy.LRU).build();
+
+    cache.put(1, "a");
+    cache.put(2, "b");
+    cache.put(3, "c");
+
+    // 1 becomes most recently used so 2 is evicted
+    assertEquals("hit", "a", cache.getIfPresent(1));
+    cache.put(4, "d");
+
+    assertNull("evicted", cache.getIfPresent(2));
+    assertEquals("size", 3, cache.size());
+
+    CacheStats stats = cache.stats();
+    assertEquals("hits", 1, stats.getHitCount());
+    assertEquals("misses", 1, stats.getMissCount());
+    assertEquals("evictions", 1, stats.getEvictionCount());
+  }
+
+  @Test
+  public void tinyLfuTest() {
+    Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>create().maximumSize(100).build();
+
+    // make some keys popular
+    for (int r = 0; r < 5; ++r) {
+      for (int i = 0; i < 50; ++i) {
+        if (cache.getIfPresent(i) == null) {
+          cache.put(i, i);
+        }
+      }
+    }
+
+    // a scan of keys used once should not flush the popular keys
+    for (int i = 1000; i < 11000; ++i) {
+      cache.put(i, i);
+    }
+
+    int hits = 0;
+
+    for (int i = 0; i < 50; ++i) {
+      if (cache.getIfPresent(i) != null) {
+        ++hits;
+      }
+    }
+
+    assertTrue("scan resistant " + hits, hits >= 45);
+    assertTrue("bounded", cache.size() <= 100);
+  }
+
+  @Test
+  public void weightTest() {
+    Cache<String, String> cache = CacheBuilder.<String, String>create()
+        .maximumWeight(10, new Weigher<String, String>() {
+          @Override
+          public int weigh(String key, String value) {
+            return value.length();
+          }
+        }).build();
+
+    cache.put("a", "1234");
+    cache.put("b", "1234");
+    cache.put("c", "1234");
+
+    assertTrue("weight", cache.weightedSize() <= 10);
+    assertEquals("size", 2, cache.size());
+    assertEquals("eviction weight", 4, cache.stats().getEvictionWeight());
+  }
+
+  @Test
+  public void expiryTest() {
+    ManualTicker ticker = new ManualTicker();
+
+    Cache<String, String> cache = CacheBuilder.<String, String>create().expireAfterAccess(10, TimeUnit.SECONDS)
+        .ticker(ticker).build();
+
+    cache.put("a", "1");
+    cache.put("b", "2");
+
+    ticker.advance(6, TimeUnit.SECONDS);
+    assertNotNull("accessed", cache.getIfPresent("a"));
+
+    ticker.advance(6, TimeUnit.SECONDS);
+    assertNotNull("access extends life", cache.getIfPresent("a"));
+    assertNull("expired", cache.getIfPresent("b"));
+
+    cache = CacheBuilder.<String, String>create().expireAfterWrite(10, TimeUnit.SECONDS).ticker(ticker).build();
+
+    cache.put("a", "1");
+    ticker.advance(6, TimeUnit.SECONDS);
+    cache.getIfPresent("a");
+    ticker.advance(6, TimeUnit.SECONDS);
+
+    cache.cleanUp();
+    assertEquals("cleaned", 0, cache.size());
+  }
+
+  @Test
+  public void loadTest() throws InterruptedException {
+    final Cache<Integer, String> cache = CacheBuilder.<Integer, String>create().maximumSize(1000).build();
+    final AtomicInteger loads = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+
+    final CacheLoader<Integer, String> loader = new CacheLoader<Integer, String>() {
+      @Override
+      public String load(Integer key) throws Exception {
+        loads.incrementAndGet();
+
+        // give other threads time to ask for the same key
+        Thread.sleep(50);
+
+        return Integer.toString(key);
+      }
+    };
+
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    for (int t = 0; t < 8; ++t) {
+      pool.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+
+          assertEquals("7", cache.get(7, loader));
+        }
+      });
+    }
+
+    start.countDown();
+    pool.shutdown();
+    pool.awaitTermination(1, TimeUnit.MINUTES);
+
+    assertEquals("single flight", 1, loads.get());
+    assertEquals("loaded", 1, cache.stats().getLoadSuccessCount());
+
+    try {
+      cache.get(8, new CacheLoader<Integer, String>() {
+        @Override
+        public String load(Integer key) throws Exception {
+          throw new IllegalStateException("failed");
+        }
+      });
+
+      fail("Loader exception not thrown");
+    } catch (IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+
+    assertEquals("failures", 1, cache.stats().getLoadFailureCount());
+  }
+
+  @SuppressWarnings("deprecation")
+  @Test
+  public void ageMapTest() {
+    AgeMap<Integer, Integer> map = new AgeMap<Integer, Integer>(3);
+
+    for (int i = 0; i < 10; ++i) {
+      map.put(i, i);
+    }
+
+    assertEquals("size", 3, map.size());
+    assertTrue("youngest", map.containsKey(9) && map.containsKey(8) && map.containsKey(7));
+  }
+}
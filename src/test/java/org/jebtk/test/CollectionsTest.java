@@ -0,0 +1,675 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+import org.jebtk.core.collections.ArrayListCreator;
+import org.jebtk.core.collections.ArrayListMultiMap;
+import org.jebtk.core.collections.CircularArray;
+import org.jebtk.core.collections.CollectionUtils;
+import org.jebtk.core.collections.CompactImmutableList;
+import org.jebtk.core.collections.CompactImmutableMap;
+import org.jebtk.core.collections.CompactImmutableSet;
+import org.jebtk.core.collections.CompactListMultiMap;
+import org.jebtk.core.collections.ConcurrentCountMap;
+import org.jebtk.core.collections.ConcurrentDefaultHashMap;
+import org.jebtk.core.collections.CountMap;
+import org.jebtk.core.collections.DefaultHashMap;
+import org.jebtk.core.collections.DoubleCountMap;
+import org.jebtk.core.collections.DoubleList;
+import org.jebtk.core.collections.EntryCreator;
+import org.jebtk.core.collections.IntDoubleMap;
+import org.jebtk.core.collections.IntIntMap;
+import org.jebtk.core.collections.IntList;
+import org.jebtk.core.collections.IterMap;
+import org.jebtk.core.collections.ListMultiMap;
+import org.jebtk.core.collections.LongIntMap;
+import org.jebtk.core.collections.LongObjectMap;
+import org.jebtk.core.collections.LongRingBuffer;
+import org.jebtk.core.collections.MpscRingBuffer;
+import org.jebtk.core.collections.ObjectIntMap;
+import org.jebtk.core.collections.RingBuffer;
+import org.jebtk.core.collections.SpscRingBuffer;
+import org.junit.Test;
+
+public class CollectionsTest {
+
+  @Test
+  public void primitiveMapTest() {
+    Random random = new Random(1);
+
+    IntIntMap intMap = new IntIntMap(4, 0.5);
+    LongIntMap longMap = new LongIntMap();
+    LongObjectMap<String> objectMap = new LongObjectMap<String>();
+    ObjectIntMap<String> countMap = new ObjectIntMap<String>();
+    IntDoubleMap doubleMap = new IntDoubleMap();
+
+    Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+
+    // small key range so that there are many collisions and removals
+    for (int i = 0; i < 100000; ++i) {
+      int key = random.nextInt(500) - 50;
+
+      if (random.nextInt(3) == 0) {
+        Integer v = expected.remove(key);
+
+        assertEquals("remove", v != null ? v : 0, intMap.remove(key));
+        longMap.remove(key * 1000000007L);
+        objectMap.remove(key * 1000000007L);
+        countMap.remove(Integer.toString(key));
+        doubleMap.remove(key);
+      } else {
+        Integer v = expected.get(key);
+
+        expected.put(key, v != null ? v + 1 : 1);
+
+        intMap.addTo(key, 1);
+        longMap.addTo(key * 1000000007L, 1);
+        objectMap.put(key * 1000000007L, Integer.toString(expected.get(key)));
+        countMap.addTo(Integer.toString(key), 1);
+        doubleMap.addTo(key, 0.5);
+      }
+    }
+
+    assertEquals("size", expected.size(), intMap.size());
+    assertEquals("size", expected.size(), longMap.size());
+    assertEquals("size", expected.size(), objectMap.size());
+    assertEquals("size", expected.size(), countMap.size());
+    assertEquals("size", expected.size(), doubleMap.size());
+
+    for (int key = -60; key < 460; ++key) {
+      Integer v = expected.get(key);
+      int count = v != null ? v : 0;
+
+      assertEquals("get", count, intMap.get(key));
+      assertEquals("get", count, longMap.get(key * 1000000007L));
+      assertEquals("get", v != null ? v.toString() : null, objectMap.get(key * 1000000007L));
+      assertEquals("get", count, countMap.get(Integer.toString(key)));
+      assertEquals("get", count * 0.5, doubleMap.get(key), 0);
+      assertEquals("contains", v != null, intMap.containsKey(key));
+    }
+
+    int sum = 0;
+
+    IntIntMap.Cursor c = intMap.cursor();
+
+    while (c.next()) {
+      sum += c.value();
+      assertEquals("cursor", (int) expected.get(c.key()), c.value());
+    }
+
+    int expectedSum = 0;
+
+    for (int v : expected.values()) {
+      expectedSum += v;
+    }
+
+    assertEquals("cursor", expectedSum, sum);
+  }
+
+  @Test
+  public void primitiveListTest() {
+    DoubleList list = new DoubleList();
+
+    for (int i = 0; i < 1000; ++i) {
+      list.addDouble(1000 - i);
+    }
+
+    list.addAll(new double[] { -1, -2 });
+    list.add(0, 5000.0);
+    list.removeDouble(1);
+
+    assertEquals("size", 1002, list.size());
+    assertEquals("get", 5000.0, list.getDouble(0), 0);
+    assertEquals("index", 2, list.indexOf(998.0));
+
+    list.sort();
+
+    double[] values = list.toDoubleArray();
+
+    assertEquals("trimmed", 1002, values.length);
+    assertEquals("sorted", -2, values[0], 0);
+    assertEquals("sorted", 5000, values[1001], 0);
+    assertSame("backing", values, list.toDoubleArray());
+
+    // used as a List<Double>
+    List<Double> copy = new ArrayList<Double>(list);
+    assertEquals("list", copy, list);
+
+    IntList ints = new IntList();
+    ints.addAll(new int[] { 3, 1, 2 });
+    ints.sort();
+    assertEquals("ints", Arrays.asList(1, 2, 3), ints);
+  }
+
+  @Test
+  public void countMapTest() {
+    Random random = new Random(7);
+
+    // count on two threads worth of maps and merge them
+    CountMap<String> counts = CountMap.create();
+    CountMap<String> part = CountMap.create();
+    Map<String, Integer> expected = new HashMap<String, Integer>();
+
+    for (int i = 0; i < 10000; ++i) {
+      String key = Integer.toString(random.nextInt(500));
+
+      (i % 2 == 0 ? counts : part).inc(key);
+      expected.put(key, expected.containsKey(key) ? expected.get(key) + 1 : 1);
+    }
+
+    counts.merge(part);
+
+    assertEquals("size", expected.size(), counts.size());
+    assertEquals("counts", expected, counts);
+    assertEquals("missing", 0, counts.getCount("missing"));
+    assertEquals("no insert", expected.size(), counts.size());
+
+    List<Map.Entry<String, Integer>> top = counts.topK(10);
+
+    List<Integer> sorted = new ArrayList<Integer>(expected.values());
+    Collections.sort(sorted, Collections.reverseOrder());
+
+    assertEquals("top", 10, top.size());
+
+    for (int i = 0; i < top.size(); ++i) {
+      assertEquals("top " + i, sorted.get(i), top.get(i).getValue());
+    }
+
+    assertEquals("max", sorted.get(0).intValue(), counts.getMaxC());
+    assertEquals("all", expected.size(), counts.topK(1000).size());
+
+    DoubleCountMap<String> sums = DoubleCountMap.create();
+    sums.inc("a", 0.5);
+    sums.inc("b", 2);
+    sums.inc("a", 2);
+
+    assertEquals("sum", 2.5, sums.getCount("a"), 0);
+    assertEquals("top", "a", sums.topK(1).get(0).getKey());
+  }
+
+  @Test
+  public void concurrentCountMapTest() throws InterruptedException {
+    final ConcurrentCountMap<Integer> counts = ConcurrentCountMap.create();
+    final ConcurrentCountMap.Accumulator<Integer> acc = ConcurrentCountMap.accumulator();
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    for (int t = 0; t < 8; ++t) {
+      pool.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; ++i) {
+            counts.inc(i % 100);
+            acc.inc(i % 100);
+          }
+        }
+      });
+    }
+
+    pool.shutdown();
+    pool.awaitTermination(1, TimeUnit.MINUTES);
+
+    ConcurrentCountMap<Integer> merged = acc.build();
+
+    assertEquals("size", 100, counts.size());
+    assertEquals("total", 80000, counts.sum());
+    assertEquals("key", 800, counts.sum(7));
+    assertEquals("missing", 0, counts.sum(100));
+    assertEquals("merged", counts.snapshot(), merged.snapshot());
+  }
+
+  @Test
+  public void ringBufferTest() throws InterruptedException {
+    final int n = 20000;
+
+    // single producer: elements arrive in order
+    final RingBuffer<Integer> spsc = new SpscRingBuffer<Integer>(100);
+
+    assertEquals("capacity", 128, spsc.getCapacity());
+
+    Thread producer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < n; ++i) {
+          while (!spsc.offer(i)) {
+            Thread.yield();
+          }
+        }
+      }
+    });
+
+    producer.start();
+
+    List<Integer> batch = new ArrayList<Integer>();
+    int next = 0;
+
+    while (next < n) {
+      batch.clear();
+      if (spsc.drainTo(batch, 16) == 0) {
+        Thread.yield();
+      }
+
+      for (int v : batch) {
+        assertEquals("order", next++, v);
+      }
+    }
+
+    producer.join();
+    assertNull("empty", spsc.poll());
+
+    // many producers: every element arrives once
+    final RingBuffer<Integer> mpsc = new MpscRingBuffer<Integer>(64);
+    Thread[] producers = new Thread[4];
+
+    for (int t = 0; t < producers.length; ++t) {
+      producers[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          List<Integer> values = Arrays.asList(1, 1, 1, 1);
+
+          for (int i = 0; i < n; i += values.size()) {
+            int added = 0;
+
+            while (added < values.size()) {
+              int count = mpsc.offerAll(values.subList(added, values.size()));
+
+              if (count == 0) {
+                Thread.yield();
+              }
+
+              added += count;
+            }
+          }
+        }
+      });
+
+      producers[t].start();
+    }
+
+    long sum = 0;
+
+    while (sum < producers.length * n) {
+      Integer v = mpsc.poll();
+
+      if (v != null) {
+        sum += v;
+      } else {
+        Thread.yield();
+      }
+    }
+
+    for (Thread t : producers) {
+      t.join();
+    }
+
+    assertEquals("sum", producers.length * n, sum);
+    assertTrue("empty", mpsc.isEmpty());
+
+    LongRingBuffer longs = new LongRingBuffer(4);
+    assertEquals("offer all", 4, longs.offerAll(new long[] { 1, 2, 3, 4, 5 }, 0, 5));
+    assertEquals("poll", 1, longs.poll(-1));
+
+    long[] dest = new long[4];
+    assertEquals("drain", 3, longs.drainTo(dest, 0, 4));
+    assertEquals("drained", 4, dest[2]);
+    assertEquals("empty", -1, longs.poll(-1));
+
+    CircularArray<Integer> circular = new CircularArray<Integer>(3);
+
+    for (int i = 0; i < 5; ++i) {
+      circular.add(i);
+    }
+
+    assertEquals("oldest", 2, circular.get(0).intValue());
+    assertEquals("newest", 4, circular.get(2).intValue());
+  }
+
+  @Test
+  public void defaultHashMapTest() throws InterruptedException {
+    IterMap<String, List<Integer>> groups = DefaultHashMap.create(new ArrayListCreator<Integer>());
+
+    for (int i = 0; i < 10; ++i) {
+      groups.get(i % 2 == 0 ? "even" : "odd").add(i);
+    }
+
+    assertEquals("groups", 2, groups.size());
+    assertEquals("even", Arrays.asList(0, 2, 4, 6, 8), groups.get("even"));
+
+    // every thread must see the same entry for a key
+    final AtomicInteger created = new AtomicInteger();
+
+    final ConcurrentDefaultHashMap<Integer, ConcurrentLinkedQueue<Integer>> concurrent = ConcurrentDefaultHashMap
+        .create(new EntryCreator<ConcurrentLinkedQueue<Integer>>() {
+          @Override
+          public ConcurrentLinkedQueue<Integer> newEntry() {
+            created.incrementAndGet();
+
+            return new ConcurrentLinkedQueue<Integer>();
+          }
+        });
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    for (int t = 0; t < 4; ++t) {
+      pool.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; ++i) {
+            concurrent.get(i % 100).add(i);
+          }
+        }
+      });
+    }
+
+    pool.shutdown();
+    pool.awaitTermination(1, TimeUnit.MINUTES);
+
+    assertEquals("keys", 100, concurrent.size());
+    assertEquals("created once", 100, created.get());
+    assertEquals("grouped", 400, concurrent.get(7).size());
+    assertTrue("contains", !concurrent.containsKey(100));
+    assertEquals("contains does not add", 100, concurrent.size());
+
+    // comparing with a map that has extra keys must not add them
+    Map<Integer, ConcurrentLinkedQueue<Integer>> other = new HashMap<Integer, ConcurrentLinkedQueue<Integer>>(concurrent);
+
+    assertTrue("equal", concurrent.equals(other));
+
+    other.put(100, new ConcurrentLinkedQueue<Integer>());
+
+    assertTrue("not equal", !concurrent.equals(other));
+    assertEquals("equals does not add", 100, concurrent.size());
+  }
+
+  @Test
+  public void compactMultiMapTest() {
+    ListMultiMap<String, Integer> map = ArrayListMultiMap.create();
+
+    for (int i = 0; i < 1000; ++i) {
+      map.get("key" + (i % 37)).add(i);
+    }
+
+    map.get("empty");
+
+    CompactListMultiMap<String, Integer> compact = CompactListMultiMap.copyOf(map);
+
+    assertEquals("keys", 38, compact.size());
+    assertEquals("values", 1000, compact.valueCount());
+    assertEquals("equal", map, compact);
+    assertEquals("list", map.get("key5"), compact.get("key5"));
+    assertTrue("empty", compact.get("empty").isEmpty());
+    assertTrue("missing", compact.get("missing").isEmpty());
+    assertTrue("not added", !compact.containsKey("missing"));
+
+    CompactListMultiMap.Builder<String, String> builder = CompactListMultiMap.<String, String>builder()
+        .put("BCL6", "t1").put("MYC", "t2").put("BCL6", "t3");
+
+    CompactListMultiMap<String, String> genes = builder.build();
+
+    assertEquals("order", Arrays.asList("t1", "t3"), genes.get("BCL6"));
+    assertEquals("first key", "BCL6", genes.keySet().iterator().next());
+
+    try {
+      builder.put("PAX5", "t4");
+      fail("Builder reused");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    assertTrue("unchanged", genes.get("PAX5").isEmpty());
+  }
+
+  @Test
+  public void compactImmutableTest() throws IOException, ClassNotFoundException {
+    Map<String, Integer> ids = new HashMap<String, Integer>();
+
+    for (int i = 0; i < 10000; ++i) {
+      ids.put("symbol" + i, i);
+    }
+
+    CompactImmutableMap<String, Integer> map = CompactImmutableMap.copyOf(ids);
+
+    assertEquals("map", ids, map);
+    assertEquals("get", 1234, map.get("symbol1234").intValue());
+    assertNull("missing", map.get("missing"));
+    assertEquals("default", -1, map.getOrDefault("missing", -1).intValue());
+
+    try {
+      map.put("missing", 1);
+      fail("Map changed");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    CompactImmutableSet<String> symbols = CompactImmutableSet.of("BCL6", "MYC", "BCL6", "PAX5");
+
+    assertEquals("unique", 3, symbols.size());
+    assertEquals("id", 2, symbols.indexOf("PAX5"));
+    assertEquals("symbol", "MYC", symbols.get(1));
+    assertTrue("contains", symbols.contains("MYC") && !symbols.contains("TP53"));
+
+    // The index is rebuilt on deserialization, so keys whose hash codes
+    // differ in another JVM are still found
+    CompactImmutableMap<SaltedKey, Integer> saltedMap = CompactImmutableMap.<SaltedKey, Integer>builder()
+        .put(new SaltedKey("BCL6"), 1).put(new SaltedKey("MYC"), 2).build();
+    CompactImmutableSet<SaltedKey> saltedSet = CompactImmutableSet.of(new SaltedKey("BCL6"), new SaltedKey("MYC"));
+
+    byte[] mapBytes = serialize(saltedMap);
+    byte[] setBytes = serialize(saltedSet);
+
+    SaltedKey.sSalt = 0x5bd1e995;
+
+    try {
+      @SuppressWarnings("unchecked")
+      Map<SaltedKey, Integer> map2 = (Map<SaltedKey, Integer>) deserialize(mapBytes);
+      @SuppressWarnings("unchecked")
+      CompactImmutableSet<SaltedKey> set2 = (CompactImmutableSet<SaltedKey>) deserialize(setBytes);
+
+      assertEquals("serialized map", 2, map2.get(new SaltedKey("MYC")).intValue());
+      assertEquals("serialized set", 1, set2.indexOf(new SaltedKey("MYC")));
+    } finally {
+      SaltedKey.sSalt = 0;
+    }
+
+    List<Integer> list = CompactImmutableList.of(3, 1, 2);
+
+    assertEquals("list", Arrays.asList(3, 1, 2), list);
+
+    try {
+      list.set(0, 5);
+      fail("List changed");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  /**
+   * A key whose hash code can be changed to mimic one that differs between
+   * JVMs, such as an identity hash code.
+   */
+  private static class SaltedKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static int sSalt = 0;
+
+    private final String mName;
+
+    public SaltedKey(String name) {
+      mName = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof SaltedKey && mName.equals(((SaltedKey) o).mName);
+    }
+
+    @Override
+    public int hashCode() {
+      return mName.hashCode() ^ sSalt;
+    }
+  }
+
+  private static byte[] serialize(Object o) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+
+    try {
+      out.writeObject(o);
+    } finally {
+      out.close();
+    }
+
+    return bytes.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+
+    try {
+      return in.readObject();
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void sortTest() {
+    Random rand = new Random(7);
+
+    final double[] values = new double[100000];
+
+    for (int i = 0; i < values.length; ++i) {
+      // plenty of ties to check the sort is stable
+      values[i] = rand.nextInt(1000) - 500.5;
+    }
+
+    values[10] = Double.NaN;
+    values[20] = -0.0;
+    values[30] = 0.0;
+    values[40] = Double.NEGATIVE_INFINITY;
+
+    List<Integer> expected = new ArrayList<Integer>(values.length);
+
+    for (int i = 0; i < values.length; ++i) {
+      expected.add(i);
+    }
+
+    Collections.sort(expected, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer i1, Integer i2) {
+        return Double.compare(values[i1], values[i2]);
+      }
+    });
+
+    int[] idx = CollectionUtils.argsort(values);
+
+    for (int i = 0; i < idx.length; ++i) {
+      assertEquals("argsort", expected.get(i).intValue(), idx[i]);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+
+    assertTrue("parallel argsort", Arrays.equals(idx, CollectionUtils.argsort(values, pool)));
+
+    pool.shutdown();
+
+    double[] d = Arrays.copyOf(values, values.length);
+    double[] d2 = Arrays.copyOf(values, values.length);
+    CollectionUtils.radixSort(d);
+    Arrays.sort(d2);
+    assertTrue("double", Arrays.equals(d, d2));
+
+    int[] a = new int[50000];
+    long[] l = new long[a.length];
+
+    for (int i = 0; i < a.length; ++i) {
+      a[i] = rand.nextInt();
+      l[i] = rand.nextLong();
+    }
+
+    int[] ia = CollectionUtils.argsort(a);
+
+    for (int i = 1; i < ia.length; ++i) {
+      assertTrue("int argsort", a[ia[i - 1]] <= a[ia[i]]);
+    }
+
+    int[] a2 = Arrays.copyOf(a, a.length);
+    CollectionUtils.radixSort(a);
+    Arrays.sort(a2);
+    assertTrue("int", Arrays.equals(a, a2));
+
+    int[] la = CollectionUtils.argsort(l);
+
+    for (int i = 1; i < la.length; ++i) {
+      assertTrue("long argsort", l[la[i - 1]] <= l[la[i]]);
+    }
+
+    long[] l2 = Arrays.copyOf(l, l.length);
+    CollectionUtils.radixSort(l);
+    Arrays.sort(l2);
+    assertTrue("long", Arrays.equals(l, l2));
+
+    List<String> genes = Arrays.asList("PAX5", "MYC", "BCL6", "TP53");
+
+    assertEquals("by key", Arrays.asList("MYC", "PAX5", "BCL6", "TP53"),
+        CollectionUtils.sortByDouble(genes, new ToDoubleFunction<String>() {
+          @Override
+          public double applyAsDouble(String s) {
+            return s.length();
+          }
+        }));
+
+    List<Integer> list = new ArrayList<Integer>(Arrays.asList(5, 3, 9, 1, 3));
+    CollectionUtils.quickSort(list);
+    assertEquals("list", Arrays.asList(1, 3, 3, 5, 9), list);
+
+    Map<String, Integer> map = new HashMap<String, Integer>();
+    map.put("c", 1);
+    map.put("b", 2);
+    map.put("a", 1);
+
+    assertEquals("by values", Arrays.asList("a", "c", "b"), CollectionUtils.sortKeysByValues(map));
+  }
+}
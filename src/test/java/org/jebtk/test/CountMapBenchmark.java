@@ -0,0 +1,178 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.test;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.jebtk.core.collections.ConcurrentCountMap;
+import org.jebtk.core.collections.CountMap;
+
+/**
+ * Compares counting from 1 to 32 threads with a synchronized CountMap, a
+ * ConcurrentCountMap and a ConcurrentCountMap accumulator. Each thread counts
+ * the same number of keys drawn from a small set, so most increments hit keys
+ * other threads are also counting. Run from the command line; it is not a
+ * unit test.
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes org.jebtk.test.CountMapBenchmark
+ * </pre>
+ */
+public class CountMapBenchmark {
+
+  private static final int N = 2000000;
+
+  private static final int KEYS = 1000;
+
+  private static final int ROUNDS = 5;
+
+  private static final String[] VALUES = new String[KEYS];
+
+  static {
+    for (int i = 0; i < KEYS; ++i) {
+      VALUES[i] = "key" + i;
+    }
+  }
+
+  /**
+   * A way of counting keys.
+   */
+  private interface Counter {
+    void inc(String key);
+
+    void finish();
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    for (int threads = 1; threads <= 32; threads *= 2) {
+      long sync = Long.MAX_VALUE;
+      long concurrent = Long.MAX_VALUE;
+      long accumulator = Long.MAX_VALUE;
+
+      // take the best of several rounds to reduce warm up noise
+      for (int r = 0; r < ROUNDS; ++r) {
+        sync = Math.min(sync, run(threads, synchronizedCounter()));
+        concurrent = Math.min(concurrent, run(threads, concurrentCounter()));
+        accumulator = Math.min(accumulator, run(threads, accumulatorCounter()));
+      }
+
+      System.err.println(threads + " threads: synchronized " + opsPerSec(threads, sync) + " ops/s, concurrent "
+          + opsPerSec(threads, concurrent) + " ops/s, accumulator " + opsPerSec(threads, accumulator) + " ops/s");
+    }
+  }
+
+  private static Counter synchronizedCounter() {
+    final CountMap<String> map = CountMap.create();
+
+    return new Counter() {
+      @Override
+      public void inc(String key) {
+        synchronized (map) {
+          map.inc(key);
+        }
+      }
+
+      @Override
+      public void finish() {
+        // nothing to do
+      }
+    };
+  }
+
+  private static Counter concurrentCounter() {
+    final ConcurrentCountMap<String> map = ConcurrentCountMap.create();
+
+    return new Counter() {
+      @Override
+      public void inc(String key) {
+        map.inc(key);
+      }
+
+      @Override
+      public void finish() {
+        // nothing to do
+      }
+    };
+  }
+
+  private static Counter accumulatorCounter() {
+    final ConcurrentCountMap.Accumulator<String> acc = ConcurrentCountMap.accumulator();
+
+    return new Counter() {
+      @Override
+      public void inc(String key) {
+        acc.inc(key);
+      }
+
+      @Override
+      public void finish() {
+        acc.build();
+      }
+    };
+  }
+
+  /**
+   * Count with a number of threads and return the elapsed time.
+   *
+   * @param threads the threads
+   * @param counter the counter
+   * @return the elapsed nanoseconds.
+   * @throws InterruptedException
+   */
+  private static long run(int threads, final Counter counter) throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+
+    for (int t = 0; t < threads; ++t) {
+      final int seed = t;
+
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+
+          int k = seed;
+
+          for (int i = 0; i < N; ++i) {
+            counter.inc(VALUES[k]);
+
+            k = (k + 7) % KEYS;
+          }
+
+          done.countDown();
+        }
+      });
+
+      thread.start();
+    }
+
+    long time = System.nanoTime();
+
+    start.countDown();
+    done.await();
+    counter.finish();
+
+    return System.nanoTime() - time;
+  }
+
+  private static long opsPerSec(int threads, long nanos) {
+    return (long) ((double) threads * N / nanos * 1e9);
+  }
+}
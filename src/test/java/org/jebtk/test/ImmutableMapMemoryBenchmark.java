@@ -0,0 +1,127 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.jebtk.core.collections.CompactImmutableMap;
+import org.jebtk.core.collections.ImmutableMap;
+
+/**
+ * Compares the heap used by a large symbol to id lookup table stored as an
+ * ImmutableMap, which is a locked HashMap, and as a CompactImmutableMap, and
+ * the time to look up every key in a random order. Keys and values are shared by both maps so
+ * only the cost of the structure is measured. Run from the command line; it
+ * is not a unit test.
+ *
+ * <pre>
+ * java -Xmx2g -cp target/classes:target/test-classes org.jebtk.test.ImmutableMapMemoryBenchmark
+ * </pre>
+ */
+public class ImmutableMapMemoryBenchmark {
+
+  private static final int N = 1000000;
+
+  private static final String[] KEYS = new String[N];
+
+  private static final Integer[] VALUES = new Integer[N];
+
+  /** The keys in random order, as lookups in a real table would be. */
+  private static final String[] QUERIES = new String[N];
+
+  static {
+    for (int i = 0; i < N; ++i) {
+      KEYS[i] = "symbol" + i;
+      VALUES[i] = i;
+
+      // cache the hash as a loaded table would have
+      KEYS[i].hashCode();
+    }
+
+    List<String> queries = new ArrayList<String>(Arrays.asList(KEYS));
+    Collections.shuffle(queries, new Random(0));
+    queries.toArray(QUERIES);
+  }
+
+  public static void main(String[] args) {
+    long base = used();
+
+    ImmutableMap<String, Integer> hashMap = new ImmutableMap<String, Integer>();
+
+    for (int i = 0; i < N; ++i) {
+      hashMap.put(KEYS[i], VALUES[i]);
+    }
+
+    hashMap.lock();
+
+    long legacy = used() - base;
+
+    base = used();
+
+    CompactImmutableMap.Builder<String, Integer> builder = CompactImmutableMap.builder();
+
+    for (int i = 0; i < N; ++i) {
+      builder.put(KEYS[i], VALUES[i]);
+    }
+
+    CompactImmutableMap<String, Integer> compact = builder.build();
+
+    builder = null;
+
+    long compactUsed = used() - base;
+
+    System.err.println("ImmutableMap " + legacy / N + " bytes/entry, CompactImmutableMap " + compactUsed / N
+        + " bytes/entry (" + String.format("%.1f", (double) legacy / compactUsed) + "x)");
+
+    for (int r = 0; r < 5; ++r) {
+      System.err.println("lookup ImmutableMap " + lookup(hashMap) / 1000000 + " ms, CompactImmutableMap "
+          + lookup(compact) / 1000000 + " ms");
+    }
+  }
+
+  private static long lookup(Map<String, Integer> map) {
+    long time = System.nanoTime();
+
+    long sum = 0;
+
+    for (int i = 0; i < N; ++i) {
+      sum += map.get(QUERIES[i]);
+    }
+
+    time = System.nanoTime() - time;
+
+    if (sum == 0) {
+      System.err.println("empty");
+    }
+
+    return time;
+  }
+
+  private static long used() {
+    Runtime runtime = Runtime.getRuntime();
+
+    for (int i = 0; i < 4; ++i) {
+      System.gc();
+    }
+
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
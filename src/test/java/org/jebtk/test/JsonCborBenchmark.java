@@ -0,0 +1,97 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.jebtk.core.json.Json;
+import org.jebtk.core.json.JsonCbor;
+import org.jebtk.core.json.JsonParser;
+
+/**
+ * Compares the size and round trip time (serialize then parse) of JSON text
+ * and CBOR for a document of annotation style records plus a numeric matrix.
+ * Run from the command line; it is not a unit test.
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes org.jebtk.test.JsonCborBenchmark
+ * </pre>
+ */
+public class JsonCborBenchmark {
+
+  private static final int ROUNDS = 20;
+
+  public static void main(String[] args) throws IOException {
+    StringBuilder buffer = new StringBuilder("{\"genes\":[");
+
+    for (int i = 0; i < 50000; ++i) {
+      if (i > 0) {
+        buffer.append(',');
+      }
+
+      buffer.append("{\"id\":").append(i).append(",\"symbol\":\"GENE").append(i % 5000).append("\",\"chr\":\"chr")
+          .append(i % 22 + 1).append("\",\"start\":").append(i * 1000).append(",\"end\":").append(i * 1000 + 500)
+          .append(",\"strand\":\"+\",\"score\":").append(i % 100).append(".5}");
+    }
+
+    buffer.append("],\"matrix\":[");
+
+    for (int i = 0; i < 200000; ++i) {
+      if (i > 0) {
+        buffer.append(',');
+      }
+
+      buffer.append(Math.sin(i));
+    }
+
+    buffer.append("]}");
+
+    JsonParser parser = new JsonParser();
+
+    Json json = parser.parse(new ByteArrayInputStream(buffer.toString().getBytes("UTF-8")));
+
+    byte[] text = null;
+    byte[] cbor = null;
+
+    long textTime = Long.MAX_VALUE;
+    long cborTime = Long.MAX_VALUE;
+
+    for (int r = 0; r < ROUNDS; ++r) {
+      long start = System.nanoTime();
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Json.write(json, out);
+      text = out.toByteArray();
+      parser.parse(new ByteArrayInputStream(text));
+
+      textTime = Math.min(textTime, System.nanoTime() - start);
+
+      start = System.nanoTime();
+
+      cbor = JsonCbor.toBytes(json);
+      JsonCbor.parse(cbor);
+
+      cborTime = Math.min(cborTime, System.nanoTime() - start);
+    }
+
+    System.err.println("text: " + text.length + " bytes, " + (textTime / 1000000) + " ms round trip");
+    System.err.println("cbor: " + cbor.length + " bytes, " + (cborTime / 1000000) + " ms round trip");
+    System.err.println("size " + String.format("%.2f", (double) cbor.length / text.length) + ", speed up "
+        + String.format("%.1f", (double) textTime / cborTime) + "x");
+  }
+}
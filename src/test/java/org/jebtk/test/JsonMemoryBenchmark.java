@@ -0,0 +1,109 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.core.collections.IterHashMap;
+import org.jebtk.core.collections.UniqueArrayList;
+import org.jebtk.core.json.Json;
+import org.jebtk.core.json.JsonInteger;
+import org.jebtk.core.json.JsonObject;
+
+/**
+ * Compares the heap used by many small JSON objects stored in the compact
+ * member map with the previous layout of a UniqueArrayList of names plus an
+ * IterHashMap of values. Run from the command line; it is not a unit test.
+ *
+ * <pre>
+ * java -Xmx2g -cp target/classes:target/test-classes org.jebtk.test.JsonMemoryBenchmark
+ * </pre>
+ */
+public class JsonMemoryBenchmark {
+
+  private static final int N = 200000;
+
+  private static final String[] KEYS = { "a", "b", "c" };
+
+  public static void main(String[] args) {
+    for (int members = 1; members <= KEYS.length; ++members) {
+      long legacy = measureLegacy(members);
+      long compact = measureCompact(members);
+
+      System.err.println(members + " members: legacy " + (legacy / N) + " bytes/object, compact " + (compact / N)
+          + " bytes/object (" + (legacy / Math.max(1, compact)) + "x)");
+    }
+  }
+
+  private static long measureLegacy(int members) {
+    long before = used();
+
+    List<Object> objects = new ArrayList<Object>(N);
+
+    for (int i = 0; i < N; ++i) {
+      List<String> names = new UniqueArrayList<String>();
+      Map<String, Json> map = new IterHashMap<String, Json>();
+
+      for (int j = 0; j < members; ++j) {
+        names.add(KEYS[j]);
+        map.put(KEYS[j], new JsonInteger(i));
+      }
+
+      objects.add(new Object[] { names, map });
+    }
+
+    long ret = used() - before;
+
+    // keep the objects reachable until measured
+    System.err.println("legacy created " + objects.size());
+
+    return ret;
+  }
+
+  private static long measureCompact(int members) {
+    long before = used();
+
+    List<Object> objects = new ArrayList<Object>(N);
+
+    for (int i = 0; i < N; ++i) {
+      JsonObject json = new JsonObject();
+
+      for (int j = 0; j < members; ++j) {
+        json.add(KEYS[j], new JsonInteger(i));
+      }
+
+      objects.add(json);
+    }
+
+    long ret = used() - before;
+
+    System.err.println("compact created " + objects.size());
+
+    return ret;
+  }
+
+  private static long used() {
+    Runtime runtime = Runtime.getRuntime();
+
+    for (int i = 0; i < 4; ++i) {
+      System.gc();
+    }
+
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
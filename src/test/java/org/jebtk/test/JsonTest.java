@@ -15,16 +15,42 @@
  */
 package org.jebtk.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jebtk.core.io.PathUtils;
 import org.jebtk.core.json.Json;
 import org.jebtk.core.json.JsonArray;
+import org.jebtk.core.json.JsonBind;
+import org.jebtk.core.json.JsonBoolean;
 import org.jebtk.core.json.JsonBuilder;
+import org.jebtk.core.json.JsonCbor;
+import org.jebtk.core.json.JsonCodecs;
+import org.jebtk.core.json.JsonDoubleArray;
+import org.jebtk.core.json.JsonField;
+import org.jebtk.core.json.JsonIntArray;
 import org.jebtk.core.json.JsonInteger;
 import org.jebtk.core.json.JsonObject;
 import org.jebtk.core.json.JsonParser;
+import org.jebtk.core.json.JsonPath;
+import org.jebtk.core.json.JsonReader;
+import org.jebtk.core.json.JsonToken;
+import org.jebtk.core.json.JsonWriter;
+import org.jebtk.core.json.NdJsonReader;
 import org.jebtk.core.json.JsonString;
+import org.jebtk.core.json.JsonTape;
 import org.junit.Test;
 
 public class JsonTest {
@@ -67,6 +93,9 @@ public class JsonTest {
   public void testJsonEscape() {
 
     System.err.println("escape " + JsonString.escape("x:r/	"));
+
+    assertEquals("escape", "a\\\"b\\\\c\\/\\b\\u0001\\n", JsonString.escape("a\"b\\c/\b\u0001\n"));
+    assertSame("no escape", "plain text", JsonString.escape("plain text"));
   }
 
   @Test
@@ -95,4 +124,447 @@ public class JsonTest {
         + new JsonBuilder().startArray().add("cake").add(1).add(false).startObject().add("p", "test/sdf\\sdf")
             .add("q", 4).add("r", true).startArray("hmm").add("2").add("dfdf").endArray().endObject().endArray());
   }
+
+  @Test
+  public void testUtf8StreamParser() throws IOException, ParseException {
+    StringBuilder buffer = new StringBuilder("[");
+
+    for (int i = 0; i < 2000; ++i) {
+      if (i > 0) {
+        buffer.append(',');
+      }
+
+      buffer.append("{\"name\":\"g\u00e8ne \\u00e9\\\"\u03b2\\\"\",\"v\":").append(i).append(".5,\"big\":3000000000,\"e\":1.25e-3}");
+    }
+
+    buffer.append(']');
+
+    byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+
+    Json json = new JsonParser().parse(new ByteArrayInputStream(bytes));
+
+    assertEquals("size", 2000, json.size());
+    assertEquals("utf-8", "g\u00e8ne \u00e9\"\u03b2\"", json.get(1999).getString("name"));
+    assertEquals("double", 1999.5, json.get(1999).getDouble("v"), 0);
+    assertEquals("long", 3000000000L, json.get(5).get("big").getLong());
+    assertEquals("exponent", 1.25e-3, json.get(5).getDouble("e"), 0);
+
+    // quoted values are typed as on the character path
+    String quoted = "{\"n\":\"2\",\"b\":\"true\",\"c\":\"#ff0000\",\"s\":\"BCL6\"}";
+
+    json = new JsonParser().parse(new ByteArrayInputStream(quoted.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals("quoted int", 2, json.getInt("n"));
+    assertEquals("quoted", new JsonParser().parse(quoted).toString(), json.toString());
+  }
+
+  @Test
+  public void testJsonReader() throws IOException, ParseException {
+    byte[] bytes = "{\"skip\": {\"a\": [1, {\"b\": \"}\"}]}, \"rows\": [{\"n\": 1}, {\"n\": 2.5}, {\"n\": null}], \"end\": true}"
+        .getBytes(StandardCharsets.UTF_8);
+
+    JsonReader reader = new JsonReader(bytes, 0, bytes.length);
+
+    reader.beginObject();
+
+    assertEquals("name", JsonToken.FIELD_NAME, reader.nextToken());
+    assertEquals("name", "skip", reader.getName());
+    reader.nextToken();
+    reader.skipChildren();
+
+    assertEquals("name", JsonToken.FIELD_NAME, reader.nextToken());
+    assertEquals("name", "rows", reader.getName());
+
+    int n = 0;
+
+    for (Json row : reader.elements()) {
+      assertEquals("row", 1, row.size());
+      ++n;
+    }
+
+    assertEquals("rows", 3, n);
+    assertEquals("name", JsonToken.FIELD_NAME, reader.nextToken());
+    assertEquals("bool", JsonToken.TRUE, reader.nextToken());
+
+    reader.endObject();
+
+    assertEquals("eof", null, reader.nextToken());
+
+    // quoted values are typed as by the parser
+    String quoted = "{\"a\":\"true\",\"b\":\"12\",\"c\":\"BCL6\"}";
+
+    reader = new JsonReader(quoted.getBytes(StandardCharsets.UTF_8), 0, quoted.length());
+
+    Json json = reader.nextJson();
+
+    assertEquals("typed", JsonBoolean.class, json.get("a").getClass());
+    assertEquals("typed", 12, json.getInt("b"));
+    assertEquals("same tree", new JsonParser().parse(quoted).toString(), json.toString());
+
+    try {
+      new JsonReader(bytes, 0, bytes.length).readJson();
+      fail("Read before the first token");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testJsonTape() throws IOException {
+    StringBuilder buffer = new StringBuilder("{\"rows\":[");
+
+    for (int i = 0; i < 100; ++i) {
+      if (i > 0) {
+        buffer.append(',');
+      }
+
+      buffer.append("{\"id\":").append(i).append(",\"k\\u0031\":\"v").append(i).append("\"}");
+    }
+
+    buffer.append("],\"meta\":{");
+
+    for (int i = 0; i < 20; ++i) {
+      buffer.append("\"m").append(i).append("\":").append(i).append(".5,");
+    }
+
+    // duplicate keys: the last one wins
+    buffer.append("\"m13\":99,\"last\":null}}");
+
+    String text = buffer.toString();
+
+    JsonTape tape = JsonTape.parse(text.getBytes(StandardCharsets.UTF_8));
+
+    Json root = tape.getRoot();
+
+    assertEquals("size", 2, root.size());
+    assertEquals("rows", 100, root.getArray("rows").size());
+    assertEquals("id", 57, root.get("rows").get(57).getInt("id"));
+    assertEquals("escaped key", "v42", root.get("rows").get(42).getString("k1"));
+    assertEquals("hash", 22, root.get("meta").size());
+    assertEquals("hash", 99, root.get("meta").getInt("m13"));
+    assertEquals("missing", null, root.get("meta").get("m99"));
+    assertEquals("out of range", null, root.get("rows").get(100));
+    assertEquals("out of range", null, root.get("meta").get(-1));
+
+    Json small = JsonTape.parse("{\"a\":1,\"a\":2}".getBytes(StandardCharsets.UTF_8)).getRoot();
+
+    assertEquals("duplicate", 2, small.getInt("a"));
+
+    String quoted = "{\"a\":\"true\",\"b\":\"12\",\"c\":\"BCL6\"}";
+
+    Json typed = JsonTape.parse(quoted.getBytes(StandardCharsets.UTF_8)).getRoot();
+
+    assertEquals("typed", JsonBoolean.class, typed.get("a").getClass());
+    assertEquals("typed", JsonInteger.class, typed.get("b").getClass());
+    assertEquals("typed", "BCL6", typed.getString("c"));
+    assertEquals("source", text, root.toJson());
+  }
+
+  @Test
+  public void testJsonObjectOrder() {
+    JsonObject json = new JsonObject();
+
+    for (int i = 0; i < 20; ++i) {
+      json.add("k" + (19 - i), i);
+    }
+
+    // replacing a member keeps its position
+    json.add("k19", "first");
+
+    assertEquals("size", 20, json.size());
+    assertEquals("first key", "k19", json.getKeys().iterator().next());
+    assertEquals("replaced", "first", json.getString("k19"));
+    assertEquals("index", "first", json.get(0).getString());
+    assertEquals("lookup", 10, json.getInt("k9"));
+  }
+
+  @Test
+  public void testNumericArrays() throws IOException {
+    byte[] bytes = "{\"i\": [1, -2, 3], \"d\": [1.5, 2, -3e2], \"m\": [1, \"a\", 2.5], \"e\": []}"
+        .getBytes(StandardCharsets.UTF_8);
+
+    Json json = new JsonParser().parse(new ByteArrayInputStream(bytes));
+
+    assertEquals("int array", JsonIntArray.class, json.get("i").getClass());
+    assertEquals("int", -2, json.get("i").getInt(1));
+
+    JsonDoubleArray d = (JsonDoubleArray) json.get("d");
+
+    assertSame("zero copy", d.toDoubleArray(), d.toDoubleArray());
+    assertEquals("double", -300, d.toDoubleArray()[2], 0);
+    assertEquals("json", "[1.5,2,-300]", d.toJson());
+
+    assertEquals("mixed", JsonArray.class, json.get("m").getClass());
+    assertEquals("mixed", "a", json.get("m").getString(1));
+    assertEquals("mixed", 2.5, json.get("m").getDouble(2), 0);
+    assertEquals("empty", 0, json.get("e").size());
+
+    // parsed arrays can still be changed
+    Json ints = json.get("i");
+    ints.add(4);
+    ints.add(2.5);
+    ints.add("b");
+    ints.add((Json) null);
+
+    assertEquals("changed", "[1,-2,3,4,2.5,\"b\",null]", ints.toJson());
+    assertEquals("changed", 4, ints.getInt(3));
+    assertEquals("changed", "b", ints.getString(5));
+
+    d.add("c");
+
+    assertEquals("changed", "[1.5,2,-300,\"c\"]", d.toJson());
+  }
+
+  @Test
+  public void testJsonWriter() throws IOException {
+    Json json = new JsonObject();
+    json.add("name", "g\u00e8ne \u03b2 \ud83d\ude00 \"q\"");
+    json.add("v", 1.5);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    JsonWriter writer = new JsonWriter(out);
+    json.toJson(writer);
+    writer.close();
+
+    StringBuilder buffer = new StringBuilder();
+    json.toJson(buffer);
+
+    assertEquals("utf-8", buffer.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+    out = new ByteArrayOutputStream();
+
+    writer = new JsonWriter(out);
+    writer.startObject().add("name", "\u00e8").startArray("a").add(1).startObject().endObject().add(json).endArray()
+        .add("v", 2).endObject();
+    writer.close();
+
+    assertEquals("builder", "{\"name\":\"\u00e8\",\"a\":[1,{}," + buffer + "],\"v\":2}",
+        new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testCbor() throws IOException {
+    StringBuilder buffer = new StringBuilder("{\"rows\":[");
+
+    for (int i = 0; i < 100; ++i) {
+      if (i > 0) {
+        buffer.append(',');
+      }
+
+      buffer.append("{\"name\":\"g\u00e8ne").append(i).append("\",\"v\":").append(i - 50).append(".25,\"big\":")
+          .append(3000000000L * i).append(",\"ok\":").append(i % 2 == 0).append(",\"n\":null}");
+    }
+
+    buffer.append("],\"ints\":[1,-2,300000],\"doubles\":[0.1,2,3.5]}");
+
+    byte[] text = buffer.toString().getBytes(StandardCharsets.UTF_8);
+
+    Json json = new JsonParser().parse(new ByteArrayInputStream(text));
+
+    byte[] cbor = JsonCbor.toBytes(json);
+
+    Json json2 = JsonCbor.parse(cbor);
+
+    StringBuilder b1 = new StringBuilder();
+    json.toJson(b1);
+    StringBuilder b2 = new StringBuilder();
+    json2.toJson(b2);
+
+    assertEquals("round trip", b1.toString(), b2.toString());
+    assertEquals("typed", JsonDoubleArray.class, json2.get("doubles").getClass());
+    assertEquals("smaller", true, cbor.length < text.length);
+
+    // 500 in a string reference namespace: tag 256 then 0x19 0x01 0xf4
+    byte[] small = JsonCbor.toBytes(new JsonInteger(500));
+    assertEquals("cbor", 6, small.length);
+    assertEquals("cbor", (byte) 0xf4, small[5]);
+  }
+
+  @Test
+  public void testNdJsonReader() throws IOException {
+    StringBuilder buffer = new StringBuilder();
+
+    for (int i = 0; i < 5000; ++i) {
+      buffer.append("{\"id\":").append(i).append(",\"name\":\"row").append(i).append("\"}");
+
+      // blank lines and crlf line endings
+      buffer.append(i % 100 == 0 ? "\r\n\n" : "\n");
+    }
+
+    // last line without a newline
+    buffer.append("{\"id\":5000}");
+
+    byte[] text = buffer.toString().getBytes(StandardCharsets.UTF_8);
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+
+    // small chunks so that lines cross chunk boundaries
+    NdJsonReader reader = new NdJsonReader(new ByteArrayInputStream(text), pool, 100);
+
+    int id = 0;
+
+    for (Json json : reader) {
+      assertEquals("ordered", id++, json.get("id").getInt());
+    }
+
+    assertEquals("ordered", 5001, id);
+
+    final AtomicLong sum = new AtomicLong();
+
+    reader = new NdJsonReader(new ByteArrayInputStream(text), pool, 100);
+
+    reader.forEachUnordered(new NdJsonReader.JsonFunction() {
+      @Override
+      public void apply(Json json) {
+        sum.addAndGet(json.get("id").getInt());
+      }
+    });
+
+    assertEquals("unordered", 5000L * 5001 / 2, sum.get());
+
+    pool.shutdown();
+  }
+
+  public enum Strand {
+    PLUS, MINUS
+  }
+
+  @JsonBind
+  public static class Exon {
+    public int start;
+    public int end;
+  }
+
+  @JsonBind
+  public static class Gene {
+    public String symbol;
+    public long start;
+    public double score;
+    public boolean coding;
+    public Strand strand;
+    public int[] counts;
+    public Integer rank;
+    public List<Exon> exons;
+    public List<String> aliases;
+    private int mLevel;
+    @JsonField("gene_id")
+    private String mGeneId;
+
+    public int getLevel() {
+      return mLevel;
+    }
+
+    public void setLevel(int level) {
+      mLevel = level;
+    }
+
+    public String getGeneId() {
+      return mGeneId;
+    }
+
+    public void setGeneId(String geneId) {
+      mGeneId = geneId;
+    }
+  }
+
+  @Test
+  public void testJsonCodec() throws IOException {
+    Gene gene = new Gene();
+    gene.symbol = "BCL6 \"\u00e8\"";
+    gene.start = 187721377L;
+    gene.score = 0.25;
+    gene.coding = true;
+    gene.strand = Strand.MINUS;
+    gene.counts = new int[] { 1, 2, 3 };
+    gene.exons = Arrays.asList(new Exon(), new Exon());
+    gene.exons.get(1).start = 10;
+    gene.exons.get(1).end = 20;
+    gene.aliases = Arrays.asList("ZNF51", null);
+    gene.setLevel(5);
+    gene.setGeneId("ENSG00000113916");
+
+    String json = JsonCodecs.toJson(gene, JsonTest_GeneJsonCodec.INSTANCE);
+
+    // The generated JSON can be parsed normally
+    Json tree = new JsonParser().parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    assertEquals("tree", gene.symbol, tree.getString("symbol"));
+    assertEquals("tree", 5, tree.getInt("level"));
+    assertEquals("tree", gene.getGeneId(), tree.getString("gene_id"));
+
+    Gene gene2 = JsonCodecs.parse(json, JsonTest_GeneJsonCodec.INSTANCE);
+
+    assertEquals("codec", json, JsonCodecs.toJson(gene2, JsonTest_GeneJsonCodec.INSTANCE));
+    assertEquals("codec", null, gene2.rank);
+    assertEquals("codec", 20, gene2.exons.get(1).end);
+    assertEquals("codec", gene.getGeneId(), gene2.getGeneId());
+
+    // Members in any order, unknown members skipped
+    gene2 = JsonCodecs.parse(
+        "{\"extra\":{\"a\":[1,{\"b\":2}]},\"strand\":\"PLUS\",\"level\":7,\"rank\":3,\"exons\":null,\"more\":[]}",
+        JsonTest_GeneJsonCodec.INSTANCE);
+
+    assertEquals("unordered", Strand.PLUS, gene2.strand);
+    assertEquals("unordered", 7, gene2.getLevel());
+    assertEquals("unordered", Integer.valueOf(3), gene2.rank);
+    assertEquals("unordered", null, gene2.exons);
+
+    // Reading past the end of the input is an error, not an NPE
+    try {
+      JsonCodecs.STRING.read(new JsonReader(new byte[0], 0, 0));
+      fail("empty");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testJsonPath() throws IOException {
+    String text = "{\"genes\":[{\"symbol\":\"BCL6\",\"chr\":\"chr3\",\"exons\":[{\"start\":10},{\"start\":20}]},"
+        + "{\"symbol\":\"MYC\",\"chr\":\"chr8\",\"score\":2.5,\"exons\":[{\"start\":30}]},"
+        + "{\"symbol\":\"TP63\",\"chr\":\"chr3\",\"score\":1,\"exons\":[]}],\"n\":3}";
+
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+    Json json = new JsonParser().parse(new ByteArrayInputStream(bytes));
+
+    String[] paths = { "$.genes[*].symbol", "genes[1].exons[0].start", "$['genes'][*].exons[*].start",
+        "$.genes[?(@.chr == 'chr3')].symbol", "$.genes[?(@.score > 1 || @.exons[1])].symbol",
+        "$.genes[?(@.score && @.chr != \"chr8\")].symbol", "$.n", "$.*" };
+
+    String[] expected = { "[BCL6, MYC, TP63]", "[30]", "[10, 20, 30]", "[BCL6, TP63]", "[BCL6, MYC]", "[TP63]",
+        "[3]", null };
+
+    for (int i = 0; i < paths.length; ++i) {
+      JsonPath path = JsonPath.compile(paths[i]);
+
+      List<String> tree = new ArrayList<String>();
+
+      for (Json j : path.select(json)) {
+        tree.add(j.getString());
+      }
+
+      List<String> stream = new ArrayList<String>();
+
+      for (Json j : path.select(new JsonReader(bytes, 0, bytes.length))) {
+        stream.add(j.getString());
+      }
+
+      if (expected[i] != null) {
+        assertEquals(paths[i], expected[i], tree.toString());
+      }
+
+      assertEquals(paths[i], tree, stream);
+    }
+
+    assertEquals("last", "TP63", JsonPath.compile("$.genes[-1].symbol").getString(json));
+
+    // Negative indices need the array length, which a reader does not know
+    try {
+      JsonPath.compile("$.genes[-1].symbol").select(new JsonReader(bytes, 0, bytes.length));
+      fail("negative index");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
 }
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.core.collections.ArrayListMultiMap;
+import org.jebtk.core.collections.CompactListMultiMap;
+import org.jebtk.core.collections.ListMultiMap;
+
+/**
+ * Compares the heap used and the time to iterate over all values of a multi
+ * map of many keys with a few values each, stored as an ArrayListMultiMap
+ * and as a CompactListMultiMap. Keys and values are shared by both maps so
+ * only the cost of the structure is measured. Run from the command line; it is not a unit
+ * test.
+ *
+ * <pre>
+ * java -Xmx4g -cp target/classes:target/test-classes org.jebtk.test.MultiMapMemoryBenchmark
+ * </pre>
+ */
+public class MultiMapMemoryBenchmark {
+
+  private static final int KEYS = 500000;
+
+  private static final int VALUES_PER_KEY = 4;
+
+  private static final String[] NAMES = new String[KEYS];
+
+  private static final Integer[] VALUES = new Integer[KEYS * VALUES_PER_KEY];
+
+  static {
+    for (int i = 0; i < KEYS; ++i) {
+      NAMES[i] = "gene" + i;
+    }
+
+    for (int i = 0; i < VALUES.length; ++i) {
+      VALUES[i] = i;
+    }
+  }
+
+  public static void main(String[] args) {
+    long base = used();
+
+    ListMultiMap<String, Integer> lists = ArrayListMultiMap.create(KEYS);
+
+    for (int i = 0; i < KEYS; ++i) {
+      // ArrayListMultiMap presizes each list, so trim to its content to be fair
+      List<Integer> list = lists.get(NAMES[i]);
+
+      for (int j = 0; j < VALUES_PER_KEY; ++j) {
+        list.add(VALUES[i * VALUES_PER_KEY + j]);
+      }
+
+      ((ArrayList<Integer>) list).trimToSize();
+    }
+
+    long legacy = used() - base;
+
+    base = used();
+
+    CompactListMultiMap<String, Integer> compact = CompactListMultiMap.copyOf(lists);
+
+    long compactUsed = used() - base;
+
+    System.err.println("ArrayListMultiMap " + legacy / KEYS + " bytes/key, CompactListMultiMap " + compactUsed / KEYS
+        + " bytes/key (" + String.format("%.1f", (double) legacy / compactUsed) + "x)");
+
+    for (int r = 0; r < 5; ++r) {
+      System.err.println("iterate ArrayListMultiMap " + iterate(lists) / 1000000 + " ms, CompactListMultiMap "
+          + iterate(compact) / 1000000 + " ms");
+    }
+  }
+
+  private static long iterate(Map<String, List<Integer>> map) {
+    long time = System.nanoTime();
+
+    long sum = 0;
+
+    for (List<Integer> values : map.values()) {
+      for (int i = 0; i < values.size(); ++i) {
+        sum += values.get(i);
+      }
+    }
+
+    time = System.nanoTime() - time;
+
+    if (sum == 0) {
+      System.err.println("empty");
+    }
+
+    return time;
+  }
+
+  private static long used() {
+    Runtime runtime = Runtime.getRuntime();
+
+    for (int i = 0; i < 4; ++i) {
+      System.gc();
+    }
+
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.jebtk.core.collections.LongRingBuffer;
+import org.jebtk.core.collections.MpscRingBuffer;
+import org.jebtk.core.collections.RingBuffer;
+import org.jebtk.core.collections.SpscRingBuffer;
+
+/**
+ * Compares the throughput of handing objects from one producer thread to one
+ * consumer thread through an ArrayBlockingQueue and the ring buffers, with
+ * and without batching. Run from the command line; it is not a unit test.
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes org.jebtk.test.RingBufferBenchmark
+ * </pre>
+ */
+public class RingBufferBenchmark {
+
+  private static final int N = 20000000;
+
+  private static final int CAPACITY = 1024;
+
+  private static final int BATCH = 64;
+
+  private static final int ROUNDS = 5;
+
+  private static final Integer[] VALUES = new Integer[CAPACITY];
+
+  static {
+    for (int i = 0; i < CAPACITY; ++i) {
+      VALUES[i] = i;
+    }
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    for (int r = 0; r < ROUNDS; ++r) {
+      System.err.println("ArrayBlockingQueue " + opsPerSec(blockingQueue()) + " ops/s, spsc "
+          + opsPerSec(ringBuffer(new SpscRingBuffer<Integer>(CAPACITY), 1)) + " ops/s, spsc batched "
+          + opsPerSec(ringBuffer(new SpscRingBuffer<Integer>(CAPACITY), BATCH)) + " ops/s, mpsc "
+          + opsPerSec(ringBuffer(new MpscRingBuffer<Integer>(CAPACITY), 1)) + " ops/s, long "
+          + opsPerSec(longs()) + " ops/s");
+    }
+  }
+
+  private static long blockingQueue() throws InterruptedException {
+    final ArrayBlockingQueue<Integer> queue = new ArrayBlockingQueue<Integer>(CAPACITY);
+
+    Thread producer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          for (int i = 0; i < N; ++i) {
+            queue.put(VALUES[i & (CAPACITY - 1)]);
+          }
+        } catch (InterruptedException e) {
+          // stop
+        }
+      }
+    });
+
+    long time = System.nanoTime();
+
+    producer.start();
+
+    for (int i = 0; i < N; ++i) {
+      queue.take();
+    }
+
+    producer.join();
+
+    return System.nanoTime() - time;
+  }
+
+  private static long ringBuffer(final RingBuffer<Integer> buffer, final int batch) throws InterruptedException {
+    Thread producer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        List<Integer> values = new ArrayList<Integer>(batch);
+
+        for (int i = 0; i < N; i += batch) {
+          if (batch == 1) {
+            while (!buffer.offer(VALUES[i & (CAPACITY - 1)])) {
+              Thread.yield();
+            }
+          } else {
+            values.clear();
+
+            for (int j = 0; j < batch; ++j) {
+              values.add(VALUES[(i + j) & (CAPACITY - 1)]);
+            }
+
+            int added = 0;
+
+            while (added < batch) {
+              int n = buffer.offerAll(values.subList(added, batch));
+
+              if (n == 0) {
+                Thread.yield();
+              }
+
+              added += n;
+            }
+          }
+        }
+      }
+    });
+
+    List<Integer> drained = new ArrayList<Integer>(batch);
+
+    long time = System.nanoTime();
+
+    producer.start();
+
+    for (int i = 0; i < N;) {
+      if (batch == 1) {
+        if (buffer.poll() != null) {
+          ++i;
+        } else {
+          Thread.yield();
+        }
+      } else {
+        drained.clear();
+
+        int n = buffer.drainTo(drained, batch);
+
+        if (n == 0) {
+          Thread.yield();
+        }
+
+        i += n;
+      }
+    }
+
+    producer.join();
+
+    return System.nanoTime() - time;
+  }
+
+  private static long longs() throws InterruptedException {
+    final LongRingBuffer buffer = new LongRingBuffer(CAPACITY);
+
+    Thread producer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < N; ++i) {
+          while (!buffer.offer(i)) {
+            Thread.yield();
+          }
+        }
+      }
+    });
+
+    long time = System.nanoTime();
+
+    producer.start();
+
+    for (int i = 0; i < N;) {
+      if (buffer.poll(-1) != -1) {
+        ++i;
+      } else {
+        Thread.yield();
+      }
+    }
+
+    producer.join();
+
+    return System.nanoTime() - time;
+  }
+
+  private static long opsPerSec(long nanos) {
+    return (long) ((double) N / nanos * 1e9);
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.jebtk.core.collections.CollectionUtils;
+
+/**
+ * Compares sorting random doubles and ints with {@link Arrays#sort(double[])},
+ * {@link CollectionUtils#sort(double[])} (parallel for large arrays),
+ * {@link CollectionUtils#radixSort(double[])}, and argsorting with
+ * {@link CollectionUtils#argsort(double[])} against sorting boxed indices with
+ * a comparator. Run from the command line; it is not a unit test. Sizes in
+ * millions can be given as arguments, but 100 million needs a heap of several
+ * gigabytes.
+ *
+ * <pre>
+ * java -Xmx8g -cp target/classes:target/test-classes org.jebtk.test.SortBenchmark 1 10 100
+ * </pre>
+ */
+public class SortBenchmark {
+
+  private static final int ROUNDS = 3;
+
+  public static void main(String[] args) {
+    int[] sizes = { 1, 10 };
+
+    if (args.length > 0) {
+      sizes = new int[args.length];
+
+      for (int i = 0; i < args.length; ++i) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    for (int m : sizes) {
+      int n = m * 1000000;
+
+      Random rand = new Random(m);
+
+      final double[] values = new double[n];
+      int[] ints = new int[n];
+
+      for (int i = 0; i < n; ++i) {
+        values[i] = rand.nextGaussian();
+        ints[i] = rand.nextInt();
+      }
+
+      long sort = Long.MAX_VALUE;
+      long parallel = Long.MAX_VALUE;
+      long radix = Long.MAX_VALUE;
+      long intSort = Long.MAX_VALUE;
+      long intRadix = Long.MAX_VALUE;
+      long argsort = Long.MAX_VALUE;
+      long boxed = Long.MAX_VALUE;
+
+      for (int r = 0; r < ROUNDS; ++r) {
+        double[] d = Arrays.copyOf(values, n);
+        long time = System.nanoTime();
+        Arrays.sort(d);
+        sort = Math.min(sort, System.nanoTime() - time);
+
+        d = Arrays.copyOf(values, n);
+        time = System.nanoTime();
+        CollectionUtils.sort(d);
+        parallel = Math.min(parallel, System.nanoTime() - time);
+
+        d = Arrays.copyOf(values, n);
+        time = System.nanoTime();
+        CollectionUtils.radixSort(d);
+        radix = Math.min(radix, System.nanoTime() - time);
+
+        int[] a = Arrays.copyOf(ints, n);
+        time = System.nanoTime();
+        Arrays.sort(a);
+        intSort = Math.min(intSort, System.nanoTime() - time);
+
+        a = Arrays.copyOf(ints, n);
+        time = System.nanoTime();
+        CollectionUtils.radixSort(a);
+        intRadix = Math.min(intRadix, System.nanoTime() - time);
+
+        time = System.nanoTime();
+        CollectionUtils.argsort(values);
+        argsort = Math.min(argsort, System.nanoTime() - time);
+
+        // the boxed comparator sort is slow, so only time it up to 10M
+        if (m <= 10) {
+          time = System.nanoTime();
+          boxedArgsort(values);
+          boxed = Math.min(boxed, System.nanoTime() - time);
+        }
+      }
+
+      System.err.println(m + "M doubles: Arrays.sort " + ms(sort) + " ms, sort " + ms(parallel) + " ms, radixSort "
+          + ms(radix) + " ms; ints: Arrays.sort " + ms(intSort) + " ms, radixSort " + ms(intRadix)
+          + " ms; argsort " + ms(argsort) + " ms, boxed argsort " + (m <= 10 ? ms(boxed) + " ms" : "skipped"));
+    }
+  }
+
+  private static List<Integer> boxedArgsort(final double[] values) {
+    List<Integer> ret = new ArrayList<Integer>(values.length);
+
+    for (int i = 0; i < values.length; ++i) {
+      ret.add(i);
+    }
+
+    Collections.sort(ret, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer i1, Integer i2) {
+        return Double.compare(values[i1], values[i2]);
+      }
+    });
+
+    return ret;
+  }
+
+  private static long ms(long nanos) {
+    return nanos / 1000000;
+  }
+}
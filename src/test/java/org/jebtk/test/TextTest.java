@@ -16,7 +16,17 @@ toString * Copyright 2016 Antony Holmes
 package org.jebtk.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
 
+import java.util.Arrays;
+
+import org.jebtk.core.text.DateUtils;
+import org.jebtk.core.text.MultiMatcher;
+import org.jebtk.core.text.PatternCache;
+import org.jebtk.core.text.RegexSet;
+import org.jebtk.core.text.StringPool;
 import org.jebtk.core.text.TextUtils;
 import org.junit.Test;
 
@@ -39,4 +49,63 @@ public class TextTest {
     System.err.println("blocl " + TextUtils.parseDouble("200 %"));
     assertEquals("parse num", 200, TextUtils.parseDouble("200 %"), 0.0001);
   }
+
+  @Test
+  public void stringPoolTest() {
+    StringPool pool = new StringPool();
+
+    String s1 = pool.intern("chr1\t100", 0, 4);
+    String s2 = pool.intern("xchr1", 1, 5);
+
+    assertEquals("pool value", "chr1", s1);
+    assertSame("pool dedup", s1, s2);
+  }
+
+  @Test
+  public void multiMatcherTest() {
+    MultiMatcher matcher = MultiMatcher.compile("he", "she", "his", "hers");
+
+    assertEquals("multi match", Arrays.asList("she", "he", "hers"), matcher.findAll("uSHErs"));
+    assertFalse("multi no match", matcher.find("xyz"));
+
+    MultiMatcher words = MultiMatcher.compile(Arrays.asList("BCL6", "MYC"), false, true);
+
+    assertTrue("whole word", words.find("expression of myc, bcl2"));
+    assertFalse("partial word", words.find("expression of MYCN"));
+  }
+
+  @Test
+  public void patternCacheTest() {
+    PatternCache cache = new PatternCache();
+
+    assertSame("cached pattern", cache.get("a+b"), cache.get("a+b"));
+    assertEquals("cache hits", 1, cache.getHits());
+
+    RegexSet set = RegexSet.compile(Arrays.asList("^chr\\d+$", "(a)\\1"));
+
+    assertFalse("back reference", set.isCombined());
+    assertTrue("regex set match", set.matches("chr12"));
+    assertTrue("regex set back reference", set.find("xaa"));
+    assertFalse("regex set no match", set.find("chrX"));
+
+    // Two named groups with the same name cannot share one pattern
+    set = RegexSet.compile(Arrays.asList("(?<g>a)b", "(?<g>c)d"));
+
+    assertFalse("named group", set.isCombined());
+    assertTrue("regex set named group", set.find("xcd"));
+
+    set = RegexSet.compile(Arrays.asList("(?<=a)b", "(?<!c)d"));
+
+    assertTrue("lookbehind", set.isCombined());
+    assertTrue("regex set lookbehind", set.find("ab"));
+    assertFalse("regex set negative lookbehind", set.find("cd"));
+  }
+
+  @Test
+  public void isoTimestampTest() {
+    assertEquals("iso epoch", "1970-01-01T00:00:00.000Z", DateUtils.formatIsoTimestamp(0));
+    assertEquals("iso leap day", "2000-02-29T00:00:00.123Z", DateUtils.formatIsoTimestamp(951782400123L));
+    assertEquals("iso before epoch", "1969-12-30T23:59:59.999Z", DateUtils.formatIsoTimestamp(-86400001L));
+    assertEquals("parse date", 2016, DateUtils.parseDate("2016-02-29").getYear());
+  }
 }